@@ -15,6 +15,7 @@ import type {
 
 export interface EventMap {
     socketReady: void;
+    socketHandshake: SocketHandshakeEvent;
 
     clickGuiScaleChange: ClickGuiScaleChangeEvent;
     clickGuiValueChange: ClickGuiValueChangeEvent;
@@ -51,7 +52,9 @@ export interface EventMap {
     //UserInterfaceEvents.kt
     fps: FpsChangeEvent;
     clientPlayerData: ClientPlayerDataEvent;
+    clientPlayerDataPatch: ClientPlayerPatchEvent;
     clientPlayerInventory: ClientPlayerInventoryEvent;
+    clientPlayerInventoryPatch: ClientPlayerPatchEvent;
     title: TitleEventTitle;
     subtitle: TitleEventSubtitle;
     titleFade: TitleEventFade;
@@ -169,6 +172,22 @@ export interface ClientPlayerInventoryEvent {
     inventory: PlayerInventory;
 }
 
+export interface SocketHandshakeEvent {
+    // Id of this connection, to ask for batched events with
+    connection: string;
+}
+
+export interface PatchOperation {
+    op: "replace";
+    // JSON pointer, empty to replace the whole state
+    path: string;
+    value?: any;
+}
+
+export interface ClientPlayerPatchEvent {
+    patch: PatchOperation[];
+}
+
 export interface PlayerInventory {
     armor: ItemStack[];
     main: ItemStack[];
@@ -0,0 +1,68 @@
+import {type Writable, writable} from "svelte/store";
+import {REST_BASE} from "./host";
+import {listenAlways} from "./ws";
+
+/**
+ * Where the icon of each item is on the item atlas, a single image with the icons of all items.
+ */
+export interface ItemAtlasIndex {
+    width: number;
+    height: number;
+    // x, y, width and height of the icon of each item
+    items: Record<string, [number, number, number, number]>;
+    // Blocks without an icon of their own, mapped to the item whose icon they use
+    aliases: Record<string, string>;
+}
+
+const ITEM_ATLAS_URL = `${REST_BASE}/api/v1/client/resource/itemAtlas`;
+const RETRY_DELAY = 5000;
+
+export const itemAtlas: Writable<ItemAtlasIndex | null> = writable(null);
+
+let retry: ReturnType<typeof setTimeout> | undefined;
+
+async function loadItemAtlas() {
+    clearTimeout(retry);
+
+    try {
+        const response = await fetch(`${ITEM_ATLAS_URL}/index`);
+
+        if (response.ok) {
+            itemAtlas.set(await response.json());
+            return;
+        }
+    } catch {
+        // Retried below
+    }
+
+    // The atlas is only rendered once the client is in game
+    retry = setTimeout(loadItemAtlas, RETRY_DELAY);
+}
+
+/**
+ * The style which shows the icon of an item from the atlas as background or mask, scaled to the size in pixels.
+ *
+ * @return null if the item is not on the atlas, its icon has to be loaded from {@link itemIconUrl} then
+ */
+export function itemSpriteStyle(atlas: ItemAtlasIndex | null, identifier: string, size: number,
+                                property: "background" | "mask" = "background"): string | null {
+    const rect = atlas?.items[atlas.aliases[identifier] ?? identifier];
+
+    if (!atlas || !rect) {
+        return null;
+    }
+
+    const [x, y, width] = rect;
+    const scale = size / width;
+
+    return `${property}-image: url(${ITEM_ATLAS_URL}); ` +
+        `${property}-position: ${-x * scale}px ${-y * scale}px; ` +
+        `${property}-size: ${atlas.width * scale}px ${atlas.height * scale}px; ` +
+        `${property}-repeat: no-repeat;`;
+}
+
+export function itemIconUrl(identifier: string) {
+    return `${REST_BASE}/api/v1/client/resource/itemTexture?id=${identifier}`;
+}
+
+listenAlways("socketReady", loadItemAtlas);
@@ -0,0 +1,129 @@
+import {dispatch, listenAlways} from "./ws";
+import {enableSocketPatches, getPlayerData, getPlayerInventory} from "./rest";
+import type {PatchOperation, PlayerInventory} from "./events";
+import type {PlayerData} from "./types";
+
+/**
+ * Keeps the player data and inventory up to date from the patches sent by the client,
+ * and passes the full state on as clientPlayerData and clientPlayerInventory events.
+ *
+ * The full state is fetched whenever the socket (re)connects, patches arriving meanwhile are applied afterward.
+ * Until the client received our request for patches, it sends the full state itself, which replaces the patched one.
+ */
+class PatchedState<T extends object> {
+    private state: T | null = null;
+    private pending: PatchOperation[][] | null = null;
+
+    constructor(private readonly fetchState: () => Promise<T>,
+                private readonly publish: (state: T) => void) {
+    }
+
+    async resync() {
+        this.pending = [];
+
+        let state: T | null = null;
+        try {
+            state = await this.fetchState();
+        } catch {
+            // Not in game
+        }
+
+        const pending = this.pending;
+        this.pending = null;
+        this.state = state;
+
+        for (const patch of pending) {
+            this.apply(patch);
+        }
+
+        if (this.state) {
+            this.publish(this.state);
+        }
+    }
+
+    onPatch(patch: PatchOperation[]) {
+        if (this.pending) {
+            this.pending.push(patch);
+            return;
+        }
+
+        this.apply(patch);
+
+        if (this.state) {
+            this.publish(this.state);
+        }
+    }
+
+    /**
+     * Takes over a full state sent by the client, its listeners received it already.
+     */
+    onState(state: T) {
+        if (state === this.state) {
+            // Published by us
+            return;
+        }
+
+        const patch: PatchOperation[] = [{op: "replace", path: "", value: state}];
+
+        if (this.pending) {
+            this.pending.push(patch);
+        } else {
+            this.apply(patch);
+        }
+    }
+
+    private apply(patch: PatchOperation[]) {
+        for (const operation of patch) {
+            const value = operation.value ?? null;
+
+            if (operation.path === "") {
+                this.state = value;
+                continue;
+            }
+
+            // Patches only apply on top of a full state
+            if (!this.state) {
+                continue;
+            }
+
+            this.state = replaceIn(this.state, operation.path.substring(1).split("/"), value);
+        }
+    }
+}
+
+/**
+ * Replaces the value at the path of [keys], copying the objects and arrays along it,
+ * since listeners only notice new references.
+ */
+function replaceIn(target: any, keys: string[], value: any): any {
+    if (keys.length === 0) {
+        return value;
+    }
+
+    const copy = Array.isArray(target) ? [...target] : {...target};
+    copy[keys[0]] = replaceIn(target?.[keys[0]], keys.slice(1), value);
+    return copy;
+}
+
+const playerData = new PatchedState<PlayerData>(getPlayerData, (playerData) => {
+    dispatch("clientPlayerData", {playerData});
+});
+
+const playerInventory = new PatchedState<PlayerInventory>(getPlayerInventory, (inventory) => {
+    dispatch("clientPlayerInventory", {inventory});
+});
+
+listenAlways("socketReady", () => {
+    playerData.resync();
+    playerInventory.resync();
+});
+
+listenAlways("socketHandshake", (event) => {
+    enableSocketPatches(event.connection)
+        .catch(error => console.error("[WS] Failed to enable patches: ", error));
+});
+
+listenAlways("clientPlayerDataPatch", (event) => playerData.onPatch(event.patch));
+listenAlways("clientPlayerInventoryPatch", (event) => playerInventory.onPatch(event.patch));
+listenAlways("clientPlayerData", (event) => playerData.onState(event.playerData));
+listenAlways("clientPlayerInventory", (event) => playerInventory.onState(event.inventory));
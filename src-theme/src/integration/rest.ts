@@ -73,6 +73,22 @@ export async function setModuleSettings(name: string, settings: ConfigurableSett
     });
 }
 
+export async function enableSocketBatching(connection: string) {
+    const searchParams = new URLSearchParams({connection});
+
+    await fetch(`${API_BASE}/client/socket/batching?${searchParams.toString()}`, {
+        method: "PUT"
+    });
+}
+
+export async function enableSocketPatches(connection: string) {
+    const searchParams = new URLSearchParams({connection});
+
+    await fetch(`${API_BASE}/client/socket/patches?${searchParams.toString()}`, {
+        method: "PUT"
+    });
+}
+
 export async function getSpooferSettings(): Promise<ConfigurableSetting> {
     const response = await fetch(`${API_BASE}/client/spoofer`);
     const data = await response.json();
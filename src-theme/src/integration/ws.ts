@@ -1,5 +1,6 @@
 import {WS_BASE} from "./host";
 import type {EventMap} from "./events";
+import {enableSocketBatching} from "./rest";
 
 console.log("Connecting to server at: ", WS_BASE);
 
@@ -26,14 +27,22 @@ function connect() {
 
     ws.onmessage = (event) => {
         const json = JSON.parse(event.data);
-        const eventName = json.name;
-        const eventData = json.event;
 
-        alwaysListeners.get(eventName)?.forEach(callback => callback(eventData));
-        listeners.get(eventName)?.forEach(callback => callback(eventData));
+        // Once batching is enabled, events published around the same time arrive as one batch
+        for (const message of Array.isArray(json) ? json : [json]) {
+            dispatch(message.name, message.event);
+        }
     }
 }
 
+/**
+ * Calls the listeners of an event, also used for events which are derived from others on this side.
+ */
+export function dispatch<NAME extends keyof EventMap>(eventName: NAME, eventData: EventMap[NAME]) {
+    alwaysListeners.get(eventName)?.forEach(callback => callback(eventData));
+    listeners.get(eventName)?.forEach(callback => callback(eventData));
+}
+
 const alwaysListeners = new Map<keyof EventMap, Function[]>();
 const listeners = new Map<keyof EventMap, Function[]>();
 
@@ -79,3 +88,8 @@ setInterval(() => {
 }, 5000);
 
 connect();
+
+listenAlways("socketHandshake", (event) => {
+    enableSocketBatching(event.connection)
+        .catch(error => console.error("[WS] Failed to enable batching: ", error));
+});
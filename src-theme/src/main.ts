@@ -1,6 +1,7 @@
 import "./app.scss";
 import App from "./App.svelte";
 import {mount} from "svelte";
+import "./integration/player_state";
 
 const app = mount(App, {
     target: document.getElementById("app")}
@@ -49,6 +49,10 @@ public class MixinBlock {
      */
     @ModifyReturnValue(method = "getVelocityMultiplier", at = @At("RETURN"))
     private float hookVelocityMultiplier(float original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(BlockVelocityMultiplierEvent.class)) {
+            return original;
+        }
+
         final var multiplierEvent = EventManager.INSTANCE.callEvent(new BlockVelocityMultiplierEvent((Block) (Object) this, original));
         return multiplierEvent.getMultiplier();
     }
@@ -60,6 +64,10 @@ public class MixinBlock {
      */
     @ModifyReturnValue(method = "getSlipperiness", at = @At("RETURN"))
     private float hookSlipperinessMultiplier(float original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(BlockSlipperinessMultiplierEvent.class)) {
+            return original;
+        }
+
         final var slipperinessEvent = EventManager.INSTANCE.callEvent(new BlockSlipperinessMultiplierEvent((Block) (Object) this, original));
         return slipperinessEvent.getSlipperiness();
     }
@@ -50,12 +50,17 @@ public class MixinBlockCollisionSpliterator {
             target = "Lnet/minecraft/block/ShapeContext;getCollisionShape(Lnet/minecraft/block/BlockState;Lnet/minecraft/world/CollisionView;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/util/shape/VoxelShape;"
     ))
     private VoxelShape hookCollisionShape(VoxelShape original, @Local BlockState blockState) {
-        if (this.pos == null || ShapeFlag.noShapeChange) {
+        if (this.pos == null || ShapeFlag.noShapeChange
+                || !EventManager.INSTANCE.hasActiveListeners(BlockShapeEvent.class)) {
             return original;
         }
 
-        final BlockShapeEvent shapeEvent = EventManager.INSTANCE.callEvent(new BlockShapeEvent(blockState, this.pos, original));
-        return shapeEvent.getShape();
+        final BlockShapeEvent shapeEvent = BlockShapeEvent.POOL.acquire();
+        try {
+            return EventManager.INSTANCE.callEvent(shapeEvent.reset(blockState, this.pos, original)).getShape();
+        } finally {
+            BlockShapeEvent.POOL.release(shapeEvent);
+        }
     }
 
 }
@@ -46,6 +46,10 @@ public class MixinKeyBinding {
 
     @ModifyReturnValue(method = "isPressed", at = @At("RETURN"))
     private boolean isPressed(boolean original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(KeybindIsPressedEvent.class)) {
+            return original;
+        }
+
         return EventManager.INSTANCE.callEvent(new KeybindIsPressedEvent((KeyBinding) (Object) this, original)).isPressed();
     }
 
@@ -77,9 +77,18 @@ public abstract class MixinKeyboardInput extends MixinInput {
     private PlayerInput modifyInput(PlayerInput original) {
         this.initial = original;
 
-        var event = new MovementInputEvent(new DirectionalInput(original), original.jump(), original.sneak());
-        EventManager.INSTANCE.callEvent(event);
-        var untransformedDirectionalInput = event.getDirectionalInput();
+        var event = MovementInputEvent.POOL.acquire();
+        DirectionalInput untransformedDirectionalInput;
+        boolean jump;
+        boolean sneak;
+        try {
+            EventManager.INSTANCE.callEvent(event.reset(new DirectionalInput(original), original.jump(), original.sneak()));
+            untransformedDirectionalInput = event.getDirectionalInput();
+            jump = event.getJump();
+            sneak = event.getSneak();
+        } finally {
+            MovementInputEvent.POOL.release(event);
+        }
         var directionalInput = transformDirection(untransformedDirectionalInput);
 
         var sprintEvent = new SprintEvent(directionalInput, original.sprint(), SprintEvent.Source.INPUT);
@@ -91,8 +100,8 @@ public abstract class MixinKeyboardInput extends MixinInput {
                 untransformedDirectionalInput.getBackwards(),
                 untransformedDirectionalInput.getLeft(),
                 untransformedDirectionalInput.getRight(),
-                event.getJump(),
-                event.getSneak(),
+                jump,
+                sneak,
                 sprintEvent.getSprint()
         );
 
@@ -101,8 +110,8 @@ public abstract class MixinKeyboardInput extends MixinInput {
                 directionalInput.getBackwards(),
                 directionalInput.getLeft(),
                 directionalInput.getRight(),
-                event.getJump(),
-                event.getSneak(),
+                jump,
+                sneak,
                 sprintEvent.getSprint()
         );
     }
@@ -35,8 +35,7 @@ import net.ccbluex.liquidbounce.features.module.modules.render.ModuleFreeCam;
 import net.ccbluex.liquidbounce.features.module.modules.render.ModuleNoSwing;
 import net.ccbluex.liquidbounce.integration.BrowserScreen;
 import net.ccbluex.liquidbounce.integration.VirtualDisplayScreen;
-import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerData;
-import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerInventoryData;
+import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerStateTracker;
 import net.ccbluex.liquidbounce.interfaces.ClientPlayerEntityAddition;
 import net.ccbluex.liquidbounce.utils.aiming.RotationManager;
 import net.ccbluex.liquidbounce.utils.aiming.data.Rotation;
@@ -70,12 +69,6 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
     @Shadow
     public abstract boolean isSubmergedInWater();
 
-    @Unique
-    private PlayerData lastKnownStatistics = null;
-
-    @Unique
-    private PlayerInventoryData lastKnownInventory = null;
-
     @Unique
     private PlayerNetworkMovementTickEvent eventMotion;
 
@@ -108,19 +101,8 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
     private void hookPostTickEvent(CallbackInfo ci) {
         EventManager.INSTANCE.callEvent(PlayerPostTickEvent.INSTANCE);
 
-        // Call player statistics change event when statistics change
-        var statistics = PlayerData.Companion.fromPlayer((ClientPlayerEntity) (Object) this);
-        if (lastKnownStatistics == null || !lastKnownStatistics.equals(statistics)) {
-            EventManager.INSTANCE.callEvent(ClientPlayerDataEvent.Companion.fromPlayerStatistics(statistics));
-        }
-        this.lastKnownStatistics = statistics;
-
-        // Call player inventory event when inventory changes
-        var playerInventory = PlayerInventoryData.Companion.fromPlayer((ClientPlayerEntity) (Object) this);
-        if (lastKnownInventory == null || !lastKnownInventory.equals(playerInventory)) {
-            EventManager.INSTANCE.callEvent(ClientPlayerInventoryEvent.Companion.fromPlayerInventory(playerInventory));
-        }
-        this.lastKnownInventory = playerInventory;
+        // Publish what changed of the player statistics and inventory
+        PlayerStateTracker.tick((ClientPlayerEntity) (Object) this);
     }
 
     /**
@@ -184,6 +166,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
             return;
         }
 
+        if (!EventManager.INSTANCE.hasActiveListeners(PlayerPushOutEvent.class)) {
+            return;
+        }
+
         final PlayerPushOutEvent pushOutEvent = new PlayerPushOutEvent();
         EventManager.INSTANCE.callEvent(pushOutEvent);
         if (pushOutEvent.isCancelled()) {
@@ -196,7 +182,16 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
      */
     @ModifyVariable(method = "move", at = @At("HEAD"), name = "arg2", ordinal = 0, index = 2, argsOnly = true)
     private Vec3d hookMove(Vec3d movement, MovementType type) {
-        return EventManager.INSTANCE.callEvent(new PlayerMoveEvent(type, movement)).getMovement();
+        if (!EventManager.INSTANCE.hasActiveListeners(PlayerMoveEvent.class)) {
+            return movement;
+        }
+
+        final PlayerMoveEvent moveEvent = PlayerMoveEvent.POOL.acquire();
+        try {
+            return EventManager.INSTANCE.callEvent(moveEvent.reset(type, movement)).getMovement();
+        } finally {
+            PlayerMoveEvent.POOL.release(moveEvent);
+        }
     }
 
     /**
@@ -240,6 +235,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
      */
     @ModifyExpressionValue(method = "tickMovement", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/network/ClientPlayerEntity;getAttributeValue(Lnet/minecraft/registry/entry/RegistryEntry;)D"))
     private double hookCustomSneakingMultiplier(double original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PlayerSneakMultiplier.class)) {
+            return original;
+        }
+
         var playerSneakMultiplier = new PlayerSneakMultiplier(original);
         EventManager.INSTANCE.callEvent(playerSneakMultiplier);
         return playerSneakMultiplier.getMultiplier();
@@ -250,6 +249,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
      */
     @Inject(method = "tickMovement", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/network/ClientPlayerEntity;isUsingItem()Z", ordinal = 0))
     private void hookCustomMultiplier(CallbackInfo callbackInfo) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PlayerUseMultiplier.class)) {
+            return;
+        }
+
         final Input input = this.input;
         // reverse
         input.movementForward /= 0.2f;
@@ -343,6 +346,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
 
     @ModifyExpressionValue(method = "tickMovement", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/option/KeyBinding;isPressed()Z"))
     private boolean hookSprintStart(boolean original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(SprintEvent.class)) {
+            return original;
+        }
+
         var event = new SprintEvent(new DirectionalInput(input), original, SprintEvent.Source.MOVEMENT_TICK);
         EventManager.INSTANCE.callEvent(event);
         return event.getSprint();
@@ -350,6 +357,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
 
     @ModifyExpressionValue(method = "tickMovement", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/network/ClientPlayerEntity;canSprint()Z"))
     private boolean hookSprintStop(boolean original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(SprintEvent.class)) {
+            return original;
+        }
+
         var event = new SprintEvent(new DirectionalInput(input), original, SprintEvent.Source.MOVEMENT_TICK);
         EventManager.INSTANCE.callEvent(event);
         return event.getSprint();
@@ -383,6 +394,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
             target = "Lnet/minecraft/client/network/ClientPlayerEntity;isSprinting()Z")
     )
     private boolean hookNetworkSprint(boolean original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(SprintEvent.class)) {
+            return original;
+        }
+
         var event = new SprintEvent(new DirectionalInput(input), original, SprintEvent.Source.NETWORK);
         EventManager.INSTANCE.callEvent(event);
         return event.getSprint();
@@ -393,6 +408,10 @@ public abstract class MixinClientPlayerEntity extends MixinPlayerEntity implemen
             target = "Lnet/minecraft/client/network/ClientPlayerEntity;isSneaking()Z")
     )
     private boolean hookNetworkSneak(boolean original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(SneakNetworkEvent.class)) {
+            return original;
+        }
+
         var event = new SneakNetworkEvent(new DirectionalInput(input), original);
         EventManager.INSTANCE.callEvent(event);
         return event.getSneak();
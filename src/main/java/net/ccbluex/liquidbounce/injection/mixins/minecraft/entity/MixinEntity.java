@@ -85,6 +85,10 @@ public abstract class MixinEntity {
      */
     @Inject(method = "getTargetingMargin", at = @At("RETURN"), cancellable = true)
     private void hookMargin(CallbackInfoReturnable<Float> callback) {
+        if (!EventManager.INSTANCE.hasActiveListeners(EntityMarginEvent.class)) {
+            return;
+        }
+
         EntityMarginEvent marginEvent = new EntityMarginEvent((Entity) (Object) this, callback.getReturnValue());
         EventManager.INSTANCE.callEvent(marginEvent);
         callback.setReturnValue(marginEvent.getMargin());
@@ -113,18 +117,23 @@ public abstract class MixinEntity {
 
     @ModifyExpressionValue(method = "updateVelocity", at = @At(value = "INVOKE", target = "Lnet/minecraft/entity/Entity;movementInputToVelocity(Lnet/minecraft/util/math/Vec3d;FF)Lnet/minecraft/util/math/Vec3d;"))
     public Vec3d hookVelocity(Vec3d original, @Local(argsOnly = true) Vec3d movementInput, @Local(argsOnly = true) float speed, @Local(argsOnly = true) float yaw) {
-        if ((Object) this != MinecraftClient.getInstance().player) {
+        if ((Object) this != MinecraftClient.getInstance().player
+                || !EventManager.INSTANCE.hasActiveListeners(PlayerVelocityStrafe.class)) {
             return original;
         }
 
-        var event = new PlayerVelocityStrafe(movementInput, speed, yaw, original);
-        EventManager.INSTANCE.callEvent(event);
-        return event.getVelocity();
+        var event = PlayerVelocityStrafe.POOL.acquire();
+        try {
+            return EventManager.INSTANCE.callEvent(event.reset(movementInput, speed, yaw, original)).getVelocity();
+        } finally {
+            PlayerVelocityStrafe.POOL.release(event);
+        }
     }
 
     @ModifyExpressionValue(method = "adjustMovementForCollisions(Lnet/minecraft/util/math/Vec3d;)Lnet/minecraft/util/math/Vec3d;", at = @At(value = "INVOKE", target = "Lnet/minecraft/entity/Entity;getStepHeight()F"))
     private float hookStepHeight(float original) {
-        if ((Object) this != MinecraftClient.getInstance().player) {
+        if ((Object) this != MinecraftClient.getInstance().player
+                || !EventManager.INSTANCE.hasActiveListeners(PlayerStepEvent.class)) {
             return original;
         }
 
@@ -136,7 +145,8 @@ public abstract class MixinEntity {
     @Inject(method = "adjustMovementForCollisions(Lnet/minecraft/util/math/Vec3d;)Lnet/minecraft/util/math/Vec3d;",
             at = @At(value = "RETURN", ordinal = 0), cancellable = true)
     private void hookStepHeight(Vec3d movement, CallbackInfoReturnable<Vec3d> cir) {
-        if ((Object) this == MinecraftClient.getInstance().player) {
+        if ((Object) this == MinecraftClient.getInstance().player
+                && EventManager.INSTANCE.hasActiveListeners(PlayerStepSuccessEvent.class)) {
             PlayerStepSuccessEvent movementCollisionsEvent = new PlayerStepSuccessEvent(movement, cir.getReturnValue());
             EventManager.INSTANCE.callEvent(movementCollisionsEvent);
             cir.setReturnValue(movementCollisionsEvent.getAdjustedVec());
@@ -166,7 +176,8 @@ public abstract class MixinEntity {
 
     @Inject(method = "updateMovementInFluid", at = @At("HEAD"), cancellable = true)
     private void hookFluidMovement(TagKey<Fluid> tag, double speed, CallbackInfoReturnable<Boolean> cir) {
-        if ((Object) this == MinecraftClient.getInstance().player) {
+        if ((Object) this == MinecraftClient.getInstance().player
+                && EventManager.INSTANCE.hasActiveListeners(PlayerFluidCollisionCheckEvent.class)) {
             var event = EventManager.INSTANCE.callEvent(new PlayerFluidCollisionCheckEvent(tag));
 
             if (event.isCancelled()) {
@@ -177,7 +188,8 @@ public abstract class MixinEntity {
 
     @Inject(method = "isSubmergedIn", at = @At("HEAD"), cancellable = true)
     private void hookIsSubmergedIn(TagKey<Fluid> fluidTag, CallbackInfoReturnable<Boolean> cir) {
-        if ((Object) this == MinecraftClient.getInstance().player) {
+        if ((Object) this == MinecraftClient.getInstance().player
+                && EventManager.INSTANCE.hasActiveListeners(PlayerFluidCollisionCheckEvent.class)) {
             var event = EventManager.INSTANCE.callEvent(new PlayerFluidCollisionCheckEvent(fluidTag));
 
             if (event.isCancelled()) {
@@ -340,7 +340,7 @@ public abstract class MixinLivingEntity extends MixinEntity {
         var maxHealth = this.getMaxHealth();
         var newHealth = MathHelper.clamp(health, 0.0F, maxHealth);
 
-        if (oldHealth != newHealth) {
+        if (oldHealth != newHealth && EventManager.INSTANCE.hasActiveListeners(EntityHealthUpdateEvent.class)) {
             EventManager.INSTANCE.callEvent(new EntityHealthUpdateEvent((LivingEntity) (Object) this, oldHealth, newHealth, maxHealth));
         }
     }
@@ -70,6 +70,10 @@ public abstract class MixinPlayerEntity extends MixinLivingEntity {
      */
     @ModifyVariable(method = "tickMovement", at = @At(value = "FIELD", target = "Lnet/minecraft/entity/player/PlayerEntity;strideDistance:F", shift = At.Shift.BEFORE, ordinal = 0), slice = @Slice(from = @At(value = "INVOKE", target = "Lnet/minecraft/entity/player/PlayerEntity;setMovementSpeed(F)V"), to = @At(value = "INVOKE", target = "Lnet/minecraft/entity/player/PlayerEntity;isSpectator()Z")), index = 1, ordinal = 0, require = 1, allow = 1)
     private float hookStrideForce(float strideForce) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PlayerStrideEvent.class)) {
+            return strideForce;
+        }
+
         final PlayerStrideEvent event = new PlayerStrideEvent(strideForce);
         EventManager.INSTANCE.callEvent(event);
         return event.getStrideForce();
@@ -80,6 +84,10 @@ public abstract class MixinPlayerEntity extends MixinLivingEntity {
      */
     @ModifyReturnValue(method = "clipAtLedge", at = @At("RETURN"))
     private boolean hookSafeWalk(boolean original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PlayerSafeWalkEvent.class)) {
+            return original;
+        }
+
         final var event = EventManager.INSTANCE.callEvent(new PlayerSafeWalkEvent());
         return original || event.isSafeWalk();
     }
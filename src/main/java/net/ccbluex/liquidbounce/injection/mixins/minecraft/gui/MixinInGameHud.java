@@ -245,6 +245,10 @@ public abstract class MixinInGameHud {
             )
     )
     private Perspective hookPerspectiveEventOnCrosshair(Perspective original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PerspectiveEvent.class)) {
+            return original;
+        }
+
         return EventManager.INSTANCE.callEvent(new PerspectiveEvent(original)).getPerspective();
     }
 
@@ -255,6 +259,10 @@ public abstract class MixinInGameHud {
             )
     )
     private Perspective hookPerspectiveEventOnMiscOverlays(Perspective original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PerspectiveEvent.class)) {
+            return original;
+        }
+
         return EventManager.INSTANCE.callEvent(new PerspectiveEvent(original)).getPerspective();
     }
 
@@ -41,7 +41,8 @@ public class MixinItemStack {
     @Inject(method = "getTooltip", at = @At("RETURN"), cancellable = true)
     void injectLoreQueryEvent(TooltipContext context, @Nullable PlayerEntity player, TooltipType type, CallbackInfoReturnable<List<Text>> cir) {
         List<Text> lore = cir.getReturnValue();
-        if (!(lore instanceof ArrayList<Text>)) {
+        if (!(lore instanceof ArrayList<Text>)
+                || !EventManager.INSTANCE.hasActiveListeners(ItemLoreQueryEvent.class)) {
             return;
         }
 
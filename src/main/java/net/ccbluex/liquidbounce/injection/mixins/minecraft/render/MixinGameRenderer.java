@@ -270,6 +270,10 @@ public abstract class MixinGameRenderer {
             )
     )
     private Perspective hookPerspectiveEventOnCamera(Perspective original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PerspectiveEvent.class)) {
+            return original;
+        }
+
         return EventManager.INSTANCE.callEvent(new PerspectiveEvent(original)).getPerspective();
     }
 
@@ -280,6 +284,10 @@ public abstract class MixinGameRenderer {
             )
     )
     private Perspective hookPerspectiveEventOnHand(Perspective original) {
+        if (!EventManager.INSTANCE.hasActiveListeners(PerspectiveEvent.class)) {
+            return original;
+        }
+
         return EventManager.INSTANCE.callEvent(new PerspectiveEvent(original)).getPerspective();
     }
 
@@ -33,6 +33,7 @@ import net.ccbluex.liquidbounce.render.shader.shaders.OutlineShader;
 import net.ccbluex.liquidbounce.utils.client.ClientUtilsKt;
 import net.ccbluex.liquidbounce.utils.client.error.ErrorHandler;
 import net.ccbluex.liquidbounce.utils.combat.CombatExtensionsKt;
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gl.Framebuffer;
 import net.minecraft.client.render.*;
@@ -93,6 +94,9 @@ public abstract class MixinWorldRenderer {
 
     @Inject(method = "render", at = @At("HEAD"))
     private void onRender(ObjectAllocator allocator, RenderTickCounter tickCounter, boolean renderBlockOutline, Camera camera, GameRenderer gameRenderer, Matrix4f positionMatrix, Matrix4f projectionMatrix, CallbackInfo ci) {
+        // Before the outline pass below, which culls against it as well
+        WorldToScreen.captureFrustum(positionMatrix, projectionMatrix, camera.getPos());
+
         try {
             OutlineShader outlineShader = OutlineShader.INSTANCE;
             outlineShader.update();
@@ -102,11 +106,13 @@ public abstract class MixinWorldRenderer {
             // Apply camera transformation to fix outline positioning
             matrixStack.peek().getPositionMatrix().mul(positionMatrix);
 
-            var event = new DrawOutlinesEvent(matrixStack, camera, tickCounter.getTickDelta(false), DrawOutlinesEvent.OutlineType.INBUILT_OUTLINE);
-            EventManager.INSTANCE.callEvent(event);
+            if (EventManager.INSTANCE.hasActiveListeners(DrawOutlinesEvent.class)) {
+                var event = new DrawOutlinesEvent(matrixStack, camera, tickCounter.getTickDelta(false), DrawOutlinesEvent.OutlineType.INBUILT_OUTLINE);
+                EventManager.INSTANCE.callEvent(event);
 
-            if (event.getDirtyFlag()) {
-                outlineShader.setDirty(true);
+                if (event.getDirtyFlag()) {
+                    outlineShader.setDirty(true);
+                }
             }
 
             client.getFramebuffer().beginWrite(false);
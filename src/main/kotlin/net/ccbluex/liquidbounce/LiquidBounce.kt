@@ -68,6 +68,7 @@ import net.ccbluex.liquidbounce.utils.block.ChunkScanner
 import net.ccbluex.liquidbounce.utils.client.*
 import net.ccbluex.liquidbounce.utils.client.error.ErrorHandler
 import net.ccbluex.liquidbounce.utils.combat.CombatManager
+import net.ccbluex.liquidbounce.utils.entity.PlayerSimulationCache
 import net.ccbluex.liquidbounce.utils.entity.RenderedEntities
 import net.ccbluex.liquidbounce.utils.input.InputTracker
 import net.ccbluex.liquidbounce.utils.inventory.InventoryManager
@@ -200,6 +201,7 @@ object LiquidBounce : EventListener {
         RenderedEntities
         ChunkScanner
         InputTracker
+        PlayerSimulationCache
 
         // Feature managers
         ModuleManager
@@ -350,7 +352,13 @@ object LiquidBounce : EventListener {
         val duration = measureTime {
             FontManager.createGlyphManager()
         }
-        logger.info("Completed loading fonts in ${duration.inWholeMilliseconds} ms.")
+        val glyphManager = FontManager.glyphManager
+        val atlasSource = if (glyphManager.isStaticPageCached) {
+            "cached glyph atlas, rendering it took ${glyphManager.staticPageRenderMillis} ms"
+        } else {
+            "rendered glyph atlas in ${glyphManager.staticPageRenderMillis} ms"
+        }
+        logger.info("Completed loading fonts in ${duration.inWholeMilliseconds} ms ($atlasSource).")
         logger.info("Fonts: [ ${FontManager.fontFaces.keys.joinToString()} ]")
     }
 
@@ -368,8 +376,10 @@ object LiquidBounce : EventListener {
         ChunkScanner.stopThread()
         EventManager.unregisterAll()
 
-        // Save all configurations
+        // Save all configurations, the game thread might not process the scheduled write anymore.
+        // The shutdown hook of the config writer waits for it, so the exit is not blocked here.
         ConfigSystem.storeAll()
+        ConfigSystem.flushOnExit()
 
         // Shutdown browser
         BrowserBackendManager.stop()
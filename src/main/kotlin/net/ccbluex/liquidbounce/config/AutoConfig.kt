@@ -19,6 +19,7 @@
 package net.ccbluex.liquidbounce.config
 
 import com.google.gson.JsonObject
+import com.google.gson.stream.JsonReader
 import net.ccbluex.liquidbounce.LiquidBounce
 import net.ccbluex.liquidbounce.api.models.client.AutoSettings
 import net.ccbluex.liquidbounce.api.services.client.ClientApi
@@ -29,8 +30,11 @@ import net.ccbluex.liquidbounce.authlib.utils.int
 import net.ccbluex.liquidbounce.authlib.utils.obj
 import net.ccbluex.liquidbounce.authlib.utils.string
 import net.ccbluex.liquidbounce.config.ConfigSystem.deserializeConfigurable
+import net.ccbluex.liquidbounce.config.ConfigSystem.deserializeRemainingFields
 import net.ccbluex.liquidbounce.config.gson.publicGson
+import net.ccbluex.liquidbounce.config.gson.util.parseRemainingObject
 import net.ccbluex.liquidbounce.config.gson.util.parseTree
+import net.ccbluex.liquidbounce.config.types.Value
 import net.ccbluex.liquidbounce.config.types.nesting.Configurable
 import net.ccbluex.liquidbounce.event.events.NotificationEvent
 import net.ccbluex.liquidbounce.features.module.ModuleManager
@@ -106,7 +110,65 @@ object AutoConfig {
         modules: Collection<Configurable> = emptyList()
     ) {
         publicGson.newJsonReader(reader).use { reader ->
-            loadAutoConfig(reader.parseTree().asJsonObject, modules)
+            reader.beginObject()
+
+            val firstName = if (reader.hasNext()) reader.nextName() else null
+            if (firstName == "name") {
+                loadAutoConfig(reader.nextString(), reader, modules)
+            } else {
+                // Without leading name, we do not know what to apply the fields to
+                loadAutoConfig(reader.parseRemainingObject(firstName), modules)
+            }
+        }
+    }
+
+    /**
+     * Applies the modules and spoofers while reading the rest of the auto config object,
+     * only its remaining fields are kept to display them to the user.
+     *
+     * @param name The already read name of the auto config
+     */
+    private fun loadAutoConfig(
+        name: String,
+        reader: JsonReader,
+        modules: Collection<Configurable>
+    ) {
+        printOutHeader()
+
+        when (name) {
+            "autoconfig" -> {
+                val information = JsonObject()
+
+                while (reader.hasNext()) {
+                    when (val field = reader.nextName()) {
+                        // Deserialize Module Configurable
+                        "modules" -> deserializeConfigurable(
+                            ModuleManager.modulesConfigurable,
+                            reader,
+                            moduleFilter(modules)
+                        )
+
+                        // Deserialize Spoofer Configurable
+                        "spoofers" -> deserializeConfigurable(SpooferManager, reader)
+                        else -> information.add(field, reader.parseTree())
+                    }
+                }
+                reader.endObject()
+
+                // Auto Config
+                printOutInformation(information)
+            }
+            "modules" -> {
+                val information = JsonObject()
+
+                deserializeRemainingFields(ModuleManager.modulesConfigurable, reader, moduleFilter(modules)) { field ->
+                    information.add(field, reader.parseTree())
+                }
+
+                // Auto Config
+                printOutInformation(information)
+            }
+            else -> error("Unknown auto config type: $name")
         }
     }
 
@@ -121,8 +183,7 @@ object AutoConfig {
         jsonObject: JsonObject,
         modules: Collection<Configurable> = emptyList()
     ) {
-        chat(metadata = MessageMetadata(prefix = false))
-        chat(regular("Auto Config").formatted(Formatting.LIGHT_PURPLE).bold(true))
+        printOutHeader()
 
         val name = jsonObject.string("name") ?: throw IllegalArgumentException("Auto Config has no name")
         when (name) {
@@ -145,6 +206,11 @@ object AutoConfig {
         printOutInformation(jsonObject)
     }
 
+    private fun printOutHeader() {
+        chat(metadata = MessageMetadata(prefix = false))
+        chat(regular("Auto Config").formatted(Formatting.LIGHT_PURPLE).bold(true))
+    }
+
     /**
      * Print out information from the auto config
      */
@@ -307,23 +373,19 @@ object AutoConfig {
         jsonObject: JsonObject,
         modules: Collection<Configurable> = emptyList()
     ) {
-        // Deserialize full module configurable
+        deserializeConfigurable(ModuleManager.modulesConfigurable, jsonObject, moduleFilter(modules))
+    }
+
+    /**
+     * Only deserialize [modules], or the full module configurable if empty
+     */
+    private fun moduleFilter(modules: Collection<Configurable>): ((Value<*>) -> Boolean)? {
         if (modules.isEmpty()) {
-            deserializeConfigurable(ModuleManager.modulesConfigurable, jsonObject)
-            return
+            return null
         }
 
-        modules.forEach { module ->
-            val moduleConfigurable = ModuleManager.modulesConfigurable.inner.find { value ->
-                value.name == module.name
-            } as? Configurable ?: return@forEach
-
-            val moduleElement = jsonObject.asJsonObject["value"].asJsonArray.find { jsonElement ->
-                jsonElement.asJsonObject["name"].asString == module.name
-            } ?: return@forEach
-
-            deserializeConfigurable(moduleConfigurable, moduleElement)
-        }
+        val names = modules.mapTo(hashSetOf()) { module -> module.name }
+        return { value -> value.name in names }
     }
 
 }
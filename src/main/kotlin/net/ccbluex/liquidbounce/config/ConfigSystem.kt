@@ -21,28 +21,60 @@ package net.ccbluex.liquidbounce.config
 import com.google.gson.Gson
 import com.google.gson.JsonElement
 import com.google.gson.JsonObject
+import com.google.gson.stream.JsonReader
 import net.ccbluex.liquidbounce.LiquidBounce
 import net.ccbluex.liquidbounce.config.gson.fileGson
+import net.ccbluex.liquidbounce.config.gson.util.parseRemainingObject
 import net.ccbluex.liquidbounce.config.gson.util.parseTree
+import net.ccbluex.liquidbounce.config.gson.util.readIsolated
 import net.ccbluex.liquidbounce.config.types.Value
 import net.ccbluex.liquidbounce.config.types.nesting.ChoiceConfigurable
 import net.ccbluex.liquidbounce.config.types.nesting.Configurable
 import net.ccbluex.liquidbounce.config.types.nesting.DynamicConfigurable
+import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.events.ValueChangedEvent
+import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.io.createZipArchive
 import net.ccbluex.liquidbounce.utils.io.extractZip
+import org.apache.commons.codec.digest.DigestUtils
 import java.io.File
 import java.io.Reader
-import java.io.Writer
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * How long changes are collected before the changed roots are written.
+ */
+private const val WRITE_DELAY_MILLIS = 1000L
+
+/**
+ * How long the exit waits for pending writes.
+ */
+private const val EXIT_TIMEOUT_SECONDS = 10L
 
 /**
  * A config system which uses configurables
  *
+ * Root configurables are written in the background: changed values mark their root as dirty,
+ * and the dirty roots are written together after [WRITE_DELAY_MILLIS].
+ * Only a [ValueSnapshot] of them is taken on the game thread, where the values are changed, and the writer
+ * serializes it. Files are replaced atomically, and roots whose content did not change are not written at all.
+ *
  * @author kawaiinekololis (@team ccbluex)
  */
 @Suppress("TooManyFunctions")
-object ConfigSystem {
+object ConfigSystem : EventListener {
 
     var isFirstLaunch: Boolean = false
         private set
@@ -83,6 +115,50 @@ object ConfigSystem {
     // A mutable list of all root configurable classes (and their subclasses)
     val configurables = ArrayList<Configurable>()
 
+    private val writer = ScheduledThreadPoolExecutor(1) { runnable ->
+        Thread(runnable, "lb-config-writer").apply { isDaemon = true }
+    }.also { writer ->
+        // The exit queues the last write itself, a delayed one would only wait for the game thread
+        writer.executeExistingDelayedTasksAfterShutdownPolicy = false
+
+        // The writer is a daemon, so the exit has to wait for the last writes
+        Runtime.getRuntime().addShutdownHook(Thread({
+            writer.shutdown()
+            writer.awaitTermination(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        }, "lb-config-writer-exit"))
+    }
+
+    /**
+     * Runs on the writer after the delay, the roots are snapshot on the game thread.
+     */
+    private val scheduledWrite = Runnable { mc.execute { writeDirtyRoots() } }
+    private val dirtyRoots: MutableSet<Configurable> = ConcurrentHashMap.newKeySet()
+    private val isWriteScheduled = AtomicBoolean()
+
+    /**
+     * The root of every value in a root configurable, rebuilt by the writer when an unknown value has changed.
+     */
+    @Volatile
+    private var rootsByValue: Map<Value<*>, Configurable> = emptyMap()
+
+    /**
+     * Changed values whose root is not known yet.
+     */
+    private val unresolvedValues: MutableSet<Value<*>> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * Values which are not part of any root, e.g. of scripts which have been unloaded.
+     */
+    private val valuesWithoutRoot: MutableSet<Value<*>> = Collections.synchronizedSet(
+        Collections.newSetFromMap(WeakHashMap())
+    )
+
+    /**
+     * Digest of the content last written per root. Accessed by the writer, or by the thread flushing
+     * during the exit, after the writer has been shut down.
+     */
+    private val writtenDigests: MutableMap<Configurable, String> = Collections.synchronizedMap(IdentityHashMap())
+
     /**
      * Create new root configurable
      */
@@ -122,6 +198,8 @@ object ConfigSystem {
         val zipFile = File(backupFolder, "$fileName.zip")
         check(!zipFile.exists()) { "Backup file already exists" }
 
+        flush()
+
         configurables.map { configurable -> configurable.jsonFile }.createZipArchive(zipFile)
     }
 
@@ -135,7 +213,10 @@ object ConfigSystem {
         // Store all configurables to make sure they are up to date,
         // before we overwrite some of them through [extractZip]
         storeAll()
+        flush()
         extractZip(zipFile, rootFolder)
+        // The files do not contain what has been written anymore
+        writer.submit(Runnable { writtenDigests.clear() }).get()
         loadAll()
     }
 
@@ -169,7 +250,7 @@ object ConfigSystem {
 
     /**
      * All configurables known to the config system should be stored now.
-     * This will overwrite all existing files with the new values.
+     * This will overwrite all existing files with the new values, if they have changed.
      *
      * These configurables are root configurables, which always create a new file with their name.
      */
@@ -179,29 +260,195 @@ object ConfigSystem {
 
     /**
      * Store configurable to a file (will be created if not exists).
+     * The file is written in the background, together with other roots stored shortly after.
      *
      * The configurable should be known to the config system.
      */
-    fun store(configurable: Configurable) { // Make a new .json file to save our root configurable
-        configurable.jsonFile.runCatching {
-            if (!exists()) {
-                createNewFile().let { logger.debug("Created new file (status: $it)") }
+    fun store(configurable: Configurable) {
+        if (configurable !in configurables) {
+            logger.error("Unable to store config ${configurable.loweredName}, it is not a root configurable")
+            return
+        }
+
+        dirtyRoots += configurable
+        scheduleWrite()
+    }
+
+    /**
+     * Writes all stored roots now and waits for it, e.g. before their files are read.
+     * They are snapshot on the calling thread.
+     */
+    fun flush() {
+        writeDirtyRoots().get()
+    }
+
+    /**
+     * Queues writing all stored roots now, without waiting for it. Used by the exit,
+     * the shutdown hook of the writer waits for the queued writes instead.
+     */
+    fun flushOnExit() {
+        writeDirtyRoots()
+    }
+
+    @Suppress("unused")
+    private val valueChangedHandler = handler<ValueChangedEvent> { event ->
+        val value = event.value
+        val root = rootsByValue[value]
+
+        if (root != null) {
+            dirtyRoots += root
+            scheduleWrite()
+        } else if (value !in valuesWithoutRoot) {
+            // Added after the values have been indexed, e.g. a new module or a dynamic value
+            unresolvedValues += value
+            scheduleWrite()
+        }
+    }
+
+    private fun scheduleWrite() {
+        if (isWriteScheduled.compareAndSet(false, true)) {
+            try {
+                writer.schedule(scheduledWrite, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+            } catch (_: RejectedExecutionException) {
+                // The game is exiting, the last write has already been queued
             }
+        }
+    }
 
-            logger.debug("Writing config ${configurable.loweredName}...")
-            serializeConfigurable(configurable, bufferedWriter())
-            logger.info("Successfully saved config '${configurable.loweredName}'.")
-        }.onFailure {
-            logger.error("Unable to store config ${configurable.loweredName}", it)
+    /**
+     * Snapshots the dirty roots on the calling thread and queues serializing and writing them.
+     *
+     * @return completes when they have been written
+     */
+    private fun writeDirtyRoots(): Future<*> {
+        isWriteScheduled.set(false)
+
+        if (unresolvedValues.isNotEmpty()) {
+            resolveChangedValues()
+        }
+
+        val snapshots = ArrayList<Pair<Configurable, ValueSnapshot>>()
+        for (configurable in dirtyRoots.toList()) {
+            if (dirtyRoots.remove(configurable)) {
+                snapshot(configurable)?.let { snapshot -> snapshots += configurable to snapshot }
+            }
+        }
+
+        val task = Runnable {
+            for ((configurable, snapshot) in snapshots) {
+                serialize(configurable, snapshot)?.let { tree -> write(configurable, tree) }
+            }
+        }
+
+        return try {
+            writer.submit(task)
+        } catch (_: RejectedExecutionException) {
+            // The writer has already been shut down by the exit
+            task.run()
+            CompletableFuture.completedFuture<Unit>(null)
         }
     }
 
+    private fun resolveChangedValues() {
+        val index = IdentityHashMap<Value<*>, Configurable>()
+
+        try {
+            for (root in configurables.toList()) {
+                index[root] = root
+                indexValues(root, root, index)
+            }
+        } catch (e: ConcurrentModificationException) {
+            // A tree has changed while walking it, try again with the next write
+            logger.debug("Values changed while indexing them", e)
+            scheduleWrite()
+            return
+        }
+
+        rootsByValue = index
+
+        for (value in unresolvedValues.toList()) {
+            unresolvedValues -= value
+
+            val root = index[value]
+            if (root != null) {
+                dirtyRoots += root
+            } else {
+                valuesWithoutRoot += value
+            }
+        }
+    }
+
+    private fun indexValues(root: Configurable, configurable: Configurable, index: MutableMap<Value<*>, Configurable>) {
+        for (value in configurable.inner.toList()) {
+            index[value] = root
+
+            if (value is ChoiceConfigurable<*>) {
+                for (choice in value.choices.toList()) {
+                    index[choice] = root
+                    indexValues(root, choice, index)
+                }
+            }
+
+            if (value is Configurable) {
+                indexValues(root, value, index)
+            }
+        }
+    }
+
+    private fun snapshot(configurable: Configurable): ValueSnapshot? = try {
+        ValueSnapshot.of(configurable)
+    } catch (e: ConcurrentModificationException) {
+        // Stored off the game thread while a value has been modified, try again with the next write
+        logger.debug("Config ${configurable.loweredName} changed while taking a snapshot of it", e)
+        dirtyRoots += configurable
+        scheduleWrite()
+        null
+    } catch (e: Exception) {
+        logger.error("Unable to store config ${configurable.loweredName}", e)
+        null
+    }
+
+    private fun serialize(configurable: Configurable, snapshot: ValueSnapshot): JsonObject? = try {
+        snapshot.serialize(fileGson)
+    } catch (e: Exception) {
+        logger.error("Unable to serialize config ${configurable.loweredName}", e)
+        null
+    }
+
     /**
-     * Serialize a configurable to a writer, and close it
+     * Writes [tree] of [configurable] to a temporary file and moves it into place, unless it has not changed.
+     * If that fails, the root is marked dirty again, so the next write retries it.
      */
-    private fun serializeConfigurable(configurable: Configurable, writer: Writer, gson: Gson = fileGson) {
-        gson.newJsonWriter(writer).use {
-            gson.toJson(configurable, Configurable::class.javaObjectType, it)
+    private fun write(configurable: Configurable, tree: JsonObject) {
+        val file = configurable.jsonFile
+        val json = fileGson.toJson(tree)
+
+        val digest = DigestUtils.sha256Hex(json)
+        if (writtenDigests[configurable] == digest && file.exists()) {
+            return
+        }
+
+        runCatching {
+            logger.debug("Writing config ${configurable.loweredName}...")
+
+            val temp = File(file.parentFile, "${file.name}.tmp")
+            temp.writeText(json)
+
+            try {
+                Files.move(
+                    temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+                )
+            } catch (_: AtomicMoveNotSupportedException) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+
+            writtenDigests[configurable] = digest
+            logger.info("Successfully saved config '${configurable.loweredName}'.")
+        }.onFailure {
+            logger.error("Unable to store config ${configurable.loweredName}", it)
+            dirtyRoots += configurable
+            scheduleWrite()
         }
     }
 
@@ -216,14 +463,188 @@ object ConfigSystem {
      */
     fun deserializeConfigurable(configurable: Configurable, reader: Reader, gson: Gson = fileGson) {
         gson.newJsonReader(reader).use { reader ->
-            deserializeConfigurable(configurable, reader.parseTree())
+            deserializeConfigurable(configurable, reader)
+        }
+    }
+
+    /**
+     * Deserialize a configurable from the object at the current position of [reader].
+     *
+     * The values are applied while reading in a single pass, instead of parsing the whole object
+     * into a tree first. Only the value of a single leaf value is read as [JsonElement] at a time,
+     * which is what [Value.deserializeFrom] needs.
+     *
+     * @param filter the values of [configurable] which should be deserialized, the others are skipped
+     */
+    fun deserializeConfigurable(
+        configurable: Configurable,
+        reader: JsonReader,
+        filter: ((Value<*>) -> Boolean)? = null
+    ) {
+        reader.beginObject()
+
+        // The name has to be checked before anything is applied, which is why the files start with it
+        val firstField = if (reader.hasNext()) reader.nextName() else null
+        if (firstField != "name") {
+            deserializeConfigurable(configurable, reader.parseRemainingObject(firstField), filter)
+            return
+        }
+
+        val name = reader.nextString()
+        check(name == configurable.name || configurable.aliases.contains(name)) {
+            "Configurable name does not match the name in the json object"
+        }
+
+        deserializeRemainingFields(configurable, reader, filter)
+    }
+
+    /**
+     * Deserialize the fields following the name of a configurable object, up to the end of the object.
+     *
+     * @param otherField reads a field which does not belong to [configurable], skips it by default
+     * @see deserializeConfigurable
+     */
+    fun deserializeRemainingFields(
+        configurable: Configurable,
+        reader: JsonReader,
+        filter: ((Value<*>) -> Boolean)? = null,
+        otherField: (String) -> Unit = { reader.skipValue() }
+    ) {
+        while (reader.hasNext()) {
+            val field = reader.nextName()
+
+            when {
+                field == "value" -> readValues(configurable, reader, filter)
+                configurable is ChoiceConfigurable<*> && (field == "active" || field == "choices") ->
+                    readChoice(configurable, reader, field)
+                else -> otherField(field)
+            }
+        }
+
+        reader.endObject()
+    }
+
+    private fun readValues(configurable: Configurable, reader: JsonReader, filter: ((Value<*>) -> Boolean)?) {
+        reader.beginArray()
+
+        if (configurable is DynamicConfigurable) {
+            // The factory needs the whole value object, so each of them is read as tree
+            var isCleared = false
+
+            while (reader.hasNext()) {
+                reader.readIsolated({ logger.error("Unable to deserialize a value of ${configurable.name}", it) }) {
+                    val valueObject = reader.parseTree().asJsonObject
+
+                    if (!isCleared) {
+                        // Clear the current values
+                        configurable.inner.clear()
+                        isCleared = true
+                    }
+
+                    val valueInstance = configurable.factory(valueObject["name"].asString, valueObject)
+                        ?: return@readIsolated
+                    configurable.value(valueInstance)
+
+                    deserializeValue(valueInstance, valueObject)
+                }
+            }
+        } else {
+            // Like the values of a tree, a failing value is skipped and does not stop the others
+            while (reader.hasNext()) {
+                reader.readIsolated({ logger.error("Unable to deserialize a value of ${configurable.name}", it) }) {
+                    readValue(configurable, reader, filter)
+                }
+            }
         }
+
+        reader.endArray()
+    }
+
+    private fun readValue(configurable: Configurable, reader: JsonReader, filter: ((Value<*>) -> Boolean)?) {
+        reader.beginObject()
+
+        val firstField = if (reader.hasNext()) reader.nextName() else null
+        if (firstField != "name") {
+            // Without leading name, we do not know which value the fields belong to
+            val valueObject = reader.parseRemainingObject(firstField)
+            val value = valueObject["name"]?.asString?.let(configurable::findValue)
+
+            if (value != null && (filter == null || filter(value))) {
+                deserializeValue(value, valueObject)
+            }
+            return
+        }
+
+        val value = configurable.findValue(reader.nextString())?.takeIf { filter == null || filter(it) }
+
+        if (value is Configurable) {
+            deserializeRemainingFields(value, reader)
+            return
+        }
+
+        while (reader.hasNext()) {
+            val field = reader.nextName()
+
+            if (value == null || field != "value") {
+                reader.skipValue()
+                continue
+            }
+
+            // Read completely beforehand, so a failing value does not leave the reader in between
+            val element = reader.parseTree()
+
+            runCatching {
+                value.deserializeFrom(fileGson, element)
+            }.onFailure {
+                logger.error("Unable to deserialize value ${value.name}", it)
+            }
+        }
+
+        reader.endObject()
+    }
+
+    private fun readChoice(configurable: ChoiceConfigurable<*>, reader: JsonReader, field: String) {
+        if (field == "active") {
+            val active = reader.parseTree()
+
+            // Set current active choice
+            runCatching {
+                configurable.setByString(active.asString)
+            }.onFailure {
+                logger.error("Unable to deserialize active choice for ${configurable.name}", it)
+            }
+            return
+        }
+
+        // Deserialize each choice
+        reader.beginObject()
+        while (reader.hasNext()) {
+            val choiceName = reader.nextName()
+            val choice = configurable.findChoice(choiceName)
+
+            if (choice == null) {
+                logger.warn("Choice $choiceName of ${configurable.name} does not exist anymore")
+                reader.skipValue()
+                continue
+            }
+
+            reader.readIsolated({ logger.error("Unable to deserialize choice $choiceName", it) }) {
+                deserializeConfigurable(choice, reader)
+            }
+        }
+        reader.endObject()
     }
 
     /**
      * Deserialize a configurable from a [JsonElement]. It should be [JsonObject].
+     *
+     * @param filter the values of [configurable] which should be deserialized, the others are skipped
      */
-    fun deserializeConfigurable(configurable: Configurable, jsonElement: JsonElement) {
+    fun deserializeConfigurable(
+        configurable: Configurable,
+        jsonElement: JsonElement,
+        filter: ((Value<*>) -> Boolean)? = null
+    ) {
         val jsonObject = jsonElement.asJsonObject
 
         // Check if the name is the same as the configurable name
@@ -234,7 +655,6 @@ object ConfigSystem {
 
         val values = jsonObject.getAsJsonArray("value")
             .map { valueElement -> valueElement.asJsonObject }
-            .associateBy { valueObj -> valueObj["name"].asString!! }
 
         when (configurable) {
 
@@ -245,8 +665,8 @@ object ConfigSystem {
                     configurable.inner.clear()
                 }
 
-                for ((name, value) in values) {
-                    val valueInstance = configurable.factory(name, value) ?: continue
+                for (value in values) {
+                    val valueInstance = configurable.factory(value["name"].asString, value) ?: continue
                     configurable.value(valueInstance)
 
                     deserializeValue(valueInstance, value)
@@ -255,13 +675,14 @@ object ConfigSystem {
 
             // On an ordinary configurable, we simply deserialize the values that are present
             else -> {
-                for (value in configurable.inner) {
-                    val currentElement = values[value.name]
-                        // Alias support
-                        ?: values.entries.firstOrNull { entry -> entry.key in value.aliases }?.value
-                        ?: continue
+                for (valueObject in values) {
+                    // Alias support
+                    val value = configurable.findValue(valueObject["name"].asString) ?: continue
+                    if (filter != null && !filter(value)) {
+                        continue
+                    }
 
-                    deserializeValue(value, currentElement)
+                    deserializeValue(value, valueObject)
                 }
             }
         }
@@ -283,18 +704,14 @@ object ConfigSystem {
                     }
 
                     // Deserialize each choice
-                    val choices = jsonObject["choices"].asJsonObject
-
-                    for (choice in value.choices) {
+                    for ((choiceName, choiceElement) in jsonObject["choices"].asJsonObject.entrySet()) {
                         runCatching {
-                            val choiceElement = choices[choice.name]
-                                // Alias support
-                                ?: choice.aliases.firstNotNullOfOrNull { alias -> choices[alias] }
-                                ?: error("Choice ${choice.name} not found")
+                            // Alias support
+                            val choice = value.findChoice(choiceName) ?: error("Choice $choiceName not found")
 
                             deserializeConfigurable(choice, choiceElement)
                         }.onFailure {
-                            logger.error("Unable to deserialize choice ${choice.name}", it)
+                            logger.error("Unable to deserialize choice $choiceName", it)
                         }
                     }
                 }
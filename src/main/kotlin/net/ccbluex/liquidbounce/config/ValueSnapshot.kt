@@ -0,0 +1,120 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.config
+
+import com.google.gson.Gson
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import net.ccbluex.liquidbounce.config.types.Value
+import net.ccbluex.liquidbounce.config.types.ValueType
+import net.ccbluex.liquidbounce.config.types.nesting.ChoiceConfigurable
+import net.ccbluex.liquidbounce.config.types.nesting.Configurable
+
+/**
+ * A copy of the state of a value, taken where the value is changed, which can be serialized on another thread.
+ *
+ * Serializing a snapshot with [net.ccbluex.liquidbounce.config.gson.fileGson] gives the file content
+ * [ConfigSystem.serializeConfigurable] gives for the value, apart from metadata fields of leaf values,
+ * which are never read back.
+ */
+internal sealed class ValueSnapshot(val name: String) {
+
+    abstract fun serialize(gson: Gson): JsonObject
+
+    /**
+     * A value which is not a configurable. Its content is copied if it is a collection,
+     * the elements themselves are replaced instead of being changed.
+     */
+    private class Leaf(name: String, private val content: Any) : ValueSnapshot(name) {
+        override fun serialize(gson: Gson) = JsonObject().apply {
+            addProperty("name", name)
+            add("value", gson.toJsonTree(content))
+        }
+    }
+
+    /**
+     * Like [net.ccbluex.liquidbounce.config.gson.serializer.ConfigurableSerializer.FILE_SERIALIZER].
+     */
+    private open class Node(name: String, private val values: Array<ValueSnapshot>) : ValueSnapshot(name) {
+        override fun serialize(gson: Gson) = JsonObject().apply {
+            addProperty("name", name)
+            add("value", serializeValues(gson))
+        }
+
+        protected fun serializeValues(gson: Gson) = JsonArray(values.size).apply {
+            for (value in values) {
+                add(value.serialize(gson))
+            }
+        }
+    }
+
+    /**
+     * Like [net.ccbluex.liquidbounce.config.gson.serializer.ChoiceConfigurableSerializer].
+     */
+    private class ChoiceNode(
+        name: String,
+        values: Array<ValueSnapshot>,
+        private val active: String,
+        private val choices: Array<ValueSnapshot>,
+        private val valueType: ValueType
+    ) : Node(name, values) {
+        override fun serialize(gson: Gson) = JsonObject().apply {
+            addProperty("name", name)
+            addProperty("active", active)
+            add("value", serializeValues(gson))
+            add("choices", JsonObject().apply {
+                for (choice in choices) {
+                    add(choice.name, choice.serialize(gson))
+                }
+            })
+            add("valueType", gson.toJsonTree(valueType))
+        }
+    }
+
+    companion object {
+
+        /**
+         * Copies the state of [value] and everything nested in it. Has to be called where it is changed.
+         *
+         * @throws ConcurrentModificationException if a nested collection is changed meanwhile
+         */
+        fun of(value: Value<*>): ValueSnapshot = when (value) {
+            is ChoiceConfigurable<*> -> ChoiceNode(
+                name = value.name,
+                values = valuesOf(value),
+                active = value.activeChoice.choiceName,
+                choices = Array(value.choices.size) { i -> of(value.choices[i]) },
+                valueType = value.valueType
+            )
+            is Configurable -> Node(value.name, valuesOf(value))
+            else -> Leaf(value.name, copyOf(value.inner))
+        }
+
+        private fun valuesOf(configurable: Configurable): Array<ValueSnapshot> =
+            configurable.inner.toTypedArray().let { values -> Array(values.size) { i -> of(values[i]) } }
+
+        private fun copyOf(content: Any): Any = when (content) {
+            is Collection<*> -> ArrayList(content)
+            is Map<*, *> -> LinkedHashMap(content)
+            else -> content
+        }
+
+    }
+
+}
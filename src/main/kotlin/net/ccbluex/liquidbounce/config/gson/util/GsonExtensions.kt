@@ -24,9 +24,11 @@ package net.ccbluex.liquidbounce.config.gson.util
 import com.google.gson.*
 import com.google.gson.reflect.TypeToken
 import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
 import net.ccbluex.liquidbounce.config.gson.publicGson
 import org.apache.commons.io.input.CharSequenceReader
 import java.io.File
+import java.io.IOException
 import java.io.InputStream
 import java.io.Reader
 import java.nio.charset.Charset
@@ -58,6 +60,67 @@ inline fun <reified T> Reader.readJson(gson: Gson = publicGson): T = use {
 
 inline fun JsonReader.parseTree(): JsonElement = JsonParser.parseReader(this)
 
+/**
+ * Parses the rest of the current object, of which the name [firstName] has already been read, and ends it.
+ */
+fun JsonReader.parseRemainingObject(firstName: String?): JsonObject {
+    val jsonObject = JsonObject()
+
+    if (firstName != null) {
+        jsonObject.add(firstName, parseTree())
+
+        while (hasNext()) {
+            jsonObject.add(nextName(), parseTree())
+        }
+    }
+
+    endObject()
+    return jsonObject
+}
+
+/**
+ * Runs [read] on the value at the current position. If it fails, [onFailure] is called and the rest
+ * of the value is skipped, so the reader continues after it as if the value had been read.
+ *
+ * [read] must not fail after it consumed the whole value of a property, since that cannot be told apart
+ * from a value it has not started yet. Failures of the underlying reader are rethrown.
+ */
+inline fun JsonReader.readIsolated(onFailure: (Exception) -> Unit, read: () -> Unit) {
+    val startPath = path
+
+    try {
+        read()
+    } catch (e: IOException) {
+        throw e
+    } catch (e: Exception) {
+        onFailure(e)
+        skipRestOf(startPath)
+    }
+}
+
+/**
+ * Skips what is left of the value which started at [path], including the ends of the objects and arrays
+ * which were entered in it.
+ */
+fun JsonReader.skipRestOf(path: String) {
+    if (this.path == path) {
+        // Either nothing of the value was read yet, or it was read completely and the next property follows
+        when (peek()) {
+            JsonToken.NAME, JsonToken.END_OBJECT, JsonToken.END_ARRAY, JsonToken.END_DOCUMENT -> {}
+            else -> skipValue()
+        }
+        return
+    }
+
+    while (this.path.startsWith("$path.") || this.path.startsWith("$path[")) {
+        when (peek()) {
+            JsonToken.END_OBJECT -> endObject()
+            JsonToken.END_ARRAY -> endArray()
+            else -> skipValue()
+        }
+    }
+}
+
 // Never add elements to it!
 private val EMPTY_JSON_ARRAY = JsonArray(0)
 private val EMPTY_JSON_OBJECT = JsonObject()
@@ -41,6 +41,11 @@ class ChoiceConfigurable<T : Choice>(
 
     var choices: MutableList<T> = ObjectArrayList(choicesCallback(this))
         internal set
+
+    @Exclude
+    @ProtocolExclude
+    private val choiceIndex = ValueNameIndex { choices }
+
     private var defaultChoice: T = choices[activeChoiceIndexCallback.applyAsInt(choices)]
     var activeChoice: T = defaultChoice
         private set
@@ -51,6 +56,11 @@ class ChoiceConfigurable<T : Choice>(
         }
     }
 
+    /**
+     * Finds the choice named [name], or which has [name] as alias.
+     */
+    fun findChoice(name: String): T? = choiceIndex[name]
+
     internal fun updateChildState(state: Boolean) {
         if (state) {
             this.activeChoice.enable()
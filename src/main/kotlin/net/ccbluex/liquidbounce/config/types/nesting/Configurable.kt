@@ -22,6 +22,8 @@ import com.google.gson.JsonArray
 import com.google.gson.JsonNull
 import com.google.gson.JsonObject
 import com.google.gson.JsonPrimitive
+import net.ccbluex.liquidbounce.config.gson.stategies.Exclude
+import net.ccbluex.liquidbounce.config.gson.stategies.ProtocolExclude
 import net.ccbluex.liquidbounce.config.types.*
 import net.ccbluex.liquidbounce.config.types.CurveValue.Axis
 import net.ccbluex.liquidbounce.config.types.NamedChoice.Companion.asNamedChoice
@@ -141,6 +143,15 @@ open class Configurable(
         return values.joinToString(".")
     }
 
+    @Exclude
+    @ProtocolExclude
+    private val valueIndex = ValueNameIndex { inner }
+
+    /**
+     * Finds the inner value named [name], or which has [name] as alias.
+     */
+    fun findValue(name: String): Value<*>? = valueIndex[name]
+
     @get:JvmName("getContainedValues")
     val containedValues: Array<Value<*>>
         get() = this.inner.toTypedArray()
@@ -0,0 +1,82 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.config.types.nesting
+
+import net.ccbluex.liquidbounce.config.types.Value
+
+/**
+ * Finds values by their name or one of their aliases, e.g. to match the entries of a config file.
+ *
+ * The index is rebuilt when the collection was replaced, or its elements are not the same ones anymore,
+ * e.g. when a value has been replaced by another one. Comparing them by identity is much cheaper than
+ * comparing their names, and the collections can be changed from outside without notifying the index.
+ * Names take precedence over aliases.
+ */
+internal class ValueNameIndex<T : Value<*>>(private val source: () -> Collection<T>) {
+
+    private class Snapshot<T>(val values: Collection<T>, val elements: Array<Value<*>>, val byName: Map<String, T>) {
+
+        fun isCurrent(values: Collection<T>): Boolean {
+            if (values !== this.values || values.size != elements.size) {
+                return false
+            }
+
+            var i = 0
+            for (value in values) {
+                if (value !== elements[i++]) {
+                    return false
+                }
+            }
+            return true
+        }
+
+    }
+
+    @Volatile
+    private var snapshot: Snapshot<T>? = null
+
+    operator fun get(name: String): T? {
+        val values = source()
+        var snapshot = snapshot
+
+        if (snapshot == null || !snapshot.isCurrent(values)) {
+            snapshot = Snapshot(values, values.toTypedArray<Value<*>>(), index(values))
+            this.snapshot = snapshot
+        }
+
+        return snapshot.byName[name]
+    }
+
+    private fun index(values: Collection<T>): Map<String, T> {
+        val byName = HashMap<String, T>(values.size * 2)
+
+        for (value in values) {
+            byName.putIfAbsent(value.name, value)
+        }
+
+        for (value in values) {
+            for (alias in value.aliases) {
+                byName.putIfAbsent(alias, value)
+            }
+        }
+
+        return byName
+    }
+
+}
@@ -18,18 +18,110 @@
  */
 package net.ccbluex.liquidbounce.event
 
+import net.ccbluex.liquidbounce.config.types.nesting.Choice
+import net.ccbluex.liquidbounce.config.types.nesting.ToggleableConfigurable
 import net.ccbluex.liquidbounce.features.misc.DebuggedOwner
+import net.ccbluex.liquidbounce.features.module.ClientModule
 import net.ccbluex.liquidbounce.features.misc.HideAppearance.isDestructed
 import java.util.function.Consumer
 import kotlin.properties.ReadWriteProperty
 import kotlin.reflect.KProperty
 
+/**
+ * Keeps generations non-negative once shifted into the cached states of [EventHook] and [EventManager].
+ */
+internal const val GENERATION_MASK = 0x3FFFFFFF
+
 class EventHook<T : Event>(
     val handlerClass: EventListener,
     val handler: Consumer<T>,
     val priority: Short = 0
+) {
+
+    /**
+     * Cached [EventListener.running] state of [handlerClass], packed as `(generation shl 1) or running`.
+     *
+     * Always non-negative when cached, [RUNNING_UNCACHEABLE] if the listener (or one of its parents)
+     * computes [EventListener.running] from state we cannot observe, e.g. the player being in water.
+     */
+    @Volatile
+    private var runningCache = RUNNING_UNKNOWN
+
+    /**
+     * Returns [EventListener.running] of [handlerClass], cached until the given [generation] changes.
+     */
+    internal fun isRunning(generation: Int): Boolean {
+        val cache = runningCache
+        val tag = (generation and GENERATION_MASK) shl 1
+
+        when {
+            cache == RUNNING_UNCACHEABLE -> return handlerClass.running
+            cache == RUNNING_UNKNOWN -> if (!handlerClass.hasCacheableRunningState()) {
+                runningCache = RUNNING_UNCACHEABLE
+                return handlerClass.running
+            }
+            cache and 1.inv() == tag -> return cache and 1 == 1
+        }
+
+        val running = handlerClass.running
+        runningCache = tag or (if (running) 1 else 0)
+        return running
+    }
+
+    /**
+     * Whether [isRunning] can be cached, i.e. it only changes through the events tracked by [EventManager].
+     */
+    internal val isRunningCacheable: Boolean
+        get() {
+            if (runningCache == RUNNING_UNKNOWN && !handlerClass.hasCacheableRunningState()) {
+                runningCache = RUNNING_UNCACHEABLE
+            }
+
+            return runningCache != RUNNING_UNCACHEABLE
+        }
+
+    private companion object {
+        private const val RUNNING_UNKNOWN = -1
+        private const val RUNNING_UNCACHEABLE = -2
+    }
+
+}
+
+/**
+ * Declaring classes of [EventListener.running] which only depend on toggle and choice states,
+ * [net.ccbluex.liquidbounce.utils.client.inGame] and the parent listener.
+ */
+private val CACHEABLE_RUNNING_DECLARERS: Set<Class<*>> = setOf(
+    EventListener::class.java,
+    ToggleableConfigurable::class.java,
+    ClientModule::class.java,
+    Choice::class.java,
 )
 
+private val CACHEABLE_RUNNING_TYPES = object : ClassValue<Boolean>() {
+    override fun computeValue(type: Class<*>): Boolean = try {
+        type.getMethod("getRunning").declaringClass in CACHEABLE_RUNNING_DECLARERS
+    } catch (@Suppress("SwallowedException") e: NoSuchMethodException) {
+        false
+    }
+}
+
+/**
+ * Checks if the [EventListener.running] state of this listener and all of its parents
+ * can only change through a [net.ccbluex.liquidbounce.event.events.ModuleToggleEvent],
+ * [net.ccbluex.liquidbounce.event.events.ValueChangedEvent] or by joining or leaving a world.
+ */
+private fun EventListener.hasCacheableRunningState(): Boolean {
+    var listener: EventListener? = this
+    while (listener != null) {
+        if (!CACHEABLE_RUNNING_TYPES.get(listener.javaClass)) {
+            return false
+        }
+        listener = listener.parent()
+    }
+    return true
+}
+
 interface EventListener : DebuggedOwner {
 
     /**
@@ -21,9 +21,9 @@ package net.ccbluex.liquidbounce.event
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.event.events.*
 import net.ccbluex.liquidbounce.features.misc.HideAppearance.isDestructed
+import net.ccbluex.liquidbounce.utils.client.inGame
 import net.ccbluex.liquidbounce.utils.client.logger
-import net.ccbluex.liquidbounce.utils.kotlin.sortedInsert
-import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * Contains all classes of events. Used to create lookup tables ahead of time
@@ -83,6 +83,7 @@ internal val ALL_EVENT_CLASSES: Array<Class<out Event>> = arrayOf(
     PlayerInteractItemEvent::class.java,
     PlayerInteractedItemEvent::class.java,
     ClientPlayerInventoryEvent::class.java,
+    ClientPlayerInventoryPatchEvent::class.java,
     PlayerVelocityStrafe::class.java,
     PlayerStrideEvent::class.java,
     PlayerSafeWalkEvent::class.java,
@@ -112,6 +113,7 @@ internal val ALL_EVENT_CLASSES: Array<Class<out Event>> = arrayOf(
     FpsChangeEvent::class.java,
     FpsLimitEvent::class.java,
     ClientPlayerDataEvent::class.java,
+    ClientPlayerDataPatchEvent::class.java,
     RotationUpdateEvent::class.java,
     RefreshArrayListEvent::class.java,
     BrowserReadyEvent::class.java,
@@ -150,15 +152,40 @@ internal val ALL_EVENT_CLASSES: Array<Class<out Event>> = arrayOf(
     TitleEvent.Clear::class.java
 )
 
+/**
+ * Marks threads which run game code off the game thread, e.g. simulations. Events called on them
+ * are not dispatched, since the listeners expect to run on the game thread.
+ *
+ * See [EventManager.withoutEvents] for game code which must not dispatch events on the game thread.
+ */
+interface EventSilentThread
+
 /**
  * A modern and fast event handler using lambda handlers
  */
 object EventManager {
 
-    private val registry: Map<Class<out Event>, CopyOnWriteArrayList<EventHook<in Event>>> =
+    private val registry: Map<Class<out Event>, EventHookArray> =
         ALL_EVENT_CLASSES.associateWithTo(
             Reference2ObjectOpenHashMap(ALL_EVENT_CLASSES.size)
-        ) { CopyOnWriteArrayList() }
+        ) { EventHookArray() }
+
+    /**
+     * Generation of the cached [EventListener.running] states, see [EventHook.isRunning].
+     *
+     * Bumped whenever a module is toggled, a value changes, a hook is (un)registered
+     * or the player joins or leaves a world.
+     */
+    private val runningGeneration = AtomicInteger()
+
+    @Volatile
+    private var lastInGame = false
+
+    /**
+     * Depth of [withoutEvents] calls on the current thread.
+     */
+    @PublishedApi
+    internal val silentDepth: ThreadLocal<IntArray> = ThreadLocal.withInitial { IntArray(1) }
 
     init {
         CoroutineTicker
@@ -172,12 +199,7 @@ object EventManager {
             ?: error("The event '${eventClass.name}' is not registered in Events.kt::ALL_EVENT_CLASSES.")
 
         @Suppress("UNCHECKED_CAST")
-        val hook = eventHook as EventHook<in Event>
-
-        if (!handlers.contains(hook)) {
-            // `handlers` is sorted descending by EventHook.priority
-            handlers.sortedInsert(hook) { -it.priority }
-        }
+        handlers.add(eventHook as EventHook<in Event>)
 
         return eventHook
     }
@@ -192,7 +214,7 @@ object EventManager {
 
     fun unregisterEventHandler(eventListener: EventListener) {
         registry.values.forEach {
-            it.removeIf { it.handlerClass == eventListener }
+            it.removeIf { hook -> hook.handlerClass == eventListener }
         }
     }
 
@@ -202,32 +224,227 @@ object EventManager {
         }
     }
 
+    /**
+     * Invalidates all cached [EventListener.running] states.
+     */
+    fun invalidateRunningStates() {
+        runningGeneration.incrementAndGet()
+    }
+
+    /**
+     * Returns the current generation of cached running states,
+     * invalidating them first if the player joined or left a world since the last check.
+     */
+    private fun currentRunningGeneration(): Int {
+        val inGame = inGame
+        if (inGame != lastInGame) {
+            lastInGame = inGame
+            invalidateRunningStates()
+        }
+
+        return runningGeneration.get()
+    }
+
+    /**
+     * Runs [block] without dispatching events called by it on the current thread,
+     * like on an [EventSilentThread].
+     */
+    inline fun <T> withoutEvents(block: () -> T): T {
+        val depth = silentDepth.get()
+        depth[0]++
+        try {
+            return block()
+        } finally {
+            depth[0]--
+        }
+    }
+
+    private fun isSilentThread(): Boolean {
+        return Thread.currentThread() is EventSilentThread || silentDepth.get()[0] > 0
+    }
+
+    /**
+     * Checks if any running listener would receive an event of [eventClass].
+     *
+     * Call sites of high-frequency events use this to skip constructing and calling the event
+     * when it would not be handled anyway. The result is cached per event class until a module
+     * is toggled, a value is changed or a hook is (un)registered.
+     *
+     * Listeners with a dynamic [EventListener.running] state are always evaluated.
+     */
+    fun hasActiveListeners(eventClass: Class<out Event>): Boolean {
+        if (isDestructed || isSilentThread()) {
+            return false
+        }
+
+        val target = registry[eventClass] ?: return false
+        return target.hasActiveListeners(currentRunningGeneration())
+    }
+
     /**
      * Call event to listeners
      *
      * @param event to call
      */
     fun <T : Event> callEvent(event: T): T {
-        if (isDestructed) {
+        if (event is ModuleToggleEvent || event is ValueChangedEvent) {
+            invalidateRunningStates()
+        }
+
+        if (isDestructed || isSilentThread()) {
             return event
         }
 
         val target = registry[event.javaClass] ?: return event
 
+        // Snapshot of the current hooks, registrations during the call will not affect this dispatch
+        val hooks = target.hooks
+        val generation = currentRunningGeneration()
+
         event.isCompleted = false
-        for (eventHook in target) {
-            if (!eventHook.handlerClass.running) {
+        if (EventProfiler.enabled) {
+            callProfiled(event, hooks, generation)
+        } else {
+            for (eventHook in hooks) {
+                if (!eventHook.isRunning(generation)) {
+                    continue
+                }
+
+                try {
+                    eventHook.handler.accept(event)
+                } catch (e: Throwable) {
+                    logger.error("Exception while executing handler.", e)
+                }
+            }
+        }
+        event.isCompleted = true
+
+        return event
+    }
+
+    /**
+     * Same as the loop in [callEvent], but records the hooks in [EventProfiler].
+     */
+    private fun <T : Event> callProfiled(event: T, hooks: Array<EventHook<in Event>>, generation: Int) {
+        for (eventHook in hooks) {
+            if (!eventHook.isRunning(generation)) {
                 continue
             }
 
-            runCatching {
+            val stats = EventProfiler.statsOf(event.javaClass, eventHook)
+            val timed = stats.countInvocation()
+            val start = if (timed) System.nanoTime() else 0L
+
+            try {
                 eventHook.handler.accept(event)
-            }.onFailure {
-                logger.error("Exception while executing handler.", it)
+            } catch (e: Throwable) {
+                stats.countException()
+                logger.error("Exception while executing handler.", e)
+            }
+
+            if (timed) {
+                stats.recordSample(System.nanoTime() - start)
             }
         }
-        event.isCompleted = true
+    }
+}
 
-        return event
+/**
+ * Holds the hooks of a single event class as an array sorted descending by [EventHook.priority].
+ *
+ * Writers copy the array and swap it, so [callEvent][EventManager.callEvent] can iterate
+ * over [hooks] without any locking or iterator allocation.
+ */
+private class EventHookArray {
+
+    @Volatile
+    @JvmField
+    var hooks: Array<EventHook<in Event>> = EMPTY_HOOKS
+
+    /**
+     * Cached result of [hasActiveListeners], packed as `(generation shl 1) or active`.
+     * Negative if unknown. Changes of [hooks] bump the generation, which invalidates it.
+     */
+    @Volatile
+    private var activeCache = -1
+
+    fun hasActiveListeners(generation: Int): Boolean {
+        val cache = activeCache
+        val tag = (generation and GENERATION_MASK) shl 1
+        if (cache >= 0 && cache and 1.inv() == tag) {
+            return cache and 1 == 1
+        }
+
+        var cacheable = true
+        for (hook in hooks) {
+            if (!hook.isRunningCacheable) {
+                // Can change at any time, so we are not allowed to cache a negative result
+                cacheable = false
+                if (hook.handlerClass.running) {
+                    return true
+                }
+            } else if (hook.isRunning(generation)) {
+                activeCache = tag or 1
+                return true
+            }
+        }
+
+        if (cacheable) {
+            activeCache = tag
+        }
+        return false
+    }
+
+    @Synchronized
+    fun add(hook: EventHook<in Event>) {
+        val current = hooks
+        if (hook in current) {
+            return
+        }
+
+        // Insert after all hooks with the same or higher priority to keep registration order
+        var insertIndex = current.size
+        for (i in current.indices) {
+            if (current[i].priority < hook.priority) {
+                insertIndex = i
+                break
+            }
+        }
+
+        val updated = arrayOfNulls<EventHook<in Event>>(current.size + 1)
+        System.arraycopy(current, 0, updated, 0, insertIndex)
+        updated[insertIndex] = hook
+        System.arraycopy(current, insertIndex, updated, insertIndex + 1, current.size - insertIndex)
+
+        @Suppress("UNCHECKED_CAST")
+        hooks = updated as Array<EventHook<in Event>>
+        EventManager.invalidateRunningStates()
+    }
+
+    @Synchronized
+    fun remove(hook: EventHook<in Event>) {
+        removeIf { it === hook }
+    }
+
+    @Synchronized
+    fun removeIf(predicate: (EventHook<in Event>) -> Boolean) {
+        val current = hooks
+        val (removed, updated) = current.partition(predicate)
+        if (removed.isNotEmpty()) {
+            hooks = updated.toTypedArray()
+            EventProfiler.forget(removed)
+            EventManager.invalidateRunningStates()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        EventProfiler.forget(hooks.asList())
+        hooks = EMPTY_HOOKS
+        EventManager.invalidateRunningStates()
+    }
+
+    companion object {
+        private val EMPTY_HOOKS = emptyArray<EventHook<in Event>>()
     }
 }
@@ -0,0 +1,157 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.event
+
+import net.ccbluex.liquidbounce.config.types.nesting.Configurable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Opt-in profiler of event handlers.
+ *
+ * While [enabled], [EventManager.callEvent] counts every invocation and exception per [EventHook],
+ * but only measures the duration of every [sampleInterval]-th invocation, so the cost stays low even
+ * for events fired thousands of times per second. When disabled, the only cost is a single volatile read
+ * per event call.
+ *
+ * The profiler runs as long as any of its owners, e.g. the command or the debug module, has started it.
+ */
+object EventProfiler {
+
+    /**
+     * Amount of durations kept per hook to compute percentiles from.
+     */
+    private const val SAMPLE_CAPACITY = 512
+
+    @Volatile
+    var enabled = false
+        private set
+
+    private val owners = HashSet<Any>()
+
+    /**
+     * Every n-th invocation of a hook is timed.
+     */
+    @Volatile
+    var sampleInterval = 16
+        set(value) {
+            require(value > 0) { "Sample interval must be positive" }
+            field = value
+        }
+
+    private val stats = ConcurrentHashMap<EventHook<*>, HookStats>()
+
+    fun start(owner: Any) = synchronized(owners) {
+        owners += owner
+        enabled = true
+    }
+
+    /**
+     * Only stops profiling once no other owner is left.
+     */
+    fun stop(owner: Any) = synchronized(owners) {
+        owners -= owner
+        enabled = owners.isNotEmpty()
+    }
+
+    fun reset() {
+        stats.clear()
+    }
+
+    /**
+     * Drops the stats of unregistered hooks.
+     */
+    internal fun forget(hooks: Collection<EventHook<*>>) {
+        if (stats.isNotEmpty()) {
+            hooks.forEach(stats::remove)
+        }
+    }
+
+    internal fun statsOf(eventClass: Class<out Event>, hook: EventHook<*>): HookStats =
+        stats.computeIfAbsent(hook) { HookStats(eventClass, it) }
+
+    /**
+     * Returns a snapshot of all recorded hooks, sorted descending by the p99 duration.
+     */
+    fun snapshot(): List<HookProfile> =
+        stats.values.map { it.toProfile() }.sortedByDescending { it.p99Nanos }
+
+    internal class HookStats(val eventClass: Class<out Event>, val hook: EventHook<*>) {
+        private val invocations = AtomicLong()
+        private val exceptions = AtomicLong()
+        private val samples = LongArray(SAMPLE_CAPACITY)
+        private var sampleCount = 0
+
+        /**
+         * Counts the invocation and returns if it should be timed.
+         */
+        fun countInvocation(): Boolean = invocations.incrementAndGet() % sampleInterval == 0L
+
+        fun countException() {
+            exceptions.incrementAndGet()
+        }
+
+        @Synchronized
+        fun recordSample(nanos: Long) {
+            samples[sampleCount % SAMPLE_CAPACITY] = nanos
+            sampleCount++
+        }
+
+        @Synchronized
+        fun toProfile(): HookProfile {
+            val recorded = samples.copyOf(minOf(sampleCount, SAMPLE_CAPACITY))
+            recorded.sort()
+
+            return HookProfile(
+                event = eventClass.simpleName,
+                listener = hook.handlerClass.profilerName(),
+                priority = hook.priority,
+                invocations = invocations.get(),
+                exceptions = exceptions.get(),
+                samples = recorded.size,
+                p50Nanos = recorded.percentile(0.5),
+                p99Nanos = recorded.percentile(0.99)
+            )
+        }
+
+        private fun LongArray.percentile(percentile: Double): Long =
+            if (isEmpty()) 0L else this[((size - 1) * percentile).toInt()]
+    }
+
+    /**
+     * Joins the names of the listener and its parents, e.g. `KillAura::FightBot`.
+     */
+    private fun EventListener.profilerName(): String {
+        val name = (this as? Configurable)?.name ?: javaClass.simpleName.ifEmpty { javaClass.name }
+        return parent()?.let { "${it.profilerName()}::$name" } ?: name
+    }
+
+    @JvmRecord
+    data class HookProfile(
+        val event: String,
+        val listener: String,
+        val priority: Short,
+        val invocations: Long,
+        val exceptions: Long,
+        val samples: Int,
+        val p50Nanos: Long,
+        val p99Nanos: Long
+    )
+
+}
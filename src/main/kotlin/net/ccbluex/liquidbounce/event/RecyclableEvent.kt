@@ -0,0 +1,93 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.event
+
+import net.ccbluex.liquidbounce.LiquidBounce
+import net.ccbluex.liquidbounce.config.gson.stategies.ProtocolExclude
+import java.util.function.Supplier
+
+/**
+ * An event which is reused for every call instead of being allocated each time.
+ *
+ * Handlers must not keep a reference to the event after they returned, e.g. by reading it
+ * after a suspension point in a [sequenceHandler]. In development builds, accessing a released
+ * event throws an [IllegalStateException].
+ */
+abstract class RecyclableEvent : Event() {
+
+    @ProtocolExclude
+    @JvmField
+    internal var inUse = false
+
+    @ProtocolExclude
+    @JvmField
+    internal var released = false
+
+    protected fun <T> checkNotReleased(value: T): T {
+        if (LiquidBounce.IN_DEVELOPMENT) {
+            check(!released) {
+                "${javaClass.simpleName} was accessed after its dispatch, it must not be kept by handlers."
+            }
+        }
+
+        return value
+    }
+
+}
+
+/**
+ * Hands out thread-confined [RecyclableEvent] instances.
+ *
+ * Nested calls on the same thread (e.g. a handler causing another collision query) get a fresh instance,
+ * so an event is never reset while it is still being dispatched.
+ */
+class RecyclableEventPool<T : RecyclableEvent>(private val factory: Supplier<T>) {
+
+    private val instances = ThreadLocal.withInitial(factory)
+
+    /**
+     * Returns an event ready to be reset and called. Must be passed to [release] afterward.
+     */
+    fun acquire(): T {
+        val instance = instances.get()
+        val event = if (instance.inUse) factory.get() else instance
+
+        event.inUse = true
+        event.released = false
+        return event
+    }
+
+    fun release(event: T) {
+        event.inUse = false
+        event.released = true
+    }
+
+    /**
+     * Acquires an event, passes it to [block] and releases it afterward.
+     */
+    inline fun <R> use(block: (T) -> R): R {
+        val event = acquire()
+        try {
+            return block(event)
+        } finally {
+            release(event)
+        }
+    }
+
+}
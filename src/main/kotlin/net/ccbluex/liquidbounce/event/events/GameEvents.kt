@@ -23,6 +23,8 @@ package net.ccbluex.liquidbounce.event.events
 import net.ccbluex.liquidbounce.config.types.NamedChoice
 import net.ccbluex.liquidbounce.event.CancellableEvent
 import net.ccbluex.liquidbounce.event.Event
+import net.ccbluex.liquidbounce.event.RecyclableEvent
+import net.ccbluex.liquidbounce.event.RecyclableEventPool
 import net.ccbluex.liquidbounce.integration.interop.protocol.event.WebSocketEvent
 import net.ccbluex.liquidbounce.utils.client.Nameable
 import net.ccbluex.liquidbounce.utils.movement.DirectionalInput
@@ -64,10 +66,39 @@ object InputHandleEvent : Event()
 
 @Nameable("movementInput")
 class MovementInputEvent(
-    var directionalInput: DirectionalInput,
-    var jump: Boolean,
-    var sneak: Boolean,
-) : Event()
+    directionalInput: DirectionalInput,
+    jump: Boolean,
+    sneak: Boolean,
+) : RecyclableEvent() {
+    var directionalInput: DirectionalInput = directionalInput
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    var jump: Boolean = jump
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    var sneak: Boolean = sneak
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    fun reset(directionalInput: DirectionalInput, jump: Boolean, sneak: Boolean) = apply {
+        this.directionalInput = directionalInput
+        this.jump = jump
+        this.sneak = sneak
+    }
+
+    companion object {
+        @JvmField
+        val POOL = RecyclableEventPool { MovementInputEvent(DirectionalInput.NONE, jump = false, sneak = false) }
+    }
+}
 
 @Nameable("sprint")
 class SprintEvent(
@@ -23,6 +23,8 @@ package net.ccbluex.liquidbounce.event.events
 import net.ccbluex.liquidbounce.event.CancellableEvent
 import net.ccbluex.liquidbounce.event.Event
 import net.ccbluex.liquidbounce.event.EventState
+import net.ccbluex.liquidbounce.event.RecyclableEvent
+import net.ccbluex.liquidbounce.event.RecyclableEventPool
 import net.ccbluex.liquidbounce.integration.interop.protocol.event.WebSocketEvent
 import net.ccbluex.liquidbounce.utils.client.Nameable
 import net.minecraft.entity.MovementType
@@ -62,7 +64,27 @@ class PlayerNetworkMovementTickEvent(
 class PlayerPushOutEvent : CancellableEvent()
 
 @Nameable("playerMove")
-class PlayerMoveEvent(val type: MovementType, var movement: Vec3d) : Event()
+class PlayerMoveEvent(type: MovementType, movement: Vec3d) : RecyclableEvent() {
+    var type: MovementType = type
+        get() = checkNotReleased(field)
+        private set
+
+    var movement: Vec3d = movement
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    fun reset(type: MovementType, movement: Vec3d) = apply {
+        this.type = type
+        this.movement = movement
+    }
+
+    companion object {
+        @JvmField
+        val POOL = RecyclableEventPool { PlayerMoveEvent(MovementType.SELF, Vec3d.ZERO) }
+    }
+}
 
 @Nameable("playerJump")
 class PlayerJumpEvent(var motion: Float, var yaw: Float) : CancellableEvent()
@@ -86,7 +108,42 @@ class PlayerInteractItemEvent : CancellableEvent()
 class PlayerInteractedItemEvent(val player: PlayerEntity, val hand: Hand, val actionResult: ActionResult) : Event()
 
 @Nameable("playerStrafe")
-class PlayerVelocityStrafe(val movementInput: Vec3d, val speed: Float, val yaw: Float, var velocity: Vec3d) : Event()
+class PlayerVelocityStrafe(
+    movementInput: Vec3d,
+    speed: Float,
+    yaw: Float,
+    velocity: Vec3d
+) : RecyclableEvent() {
+    var movementInput: Vec3d = movementInput
+        get() = checkNotReleased(field)
+        private set
+
+    var speed: Float = speed
+        get() = checkNotReleased(field)
+        private set
+
+    var yaw: Float = yaw
+        get() = checkNotReleased(field)
+        private set
+
+    var velocity: Vec3d = velocity
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    fun reset(movementInput: Vec3d, speed: Float, yaw: Float, velocity: Vec3d) = apply {
+        this.movementInput = movementInput
+        this.speed = speed
+        this.yaw = yaw
+        this.velocity = velocity
+    }
+
+    companion object {
+        @JvmField
+        val POOL = RecyclableEventPool { PlayerVelocityStrafe(Vec3d.ZERO, 0f, 0f, Vec3d.ZERO) }
+    }
+}
 
 @Nameable("playerStride")
 class PlayerStrideEvent(var strideForce: Float) : Event()
@@ -24,7 +24,9 @@ import net.ccbluex.liquidbounce.event.CancellableEvent
 import net.ccbluex.liquidbounce.event.Event
 import net.ccbluex.liquidbounce.integration.interop.protocol.event.WebSocketEvent
 import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerData
+import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PatchOperation
 import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerInventoryData
+import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game.PlayerStateTracker
 import net.ccbluex.liquidbounce.utils.client.Nameable
 import net.minecraft.text.Text
 
@@ -36,6 +38,12 @@ class FpsChangeEvent(val fps: Int) : Event(), WebSocketEvent
 @Suppress("unused")
 class FpsLimitEvent(var fps: Int) : Event()
 
+/**
+ * The full [PlayerData] of the client player, published every tick it changed while there are listeners.
+ * Sockets which asked for [ClientPlayerDataPatchEvent] do not receive it.
+ *
+ * @see PlayerStateTracker
+ */
 @Nameable("clientPlayerData")
 @Suppress("unused")
 class ClientPlayerDataEvent(val playerData: PlayerData) : Event(), WebSocketEvent {
@@ -44,6 +52,21 @@ class ClientPlayerDataEvent(val playerData: PlayerData) : Event(), WebSocketEven
     }
 }
 
+/**
+ * The changes of the [PlayerData] of the client player since the last tick
+ *
+ * @see PlayerStateTracker
+ */
+@Nameable("clientPlayerDataPatch")
+@Suppress("unused")
+class ClientPlayerDataPatchEvent(val patch: List<PatchOperation>) : Event(), WebSocketEvent
+
+/**
+ * The full [PlayerInventoryData] of the client player, published every tick it changed while there are listeners.
+ * Sockets which asked for [ClientPlayerInventoryPatchEvent] do not receive it.
+ *
+ * @see PlayerStateTracker
+ */
 @Nameable("clientPlayerInventory")
 @Suppress("unused")
 class ClientPlayerInventoryEvent(val inventory: PlayerInventoryData) : Event(), WebSocketEvent {
@@ -52,6 +75,15 @@ class ClientPlayerInventoryEvent(val inventory: PlayerInventoryData) : Event(),
     }
 }
 
+/**
+ * The changes of the [PlayerInventoryData] of the client player since the last tick
+ *
+ * @see PlayerStateTracker
+ */
+@Nameable("clientPlayerInventoryPatch")
+@Suppress("unused")
+class ClientPlayerInventoryPatchEvent(val patch: List<PatchOperation>) : Event(), WebSocketEvent
+
 sealed class TitleEvent : CancellableEvent(), WebSocketEvent {
     sealed class TextContent : TitleEvent() {
         abstract var text: Text?
@@ -22,9 +22,12 @@ package net.ccbluex.liquidbounce.event.events
 
 import net.ccbluex.liquidbounce.event.CancellableEvent
 import net.ccbluex.liquidbounce.event.Event
+import net.ccbluex.liquidbounce.event.RecyclableEvent
+import net.ccbluex.liquidbounce.event.RecyclableEventPool
 import net.ccbluex.liquidbounce.utils.client.Nameable
 import net.minecraft.block.Block
 import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
 import net.minecraft.client.world.ClientWorld
 import net.minecraft.entity.Entity
 import net.minecraft.entity.EquipmentSlot
@@ -34,6 +37,7 @@ import net.minecraft.network.packet.s2c.play.ChunkDeltaUpdateS2CPacket
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.util.shape.VoxelShape
+import net.minecraft.util.shape.VoxelShapes
 
 @Nameable("worldChange")
 class WorldChangeEvent(val world: ClientWorld?) : Event()
@@ -51,7 +55,36 @@ class ChunkDeltaUpdateEvent(val packet: ChunkDeltaUpdateS2CPacket) : Event()
 class BlockChangeEvent(val blockPos: BlockPos, val newState: BlockState) : Event()
 
 @Nameable("blockShape")
-class BlockShapeEvent(var state: BlockState, var pos: BlockPos, var shape: VoxelShape) : Event()
+class BlockShapeEvent(state: BlockState, pos: BlockPos, shape: VoxelShape) : RecyclableEvent() {
+    var state: BlockState = state
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    var pos: BlockPos = pos
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    var shape: VoxelShape = shape
+        get() = checkNotReleased(field)
+        set(value) {
+            field = checkNotReleased(value)
+        }
+
+    fun reset(state: BlockState, pos: BlockPos, shape: VoxelShape) = apply {
+        this.state = state
+        this.pos = pos
+        this.shape = shape
+    }
+
+    companion object {
+        @JvmField
+        val POOL = RecyclableEventPool { BlockShapeEvent(Blocks.AIR.defaultState, BlockPos.ORIGIN, VoxelShapes.empty()) }
+    }
+}
 
 @Nameable("blockBreakingProgress")
 class BlockBreakingProgressEvent(val pos: BlockPos) : Event()
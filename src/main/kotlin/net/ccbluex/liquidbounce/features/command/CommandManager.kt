@@ -123,6 +123,7 @@ object CommandManager : Collection<Command> by commandSet {
             CommandFakePlayer,
             CommandAutoAccount,
             CommandDebug,
+            CommandProfile,
             CommandItemRename,
             CommandItemGive,
             CommandItemSkull,
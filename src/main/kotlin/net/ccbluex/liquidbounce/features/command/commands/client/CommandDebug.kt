@@ -162,6 +162,8 @@ object CommandDebug : Command.Factory {
                     addProperty("version", script.scriptVersion)
                     addProperty("author", script.scriptAuthors.joinToString(", "))
                     addProperty("path", script.file.path)
+                    addProperty("loadTime", script.loadTime?.toString())
+                    addProperty("firstEventTime", script.firstEventTime?.toString())
                 })
             }
         })
@@ -0,0 +1,124 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.features.command.commands.client
+
+import net.ccbluex.liquidbounce.event.EventProfiler
+import net.ccbluex.liquidbounce.features.command.Command
+import net.ccbluex.liquidbounce.features.command.CommandException
+import net.ccbluex.liquidbounce.features.command.builder.CommandBuilder
+import net.ccbluex.liquidbounce.features.command.builder.ParameterBuilder
+import net.ccbluex.liquidbounce.utils.client.chat
+import net.ccbluex.liquidbounce.utils.client.regular
+import net.ccbluex.liquidbounce.utils.client.variable
+
+/**
+ * Profile Command
+ *
+ * Allows you to profile the event handlers of all modules, see [EventProfiler].
+ */
+object CommandProfile : Command.Factory {
+
+    private const val DEFAULT_ENTRIES = 10
+
+    override fun createCommand(): Command {
+        return CommandBuilder
+            .begin("profile")
+            .hub()
+            .subcommand(startSubcommand())
+            .subcommand(stopSubcommand())
+            .subcommand(resetSubcommand())
+            .subcommand(showSubcommand())
+            .build()
+    }
+
+    private fun startSubcommand() = CommandBuilder
+        .begin("start")
+        .parameter(
+            ParameterBuilder
+                .begin<Int>("sampleInterval")
+                .verifiedBy(ParameterBuilder.POSITIVE_INTEGER_VALIDATOR)
+                .optional()
+                .build()
+        )
+        .handler {
+            val sampleInterval = args.getOrNull(0) as Int?
+            if (sampleInterval != null) {
+                if (sampleInterval == 0) {
+                    throw CommandException(command.result("invalidSampleInterval"))
+                }
+
+                EventProfiler.sampleInterval = sampleInterval
+            }
+
+            EventProfiler.start(CommandProfile)
+            chat(regular(command.result("started", variable(EventProfiler.sampleInterval.toString()))))
+        }
+        .build()
+
+    private fun stopSubcommand() = CommandBuilder
+        .begin("stop")
+        .handler {
+            EventProfiler.stop(CommandProfile)
+            chat(regular(command.result("stopped")))
+        }
+        .build()
+
+    private fun resetSubcommand() = CommandBuilder
+        .begin("reset")
+        .handler {
+            EventProfiler.reset()
+            chat(regular(command.result("reset")))
+        }
+        .build()
+
+    private fun showSubcommand() = CommandBuilder
+        .begin("show")
+        .parameter(
+            ParameterBuilder
+                .begin<Int>("entries")
+                .verifiedBy(ParameterBuilder.POSITIVE_INTEGER_VALIDATOR)
+                .optional()
+                .build()
+        )
+        .handler {
+            val entries = args.getOrElse(0) { DEFAULT_ENTRIES } as Int
+            val profiles = EventProfiler.snapshot()
+
+            if (profiles.isEmpty()) {
+                throw CommandException(command.result("noData"))
+            }
+
+            for (profile in profiles.take(entries)) {
+                chat(
+                    variable(profile.listener)
+                        .append(regular(" (${profile.event}, ${profile.priority}): "))
+                        .append(variable("%.3fms".format(profile.p50Nanos / 1e6)))
+                        .append(regular(" p50, "))
+                        .append(variable("%.3fms".format(profile.p99Nanos / 1e6)))
+                        .append(regular(" p99, "))
+                        .append(variable(profile.invocations.toString()))
+                        .append(regular(" calls, "))
+                        .append(variable(profile.exceptions.toString()))
+                        .append(regular(" exceptions"))
+                )
+            }
+        }
+        .build()
+
+}
@@ -49,7 +49,7 @@ object CommandClientCosmeticsSubcommand {
                     "Refreshing cosmetics..."
                 )
             )
-            CosmeticService.carriersCosmetics.clear()
+            CosmeticService.clearCarriersCosmetics()
             ClientAccountManager.clientAccount.cosmetics = null
 
             suspendCancellableCoroutine { continuation ->
@@ -0,0 +1,142 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.features.cosmetic
+
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.liquidbounce.utils.kotlin.toByteArray
+import org.apache.commons.codec.digest.DigestUtils
+import java.util.*
+
+/**
+ * The MD5-hashed UUIDs of all cosmetic carriers as pairs of longs in an open addressing table,
+ * instead of one hex string per carrier.
+ */
+class CarrierDigestSet private constructor(
+    /**
+     * High and low half of each digest, both 0 in empty slots.
+     */
+    private val table: LongArray,
+    private val containsZero: Boolean,
+    val size: Int
+) {
+
+    private val mask = table.size / 2 - 1
+
+    /**
+     * Hashes [uuid] the same way as the API, so it should not be called for the same UUID every frame.
+     */
+    operator fun contains(uuid: UUID): Boolean {
+        val digest = DigestUtils.md5(uuid.toByteArray())
+        return contains(high = digest.readLong(0), low = digest.readLong(8))
+    }
+
+    fun contains(high: Long, low: Long): Boolean {
+        if (high == 0L && low == 0L) {
+            return containsZero
+        }
+
+        var slot = slotOf(high, low, mask)
+        while (true) {
+            val slotHigh = table[slot * 2]
+            val slotLow = table[slot * 2 + 1]
+
+            if (slotHigh == high && slotLow == low) {
+                return true
+            } else if (slotHigh == 0L && slotLow == 0L) {
+                return false
+            }
+
+            slot = (slot + 1) and mask
+        }
+    }
+
+    companion object {
+
+        @JvmField
+        val EMPTY = of(emptyList())
+
+        /**
+         * @param hexDigests the carriers as sent by the API, invalid entries are skipped
+         */
+        fun of(hexDigests: Collection<String>): CarrierDigestSet {
+            // At most half full, so probing stays short
+            val slots = Integer.highestOneBit(maxOf(hexDigests.size, 1) * 2 - 1) shl 1
+            val table = LongArray(slots * 2)
+            val mask = slots - 1
+            var containsZero = false
+            var size = 0
+
+            for (hex in hexDigests) {
+                if (hex.length != 32) {
+                    logger.warn("Skipping invalid cosmetic carrier $hex")
+                    continue
+                }
+
+                val high: Long
+                val low: Long
+                try {
+                    high = java.lang.Long.parseUnsignedLong(hex, 0, 16, 16)
+                    low = java.lang.Long.parseUnsignedLong(hex, 16, 32, 16)
+                } catch (_: NumberFormatException) {
+                    logger.warn("Skipping invalid cosmetic carrier $hex")
+                    continue
+                }
+
+                if (high == 0L && low == 0L) {
+                    size += if (containsZero) 0 else 1
+                    containsZero = true
+                    continue
+                }
+
+                var slot = slotOf(high, low, mask)
+                while (table[slot * 2] != 0L || table[slot * 2 + 1] != 0L) {
+                    if (table[slot * 2] == high && table[slot * 2 + 1] == low) {
+                        break
+                    }
+                    slot = (slot + 1) and mask
+                }
+
+                if (table[slot * 2] == 0L && table[slot * 2 + 1] == 0L) {
+                    table[slot * 2] = high
+                    table[slot * 2 + 1] = low
+                    size++
+                }
+            }
+
+            return CarrierDigestSet(table, containsZero, size)
+        }
+
+        /**
+         * The digests are uniformly distributed, so their bits can be used as hash directly.
+         */
+        private fun slotOf(high: Long, low: Long, mask: Int): Int {
+            val mixed = high xor low
+            return (mixed xor (mixed ushr 32)).toInt() and mask
+        }
+
+        private fun ByteArray.readLong(offset: Int): Long {
+            var value = 0L
+            for (i in offset until offset + 8) {
+                value = (value shl 8) or (this[i].toLong() and 0xFF)
+            }
+            return value
+        }
+    }
+
+}
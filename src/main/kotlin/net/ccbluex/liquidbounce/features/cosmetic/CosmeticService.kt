@@ -19,6 +19,7 @@
 package net.ccbluex.liquidbounce.features.cosmetic
 
 import kotlinx.coroutines.Job
+import net.ccbluex.liquidbounce.api.core.ioScope
 import net.ccbluex.liquidbounce.api.core.withScope
 import net.ccbluex.liquidbounce.api.models.auth.ClientAccount
 import net.ccbluex.liquidbounce.api.models.cosmetics.Cosmetic
@@ -33,15 +34,20 @@ import net.ccbluex.liquidbounce.utils.client.Chronometer
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.client.player
-import net.ccbluex.liquidbounce.utils.kotlin.toMD5
+import net.ccbluex.liquidbounce.utils.kotlin.CoalescingFetcher
 import net.minecraft.client.session.Session
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.time.Duration.Companion.milliseconds
 
 /**
  * A more reliable, safer and stress reduced cosmetics service
  *
  * It will frequently update all carriers of cosmetics into a set with their MD5-hashed UUID.
  * This allows to only request cosmetics of a carrier when it is needed.
+ * Requests of players showing up around the same time are fetched together.
+ *
+ * Lookups are cached per UUID, so render paths neither hash nor allocate once a player is known.
  *
  * We know this might cause sometimes users to not have their cosmetics
  * shown immediately when account switches, but we can reduce the stress
@@ -56,8 +62,29 @@ object CosmeticService : EventListener, Configurable("Cosmetics") {
      * We start with an empty list, which will be updated by the refreshCapeCarriers
      * function frequently based on the REFRESH_DELAY.
      */
-    internal var carriers = emptySet<String>()
-    internal var carriersCosmetics = hashMapOf<UUID, Set<Cosmetic>>()
+    internal var carriers = CarrierDigestSet.EMPTY
+        private set
+
+    /**
+     * If a UUID is in [carriers], cleared whenever they are refreshed.
+     */
+    private val carrierLookups = ConcurrentHashMap<UUID, Boolean>()
+
+    /**
+     * The cosmetics of carriers indexed by [CosmeticCategory.ordinal].
+     * Empty while they are being fetched or after fetching failed.
+     */
+    private val carriersCosmetics = ConcurrentHashMap<UUID, Array<Cosmetic?>>()
+
+    private val fetcher = CoalescingFetcher<UUID, Set<Cosmetic>>(
+        scope = ioScope,
+        window = 100.milliseconds,
+        parallelism = 4,
+        fetch = CosmeticApi::getCarrierCosmetics
+    )
+
+    private val noCosmetics = arrayOfNulls<Cosmetic>(CosmeticCategory.entries.size)
+    private val doNothing = { }
 
     private val lastUpdate = Chronometer()
     private var task: Job? = null
@@ -74,7 +101,8 @@ object CosmeticService : EventListener, Configurable("Cosmetics") {
             if (lastUpdate.hasElapsed(REFRESH_DELAY) || force) {
                 task = withScope {
                     runCatching {
-                        carriers = CosmeticApi.getCarriers()
+                        carriers = CarrierDigestSet.of(CosmeticApi.getCarriers())
+                        carrierLookups.clear()
                         task = null
 
                         // Reset timer and start once again
@@ -118,49 +146,81 @@ object CosmeticService : EventListener, Configurable("Cosmetics") {
         }
 
         refreshCarriers {
-            if (uuid.toMD5() !in carriers) {
+            if (!isCarrier(uuid)) {
                 return@refreshCarriers
             }
 
             // Check if we already have the cosmetic
-            carriersCosmetics[uuid]?.let { cosmetics ->
-                done(cosmetics.find { cosmetic -> cosmetic.category == category } ?: return@refreshCarriers)
+            carriersCosmetics[uuid]?.takeUnless { it === noCosmetics }?.let { cosmetics ->
+                done(cosmetics[category.ordinal] ?: return@refreshCarriers)
                 return@refreshCarriers
             }
 
-            // Pre-allocate a set to prevent multiple requests
-            carriersCosmetics[uuid] = emptySet()
+            requestCosmetics(uuid) { cosmetics ->
+                done(cosmetics[category.ordinal] ?: return@requestCosmetics)
+            }
+        }
+    }
 
-            withScope {
-                runCatching {
-                    val cosmetics = CosmeticApi.getCarrierCosmetics(uuid)
-                    carriersCosmetics[uuid] = cosmetics
+    /**
+     * Queues fetching the cosmetics of [uuid], which are marked as empty until they arrive.
+     * Without [done], nothing is requested when they are already known or pending.
+     */
+    private fun requestCosmetics(uuid: UUID, done: ((Array<Cosmetic?>) -> Unit)? = null) {
+        // Pre-allocate to prevent multiple requests
+        if (carriersCosmetics.putIfAbsent(uuid, noCosmetics) != null && done == null) {
+            return
+        }
 
-                    done(cosmetics.find { cosmetic -> cosmetic.category == category } ?: return@runCatching)
-                }.onFailure {
-                    logger.error("Failed to get cosmetics of carrier $uuid", it)
-                }
+        fetcher.request(uuid) { result ->
+            result.onSuccess { cosmetics ->
+                val byCategory = arrayOfNulls<Cosmetic>(CosmeticCategory.entries.size)
+                cosmetics.forEach { cosmetic -> byCategory[cosmetic.category.ordinal] = cosmetic }
+
+                carriersCosmetics[uuid] = byCategory
+                done?.invoke(byCategory)
+            }.onFailure {
+                logger.error("Failed to get cosmetics of carrier $uuid", it)
             }
         }
     }
 
-    private fun getCosmetic(uuid: UUID, category: CosmeticCategory): Cosmetic? {
-        fetchCosmetic(uuid, category)
+    private fun isCarrier(uuid: UUID): Boolean =
+        carrierLookups[uuid] ?: carrierLookups.computeIfAbsent(uuid) { it in carriers }
 
+    private fun getCosmetic(uuid: UUID, category: CosmeticCategory): Cosmetic? {
         // Check if the client account is available and the requested UUID is the same as the session UUID
         val clientAccount = ClientAccountManager.clientAccount
 
         if ((uuid == mc.session.uuidOrNull || uuid == player.uuid) && clientAccount != ClientAccount.EMPTY_ACCOUNT) {
+            fetchCosmetic(uuid, category)
+
             clientAccount.cosmetics?.let { cosmetics ->
                 return cosmetics.find { cosmetic -> cosmetic.category == category }
             }
+            return null
         }
 
-        if (uuid.toMD5() !in carriers) {
+        refreshCarriers(done = doNothing)
+
+        if (!isCarrier(uuid)) {
             return null
         }
 
-        return carriersCosmetics[uuid]?.find { cosmetic -> cosmetic.category == category }
+        val cosmetics = carriersCosmetics[uuid]
+        if (cosmetics == null) {
+            requestCosmetics(uuid)
+            return null
+        }
+
+        return cosmetics[category.ordinal]
+    }
+
+    /**
+     * Forgets the cosmetics of all carriers, they are fetched again when needed.
+     */
+    fun clearCarriersCosmetics() {
+        carriersCosmetics.clear()
     }
 
     fun hasCosmetic(uuid: UUID, category: CosmeticCategory) = getCosmetic(uuid, category) != null
@@ -202,7 +262,7 @@ object CosmeticService : EventListener, Configurable("Cosmetics") {
 
     @Suppress("unused")
     private val disconnectHandler = handler<DisconnectEvent> {
-        carriersCosmetics.clear()
+        clearCarriersCosmetics()
     }
 
 }
@@ -151,12 +151,10 @@ object AutoBowAutoShootFeature : ToggleableConfigurable(ModuleAutoBow, "AutoShoo
             arrow.tick()
 
             players.forEach { (entity, player) ->
-                val playerSnapshot = player.getSnapshotAt(i)
-
                 val playerHitBox =
                     Box(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3)
                         .expand(0.3)
-                        .offset(playerSnapshot.pos)
+                        .offset(player.getPosAt(i))
 
                 val raycastResult = playerHitBox.raycast(lastPos, arrow.pos)
 
@@ -218,9 +218,7 @@ object SubmoduleBasePlace : ToggleableConfigurable(ModuleCrystalAura, "BasePlace
             return true
         }
 
-        val snapShots = PlayerSimulationCache
-            .getSimulationForLocalPlayer()
-            .getSnapshotsBetween(1..SimulateMovement.ticks)
+        val simulation = PlayerSimulationCache.getSimulationForLocalPlayer()
 
         val posBB = FULL_BOX.offset(pos)
         val y = pos.y.toDouble()
@@ -229,8 +227,8 @@ object SubmoduleBasePlace : ToggleableConfigurable(ModuleCrystalAura, "BasePlace
         var errorOffset = SimulateMovement.error.toDouble()
 
         // check if the pos will intersect at any expected position
-        return snapShots.none {
-            val simulatedPos = it.pos
+        return (1..SimulateMovement.ticks).none { tick ->
+            val simulatedPos = simulation.getPosAt(tick)
             val result = posBB.intersects(
                 simulatedPos.x - errorStep,
                 simulatedPos.y - if (errorDown) errorOffset else 0.0,
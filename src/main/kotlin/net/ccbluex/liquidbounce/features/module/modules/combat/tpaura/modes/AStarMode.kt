@@ -20,9 +20,6 @@
 
 package net.ccbluex.liquidbounce.features.module.modules.combat.tpaura.modes
 
-import kotlinx.coroutines.CoroutineName
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.withContext
 import net.ccbluex.fastutil.WeightedSortedList
 import net.ccbluex.fastutil.mapToArray
 import net.ccbluex.liquidbounce.event.waitTicks
@@ -31,7 +28,6 @@ import net.ccbluex.liquidbounce.event.events.WorldRenderEvent
 import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.event.tickHandler
 import net.ccbluex.liquidbounce.event.tickUntil
-import net.ccbluex.liquidbounce.features.module.modules.combat.tpaura.ModuleTpAura
 import net.ccbluex.liquidbounce.features.module.modules.combat.tpaura.ModuleTpAura.clicker
 import net.ccbluex.liquidbounce.features.module.modules.combat.tpaura.ModuleTpAura.desyncPlayerPosition
 import net.ccbluex.liquidbounce.features.module.modules.combat.tpaura.ModuleTpAura.stuckChronometer
@@ -41,6 +37,7 @@ import net.ccbluex.liquidbounce.render.drawLineStrip
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.ccbluex.liquidbounce.render.renderEnvironmentForWorld
 import net.ccbluex.liquidbounce.utils.block.AStarPathBuilder
+import net.ccbluex.liquidbounce.utils.block.AsyncPathFinder
 import net.ccbluex.liquidbounce.utils.client.chat
 import net.ccbluex.liquidbounce.utils.client.markAsError
 import net.ccbluex.liquidbounce.utils.entity.squaredBoxedDistanceTo
@@ -59,6 +56,7 @@ object AStarMode : TpAuraChoice("AStar"), AStarPathBuilder {
     private val maximumCost by int("MaximumCost", 250, 50..500)
     private val tickDistance by int("TickDistance", 3, 1..7)
     override val allowDiagonal by boolean("AllowDiagonal", false)
+    override val maxIterations by int("MaxIterations", 500, 100..5000)
     private val tpBack by boolean("TpBack", true)
 
     private val stickAt by int("Stick", 5, 1..10, "ticks")
@@ -67,33 +65,36 @@ object AStarMode : TpAuraChoice("AStar"), AStarPathBuilder {
 
     private val pathStart = BlockPos.Mutable()
 
-    private val pathContext = Dispatchers.Default + CoroutineName("${ModuleTpAura.name}-${name}")
+    private val pathFinder = AsyncPathFinder(this)
 
     @Suppress("unused")
     private val tickHandler = tickHandler {
-        pathCache = withContext(pathContext) {
-            val playerEyePos = player.eyePos
-            val playerPosition = pathStart.takeIf { it != BlockPos.ORIGIN } ?: player.blockPos
-
-            val maximumDistanceSq = maximumDistance.sq().toDouble()
-
-            targetSelector.targets().toCollection(
-                WeightedSortedList(
-                    upperBound = maximumDistanceSq,
-                    weighter = { it.squaredBoxedDistanceTo(playerEyePos) }
-                )
-            ).firstNotNullOfOrNull { enemy ->
-                val path = findPath(playerPosition, enemy.blockPos, maximumCost)
-
-                // Skip if the path is empty
-                if (path.isNotEmpty()) {
-                    // Stop searching when the pathCache is ready
-                    PathCache(enemy, path)
-                } else {
-                    null
-                }
+        val playerEyePos = player.eyePos
+        val playerPosition = pathStart.takeIf { it != BlockPos.ORIGIN } ?: player.blockPos
+
+        val maximumDistanceSq = maximumDistance.sq().toDouble()
+
+        val targets = targetSelector.targets().toCollection(
+            WeightedSortedList(
+                upperBound = maximumDistanceSq,
+                weighter = { it.squaredBoxedDistanceTo(playerEyePos) }
+            )
+        )
+
+        var newPathCache: PathCache? = null
+        for (enemy in targets) {
+            // The path is searched off-thread, check again on the next tick until it is done
+            val path = pathFinder.request(playerPosition, enemy.blockPos, maximumCost).getNow(null)
+                ?: return@tickHandler
+
+            // Skip if the path is empty
+            if (path.isNotEmpty()) {
+                // Stop searching when the pathCache is ready
+                newPathCache = PathCache(enemy, path)
+                break
             }
         }
+        pathCache = newPathCache
 
         val (_, path) = pathCache ?: return@tickHandler
 
@@ -118,6 +119,7 @@ object AStarMode : TpAuraChoice("AStar"), AStarPathBuilder {
         desyncPlayerPosition = null
         pathStart.set(BlockPos.ORIGIN)
         pathCache = null
+        pathFinder.cancel()
         super.disable()
     }
 
@@ -29,7 +29,10 @@ import net.ccbluex.liquidbounce.utils.block.hole.HoleTracker
 import net.ccbluex.liquidbounce.utils.input.InputBind
 import net.ccbluex.liquidbounce.utils.math.boundingBox
 import net.ccbluex.liquidbounce.utils.math.centerPointOf
+import net.ccbluex.liquidbounce.utils.math.expendToBlockBox
 import net.ccbluex.liquidbounce.utils.math.sq
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Direction
 import net.minecraft.util.math.Vec3d
 import kotlin.math.abs
@@ -70,7 +73,13 @@ object ModuleAnchor : ClientModule(
     private val tickHandler = tickHandler {
         // if we're already in a hole, we should just center us in that
         val playerBB = player.boundingBox
-        HoleTracker.holes.firstOrNull { hole -> playerBB.intersects(hole.positions.boundingBox) }?.let { hole ->
+        val playerBlocks = BlockBox.create(
+            BlockPos.ofFloored(playerBB.minX, playerBB.minY, playerBB.minZ),
+            BlockPos.ofFloored(playerBB.maxX, playerBB.maxY, playerBB.maxZ)
+        )
+        HoleTracker.holes.query(playerBlocks).firstOrNull { hole ->
+            playerBB.intersects(hole.positions.boundingBox)
+        }?.let { hole ->
             goal = hole.positions.centerPointOf(Direction.DOWN)
             return@tickHandler
         }
@@ -86,7 +95,8 @@ object ModuleAnchor : ClientModule(
         }
 
         // not in a hole and no valid goal means we need to search one
-        goal = HoleTracker.holes
+        val searchRadius = ceil(maxDistance).toInt() + 1
+        goal = HoleTracker.holes.query(player.blockPos.expendToBlockBox(searchRadius, searchRadius, searchRadius))
             .filter { hole -> hole.positions.maxY + 1 <= playerPos.y }
             .map { hole -> hole.positions.centerPointOf(Direction.DOWN) }
             .filter { vec3d -> vec3d.squaredDistanceTo(playerPos) <= maxDistanceSq }
@@ -18,7 +18,6 @@
  */
 package net.ccbluex.liquidbounce.features.module.modules.movement
 
-import net.ccbluex.fastutil.mapToArray
 import net.ccbluex.liquidbounce.config.types.nesting.Choice
 import net.ccbluex.liquidbounce.config.types.nesting.ChoiceConfigurable
 import net.ccbluex.liquidbounce.event.events.*
@@ -123,13 +122,14 @@ object ModuleFreeze : ClientModule("Freeze", Category.MOVEMENT, disableOnQuit =
 
         // Create a cache for the simulated player
         val simulatedPlayerCache = SimulatedPlayerCache(simulatedPlayer)
-        val cachedPositions = simulatedPlayerCache
-            .getSnapshotsBetween(0 until this.missedOutTick)
+        val ticks = this.missedOutTick
 
         renderEnvironmentForWorld(event.matrixStack) {
             drawLineStrip(
                 argb = Color4b(0x00, 0x80, 0xFF, 0xFF).toARGB(),
-                positions = cachedPositions.mapToArray { relativeToCamera(it.pos).toVec3() },
+                positions = Array(ticks) { tick ->
+                    relativeToCamera(simulatedPlayerCache.getPosAt(tick)).toVec3()
+                },
             )
         }
     }
@@ -40,7 +40,7 @@ object ModuleParkour : ClientModule("Parkour", Category.MOVEMENT) {
                 !player.isSneaking &&
                 !mc.options.sneakKey.isPressed &&
                 !mc.options.jumpKey.isPressed &&
-                !simulatedPlayer.getSnapshotAt(1).onGround
+                !simulatedPlayer.isOnGroundAt(1)
 
         if (shouldJump) {
             event.jump = true
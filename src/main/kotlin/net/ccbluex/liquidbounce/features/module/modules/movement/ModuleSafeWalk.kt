@@ -109,13 +109,13 @@ object ModuleSafeWalk : ClientModule("SafeWalk", Category.MOVEMENT) {
 
                     val center = center
                     if (center != null) {
-                        val nextTick = PlayerSimulationCache.getSimulationForLocalPlayer().getSnapshotAt(1)
+                        val nextPos = PlayerSimulationCache.getSimulationForLocalPlayer().getPosAt(1)
                         debugGeometry("Center") {
                             ModuleDebug.DebuggedPoint(center, Color4b.BLUE, 0.05)
                         }
 
                         val currentDistance = center.subtract(player.pos).horizontalLengthSquared()
-                        val nextDistance = center.subtract(nextTick.pos).horizontalLengthSquared()
+                        val nextDistance = center.subtract(nextPos).horizontalLengthSquared()
 
                         debugParameter("CurrentDistance") { currentDistance }
                         debugParameter("NextDistance") { nextDistance }
@@ -119,9 +119,9 @@ object ModuleAntiVoid : ClientModule("AntiVoid", Category.PLAYER) {
      */
     private fun isPredictingFall(): Boolean {
         for (tick in 0 until SAFE_TICKS_THRESHOLD) {
-            val snapshot = PlayerSimulationCache.getSimulationForLocalPlayer().getSnapshotAt(tick)
-            if (snapshot.fallDistance > 0.0) {
-                return isSafeForRescue(snapshot.pos)
+            val simulation = PlayerSimulationCache.getSimulationForLocalPlayer()
+            if (simulation.getFallDistanceAt(tick) > 0.0) {
+                return isSafeForRescue(simulation.getPosAt(tick))
             }
         }
         return false
@@ -150,8 +150,11 @@ object FeatureChestAura : ToggleableConfigurable(ModuleChestStealer, "Aura", tru
         }
 
         // Select blocks for processing within the search radius
-        val nearbyStorageBlocks = playerEyesPosition.searchBlocksInCuboid(searchRadius) { pos, state ->
-            pos !in interactedBlocksSet && state.block in validStorageBlocks && isUnblockedChestOrNotChest(state, pos)
+        val nearbyStorageBlocks = playerEyesPosition.searchBlocksInCuboid(
+            searchRadius,
+            stateFilter = { state -> state.block in validStorageBlocks }
+        ) { pos, state ->
+            pos !in interactedBlocksSet && isUnblockedChestOrNotChest(state, pos)
         }.sortedBy { it.first.getCenterDistanceSquaredEyes() }
 
         var nextTargetBlock: BlockPos? = null
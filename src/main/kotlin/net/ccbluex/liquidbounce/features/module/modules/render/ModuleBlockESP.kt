@@ -27,17 +27,17 @@ import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.features.module.Category
 import net.ccbluex.liquidbounce.features.module.ClientModule
 import net.ccbluex.liquidbounce.render.*
-import net.ccbluex.liquidbounce.render.drawBox
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.ccbluex.liquidbounce.utils.block.AbstractBlockLocationTracker
 import net.ccbluex.liquidbounce.utils.block.ChunkScanner
 import net.ccbluex.liquidbounce.utils.block.getState
 import net.ccbluex.liquidbounce.utils.inventory.findBlocksEndingWith
-import net.ccbluex.liquidbounce.utils.math.toVec3d
 import net.minecraft.block.Block
 import net.minecraft.block.BlockState
 import net.minecraft.client.util.math.MatrixStack
 import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import java.util.function.Predicate
 
 /**
  * BlockESP module
@@ -59,6 +59,11 @@ object ModuleBlockESP : ClientModule("BlockESP", Category.RENDER) {
         it
     }
 
+    /**
+     * One buffer per chunk section with tracked blocks, rebuilt when [BlockTracker] changes in it.
+     */
+    private val meshCache = SectionMeshCache()
+
     private val colorMode = choices("ColorMode", 0) {
         arrayOf(
             MapColorMode(it),
@@ -80,65 +85,78 @@ object ModuleBlockESP : ClientModule("BlockESP", Category.RENDER) {
             drawBoxMode(matrixStack, this.outline, false)
         }
 
+        /**
+         * Colors which are baked into [meshCache], it is rebuilt when they change.
+         */
+        private var bakedColors: Any? = null
+
         fun drawBoxMode(matrixStack: MatrixStack, drawOutline: Boolean, fullAlpha: Boolean): Boolean {
             val colorMode = colorMode.activeChoice
+            // Uniform colors are applied when drawing, so animated colors don't need rebuilding
+            val tint = when (colorMode) {
+                is GenericStaticColorMode -> colorMode.getColor(null)
+                is GenericRainbowColorMode -> colorMode.getColor(null)
+                else -> null
+            }
+
+            val colors = listOf(colorMode, tint?.a, drawOutline, fullAlpha)
+            if (colors != bakedColors) {
+                bakedColors = colors
+                meshCache.markAllDirty()
+            }
 
             var dirty = false
 
             renderEnvironmentForWorld(matrixStack) {
-                dirty = drawInternal(
-                    BlockTracker.allPositions(),
-                    colorMode,
-                    fullAlpha,
-                    drawOutline
-                )
+                meshCache.update(BlockTracker) { pos, _, boxes ->
+                    addBox(
+                        blockPos = pos,
+                        boxes = boxes,
+                        colorMode = colorMode,
+                        tint = tint,
+                        fullAlpha = fullAlpha,
+                        drawOutline = drawOutline
+                    )
+                }
+
+                dirty = meshCache.draw(this, tint?.with(a = 255))
             }
 
             return dirty
         }
 
-        private fun WorldRenderEnvironment.drawInternal(
-            blocks: Sequence<BlockPos>,
+        private fun addBox(
+            blockPos: BlockPos,
+            boxes: SectionMeshCache.Boxes,
             colorMode: GenericColorMode<Pair<BlockPos, BlockState>>,
+            tint: Color4b?,
             fullAlpha: Boolean,
             drawOutline: Boolean
-        ): Boolean {
-            var dirty = false
-
-            startBatch()
-            for (blockPos in blocks) {
-                val blockState = blockPos.getState() ?: continue
-
-                if (blockState.isAir) {
-                    continue
-                }
-
-                val outlineShape = blockState.getOutlineShape(world, blockPos)
-                val boundingBox = if (outlineShape.isEmpty) {
-                    FULL_BOX
-                } else {
-                    outlineShape.boundingBox
-                }
+        ) {
+            val blockState = blockPos.getState() ?: return
 
-                var color = colorMode.getColor(Pair(blockPos, blockState))
+            if (blockState.isAir) {
+                return
+            }
 
-                if (fullAlpha) {
-                    color = color.with(a = 255)
-                }
+            val outlineShape = blockState.getOutlineShape(world, blockPos)
+            val boundingBox = if (outlineShape.isEmpty) {
+                FULL_BOX
+            } else {
+                outlineShape.boundingBox
+            }
 
-                withPositionRelativeToCamera(blockPos.toVec3d()) {
-                    drawBox(
-                        boundingBox,
-                        faceColor = color,
-                        outlineColor = if (drawOutline) color.with(a = 150) else null,
-                    )
-                }
+            var color = if (tint != null) {
+                Color4b.WHITE.with(a = tint.a)
+            } else {
+                colorMode.getColor(Pair(blockPos, blockState))
+            }
 
-                dirty = true
+            if (fullAlpha) {
+                color = color.with(a = 255)
             }
-            commitBatch()
 
-            return dirty
+            boxes.add(blockPos, boundingBox, color, if (drawOutline) color.with(a = 150) else null)
         }
     }
 
@@ -185,11 +203,24 @@ object ModuleBlockESP : ClientModule("BlockESP", Category.RENDER) {
 
     override fun onDisabled() {
         ChunkScanner.unsubscribe(BlockTracker)
+        meshCache.clear()
     }
 
     private object BlockTracker : AbstractBlockLocationTracker.State2BlockPos<Block>() {
+        override val blockStateFilter = Predicate<BlockState> { it.block in targets }
+
         override fun getStateFor(pos: BlockPos, state: BlockState): Block? =
             state.block?.takeIf { it in targets }
+
+        override fun onUpdated(pos: BlockPos) = meshCache.markDirty(pos)
+
+        override fun onCleared(pos: ChunkPos?) {
+            if (pos == null) {
+                meshCache.markAllDirty()
+            } else {
+                meshCache.markDirty(pos)
+            }
+        }
     }
 
 }
@@ -21,11 +21,11 @@ package net.ccbluex.liquidbounce.features.module.modules.render
 import kotlinx.coroutines.CoroutineName
 import kotlinx.coroutines.CoroutineScope
 import net.ccbluex.fastutil.forEachFloat
-import net.ccbluex.fastutil.mapToArray
 import net.ccbluex.fastutil.step
 import net.ccbluex.liquidbounce.config.types.CurveValue.Axis.Companion.axis
 import net.ccbluex.liquidbounce.config.types.nesting.ToggleableConfigurable
 import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.EventProfiler
 import net.ccbluex.liquidbounce.event.events.GameTickEvent
 import net.ccbluex.liquidbounce.event.events.MovementInputEvent
 import net.ccbluex.liquidbounce.event.events.OverlayRenderEvent
@@ -83,14 +83,15 @@ object ModuleDebug : ClientModule("Debug", Category.RENDER) {
 
         @Suppress("unused")
         private val renderHandler = handler<WorldRenderEvent> { event ->
-            val cachedPositions = PlayerSimulationCache
-                .getSimulationForLocalPlayer()
-                .getSnapshotsBetween(0 until this.ticksToPredict)
+            val simulation = PlayerSimulationCache.getSimulationForLocalPlayer()
+            val ticks = this.ticksToPredict
 
             renderEnvironmentForWorld(event.matrixStack) {
                 drawLineStrip(
                     Color4b.BLUE.toARGB(),
-                    positions = cachedPositions.mapToArray { relativeToCamera(it.pos).toVec3() },
+                    positions = Array(ticks) { tick ->
+                        relativeToCamera(simulation.getPosAt(tick)).toVec3()
+                    },
                 )
             }
         }
@@ -161,9 +162,69 @@ object ModuleDebug : ClientModule("Debug", Category.RENDER) {
 
     }
 
+    /**
+     * Profiles all event handlers while enabled and shows the slowest ones, see [EventProfiler].
+     */
+    object EventProfiling : ToggleableConfigurable(this, "EventProfiling", false) {
+
+        private val sampleInterval by int("SampleInterval", 16, 1..256).onChanged { interval ->
+            EventProfiler.sampleInterval = interval
+        }
+        private val entries by int("Entries", 10, 1..50)
+
+        override fun onEnabled() {
+            EventProfiler.sampleInterval = sampleInterval
+            EventProfiler.reset()
+            EventProfiler.start(this)
+        }
+
+        override fun onDisabled() {
+            EventProfiler.stop(this)
+        }
+
+        @Suppress("unused")
+        private val screenRenderHandler = handler<OverlayRenderEvent> { event ->
+            val profiles = EventProfiler.snapshot().take(entries)
+
+            renderEnvironmentForGUI(event) {
+                fontRenderer.draw(
+                    fontRenderer.process("Event Handlers (p50 / p99 / calls)"),
+                    300f,
+                    22f,
+                    shadow = true,
+                    scale = 0.3f
+                )
+
+                profiles.forEachIndexed { index, profile ->
+                    val text = profile.listener.asText().formatted(Formatting.GOLD)
+                        .append(" ${profile.event}: ".asText().formatted(Formatting.GRAY))
+                        .append(
+                            "%.3fms / %.3fms / %d".format(
+                                profile.p50Nanos / 1e6,
+                                profile.p99Nanos / 1e6,
+                                profile.invocations
+                            ).asText().formatted(Formatting.GREEN)
+                        )
+
+                    fontRenderer.draw(
+                        fontRenderer.process(text),
+                        300f,
+                        40 + ((fontRenderer.height * 0.17f) * index),
+                        shadow = true,
+                        scale = 0.17f
+                    )
+                }
+
+                fontRenderer.commit(this)
+            }
+        }
+
+    }
+
     init {
         tree(RenderSimulatedPlayer)
         tree(Graph)
+        tree(EventProfiling)
     }
 
     @JvmRecord
@@ -32,6 +32,7 @@ import net.ccbluex.liquidbounce.utils.block.hole.HoleManagerSubscriber
 import net.ccbluex.liquidbounce.utils.block.hole.HoleTracker
 import net.ccbluex.liquidbounce.utils.math.box
 import net.ccbluex.liquidbounce.utils.math.from
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Direction
 import net.minecraft.util.math.Vec3d
@@ -77,33 +78,20 @@ object ModuleHoleESP : ClientModule("HoleESP", Category.RENDER), HoleManagerSubs
 
         @Suppress("unused")
         val renderHandler = handler<WorldRenderEvent> { event ->
-            val pos = player.blockPos
-            val vDistance = verticalDistance
-            val hDistance = horizontalDistance
-
             renderEnvironmentForWorld(event.matrixStack) {
-                startBatch()
-                HoleTracker.holes.forEach {
-                    val positions = it.positions
-
-                    val valOutOfRange = abs(pos.y - positions.minY) > vDistance
-                    val xzOutOfRange = abs(pos.x - positions.minX) > hDistance ||
-                        abs(pos.z - positions.minZ) > hDistance
-                    if (valOutOfRange || xzOutOfRange) {
-                        return@forEach
-                    }
-
-                    val fade = calculateFade(positions.from)
-                    val baseColor = it.color().with(a = 50).fade(fade)
-                    withPositionRelativeToCamera(positions.from) {
-                        drawBox(
+                drawBoxInstances {
+                    forEachVisibleHole {
+                        val positions = it.positions
+                        val fade = calculateFade(positions.from)
+                        val baseColor = it.color().with(a = 50).fade(fade)
+                        add(
+                            relativeToCamera(positions.from),
                             positions.box,
                             baseColor,
                             if (outline) baseColor.with(a = 100).fade(fade) else null,
                         )
                     }
                 }
-                commitBatch()
             }
         }
     }
@@ -120,22 +108,11 @@ object ModuleHoleESP : ClientModule("HoleESP", Category.RENDER), HoleManagerSubs
         @Suppress("unused")
         val renderHandler = handler<WorldRenderEvent> { event ->
             val glowHeight = glowHeightSetting.toDouble()
-            val pos = player.blockPos
-            val vDistance = verticalDistance
-            val hDistance = horizontalDistance
 
             renderEnvironmentForWorld(event.matrixStack) {
                 withDisabledCull {
-                    HoleTracker.holes.forEach {
+                    forEachVisibleHole {
                         val positions = it.positions
-
-                        val valOutOfRange = abs(pos.y - positions.minY) > vDistance
-                        val xzOutOfRange = abs(pos.x - positions.minX) > hDistance ||
-                            abs(pos.z - positions.minZ) > hDistance
-                        if (valOutOfRange || xzOutOfRange) {
-                            return@forEach
-                        }
-
                         val fade = calculateFade(positions.from)
                         val baseColor = it.color().with(a = 50).fade(fade)
                         val transparentColor = baseColor.with(a = 0)
@@ -155,6 +132,60 @@ object ModuleHoleESP : ClientModule("HoleESP", Category.RENDER), HoleManagerSubs
         }
     }
 
+    private val holesInRange = ArrayList<Hole>()
+    private var holePositions = LongArray(0)
+
+    /**
+     * Calls [action] with the holes in range which are in the view frustum, culled in a batch.
+     * Every hole is tested with the size of the largest one, so none is culled while any part of it is visible.
+     */
+    private inline fun forEachVisibleHole(action: (Hole) -> Unit) {
+        val pos = player.blockPos
+        val vDistance = verticalDistance
+        val hDistance = horizontalDistance
+
+        holesInRange.clear()
+        for (hole in HoleTracker.holes) {
+            val positions = hole.positions
+
+            val valOutOfRange = abs(pos.y - positions.minY) > vDistance
+            val xzOutOfRange = abs(pos.x - positions.minX) > hDistance ||
+                abs(pos.z - positions.minZ) > hDistance
+            if (!valOutOfRange && !xzOutOfRange) {
+                holesInRange += hole
+            }
+        }
+
+        if (holePositions.size < holesInRange.size) {
+            holePositions = LongArray(holesInRange.size)
+        }
+        for (i in holesInRange.indices) {
+            holePositions[i] = holesInRange[i].packedMinPos()
+        }
+
+        val visible = WorldToScreen.filterVisible(
+            positions = holePositions,
+            size = holesInRange.size,
+            sizeX = 2.0,
+            sizeY = 1.0,
+            sizeZ = 2.0
+        )
+
+        // The visible positions keep the order of the holes
+        var next = 0
+        for (hole in holesInRange) {
+            if (next == visible) {
+                break
+            }
+            if (holePositions[next] == hole.packedMinPos()) {
+                next++
+                action(hole)
+            }
+        }
+    }
+
+    private fun Hole.packedMinPos() = BlockPos.asLong(positions.minX, positions.minY, positions.minZ)
+
     private fun Hole.color() = when {
         type == Hole.Type.ONE_ONE && bedrockOnly -> colorBedrock
         type == Hole.Type.ONE_TWO -> color1by2
@@ -32,6 +32,7 @@ import net.ccbluex.liquidbounce.render.drawBox
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.ccbluex.liquidbounce.utils.collection.Filter
 import net.ccbluex.liquidbounce.utils.entity.interpolateCurrentPosition
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.minecraft.entity.Entity
 import net.minecraft.entity.ItemEntity
 import net.minecraft.entity.projectile.ArrowEntity
@@ -108,6 +109,9 @@ object ModuleItemESP : ClientModule("ItemESP", Category.RENDER) {
                 startBatch()
                 for (entity in entities) {
                     val pos = entity.interpolateCurrentPosition(event.partialTicks)
+                    if (!WorldToScreen.isVisible(pos, box)) {
+                        continue
+                    }
 
                     withPositionRelativeToCamera(pos) {
                         drawBox(box, baseColor, outlineColor)
@@ -41,6 +41,7 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3d
 import net.minecraft.world.World
+import java.util.function.Predicate
 import kotlin.math.max
 import kotlin.math.min
 import kotlin.math.roundToInt
@@ -105,6 +106,8 @@ object ModuleProtectionZones : ClientModule("ProtectionZones", Category.RENDER)
     }
 
     private object BlockTracker : AbstractBlockLocationTracker.BlockPos2State<Block>() {
+        override val blockStateFilter = Predicate<BlockState> { it.block in protBlocks }
+
         override fun getStateFor(pos: BlockPos, state: BlockState): Block? =
             state.block?.takeIf { it in protBlocks }
     }
@@ -38,6 +38,7 @@ import net.ccbluex.liquidbounce.utils.block.ChunkScanner
 import net.ccbluex.liquidbounce.utils.block.getState
 import net.ccbluex.liquidbounce.utils.entity.interpolateCurrentPosition
 import net.ccbluex.liquidbounce.utils.math.toVec3
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.minecraft.block.BlockRenderType
 import net.minecraft.block.BlockState
 import net.minecraft.block.entity.*
@@ -49,7 +50,9 @@ import net.minecraft.entity.vehicle.HopperMinecartEntity
 import net.minecraft.entity.vehicle.StorageMinecartEntity
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
+import net.minecraft.util.math.ChunkPos
 import java.awt.Color
+import java.util.function.Predicate
 
 /**
  * StorageESP module
@@ -75,6 +78,12 @@ object ModuleStorageESP : ClientModule("StorageESP", Category.RENDER, aliases =
         object Hopper : ChestType("Hopper", Color4b(Color.GRAY))
         object ShulkerBox : ChestType("ShulkerBox", Color4b(Color(0x6e, 0x4d, 0x6e).brighter()))
         object Pot : ChestType("Pot", Color4b(209, 134, 0))
+
+        companion object {
+            val all by lazy {
+                listOf(Chest, EnderChest, Furnace, BrewingStand, Dispenser, Hopper, ShulkerBox, Pot)
+            }
+        }
     }
 
     init {
@@ -88,6 +97,11 @@ object ModuleStorageESP : ClientModule("StorageESP", Category.RENDER, aliases =
         tree(ChestType.Pot)
     }
 
+    /**
+     * One buffer per chunk section with storage blocks, rebuilt when [StorageScanner] changes in it.
+     */
+    private val meshCache = SectionMeshCache()
+
     private val requiresChestStealer by boolean("RequiresChestStealer", false)
 
     override fun onEnabled() {
@@ -105,39 +119,41 @@ object ModuleStorageESP : ClientModule("StorageESP", Category.RENDER, aliases =
 
         private val outline by boolean("Outline", true)
 
-        private val blockBoxes = mutableListOf<BlockBox>()
         private val entityBoxes = mutableListOf<EntityBox>()
-        private val blockPos = BlockPos.Mutable()
+
+        /**
+         * Settings which are baked into [meshCache], it is rebuilt when they change.
+         */
+        private var bakedSettings: Any? = null
 
         override fun disable() {
-            blockBoxes.clear()
+            meshCache.clear()
+            bakedSettings = null
             entityBoxes.clear()
             super.disable()
         }
 
         @Suppress("unused")
         private val renderHandler = handler<WorldRenderEvent> { event ->
-            if (blockBoxes.isEmpty() && entityBoxes.isEmpty()) return@handler
+            if (StorageScanner.isEmpty() && meshCache.isEmpty && entityBoxes.isEmpty()) return@handler
 
             val matrixStack = event.matrixStack
 
             renderEnvironmentForWorld(matrixStack) {
-                startBatch()
-
-                for ((pos, box, color) in blockBoxes) {
-                    val baseColor = color.with(a = 50)
-                    val outlineColor = if (outline) color.with(a = 100) else null
+                meshCache.update(StorageScanner, ::addBlockBox)
+                meshCache.draw(this)
 
-                    withPositionRelativeToCamera(blockPos.set(pos)) {
-                        drawBox(box, baseColor, outlineColor)
-                    }
-                }
+                startBatch()
 
                 for ((entity, box, color) in entityBoxes) {
                     val baseColor = color.with(a = 50)
                     val outlineColor = if (outline) color.with(a = 100) else null
 
                     val pos = entity.interpolateCurrentPosition(event.partialTicks)
+                    if (!WorldToScreen.isVisible(pos, box)) {
+                        continue
+                    }
+
                     withPositionRelativeToCamera(pos) {
                         drawBox(box, baseColor, outlineColor)
                     }
@@ -147,37 +163,42 @@ object ModuleStorageESP : ClientModule("StorageESP", Category.RENDER, aliases =
             }
         }
 
-        @JvmRecord
-        private data class BlockBox(val pos: Long, val box: Box, val color: Color4b)
-
         @JvmRecord
         private data class EntityBox(val entity: Entity, val box: Box, val color: Color4b)
 
-        @Suppress("unused")
-        private val tickHandler = handler<GameTickEvent> {
-            blockBoxes.clear()
+        private fun addBlockBox(pos: BlockPos, type: ChestType, boxes: SectionMeshCache.Boxes) {
+            val color = type.color
 
-            for ((pos, type) in StorageScanner.iterate()) {
-                val color = type.color
+            if (!type.enabled || color.isTransparent || !type.shouldRender(pos)) {
+                return
+            }
 
-                if (!type.enabled || color.isTransparent || !type.shouldRender(pos)) {
-                    continue
-                }
+            val state = pos.getState()
 
-                val state = pos.getState()
+            if (state == null || state.isAir) {
+                return
+            }
 
-                if (state == null || state.isAir) {
-                    continue
-                }
+            val outlineShape = state.getOutlineShape(world, pos)
+            val boundingBox = if (outlineShape.isEmpty) {
+                FULL_BOX
+            } else {
+                outlineShape.boundingBox
+            }
 
-                val outlineShape = state.getOutlineShape(world, pos)
-                val boundingBox = if (outlineShape.isEmpty) {
-                    FULL_BOX
-                } else {
-                    outlineShape.boundingBox
-                }
+            boxes.add(pos, boundingBox, color.with(a = 50), if (outline) color.with(a = 100) else null)
+        }
 
-                blockBoxes.add(BlockBox(pos.asLong(), boundingBox, color))
+        @Suppress("unused")
+        private val tickHandler = handler<GameTickEvent> {
+            val settings = listOf(
+                outline,
+                ChestType.all.map { it.enabled to it.color },
+                FeatureChestAura.interactedBlocksSet.hashCode()
+            )
+            if (settings != bakedSettings) {
+                bakedSettings = settings
+                meshCache.markAllDirty()
             }
 
             entityBoxes.clear()
@@ -293,10 +314,22 @@ object ModuleStorageESP : ClientModule("StorageESP", Category.RENDER, aliases =
     }
 
     private object StorageScanner : AbstractBlockLocationTracker.State2BlockPos<ChestType>() {
+        override val blockStateFilter = Predicate<BlockState>(BlockState::hasBlockEntity)
+
         override fun getStateFor(pos: BlockPos, state: BlockState): ChestType? {
             val chunk = mc.world?.getChunk(pos) ?: return null
             return chunk.getBlockEntity(pos)?.categorize()
         }
+
+        override fun onUpdated(pos: BlockPos) = meshCache.markDirty(pos)
+
+        override fun onCleared(pos: ChunkPos?) {
+            if (pos == null) {
+                meshCache.markAllDirty()
+            } else {
+                meshCache.markDirty(pos)
+            }
+        }
     }
 
     override val running: Boolean
@@ -21,11 +21,11 @@ package net.ccbluex.liquidbounce.features.module.modules.render.esp.modes
 import net.ccbluex.liquidbounce.event.events.WorldRenderEvent
 import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.features.module.modules.render.esp.ModuleESP.getColor
-import net.ccbluex.liquidbounce.render.drawBox
+import net.ccbluex.liquidbounce.render.drawBoxInstances
 import net.ccbluex.liquidbounce.render.renderEnvironmentForWorld
-import net.ccbluex.liquidbounce.render.withPositionRelativeToCamera
 import net.ccbluex.liquidbounce.utils.entity.RenderedEntities
 import net.ccbluex.liquidbounce.utils.entity.interpolateCurrentPosition
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.minecraft.util.math.Box
 
 object EspBoxMode : EspMode("Box") {
@@ -44,23 +44,26 @@ object EspBoxMode : EspMode("Box") {
         }
 
         renderEnvironmentForWorld(matrixStack) {
-            startBatch()
-            entitiesWithBoxes.forEach { (entity, box) ->
-                val pos = entity.interpolateCurrentPosition(event.partialTicks)
-                val color = getColor(entity)
+            drawBoxInstances {
+                entitiesWithBoxes.forEach { (entity, box) ->
+                    val pos = entity.interpolateCurrentPosition(event.partialTicks)
+                    if (!WorldToScreen.isVisible(pos, box)) {
+                        return@forEach
+                    }
 
-                val baseColor = color.with(a = 50)
-                val outlineColor = color.with(a = 100)
+                    val color = getColor(entity)
 
-                withPositionRelativeToCamera(pos) {
-                    drawBox(
+                    val baseColor = color.with(a = 50)
+                    val outlineColor = color.with(a = 100)
+
+                    add(
+                        relativeToCamera(pos),
                         box,
                         baseColor,
                         outlineColor.takeIf { outline }
                     )
                 }
             }
-            commitBatch()
         }
     }
 
@@ -119,12 +119,11 @@ object ModuleBedDefender : ClientModule("BedDefender", category = Category.WORLD
         val rangeSq = placer.range * placer.range
 
         // The bed that need to be defended may be already covered, so we search further
-        val bedBlocks = eyesPos.searchBlocksInCuboid(placer.range + maxLayers + 1) { pos, state ->
-            val block = state.block
-            when {
-                block !is BedBlock -> false
-                else -> isSelfBedMode.activeChoice.shouldDefend(block, pos)
-            }
+        val bedBlocks = eyesPos.searchBlocksInCuboid(
+            placer.range + maxLayers + 1,
+            stateFilter = { state -> state.block is BedBlock }
+        ) { pos, state ->
+            isSelfBedMode.activeChoice.shouldDefend(state.block as BedBlock, pos)
         }
 
         // Get the closest bed block
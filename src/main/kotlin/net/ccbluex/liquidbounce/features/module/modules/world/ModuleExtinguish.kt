@@ -158,11 +158,9 @@ object ModuleExtinguish: ClientModule("Extinguish", Category.WORLD) {
 
         val simulation = PlayerSimulationCache.getSimulationForLocalPlayer()
 
-        val frameOnGround = simulation.simulateBetween(0..20).firstOrNull {
-            it.onGround
-        } ?: return null
+        val tickOnGround = (0..20).firstOrNull(simulation::isOnGroundAt) ?: return null
 
-        val playerPos = frameOnGround.pos.toBlockPos()
+        val playerPos = simulation.getPosAt(tickOnGround).toBlockPos()
 
         val options = BlockPlacementTargetFindingOptions(
             BlockOffsetOptions(
@@ -198,8 +198,11 @@ object ModuleAutoFarm : ClientModule("AutoFarm", Category.WORLD) {
 
     // Searches for any blocks within the radius that need to be destroyed, such as crops.
     private fun updateTargetToBreakable(radius: Float, radiusSquared: Float, eyesPos: Vec3d): Boolean {
-        val blocksToBreak = eyesPos.searchBlocksInCuboid(radius) { pos, state ->
-            !state.isAir && pos.readyForHarvest(state) &&
+        val blocksToBreak = eyesPos.searchBlocksInCuboid(
+            radius,
+            stateFilter = { state -> !state.isAir }
+        ) { pos, state ->
+            pos.readyForHarvest(state) &&
                     getNearestPoint(eyesPos, Box(pos)).squaredDistanceTo(eyesPos) <= radiusSquared
         }.sortedBy { it.first.getCenterDistanceSquared() }
 
@@ -217,8 +220,8 @@ object ModuleAutoFarm : ClientModule("AutoFarm", Category.WORLD) {
         if (!allowFarmland && !allowSoulsand) return false
 
         val blocksToPlace =
-            eyesPos.searchBlocksInCuboid(radius) { pos, state ->
-                !state.isAir && isFarmBlockWithAir(state, pos, allowFarmland, allowSoulsand)
+            eyesPos.searchBlocksInCuboid(radius, stateFilter = { state -> !state.isAir }) { pos, state ->
+                isFarmBlockWithAir(state, pos, allowFarmland, allowSoulsand)
                         && getNearestPoint(eyesPos, Box(pos)).squaredDistanceTo(eyesPos) <= radiusSquared
             }.map { it.first }.sortedBy { it.getCenterDistanceSquared() }
 
@@ -251,8 +254,11 @@ object ModuleAutoFarm : ClientModule("AutoFarm", Category.WORLD) {
             return false
         }
 
-        val blocksToFertile = eyesPos.searchBlocksInCuboid(radius) { pos, state ->
-            !state.isAir && pos.canUseBoneMeal(state) &&
+        val blocksToFertile = eyesPos.searchBlocksInCuboid(
+            radius,
+            stateFilter = { state -> !state.isAir }
+        ) { pos, state ->
+            pos.canUseBoneMeal(state) &&
                 getNearestPoint(eyesPos, Box(pos)).squaredDistanceTo(eyesPos) <= radiusSquared
         }.sortedBy { it.first.getCenterDistanceSquared() }
 
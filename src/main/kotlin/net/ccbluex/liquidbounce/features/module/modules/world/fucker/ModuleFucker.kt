@@ -248,12 +248,12 @@ object ModuleFucker : ClientModule("Fucker", Category.WORLD, aliases = listOf("B
     }
 
     private fun searchPossibleTargetPositions(): List<BlockPos> {
-        return player.eyePos.searchBlocksInCuboid(range + 1) { pos, state ->
-            when (val block = state.block) {
-                !in targets -> false
-                is BedBlock if isSelfBedMode.activeChoice.isSelfBed(block, pos) -> false
-                else -> true
-            }
+        return player.eyePos.searchBlocksInCuboid(
+            range + 1,
+            stateFilter = { state -> state.block in targets }
+        ) { pos, state ->
+            val block = state.block
+            block !is BedBlock || !isSelfBedMode.activeChoice.isSelfBed(block, pos)
         }.toCollection(WeightedSortedList(upperBound = range.sq().toDouble()) { (pos, state) ->
             state.getCollisionShape(world, pos, ShapeContext.of(player))
                 .offset(pos)
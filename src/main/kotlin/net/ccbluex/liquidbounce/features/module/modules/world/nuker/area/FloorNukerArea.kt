@@ -19,15 +19,14 @@
 
 package net.ccbluex.liquidbounce.features.module.modules.world.nuker.area
 
-import net.ccbluex.liquidbounce.utils.block.getState
+import net.ccbluex.liquidbounce.features.module.modules.world.nuker.ModuleNuker
+import net.ccbluex.liquidbounce.utils.block.BlockRegionView
 import net.ccbluex.liquidbounce.utils.entity.squaredBoxedDistanceTo
 import net.ccbluex.liquidbounce.utils.math.component1
 import net.ccbluex.liquidbounce.utils.math.component2
 import net.ccbluex.liquidbounce.utils.math.component3
-import net.ccbluex.liquidbounce.utils.math.iterate
-import net.ccbluex.liquidbounce.utils.math.rangeTo
 import net.minecraft.block.BlockState
-import net.minecraft.block.ShapeContext
+import net.minecraft.util.math.BlockBox
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3i
@@ -68,24 +67,21 @@ object FloorNukerArea : NukerArea("Floor") {
         // we can skip the rest
         // From top to bottom
 
-        start.set(xRange.first, 0, zRange.first)
-        end.set(xRange.last, 0, zRange.last)
+        val view = BlockRegionView.of(
+            world,
+            BlockBox(xRange.first, yRange.first, zRange.first, xRange.last, yRange.last, zRange.last)
+        )
 
         // Check if [topToBottom] is enabled, if so reverse the range
         for (y in yRange.let { if (topToBottom) it.reversed() else it }) {
-            start.y = y
-            end.y = y
-            val m = (start..end).iterate().mapNotNull { pos ->
-                val state = pos.getState() ?: return@mapNotNull null
-                if (isPositionAvailable(eyesPos, rangeSquared, pos, state)) {
-                    pos.toImmutable() to state
-                } else {
-                    null
-                }
+            val layer = BlockBox(xRange.first, y, zRange.first, xRange.last, y, zRange.last)
+            val result = view.query(layer, stateFilter = ModuleNuker::isValid) { pos, state ->
+                isPositionAvailable(eyesPos, rangeSquared, pos, state)
             }
 
             // Return when not empty
-            if (m.isNotEmpty()) {
+            if (!result.isEmpty()) {
+                val m = result.toPairs()
                 return if (count != null) {
                     m.take(count)
                 } else {
@@ -19,7 +19,9 @@
 
 package net.ccbluex.liquidbounce.features.module.modules.world.nuker.area
 
+import net.ccbluex.liquidbounce.features.module.modules.world.nuker.ModuleNuker
 import net.ccbluex.liquidbounce.features.module.modules.world.nuker.ModuleNuker.wasTarget
+import net.ccbluex.liquidbounce.utils.block.BlockRegionView
 import net.ccbluex.liquidbounce.utils.block.searchBlocksInCuboid
 import net.ccbluex.liquidbounce.utils.entity.box
 import net.minecraft.block.BlockState
@@ -32,9 +34,10 @@ object SphereNukerArea : NukerArea("Sphere") {
         val rangeSquared = (radius * radius).toDouble()
         val eyesPos = player.eyePos
 
-        val positions = eyesPos.searchBlocksInCuboid(radius) { pos, state ->
-            isPositionAvailable(eyesPos, rangeSquared, pos, state)
-        }.toMutableList()
+        val positions = BlockRegionView.of(world, eyesPos.searchBlocksInCuboid(radius))
+            .query(stateFilter = ModuleNuker::isValid) { pos, state ->
+                isPositionAvailable(eyesPos, rangeSquared, pos, state)
+            }.toPairs().toMutableList()
 
         positions.sortBy { (pos, _) ->
             // If there is a last target, sort by distance to it, otherwise go by hardness
@@ -75,12 +75,12 @@ object ScaffoldGodBridgeTechnique : ScaffoldTechnique("GodBridge"), ScaffoldLedg
         // Check if the current rotation is capable of placing a block on the next tick position,
         // this might be inconsistent when the rotation changes on the next tick as well,
         // but we hope it does not. :)
-        val snapshotOne = simulatedPlayerCache.getSnapshotAt(1)
+        val clipLedged = simulatedPlayerCache.isClipLedgedAt(1)
 
-        ModuleDebug.debugParameter(this, "Snapshot Ledged", snapshotOne.clipLedged)
+        ModuleDebug.debugParameter(this, "Snapshot Ledged", clipLedged)
 
-        return if (snapshotOne.clipLedged) {
-            val cameraPosition = snapshotOne.pos.add(0.0, player.standingEyeHeight.toDouble(), 0.0)
+        return if (clipLedged) {
+            val cameraPosition = simulatedPlayerCache.getPosAt(1).add(0.0, player.standingEyeHeight.toDouble(), 0.0)
             val currentCrosshairTarget = raycast(start = cameraPosition, direction = rotation.directionVector)
 
             if (target == null) {
@@ -46,15 +46,13 @@ object TrapPlayerSimulation {
 
             val simulation = PlayerSimulationCache.getSimulationForOtherPlayers(enemy)
 
-            val predictedState = simulation.simulateBetween(0..25)
-
             var wasAirborne = !enemy.isOnGround
 
             var ticks = 1
 
-            val predictedPos = predictedState.firstNotNullOfOrNull {
-                if (wasAirborne && it.onGround) {
-                    return@firstNotNullOfOrNull PredictedPlayerPos(it.pos, ticks, enemy.pos, false)
+            val predictedPos = (0..25).firstNotNullOfOrNull { tick ->
+                if (wasAirborne && simulation.isOnGroundAt(tick)) {
+                    return@firstNotNullOfOrNull PredictedPlayerPos(simulation.getPosAt(tick), ticks, enemy.pos, false)
                 }
 
                 wasAirborne = !enemy.isOnGround
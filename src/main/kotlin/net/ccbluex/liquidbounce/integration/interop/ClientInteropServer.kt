@@ -23,6 +23,7 @@ import com.google.gson.JsonObject
 import net.ccbluex.liquidbounce.LiquidBounce
 import net.ccbluex.liquidbounce.features.marketplace.MarketplaceManager
 import net.ccbluex.liquidbounce.integration.interop.middleware.AuthMiddleware
+import net.ccbluex.liquidbounce.integration.interop.middleware.ResponseCacheMiddleware
 import net.ccbluex.liquidbounce.integration.interop.protocol.event.SocketEventListener
 import net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.registerInteropFunctions
 import net.ccbluex.liquidbounce.integration.theme.ThemeManager
@@ -64,9 +65,10 @@ object ClientInteropServer {
                     file("/marketplace", MarketplaceManager.marketplaceRoot)
                 }
 
-                // Add CORS and auth middleware
+                // Add CORS, auth and cache middleware
                 middleware(CorsMiddleware())
                 middleware(AuthMiddleware())
+                middleware(ResponseCacheMiddleware())
             }
 
             // Register events with @WebSocketEvent annotation
@@ -0,0 +1,184 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package net.ccbluex.liquidbounce.integration.interop
+
+import io.netty.buffer.Unpooled
+import io.netty.handler.codec.http.DefaultFullHttpResponse
+import io.netty.handler.codec.http.FullHttpResponse
+import io.netty.handler.codec.http.HttpHeaderNames
+import io.netty.handler.codec.http.HttpHeaderValues
+import io.netty.handler.codec.http.HttpResponseStatus
+import io.netty.handler.codec.http.HttpVersion
+import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.events.ResourceReloadEvent
+import net.ccbluex.liquidbounce.event.events.WorldChangeEvent
+import net.ccbluex.liquidbounce.event.handler
+import org.apache.commons.codec.digest.DigestUtils
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Serialized bodies of GET responses which only change when the resources are reloaded or the world changes,
+ * e.g. registries, item textures and the bundled theme.
+ *
+ * Every cached body gets an `ETag`, so the browser can revalidate it with `If-None-Match`
+ * and receives a 304 instead of the body.
+ */
+object ResponseCache : EventListener {
+
+    private class Entry(val contentType: String?, val body: ByteArray, val etag: String)
+
+    /**
+     * Responses of these routes are memoized until the next invalidation.
+     */
+    private val memoizedPaths = arrayOf(
+        "/api/v1/client/registry/",
+        "/api/v1/client/resource/itemTexture",
+        "/api/v1/client/resource/itemAtlas",
+        "/resource/liquidbounce"
+    )
+
+    /**
+     * These routes serve files which can be edited at any time or lists which change with the loaded scripts,
+     * so their responses only get an `ETag`.
+     */
+    private val revalidatedPaths = arrayOf(
+        "/api/v1/client/registry/client_module",
+        "/local/",
+        "/marketplace/"
+    )
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+
+    /**
+     * Incremented on every invalidation, so a response computed before it is not stored afterward.
+     */
+    private val generation = AtomicInteger()
+
+    fun isMemoized(path: String) = memoizedPaths.any(path::startsWith) && !isRevalidated(path)
+
+    fun isRevalidated(path: String) = revalidatedPaths.any(path::startsWith)
+
+    val currentGeneration: Int
+        get() = generation.get()
+
+    /**
+     * @return the cached response of [key], or a 304 if [ifNoneMatch] contains its `ETag`
+     */
+    fun lookup(key: String, ifNoneMatch: String?): FullHttpResponse? {
+        val entry = entries[key] ?: return null
+
+        return if (matches(ifNoneMatch, entry.etag)) {
+            notModified(entry.etag)
+        } else {
+            DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1,
+                HttpResponseStatus.OK,
+                Unpooled.wrappedBuffer(entry.body)
+            ).apply {
+                entry.contentType?.let { headers().set(HttpHeaderNames.CONTENT_TYPE, it) }
+                headers().setInt(HttpHeaderNames.CONTENT_LENGTH, entry.body.size)
+                tag(entry.etag)
+            }
+        }
+    }
+
+    /**
+     * Stores the body of [response] under [key], unless the cache was invalidated since [requestGeneration].
+     *
+     * @return [response] with its `ETag`, or a 304 if [ifNoneMatch] contains it
+     */
+    fun store(
+        key: String,
+        requestGeneration: Int,
+        response: FullHttpResponse,
+        ifNoneMatch: String?
+    ): FullHttpResponse {
+        val body = readBody(response)
+        val etag = etagOf(body)
+
+        if (requestGeneration == generation.get()) {
+            entries[key] = Entry(response.headers()[HttpHeaderNames.CONTENT_TYPE], body, etag)
+        }
+
+        return if (matches(ifNoneMatch, etag)) notModified(etag) else response.tag(etag)
+    }
+
+    /**
+     * Adds an `ETag` to [response] without storing its body.
+     *
+     * @return [response], or a 304 if [ifNoneMatch] contains its `ETag`
+     */
+    fun revalidate(response: FullHttpResponse, ifNoneMatch: String?): FullHttpResponse {
+        val etag = etagOf(readBody(response))
+
+        return if (matches(ifNoneMatch, etag)) notModified(etag) else response.tag(etag)
+    }
+
+    fun invalidate() {
+        generation.incrementAndGet()
+        entries.clear()
+    }
+
+    @Suppress("unused")
+    private val resourceReloadHandler = handler<ResourceReloadEvent> {
+        invalidate()
+    }
+
+    @Suppress("unused")
+    private val worldChangeHandler = handler<WorldChangeEvent> {
+        invalidate()
+    }
+
+    private fun readBody(response: FullHttpResponse): ByteArray {
+        val content = response.content()
+        val body = ByteArray(content.readableBytes())
+        content.getBytes(content.readerIndex(), body)
+        return body
+    }
+
+    private fun etagOf(body: ByteArray) = "\"${DigestUtils.sha1Hex(body)}\""
+
+    /**
+     * [ifNoneMatch] is either `*` or a comma separated list of tags, which might be weak.
+     */
+    private fun matches(ifNoneMatch: String?, etag: String): Boolean {
+        if (ifNoneMatch == null) {
+            return false
+        }
+
+        return ifNoneMatch.split(',').any { tag ->
+            val trimmed = tag.trim().removePrefix("W/")
+            trimmed == "*" || trimmed == etag
+        }
+    }
+
+    private fun notModified(etag: String) =
+        DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED).tag(etag)
+
+    /**
+     * `no-cache` still allows the browser to store the body, but makes it revalidate the `ETag` before using it.
+     */
+    private fun FullHttpResponse.tag(etag: String) = apply {
+        headers().set(HttpHeaderNames.ETAG, etag)
+        headers().set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE)
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package net.ccbluex.liquidbounce.integration.interop.middleware
+
+import com.google.common.collect.MapMaker
+import io.netty.handler.codec.http.FullHttpResponse
+import io.netty.handler.codec.http.HttpHeaderNames
+import io.netty.handler.codec.http.HttpMethod
+import io.netty.handler.codec.http.HttpResponseStatus
+import net.ccbluex.liquidbounce.integration.interop.ResponseCache
+import net.ccbluex.netty.http.middleware.Middleware
+import net.ccbluex.netty.http.model.RequestContext
+import java.util.concurrent.ConcurrentMap
+
+/**
+ * Serves GET requests from the [ResponseCache] and fills it with the responses of the routes.
+ *
+ * Has to be registered after the [AuthMiddleware], so cached responses are only served to authenticated requests.
+ */
+class ResponseCacheMiddleware : Middleware.OnRequest, Middleware.OnResponse {
+
+    /**
+     * The cache generation at the time each request was received, so a response computed before an invalidation
+     * is not stored afterward. Weak keys are compared by identity, and the entries of requests which never got
+     * a response go away with them.
+     */
+    private val requestGenerations: ConcurrentMap<RequestContext, Int> = MapMaker().weakKeys().makeMap()
+
+    /**
+     * On request handler
+     */
+    override fun invoke(context: RequestContext): FullHttpResponse? {
+        if (context.httpMethod != HttpMethod.GET || !ResponseCache.isMemoized(context.path)) {
+            return null
+        }
+
+        requestGenerations[context] = ResponseCache.currentGeneration
+
+        // The response to the authentication code also sets the cookie, so it is left to the route
+        if (context.params.containsKey(AuthMiddleware.AUTH_CODE_PARAM)) {
+            return null
+        }
+
+        return ResponseCache.lookup(keyOf(context), context.headers[HttpHeaderNames.IF_NONE_MATCH])
+    }
+
+    /**
+     * On response handler
+     */
+    override fun invoke(
+        context: RequestContext,
+        response: FullHttpResponse
+    ): FullHttpResponse {
+        val requestGeneration = requestGenerations.remove(context)
+
+        // Responses from the cache are already tagged
+        if (context.httpMethod != HttpMethod.GET || response.status() != HttpResponseStatus.OK ||
+            response.headers().contains(HttpHeaderNames.ETAG)) {
+            return response
+        }
+
+        val ifNoneMatch = context.headers[HttpHeaderNames.IF_NONE_MATCH]
+
+        return when {
+            ResponseCache.isMemoized(context.path) && requestGeneration != null ->
+                ResponseCache.store(keyOf(context), requestGeneration, response, ifNoneMatch)
+            ResponseCache.isMemoized(context.path) || ResponseCache.isRevalidated(context.path) ->
+                ResponseCache.revalidate(response, ifNoneMatch)
+            else -> response
+        }
+    }
+
+    private fun keyOf(context: RequestContext) = buildString {
+        append(context.path)
+        context.params.entries
+            .filter { (name, _) -> name != AuthMiddleware.AUTH_CODE_PARAM }
+            .sortedBy { (name, _) -> name }
+            .forEach { (name, value) -> append('&').append(name).append('=').append(value) }
+    }
+
+}
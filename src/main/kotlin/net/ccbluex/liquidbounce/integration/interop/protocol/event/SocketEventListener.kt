@@ -22,9 +22,7 @@ package net.ccbluex.liquidbounce.integration.interop.protocol.event
 import com.google.gson.stream.JsonWriter
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
 import net.ccbluex.liquidbounce.event.*
-import net.ccbluex.liquidbounce.integration.interop.ClientInteropServer.httpServer
 import net.ccbluex.liquidbounce.utils.client.logger
-import net.minecraft.util.Util
 import org.apache.commons.io.output.StringBuilderWriter
 
 internal object SocketEventListener : EventListener {
@@ -33,6 +31,9 @@ internal object SocketEventListener : EventListener {
         .filter { WebSocketEvent::class.java.isAssignableFrom(it) }
         .associateBy { it.eventName }
 
+    val eventNames: Set<String>
+        get() = events.keys
+
     /**
      * Contains all events that are registered in the current context
      */
@@ -52,7 +53,8 @@ internal object SocketEventListener : EventListener {
             error("Event $name is already registered")
         }
 
-        val eventHook = EventHook(this, handler = ::writeToSockets)
+        val listener = if (eventClass in WebSocketBroadcaster.fullStateEvents) FullStateListener else this
+        val eventHook = EventHook(listener, handler = ::writeToSockets)
 
         registeredEvents[eventClass] = eventHook
         EventManager.registerEventHook(eventClass, eventHook)
@@ -67,25 +69,37 @@ internal object SocketEventListener : EventListener {
         EventManager.unregisterEventHook(eventClass, eventHook)
     }
 
-    private fun writeToSockets(event: Event) = Util.getMainWorkerExecutor().execute {
+    /**
+     * Owns the hooks of [WebSocketBroadcaster.fullStateEvents], which only run while a connection receives them.
+     * Otherwise the player state is not built for the sockets at all.
+     */
+    private object FullStateListener : EventListener {
+        override val running: Boolean
+            get() = SocketEventListener.running && WebSocketBroadcaster.hasFullStateConnections()
+    }
+
+    /**
+     * Serializes the event right away on the thread calling it, as it might be changed afterward,
+     * and passes it to the [WebSocketBroadcaster].
+     */
+    private fun writeToSockets(event: Event) {
+        val name = event.javaClass.eventName
         val json = writeBuffer.get().runCatching {
             JsonWriter(this).use { writer ->
                 writer.beginObject()
-                writer.name("name").value(event.javaClass.eventName)
+                writer.name("name").value(name)
                 writer.name("event")
                 (event as WebSocketEvent).serializer.toJson(event, event.javaClass, writer)
                 writer.endObject()
             }
-            toString().also { builder.clear() }
+            toString()
         }.onFailure {
             logger.error("Failed to serialize event $event", it)
-        }.getOrNull() ?: return@execute
+        }.also {
+            writeBuffer.get().builder.clear()
+        }.getOrNull() ?: return
 
-        httpServer.webSocketController.broadcast(json) { _, t ->
-            logger.error("WebSocket event broadcast failed, JSON: $json", t)
-        }
+        WebSocketBroadcaster.publish(name, json)
     }
 
-
-
 }
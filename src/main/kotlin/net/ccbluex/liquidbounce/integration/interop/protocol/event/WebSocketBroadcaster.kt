@@ -0,0 +1,325 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.integration.interop.protocol.event
+
+import io.netty.channel.Channel
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame
+import io.netty.util.AttributeKey
+import net.ccbluex.liquidbounce.event.Event
+import net.ccbluex.liquidbounce.event.eventName
+import net.ccbluex.liquidbounce.event.events.ClientPlayerDataEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerDataPatchEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerInventoryEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerInventoryPatchEvent
+import net.ccbluex.liquidbounce.integration.interop.ClientInteropServer.httpServer
+import net.ccbluex.liquidbounce.utils.client.logger
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
+/**
+ * How the events of a type are broadcast
+ *
+ * @param coalesce whether only the latest event of the type is sent per flush, which is only correct
+ * for events describing a state instead of something that happened
+ * @param maxRate how many events of the type are sent per second at most, 0 for no limit.
+ * Coalesced events are held back until they may be sent, others are dropped.
+ */
+data class EventThrottle(val coalesce: Boolean = false, val maxRate: Int = 0) {
+    init {
+        require(maxRate >= 0) { "maxRate should not be negative" }
+    }
+
+    internal val minIntervalNanos: Long
+        get() = if (maxRate == 0) 0L else TimeUnit.SECONDS.toNanos(1) / maxRate
+}
+
+/**
+ * Counters of an event type since the start of the client
+ */
+data class EventCounters(
+    val name: String,
+    val throttle: EventThrottle,
+    val published: Long,
+    val sent: Long,
+    val merged: Long,
+    val dropped: Long
+)
+
+/**
+ * Collects the serialized events for [FLUSH_WINDOW_MILLIS] and broadcasts them together.
+ *
+ * Every connection receives one frame per event, unless it asked for batches: then the events of a flush
+ * are sent as a single frame, a JSON array if there is more than one event. To ask for them, the first frame
+ * of a connection is a `socketHandshake` event with its id, which is passed to [enableBatching].
+ *
+ * The state of the player is sent as full state events, unless a connection asked for patches with
+ * [enablePatches]: then it receives the patch events instead, like [ClientPlayerDataPatchEvent].
+ *
+ * Events are sent in the order they were published, coalesced events take the place of the latest one.
+ */
+internal object WebSocketBroadcaster {
+
+    private const val FLUSH_WINDOW_MILLIS = 16L
+
+    private val defaultThrottles = mapOf(
+        "fps" to EventThrottle(coalesce = true, maxRate = 4),
+        "targetChange" to EventThrottle(coalesce = true, maxRate = 20),
+        "blockCountChange" to EventThrottle(coalesce = true, maxRate = 20),
+        "bedStateChange" to EventThrottle(coalesce = true, maxRate = 10),
+        "gameModeChange" to EventThrottle(coalesce = true),
+        "scaleFactorChange" to EventThrottle(coalesce = true),
+        "clickGuiScaleChange" to EventThrottle(coalesce = true),
+        "spaceSeperatedNamesChange" to EventThrottle(coalesce = true),
+    )
+
+    private val throttles = ConcurrentHashMap(defaultThrottles)
+
+    /**
+     * Events with the full state of the player, which are not sent to connections receiving patches.
+     */
+    val fullStateEvents: Set<Class<out Event>> = setOf(
+        ClientPlayerDataEvent::class.java,
+        ClientPlayerInventoryEvent::class.java
+    )
+
+    /**
+     * Events with the changes of the state of the player, which are only sent to connections receiving patches.
+     */
+    private val patchEvents: Set<Class<out Event>> = setOf(
+        ClientPlayerDataPatchEvent::class.java,
+        ClientPlayerInventoryPatchEvent::class.java
+    )
+
+    private val fullStateEventNames = fullStateEvents.mapTo(hashSetOf()) { eventClass -> eventClass.eventName }
+    private val patchEventNames = patchEvents.mapTo(hashSetOf()) { eventClass -> eventClass.eventName }
+
+    private val batchingKey = AttributeKey.valueOf<Boolean>("lb-socket-batching")
+    private val patchesKey = AttributeKey.valueOf<Boolean>("lb-socket-patches")
+    private val greetedKey = AttributeKey.valueOf<Boolean>("lb-socket-greeted")
+
+    private val executor = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "lb-socket-broadcaster").apply { isDaemon = true }
+    }
+
+    private class Counters {
+        var published = 0L
+        var sent = 0L
+        var merged = 0L
+        var dropped = 0L
+    }
+
+    private class PendingEvent(val name: String, val json: String)
+
+    private val flushTask = Runnable(::flush)
+
+    /**
+     * Guarded by itself, as are all the following fields.
+     *
+     * Keyed by the name of coalesced events, and by a sequence number otherwise.
+     */
+    private val pending = LinkedHashMap<Any, PendingEvent>()
+    private var sequence = 0L
+    private var isFlushScheduled = false
+    private val lastSent = HashMap<String, Long>()
+    private val counters = HashMap<String, Counters>()
+
+    fun throttleOf(name: String) = throttles[name] ?: EventThrottle()
+
+    fun setThrottle(name: String, throttle: EventThrottle) {
+        throttles[name] = throttle
+    }
+
+    /**
+     * Queues the [json] of an event for the next flush.
+     *
+     * @param json the serialized event, so it can not be changed in the meantime
+     */
+    fun publish(name: String, json: String) {
+        val throttle = throttleOf(name)
+        val now = System.nanoTime()
+
+        synchronized(pending) {
+            val counters = counters.getOrPut(name, ::Counters)
+            counters.published++
+
+            if (throttle.coalesce) {
+                if (pending.remove(name) != null) {
+                    counters.merged++
+                }
+                pending[name] = PendingEvent(name, json)
+            } else {
+                if (isRateLimited(name, throttle, now)) {
+                    counters.dropped++
+                    return
+                }
+
+                // Counts as sent for the rate, even if it is still pending
+                lastSent[name] = now
+                pending[sequence++] = PendingEvent(name, json)
+            }
+
+            scheduleFlush(FLUSH_WINDOW_MILLIS)
+        }
+    }
+
+    /**
+     * Sends the events of a flush to the connection with the id of its `socketHandshake` as a single frame.
+     *
+     * @return false if there is no such connection
+     */
+    fun enableBatching(connectionId: String): Boolean {
+        val channel = connectionOf(connectionId) ?: return false
+
+        channel.attr(batchingKey).set(true)
+        return true
+    }
+
+    /**
+     * Sends the connection with the id of its `socketHandshake` the patch events of the player state,
+     * instead of the full state events.
+     *
+     * @return false if there is no such connection
+     */
+    fun enablePatches(connectionId: String): Boolean {
+        val channel = connectionOf(connectionId) ?: return false
+
+        channel.attr(patchesKey).set(true)
+        return true
+    }
+
+    /**
+     * Whether any connection receives the [fullStateEvents], so they have to be published.
+     */
+    fun hasFullStateConnections() = httpServer.webSocketController.activeContexts.any { context ->
+        val channel = context.channel()
+        channel.isActive && channel.attr(patchesKey).get() != true
+    }
+
+    fun counters(): List<EventCounters> = synchronized(pending) {
+        counters.map { (name, counters) ->
+            EventCounters(name, throttleOf(name), counters.published, counters.sent, counters.merged, counters.dropped)
+        }.sortedBy { counters -> counters.name }
+    }
+
+    private fun isRateLimited(name: String, throttle: EventThrottle, now: Long): Boolean {
+        val lastSent = lastSent[name] ?: return false
+        return throttle.maxRate > 0 && now - lastSent < throttle.minIntervalNanos
+    }
+
+    private fun scheduleFlush(delayMillis: Long) {
+        if (isFlushScheduled) {
+            return
+        }
+
+        try {
+            executor.schedule(flushTask, delayMillis, TimeUnit.MILLISECONDS)
+            isFlushScheduled = true
+        } catch (e: RejectedExecutionException) {
+            logger.error("Failed to schedule WebSocket event broadcast", e)
+        }
+    }
+
+    private fun flush() {
+        val batch = ArrayList<PendingEvent>()
+
+        synchronized(pending) {
+            isFlushScheduled = false
+
+            val now = System.nanoTime()
+            var nextReleaseNanos = Long.MAX_VALUE
+            val iterator = pending.values.iterator()
+
+            while (iterator.hasNext()) {
+                val event = iterator.next()
+                val throttle = throttleOf(event.name)
+
+                if (throttle.coalesce) {
+                    if (isRateLimited(event.name, throttle, now)) {
+                        // Held back, until then it is replaced by newer events
+                        val waitNanos = lastSent.getValue(event.name) + throttle.minIntervalNanos - now
+                        nextReleaseNanos = minOf(nextReleaseNanos, waitNanos)
+                        continue
+                    }
+
+                    lastSent[event.name] = now
+                }
+
+                iterator.remove()
+                batch += event
+                counters[event.name]?.let { counters -> counters.sent++ }
+            }
+
+            if (nextReleaseNanos != Long.MAX_VALUE) {
+                scheduleFlush(TimeUnit.NANOSECONDS.toMillis(nextReleaseNanos).coerceAtLeast(1L))
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return
+        }
+
+        val fullStateBatch by lazy { batch.filter { event -> event.name !in patchEventNames } }
+        val patchBatch by lazy { batch.filter { event -> event.name !in fullStateEventNames } }
+        val fullStateFrame by lazy { batchFrameOf(fullStateBatch) }
+        val patchFrame by lazy { batchFrameOf(patchBatch) }
+
+        for (channel in connections()) {
+            runCatching {
+                if (channel.attr(greetedKey).setIfAbsent(true) == null) {
+                    channel.write(TextWebSocketFrame(handshakeOf(channel)))
+                }
+
+                val usesPatches = channel.attr(patchesKey).get() == true
+                val events = if (usesPatches) patchBatch else fullStateBatch
+
+                when {
+                    // Only player state events of the other form
+                    events.isEmpty() -> Unit
+                    channel.attr(batchingKey).get() == true ->
+                        channel.write(TextWebSocketFrame(if (usesPatches) patchFrame else fullStateFrame))
+                    else -> events.forEach { event -> channel.write(TextWebSocketFrame(event.json)) }
+                }
+
+                channel.flush()
+            }.onFailure {
+                logger.error("WebSocket event broadcast to ${channel.remoteAddress()} failed", it)
+            }
+        }
+    }
+
+    private fun batchFrameOf(events: List<PendingEvent>) = if (events.size == 1) {
+        events[0].json
+    } else {
+        events.joinToString(separator = ",", prefix = "[", postfix = "]") { event -> event.json }
+    }
+
+    private fun connectionOf(connectionId: String) =
+        connections().firstOrNull { channel -> channel.id().asLongText() == connectionId }
+
+    private fun connections(): List<Channel> =
+        httpServer.webSocketController.activeContexts.toList()
+            .map { context -> context.channel() }
+            .filter { channel -> channel.isActive }
+
+    private fun handshakeOf(channel: Channel) =
+        """{"name":"socketHandshake","event":{"connection":"${channel.id().asLongText()}"}}"""
+
+}
@@ -39,6 +39,19 @@ internal fun registerInteropFunctions(node: Node) = node.withPath("/api/v1/clien
     post("/browsePath", ::postBrowsePath)
     post("/fileDialog", ::postFileDialog)
 
+    // Profiler Functions
+    get("/profiler", ::getProfiler).apply {
+        post("/reset", ::postProfilerReset)
+    }
+    post("/profiler", ::postProfiler)
+    delete("/profiler", ::deleteProfiler)
+
+    // WebSocket Event Functions
+    get("/events", ::getEventCounters)
+    put("/events/:name", ::putEventThrottle)
+    put("/socket/batching", ::putSocketBatching)
+    put("/socket/patches", ::putSocketPatches)
+
     // LocalStorage Functions
     get("/localStorage/all", ::getAllLocalStorage)
     put("/localStorage/all", ::putAllLocalStorage)
@@ -167,6 +180,9 @@ internal fun registerInteropFunctions(node: Node) = node.withPath("/api/v1/clien
     // Texture Functions
     get("/resource", ::getResource).apply {
         get("/itemTexture", ::getItemTexture)
+        get("/itemAtlas", ::getItemAtlas).apply {
+            get("/index", ::getItemAtlasIndex)
+        }
         get("/skin", ::getSkin)
     }
 
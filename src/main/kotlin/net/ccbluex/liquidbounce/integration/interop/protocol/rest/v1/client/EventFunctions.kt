@@ -0,0 +1,85 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.client
+
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import io.netty.handler.codec.http.FullHttpResponse
+import net.ccbluex.liquidbounce.integration.interop.protocol.event.EventThrottle
+import net.ccbluex.liquidbounce.integration.interop.protocol.event.SocketEventListener
+import net.ccbluex.liquidbounce.integration.interop.protocol.event.WebSocketBroadcaster
+import net.ccbluex.netty.http.model.RequestObject
+import net.ccbluex.netty.http.util.httpBadRequest
+import net.ccbluex.netty.http.util.httpNoContent
+import net.ccbluex.netty.http.util.httpOk
+
+// GET /api/v1/client/events
+@Suppress("UNUSED_PARAMETER")
+fun getEventCounters(requestObject: RequestObject) = httpOk(JsonArray().apply {
+    for (counters in WebSocketBroadcaster.counters()) {
+        add(JsonObject().apply {
+            addProperty("name", counters.name)
+            addProperty("coalesce", counters.throttle.coalesce)
+            addProperty("maxRate", counters.throttle.maxRate)
+            addProperty("published", counters.published)
+            addProperty("sent", counters.sent)
+            addProperty("merged", counters.merged)
+            addProperty("dropped", counters.dropped)
+        })
+    }
+})
+
+// PUT /api/v1/client/events/:name
+fun putEventThrottle(requestObject: RequestObject): FullHttpResponse {
+    val name = requestObject.params["name"]?.takeIf { it in SocketEventListener.eventNames }
+        ?: return httpBadRequest("Unknown event")
+    val current = WebSocketBroadcaster.throttleOf(name)
+
+    val coalesce = requestObject.queryParams["coalesce"]?.let {
+        it.toBooleanStrictOrNull() ?: return httpBadRequest("Invalid coalesce")
+    } ?: current.coalesce
+    val maxRate = requestObject.queryParams["maxRate"]?.let {
+        it.toIntOrNull()?.takeIf { rate -> rate >= 0 } ?: return httpBadRequest("Invalid max rate")
+    } ?: current.maxRate
+
+    WebSocketBroadcaster.setThrottle(name, EventThrottle(coalesce, maxRate))
+    return httpNoContent()
+}
+
+// PUT /api/v1/client/socket/batching
+fun putSocketBatching(requestObject: RequestObject): FullHttpResponse {
+    val connection = requestObject.queryParams["connection"] ?: return httpBadRequest("Missing connection")
+
+    if (!WebSocketBroadcaster.enableBatching(connection)) {
+        return httpBadRequest("Unknown connection")
+    }
+
+    return httpNoContent()
+}
+
+// PUT /api/v1/client/socket/patches
+fun putSocketPatches(requestObject: RequestObject): FullHttpResponse {
+    val connection = requestObject.queryParams["connection"] ?: return httpBadRequest("Missing connection")
+
+    if (!WebSocketBroadcaster.enablePatches(connection)) {
+        return httpBadRequest("Unknown connection")
+    }
+
+    return httpNoContent()
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.client
+
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import io.netty.handler.codec.http.FullHttpResponse
+import net.ccbluex.liquidbounce.event.EventProfiler
+import net.ccbluex.liquidbounce.integration.interop.ClientInteropServer
+import net.ccbluex.netty.http.model.RequestObject
+import net.ccbluex.netty.http.util.httpBadRequest
+import net.ccbluex.netty.http.util.httpNoContent
+import net.ccbluex.netty.http.util.httpOk
+
+// GET /api/v1/client/profiler
+@Suppress("UNUSED_PARAMETER")
+fun getProfiler(requestObject: RequestObject) = httpOk(JsonObject().apply {
+    addProperty("enabled", EventProfiler.enabled)
+    addProperty("sampleInterval", EventProfiler.sampleInterval)
+    add("hooks", JsonArray().apply {
+        for (profile in EventProfiler.snapshot()) {
+            add(JsonObject().apply {
+                addProperty("event", profile.event)
+                addProperty("listener", profile.listener)
+                addProperty("priority", profile.priority)
+                addProperty("invocations", profile.invocations)
+                addProperty("exceptions", profile.exceptions)
+                addProperty("samples", profile.samples)
+                addProperty("p50Nanos", profile.p50Nanos)
+                addProperty("p99Nanos", profile.p99Nanos)
+            })
+        }
+    })
+})
+
+// POST /api/v1/client/profiler
+fun postProfiler(requestObject: RequestObject): FullHttpResponse {
+    val sampleInterval = requestObject.queryParams["sampleInterval"]?.let {
+        it.toIntOrNull()?.takeIf { interval -> interval > 0 } ?: return httpBadRequest("Invalid sample interval")
+    }
+
+    if (sampleInterval != null) {
+        EventProfiler.sampleInterval = sampleInterval
+    }
+
+    EventProfiler.start(ClientInteropServer)
+    return httpNoContent()
+}
+
+// DELETE /api/v1/client/profiler
+@Suppress("UNUSED_PARAMETER")
+fun deleteProfiler(requestObject: RequestObject): FullHttpResponse {
+    EventProfiler.stop(ClientInteropServer)
+    return httpNoContent()
+}
+
+// POST /api/v1/client/profiler/reset
+@Suppress("UNUSED_PARAMETER")
+fun postProfilerReset(requestObject: RequestObject): FullHttpResponse {
+    EventProfiler.reset()
+    return httpNoContent()
+}
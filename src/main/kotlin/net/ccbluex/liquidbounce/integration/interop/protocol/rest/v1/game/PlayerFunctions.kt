@@ -107,11 +107,11 @@ data class PlayerData(
             player.blockPos,
             player.velocity,
             player.inventory.selectedSlot,
-            if (mc.player === player) interaction.currentGameMode else GameMode.DEFAULT,
+            player.shownGameMode,
             player.health.fixNaN(),
             player.getActualHealth().fixNaN(),
             player.maxHealth.fixNaN(),
-            if (player.hasHealthScoreboard()) 0f else player.absorptionAmount.fixNaN(),
+            player.shownAbsorption,
             player.yaw.fixNaN(),
             player.pitch.fixNaN(),
             player.armor.coerceAtMost(20),
@@ -123,7 +123,7 @@ data class PlayerData(
             player.ping,
             player.statusEffects.toList(),
             player.mainHandStack,
-            if (shouldHideOffhand(player = player) && hideShieldSlot) ItemStack.EMPTY else player.offHandStack,
+            player.shownOffHandStack,
             player.armorItems.toList(),
             if (mc.player === player) ScoreboardData.fromScoreboard(player.scoreboard) else null
         )
@@ -240,7 +240,16 @@ data class ScoreboardData(val header: Text, val entries: Array<SidebarEntry?>) {
 
 }
 
+internal val PlayerEntity.shownGameMode: GameMode
+    get() = if (mc.player === this) interaction.currentGameMode else GameMode.DEFAULT
+
+internal val PlayerEntity.shownAbsorption: Float
+    get() = if (hasHealthScoreboard()) 0f else absorptionAmount.fixNaN()
+
+internal val PlayerEntity.shownOffHandStack: ItemStack
+    get() = if (shouldHideOffhand(player = this) && hideShieldSlot) ItemStack.EMPTY else offHandStack
+
 /**
  * GSON is not happy with NaN values, so we fix them to be 0.
  */
-private fun Float.fixNaN() = if (isNaN()) 0f else this
+internal fun Float.fixNaN() = if (isNaN()) 0f else this
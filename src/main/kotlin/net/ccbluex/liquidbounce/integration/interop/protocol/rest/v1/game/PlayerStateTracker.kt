@@ -0,0 +1,213 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
+
+import net.ccbluex.liquidbounce.event.EventManager
+import net.ccbluex.liquidbounce.event.events.ClientPlayerDataEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerDataPatchEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerInventoryEvent
+import net.ccbluex.liquidbounce.event.events.ClientPlayerInventoryPatchEvent
+import net.ccbluex.liquidbounce.features.module.modules.misc.nameprotect.ModuleNameProtect
+import net.ccbluex.liquidbounce.utils.entity.getActualHealth
+import net.ccbluex.liquidbounce.utils.entity.netherPosition
+import net.ccbluex.liquidbounce.utils.entity.ping
+import net.minecraft.entity.effect.StatusEffectInstance
+import net.minecraft.entity.player.PlayerEntity
+import net.minecraft.item.ItemStack
+import kotlin.math.min
+
+/**
+ * A JSON patch operation, which replaces the value at [path] of the state with [value].
+ * The empty path replaces the whole state.
+ */
+data class PatchOperation(val path: String, val value: Any?) {
+    val op = "replace"
+}
+
+/**
+ * Tracks the fields of [PlayerData] and the slots of [PlayerInventoryData] of the client player
+ * and publishes what changed since the last tick as patches, instead of full snapshots.
+ *
+ * Both are published every tick something changed:
+ * - [ClientPlayerDataPatchEvent] and [ClientPlayerInventoryPatchEvent] with the changes.
+ *   For a new player, e.g. after joining or respawning, they replace the whole state at the empty path.
+ *   Subscribers which connect later fetch the state from the REST API and apply the patches on top of it.
+ * - [ClientPlayerDataEvent] and [ClientPlayerInventoryEvent] with the full state, only if they have listeners.
+ *   Sockets receive them unless they asked for patches, see
+ *   [net.ccbluex.liquidbounce.integration.interop.protocol.event.WebSocketBroadcaster.enablePatches].
+ */
+object PlayerStateTracker {
+
+    private var trackedPlayer: PlayerEntity? = null
+
+    private val fields = arrayOf(
+        TrackedField("username") { player -> ModuleNameProtect.replace(player.nameForScoreboard) },
+        TrackedField("uuid") { player -> player.uuidAsString },
+        TrackedField("dimension") { player -> player.world.registryKey.value },
+        TrackedField("position") { player -> player.pos },
+        TrackedField("netherPosition") { player -> player.netherPosition },
+        TrackedField("blockPosition") { player -> player.blockPos },
+        TrackedField("velocity") { player -> player.velocity },
+        TrackedField("selectedSlot") { player -> player.inventory.selectedSlot },
+        TrackedField("gameMode") { player -> player.shownGameMode },
+        TrackedField("health") { player -> player.health.fixNaN() },
+        TrackedField("actualHealth") { player -> player.getActualHealth().fixNaN() },
+        TrackedField("maxHealth") { player -> player.maxHealth.fixNaN() },
+        TrackedField("absorption") { player -> player.shownAbsorption },
+        TrackedField("yaw") { player -> player.yaw.fixNaN() },
+        TrackedField("pitch") { player -> player.pitch.fixNaN() },
+        TrackedField("armor") { player -> player.armor.coerceAtMost(20) },
+        TrackedField("food") { player -> min(player.hungerManager.foodLevel, 20) },
+        TrackedField("air") { player -> player.air },
+        TrackedField("maxAir") { player -> player.maxAir },
+        TrackedField("experienceLevel") { player -> player.experienceLevel },
+        TrackedField("experienceProgress") { player -> player.experienceProgress.fixNaN() },
+        TrackedField("ping") { player -> player.ping },
+        // The instances are updated in place, so the last known state has to be a copy
+        TrackedField("effects", copy = { effects -> effects.map(::StatusEffectInstance) }) { player ->
+            player.statusEffects.toList()
+        },
+        TrackedField("mainHandStack", ItemStack::areEqual, ItemStack::copy) { player -> player.mainHandStack },
+        TrackedField("offHandStack", ItemStack::areEqual, ItemStack::copy) { player -> player.shownOffHandStack },
+        TrackedField("scoreboard") { player -> ScoreboardData.fromScoreboard(player.scoreboard) },
+    )
+
+    private val armorItems = TrackedSlots("armorItems") { player -> player.inventory.armor }
+
+    private val inventorySlots = arrayOf(
+        TrackedSlots("armor") { player -> player.inventory.armor },
+        TrackedSlots("main") { player -> player.inventory.main },
+        TrackedSlots("crafting") { player -> player.playerScreenHandler.craftingInput.heldStacks },
+        TrackedSlots("enderChest") { player -> player.enderChestInventory.getHeldStacks() },
+    )
+
+    /**
+     * Called at the end of every tick of the client player.
+     */
+    @JvmStatic
+    fun tick(player: PlayerEntity) {
+        if (player !== trackedPlayer) {
+            trackedPlayer = player
+            publishSnapshot(player)
+            return
+        }
+
+        val dataPatch = mutableListOf<PatchOperation>()
+        fields.forEach { field -> field.diff(player, dataPatch) }
+        armorItems.diff(player, dataPatch)
+
+        if (dataPatch.isNotEmpty()) {
+            EventManager.callEvent(ClientPlayerDataPatchEvent(dataPatch))
+
+            if (EventManager.hasActiveListeners(ClientPlayerDataEvent::class.java)) {
+                EventManager.callEvent(ClientPlayerDataEvent(PlayerData.fromPlayer(player)))
+            }
+        }
+
+        val inventoryPatch = mutableListOf<PatchOperation>()
+        inventorySlots.forEach { slots -> slots.diff(player, inventoryPatch) }
+
+        if (inventoryPatch.isNotEmpty()) {
+            EventManager.callEvent(ClientPlayerInventoryPatchEvent(inventoryPatch))
+
+            if (EventManager.hasActiveListeners(ClientPlayerInventoryEvent::class.java)) {
+                EventManager.callEvent(ClientPlayerInventoryEvent(PlayerInventoryData.fromPlayer(player)))
+            }
+        }
+    }
+
+    private fun publishSnapshot(player: PlayerEntity) {
+        fields.forEach { field -> field.reset(player) }
+        armorItems.reset(player)
+        inventorySlots.forEach { slots -> slots.reset(player) }
+
+        val playerData = PlayerData.fromPlayer(player)
+        val inventoryData = PlayerInventoryData.fromPlayer(player)
+
+        EventManager.callEvent(ClientPlayerDataPatchEvent(listOf(PatchOperation("", playerData))))
+        EventManager.callEvent(ClientPlayerDataEvent(playerData))
+        EventManager.callEvent(ClientPlayerInventoryPatchEvent(listOf(PatchOperation("", inventoryData))))
+        EventManager.callEvent(ClientPlayerInventoryEvent(inventoryData))
+    }
+
+    /**
+     * A field of [PlayerData], whose value is read every tick and compared with the last known one.
+     */
+    @Suppress("UNCHECKED_CAST")
+    private class TrackedField<T>(
+        name: String,
+        private val isEqual: (T, T) -> Boolean = { a, b -> a == b },
+        private val copy: (T) -> T = { it },
+        private val read: (PlayerEntity) -> T
+    ) {
+
+        private val path = "/$name"
+        private var last: T? = null
+
+        fun reset(player: PlayerEntity) {
+            last = copy(read(player))
+        }
+
+        fun diff(player: PlayerEntity, patch: MutableList<PatchOperation>) {
+            val value = read(player)
+
+            if (!isEqual(last as T, value)) {
+                val copy = copy(value)
+                last = copy
+                patch += PatchOperation(path, copy)
+            }
+        }
+
+    }
+
+    /**
+     * A list of stacks, whose slots are compared with copies of their last known stack.
+     */
+    private class TrackedSlots(
+        private val name: String,
+        private val read: (PlayerEntity) -> List<ItemStack>
+    ) {
+
+        private var last = emptyArray<ItemStack>()
+
+        fun reset(player: PlayerEntity) {
+            last = read(player).map(ItemStack::copy).toTypedArray()
+        }
+
+        fun diff(player: PlayerEntity, patch: MutableList<PatchOperation>) {
+            val stacks = read(player)
+
+            if (stacks.size != last.size) {
+                reset(player)
+                patch += PatchOperation("/$name", last.toList())
+                return
+            }
+
+            for ((slot, stack) in stacks.withIndex()) {
+                if (!ItemStack.areEqual(last[slot], stack)) {
+                    val copy = stack.copy()
+                    last[slot] = copy
+                    patch += PatchOperation("/$name/$slot", copy)
+                }
+            }
+        }
+
+    }
+
+}
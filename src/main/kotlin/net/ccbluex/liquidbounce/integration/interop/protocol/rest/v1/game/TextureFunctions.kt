@@ -21,6 +21,8 @@
 
 package net.ccbluex.liquidbounce.integration.interop.protocol.rest.v1.game
 
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
 import net.ccbluex.liquidbounce.render.ui.ItemImageAtlas
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.client.world
@@ -28,12 +30,14 @@ import net.ccbluex.netty.http.model.RequestObject
 import net.ccbluex.netty.http.util.httpBadRequest
 import net.ccbluex.netty.http.util.httpFileStream
 import net.ccbluex.netty.http.util.httpInternalServerError
+import net.ccbluex.netty.http.util.httpOk
 import net.minecraft.client.texture.NativeImageBackedTexture
 import net.minecraft.client.util.DefaultSkinHelper
 import net.minecraft.registry.Registries
 import net.minecraft.registry.RegistryKey
 import net.minecraft.registry.RegistryKeys
 import net.minecraft.util.Identifier
+import java.awt.image.BufferedImage
 import java.util.*
 import javax.imageio.ImageIO
 import kotlin.jvm.optionals.getOrNull
@@ -70,6 +74,39 @@ fun getItemTexture(requestObject: RequestObject) = run {
     val image = Registries.ITEM.get(of)?.let(ItemImageAtlas::getItemImage)
         ?: return@run httpBadRequest("Item image not found")
 
+    pngOf(image)
+}
+
+// GET /api/v1/client/resource/itemAtlas
+@Suppress("UNUSED_PARAMETER")
+fun getItemAtlas(requestObject: RequestObject) = ItemImageAtlas.withAtlas { image, _, _ -> pngOf(image) }
+    ?: httpInternalServerError("Item atlas not available yet")
+
+// GET /api/v1/client/resource/itemAtlas/index
+@Suppress("UNUSED_PARAMETER")
+fun getItemAtlasIndex(requestObject: RequestObject) = ItemImageAtlas.withAtlas { image, items, aliases ->
+    httpOk(JsonObject().apply {
+        addProperty("width", image.width)
+        addProperty("height", image.height)
+        add("items", JsonObject().apply {
+            for ((item, rect) in items) {
+                add(Registries.ITEM.getId(item).toString(), JsonArray(4).apply {
+                    add(rect.x)
+                    add(rect.y)
+                    add(rect.width)
+                    add(rect.height)
+                })
+            }
+        })
+        add("aliases", JsonObject().apply {
+            for ((name, alias) in aliases) {
+                addProperty(name.toString(), alias.toString())
+            }
+        })
+    })
+} ?: httpInternalServerError("Item atlas not available yet")
+
+private fun pngOf(image: BufferedImage) = run {
     val buffer = okio.Buffer()
     ImageIO.write(image, "PNG", buffer.outputStream())
     httpFileStream(buffer.inputStream(), contentLength = buffer.size.toInt(), contentType = "image/png")
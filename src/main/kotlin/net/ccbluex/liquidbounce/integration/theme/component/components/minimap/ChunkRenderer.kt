@@ -31,22 +31,22 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.world.chunk.WorldChunk
 import org.joml.Vector2i
-import org.joml.component1
-import org.joml.component2
 import java.awt.Color
 import kotlin.math.PI
 import kotlin.math.roundToInt
 import kotlin.math.sin
 
 object ChunkRenderer {
-    private val textureAtlasManager = MinimapTextureAtlasManager()
-    private val heightmapManager = MinimapHeightmapManager()
+    private val tileStore = MinimapTileStore()
+    private val textureAtlasManager = MinimapTextureAtlasManager(tileStore)
+    private val heightmapManager = MinimapHeightmapManager(tileStore)
 
     val SUN_DIRECTION = Vector2i(2, 1)
 
     fun unloadEverything() {
         heightmapManager.unloadAllChunks()
         textureAtlasManager.deallocateAll()
+        tileStore.close()
     }
 
     fun getAtlasPosition(chunkPos: ChunkPos): MinimapTextureAtlasManager.AtlasPosition {
@@ -54,6 +54,8 @@ object ChunkRenderer {
     }
 
     fun prepareRendering(): Int {
+        tileStore.flushIfDue()
+
         return textureAtlasManager.prepareRendering()
     }
 
@@ -82,12 +84,13 @@ object ChunkRenderer {
                 }
 
             for (posToUpdate in positionsToUpdate) {
-                val color = getColor(posToUpdate.x, posToUpdate.z)
-
-                textureAtlasManager.editChunk(ChunkPos(posToUpdate)) { texture, atlasPosition ->
-                    val (x, y) = atlasPosition.getPosOnAtlas(posToUpdate.x and 15, posToUpdate.z and 15)
+                val chunkPosToUpdate = ChunkPos(posToUpdate)
+                if (!isLoaded(chunkPosToUpdate)) {
+                    continue
+                }
 
-                    texture.image!!.setColorArgb(x, y, color)
+                tileStore.editTile(chunkPosToUpdate) { tile ->
+                    updateColumn(tile, posToUpdate.x, posToUpdate.z)
                 }
             }
         }
@@ -105,6 +108,13 @@ object ChunkRenderer {
 
         private val AIR_COLOR = Color(255, 207, 179).rgb
 
+        private fun isLoaded(chunkPos: ChunkPos) =
+            mc.world?.chunkManager?.isChunkLoaded(chunkPos.x, chunkPos.z) == true
+
+        private fun updateColumn(tile: MinimapTile, x: Int, z: Int) {
+            tile.set(x and 15, z and 15, getColor(x, z), heightmapManager.getHeight(x, z))
+        }
+
         private fun getColor(x: Int, z: Int): Int {
             try {
                 val chunk = mc.world?.getChunk(x shr 4, z shr 4) ?: return AIR_COLOR
@@ -168,36 +178,35 @@ object ChunkRenderer {
 
             heightmapManager.updateChunk(chunkPos)
 
-            textureAtlasManager.editChunk(chunkPos) { texture, atlasPosition ->
+            tileStore.editTile(chunkPos) { tile ->
                 for (offX in 0..15) {
                     for (offZ in 0..15) {
-                        val (texX, texY) = atlasPosition.getPosOnAtlas(offX, offZ)
-
-                        val color = getColor(offX or (x shl 4), offZ or (z shl 4))
-
-                        texture.image!!.setColorArgb(texX, texY, color)
+                        updateColumn(tile, offX or (x shl 4), offZ or (z shl 4))
                     }
                 }
             }
 
             for ((otherPos, from, to) in chunkBordersToUpdate) {
-                textureAtlasManager.editChunk(otherPos) { texture, atlasPosition ->
+                // Unloaded chunks would be painted as air, over the tile of their last visit
+                if (!isLoaded(otherPos)) {
+                    continue
+                }
+
+                tileStore.editTile(otherPos) { tile ->
                     for (offX in from.x..to.x) {
                         for (offZ in from.y..to.y) {
-                            val (texX, texY) = atlasPosition.getPosOnAtlas(offX, offZ)
-
-                            val color = getColor(offX or otherPos.startX, offZ or otherPos.startZ)
-
-                            texture.image!!.setColorArgb(texX, texY, color)
+                            updateColumn(tile, offX or otherPos.startX, offZ or otherPos.startZ)
                         }
                     }
                 }
             }
         }
 
+        /**
+         * Only forgets the heightmap, the tile stays in the store and the atlas until it is evicted.
+         */
         override fun clearChunk(pos: ChunkPos) {
             heightmapManager.unloadChunk(pos)
-            textureAtlasManager.deallocate(pos)
         }
 
         override fun clearAllChunks() {
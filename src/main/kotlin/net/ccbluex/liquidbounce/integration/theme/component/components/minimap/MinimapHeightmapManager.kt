@@ -29,12 +29,15 @@ import net.minecraft.util.math.ChunkPos
 import net.minecraft.world.chunk.Chunk
 import java.util.concurrent.ConcurrentHashMap
 
-class MinimapHeightmapManager {
+class MinimapHeightmapManager(private val tileStore: MinimapTileStore) {
     private val heightmaps = ConcurrentHashMap<ChunkPos, HeightmapForChunk>()
 
     fun getHeight(x: Int, z: Int): Int {
         val chunkPos = ChunkPos(x shr 4, z shr 4)
-        val heightmap = getHeightmap(chunkPos)
+
+        // Chunks which are not loaded, e.g. next to the loaded area, use the heights of their last visit
+        val heightmap = heightmaps[chunkPos]
+            ?: return tileStore.getTile(chunkPos)?.getHeight(x and 15, z and 15) ?: MinimapTile.UNKNOWN_HEIGHT
 
         return heightmap.getHeight(x and 15, z and 15)
     }
@@ -140,7 +143,7 @@ class MinimapHeightmapManager {
 }
 
 class HeightmapForChunk {
-    private val heightmap = IntArray(16 * 16) { 255 }
+    private val heightmap = IntArray(16 * 16) { MinimapTile.UNKNOWN_HEIGHT }
 
     fun getHeight(
         x: Int,
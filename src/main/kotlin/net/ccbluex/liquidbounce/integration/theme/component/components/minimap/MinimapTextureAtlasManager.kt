@@ -26,10 +26,8 @@ import net.minecraft.client.texture.NativeImage
 import net.minecraft.client.texture.NativeImageBackedTexture
 import net.minecraft.util.math.ChunkPos
 import org.joml.Vector2i
-import java.util.concurrent.ArrayBlockingQueue
-import java.util.concurrent.locks.ReentrantReadWriteLock
-import kotlin.concurrent.read
-import kotlin.concurrent.write
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
 
 /**
  * Size of the texture atlas in chunks (size x size)
@@ -45,28 +43,45 @@ private const val MAX_ATLAS_POSITIONS: Int = ATLAS_SIZE * ATLAS_SIZE - 1
 
 private val NOT_LOADED_ATLAS_POSITION = MinimapTextureAtlasManager.AtlasPosition(0, 0)
 
-class MinimapTextureAtlasManager {
+/**
+ * Keeps the tiles of the recently drawn chunks of [tileStore] in a texture atlas.
+ *
+ * Tiles are painted when they are requested and have changed since. When the atlas is full,
+ * the least recently requested chunk makes room, unless it has been requested in the current frame.
+ */
+class MinimapTextureAtlasManager(private val tileStore: MinimapTileStore) {
     private val texture = NativeImageBackedTexture(ATLAS_SIZE * 16, ATLAS_SIZE * 16, false)
-    private val availableAtlasPositions: ArrayBlockingQueue<AtlasPosition>
+    private val availableAtlasPositions = ArrayDeque<AtlasPosition>(MAX_ATLAS_POSITIONS)
     private val dirtyAtlasPositions = hashSetOf<AtlasPosition>()
-    private val chunkPosAtlasPosMap = hashMapOf<ChunkPos, AtlasPosition>()
 
-    private val lock = ReentrantReadWriteLock()
+    /**
+     * In access order, so the eldest entry is the least recently requested chunk.
+     */
+    private val residentChunks = LinkedHashMap<ChunkPos, ResidentTile>(MAX_ATLAS_POSITIONS, 0.75F, true)
+
+    /**
+     * Guards all state, a plain read lock is not enough as lookups update the access order.
+     */
+    private val lock = ReentrantLock()
 
     private var allocated = false
 
+    /**
+     * Counts the frames, see [prepareRendering]. Tiles requested in the current frame are not evicted,
+     * their atlas positions are already part of the frame.
+     */
+    private var frame = 0
+
     init {
-        val atlasPositions = ArrayList<AtlasPosition>(MAX_ATLAS_POSITIONS)
         for (x in 0 until ATLAS_SIZE) {
             for (y in 0 until ATLAS_SIZE) {
                 if (x == 0 && y == 0) {
                     continue
                 }
 
-                atlasPositions.add(AtlasPosition(x, y))
+                availableAtlasPositions.add(AtlasPosition(x, y))
             }
         }
-        availableAtlasPositions = ArrayBlockingQueue(MAX_ATLAS_POSITIONS, false, atlasPositions)
 
         for (x in 0..15) {
             for (y in 0..15) {
@@ -79,62 +94,91 @@ class MinimapTextureAtlasManager {
         this.dirtyAtlasPositions.add(NOT_LOADED_ATLAS_POSITION)
     }
 
-    private fun allocate(chunkPos: ChunkPos): AtlasPosition {
-        val atlasPosition = availableAtlasPositions.take() ?: error("No more space in the texture atlas!")
+    /**
+     * Never blocks, evicts the least recently requested chunk if there is no space left.
+     *
+     * @return null if all atlas positions are used by the current frame
+     */
+    private fun allocate(chunkPos: ChunkPos): ResidentTile? {
+        val atlasPosition = availableAtlasPositions.removeFirstOrNull() ?: evictEldest() ?: return null
+        val residentTile = ResidentTile(atlasPosition)
 
-        lock.write {
-            chunkPosAtlasPosMap[chunkPos] = atlasPosition
-        }
+        residentChunks[chunkPos] = residentTile
 
-        return atlasPosition
+        return residentTile
     }
 
-    fun deallocate(chunkPos: ChunkPos) {
-        lock.write {
-            chunkPosAtlasPosMap.remove(chunkPos)?.apply(availableAtlasPositions::add)
+    /**
+     * As [residentChunks] is in access order, all chunks have been requested in the current frame
+     * if the eldest one has been.
+     */
+    private fun evictEldest(): AtlasPosition? {
+        val iterator = residentChunks.values.iterator()
+        val eldest = iterator.next()
+        if (eldest.frame == frame) {
+            return null
         }
+
+        iterator.remove()
+
+        return eldest.atlasPosition
     }
 
     fun deallocateAll() {
-        lock.write {
-            availableAtlasPositions.addAll(chunkPosAtlasPosMap.values)
-            chunkPosAtlasPosMap.clear()
+        lock.withLock {
+            residentChunks.values.mapTo(availableAtlasPositions) { it.atlasPosition }
+            residentChunks.clear()
             dirtyAtlasPositions.clear()
         }
     }
 
+    /**
+     * Returns the position of [chunkPos] on the atlas, painting its tile first if needed.
+     * Chunks which have not been explored yet or are still being read from disk get the not loaded texture,
+     * as well as chunks exceeding the atlas in the current frame.
+     */
     fun getOrNotLoadedTexture(chunkPos: ChunkPos): AtlasPosition {
-        return get(chunkPos) ?: NOT_LOADED_ATLAS_POSITION
-    }
+        val tile = tileStore.getTile(chunkPos) ?: return NOT_LOADED_ATLAS_POSITION
 
-    fun get(chunkPos: ChunkPos): AtlasPosition? {
-        return lock.read { chunkPosAtlasPosMap[chunkPos] }
-    }
+        lock.withLock {
+            val residentTile = residentChunks[chunkPos] ?: allocate(chunkPos) ?: return NOT_LOADED_ATLAS_POSITION
+            residentTile.frame = frame
+            val revision = tile.revision
 
-    private fun getOrAllocate(chunkPos: ChunkPos): AtlasPosition {
-        return chunkPosAtlasPosMap[chunkPos] ?: allocate(chunkPos)
+            if (residentTile.revision != revision) {
+                paint(tile, residentTile.atlasPosition)
+                residentTile.revision = revision
+            }
+
+            return residentTile.atlasPosition
+        }
     }
 
-    fun editChunk(
-        chunkPos: ChunkPos,
-        editor: (NativeImageBackedTexture, AtlasPosition) -> Unit,
-    ) {
-        val atlasPosition = getOrAllocate(chunkPos)
+    private fun paint(tile: MinimapTile, atlasPosition: AtlasPosition) {
+        val image = texture.image!!
 
-        lock.write {
-            dirtyAtlasPositions.add(atlasPosition)
+        for (z in 0..15) {
+            for (x in 0..15) {
+                image.setColorArgb(
+                    atlasPosition.baseXOnAtlas or x,
+                    atlasPosition.baseYOnAtlas or z,
+                    tile.colors[(z shl 4) or x]
+                )
+            }
         }
 
-        editor(texture, atlasPosition)
+        dirtyAtlasPositions.add(atlasPosition)
     }
 
     /**
-     * Uploads texture changes to the GPU
+     * Uploads texture changes to the GPU and starts a new frame, so the tiles of the previous one can be evicted.
      *
      * @return the GLid of the texture
      */
     fun prepareRendering(): Int {
-        lock.read {
+        lock.withLock {
+            frame++
+
             if (this.dirtyAtlasPositions.isEmpty()) {
                 return this.texture.glId
             }
@@ -147,9 +191,7 @@ class MinimapTextureAtlasManager {
                 !this.allocated || dirtyChunks >= FULL_UPLOAD_THRESHOLD -> uploadFullTexture()
                 else -> uploadOnlyDirtyPositions()
             }
-        }
 
-        lock.write {
             this.dirtyAtlasPositions.clear()
         }
 
@@ -188,6 +230,18 @@ class MinimapTextureAtlasManager {
         }
     }
 
+    private class ResidentTile(val atlasPosition: AtlasPosition) {
+        /**
+         * The [MinimapTile.revision] which has been painted, tiles never have a negative revision.
+         */
+        var revision = -1
+
+        /**
+         * The last frame in which the tile has been requested.
+         */
+        var frame = -1
+    }
+
     data class AtlasPosition(private val x: Int, private val y: Int) {
         val baseXOnAtlas: Int = x shl 4
         val baseYOnAtlas: Int = y shl 4
@@ -0,0 +1,345 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.integration.theme.component.components.minimap
+
+import net.ccbluex.liquidbounce.config.ConfigSystem
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.liquidbounce.utils.client.mc
+import net.minecraft.util.WorldSavePath
+import net.minecraft.util.math.ChunkPos
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+import kotlin.math.abs
+
+private const val REGION_SHIFT = 5
+private const val REGION_MASK = (1 shl REGION_SHIFT) - 1
+
+private const val MAGIC = 0x4C42_4D54 // LBMT
+private const val FORMAT_VERSION = 1
+
+private const val FLUSH_INTERVAL_MILLIS = 30_000L
+
+/**
+ * Regions farther away from the player than this are dropped from memory after they have been written.
+ */
+private const val RESIDENT_REGION_RADIUS = 2
+
+/**
+ * Keeps the color and height tiles of all explored chunks, so the minimap still knows them after they have been
+ * unloaded, and persists them in compressed region files of 32x32 chunks.
+ *
+ * There is one folder per singleplayer world or server and dimension. Regions are read in the background when one of
+ * their chunks is requested and written every [FLUSH_INTERVAL_MILLIS] and when the world is left.
+ * Tiles can be read and edited from any thread.
+ */
+class MinimapTileStore {
+
+    @Volatile
+    private var session: Session? = null
+
+    private var lastFlush = System.currentTimeMillis()
+
+    /**
+     * Returns the tile of [chunkPos] if it has been explored and is in memory.
+     * Never blocks, the region of the chunk is read in the background if needed.
+     */
+    fun getTile(chunkPos: ChunkPos): MinimapTile? {
+        val session = currentSession() ?: return null
+
+        session.requestRegion(chunkPos)
+        return session.tiles[chunkPos.toLong()]
+    }
+
+    /**
+     * Edits the tile of [chunkPos], which is created if the chunk has not been explored yet,
+     * and marks it to be painted and written.
+     */
+    fun editTile(chunkPos: ChunkPos, editor: (MinimapTile) -> Unit) {
+        val session = currentSession() ?: return
+
+        // The region is only marked dirty after the edit, it must not be evicted in between
+        session.evictionLock.read {
+            session.requestRegion(chunkPos)
+            val tile = session.tiles.computeIfAbsent(chunkPos.toLong()) { MinimapTile() }
+
+            editor(tile)
+            tile.markChanged()
+            session.dirtyRegions.add(regionKey(chunkPos.x, chunkPos.z))
+        }
+    }
+
+    /**
+     * Writes the changed regions if the last flush is long enough ago.
+     */
+    fun flushIfDue() {
+        val now = System.currentTimeMillis()
+        if (now - lastFlush < FLUSH_INTERVAL_MILLIS) {
+            return
+        }
+
+        lastFlush = now
+        session?.let { flush(it) }
+    }
+
+    /**
+     * Writes the changed regions and forgets all tiles. The next access opens the store of the current world.
+     */
+    fun close() {
+        val session = synchronized(this) {
+            this.session.also { this.session = null }
+        } ?: return
+
+        flush(session, evictDistantRegions = false)
+    }
+
+    private fun currentSession(): Session? {
+        session?.let { return it }
+
+        return synchronized(this) {
+            session ?: worldFolder()?.let(::Session)?.also { session = it }
+        }
+    }
+
+    private fun flush(session: Session, evictDistantRegions: Boolean = true) {
+        val playerChunk = mc.player?.chunkPos
+
+        IO_EXECUTOR.execute {
+            for (region in session.dirtyRegions.toLongArray()) {
+                session.dirtyRegions.remove(region)
+
+                try {
+                    writeRegion(session, region)
+                } catch (e: Exception) {
+                    logger.warn("Failed to write minimap region ${regionName(region)}", e)
+                }
+            }
+
+            if (evictDistantRegions && playerChunk != null) {
+                session.evictRegionsOutside(
+                    regionX = playerChunk.x shr REGION_SHIFT,
+                    regionZ = playerChunk.z shr REGION_SHIFT
+                )
+            }
+        }
+    }
+
+    private fun readRegion(session: Session, region: Long) {
+        val file = session.folder.resolve(regionName(region))
+        if (!file.isFile) {
+            return
+        }
+
+        val baseX = ChunkPos.getPackedX(region) shl REGION_SHIFT
+        val baseZ = ChunkPos.getPackedZ(region) shl REGION_SHIFT
+
+        DataInputStream(GZIPInputStream(file.inputStream()).buffered()).use { input ->
+            check(input.readInt() == MAGIC) { "Not a minimap region" }
+            check(input.readInt() == FORMAT_VERSION) { "Unsupported version" }
+
+            repeat(input.readShort().toInt()) {
+                val index = input.readShort().toInt()
+                val tile = MinimapTile()
+
+                for (i in 0 until MinimapTile.SIZE) {
+                    tile.colors[i] = input.readInt()
+                }
+                for (i in 0 until MinimapTile.SIZE) {
+                    tile.heights[i] = input.readShort().toInt()
+                }
+
+                // Chunks which have been explored again in the meantime are newer
+                val chunk = ChunkPos.toLong(baseX or (index and REGION_MASK), baseZ or (index shr REGION_SHIFT))
+                session.tiles.putIfAbsent(chunk, tile)
+            }
+        }
+    }
+
+    private fun writeRegion(session: Session, region: Long) {
+        val tiles = session.tilesOf(region)
+        if (tiles.isEmpty()) {
+            return
+        }
+
+        session.folder.mkdirs()
+
+        val file = session.folder.resolve(regionName(region))
+        val temp = File(session.folder, "${file.name}.tmp")
+
+        DataOutputStream(GZIPOutputStream(temp.outputStream()).buffered()).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(FORMAT_VERSION)
+            out.writeShort(tiles.size)
+
+            for ((chunk, tile) in tiles) {
+                val x = ChunkPos.getPackedX(chunk) and REGION_MASK
+                val z = ChunkPos.getPackedZ(chunk) and REGION_MASK
+                out.writeShort((z shl REGION_SHIFT) or x)
+
+                tile.colors.forEach(out::writeInt)
+                tile.heights.forEach(out::writeShort)
+            }
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    }
+
+    private inner class Session(val folder: File) {
+        val tiles = ConcurrentHashMap<Long, MinimapTile>()
+
+        /**
+         * Regions which have been read or are queued to be read.
+         */
+        val loadedRegions: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+        val dirtyRegions: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+
+        /**
+         * Held for reading while a tile is edited and for writing while regions are evicted,
+         * so a region can't be dropped between the edit of one of its tiles and being marked dirty.
+         */
+        val evictionLock = ReentrantReadWriteLock()
+
+        fun requestRegion(chunkPos: ChunkPos) {
+            val region = regionKey(chunkPos.x, chunkPos.z)
+            if (region in loadedRegions || !loadedRegions.add(region)) {
+                return
+            }
+
+            // Reads are queued before the writes of the region, so a write always contains the tiles on disk
+            IO_EXECUTOR.execute {
+                try {
+                    readRegion(this, region)
+                } catch (e: Exception) {
+                    logger.warn("Failed to read minimap region ${regionName(region)}, it will be overwritten", e)
+                }
+            }
+        }
+
+        fun tilesOf(region: Long) = tiles.entries
+            .filter { (chunk, _) -> regionKey(ChunkPos.getPackedX(chunk), ChunkPos.getPackedZ(chunk)) == region }
+            .map { (chunk, tile) -> chunk to tile.copy() }
+
+        /**
+         * Drops the written regions which are not around [regionX], [regionZ] from memory.
+         * They are read again when needed.
+         */
+        fun evictRegionsOutside(regionX: Int, regionZ: Int) {
+            fun isDistant(region: Long) = region !in dirtyRegions &&
+                (abs(ChunkPos.getPackedX(region) - regionX) > RESIDENT_REGION_RADIUS ||
+                    abs(ChunkPos.getPackedZ(region) - regionZ) > RESIDENT_REGION_RADIUS)
+
+            evictionLock.write {
+                val distantRegions = loadedRegions.filter(::isDistant).toSet()
+                if (distantRegions.isEmpty()) {
+                    return
+                }
+
+                tiles.keys.removeIf { chunk ->
+                    regionKey(ChunkPos.getPackedX(chunk), ChunkPos.getPackedZ(chunk)) in distantRegions
+                }
+                loadedRegions.removeAll(distantRegions)
+            }
+        }
+    }
+
+    companion object {
+        private val IO_EXECUTOR = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "lb-minimap-io").apply { isDaemon = true }
+        }
+
+        private val INVALID_FILE_NAME_CHARS = Regex("[^a-zA-Z0-9._-]")
+
+        private fun regionKey(chunkX: Int, chunkZ: Int) =
+            ChunkPos.toLong(chunkX shr REGION_SHIFT, chunkZ shr REGION_SHIFT)
+
+        private fun String.toFileName() = replace(INVALID_FILE_NAME_CHARS, "_")
+
+        private fun regionName(region: Long) = "r.${ChunkPos.getPackedX(region)}.${ChunkPos.getPackedZ(region)}.bin"
+
+        /**
+         * The folder of the current singleplayer world or server and dimension.
+         */
+        private fun worldFolder(): File? {
+            val world = mc.world ?: return null
+
+            val server = mc.server
+            val worldFolder = if (server != null) {
+                // The folder name is unique, unlike the level name
+                val name = server.getSavePath(WorldSavePath.ROOT).normalize().fileName.toString()
+                ConfigSystem.rootFolder.resolve("minimap/singleplayer/${name.toFileName()}")
+            } else {
+                val address = mc.currentServerEntry?.address
+                    ?: mc.networkHandler?.connection?.address?.toString()
+                    ?: return null
+                ConfigSystem.rootFolder.resolve("minimap/multiplayer/${address.lowercase().toFileName()}")
+            }
+
+            return worldFolder.resolve(world.registryKey.value.toString().toFileName())
+        }
+    }
+
+}
+
+/**
+ * The ARGB colors and surface heights of a chunk, indexed by `(z shl 4) or x`.
+ */
+class MinimapTile {
+    val colors = IntArray(SIZE)
+    val heights = IntArray(SIZE) { UNKNOWN_HEIGHT }
+
+    private val revisionCounter = AtomicInteger()
+
+    /**
+     * Increased after every edit, so the atlas knows when to paint the tile again.
+     */
+    val revision: Int
+        get() = revisionCounter.get()
+
+    internal fun markChanged() {
+        revisionCounter.incrementAndGet()
+    }
+
+    fun getHeight(x: Int, z: Int) = heights[(z shl 4) or x]
+
+    fun set(x: Int, z: Int, color: Int, height: Int) {
+        val index = (z shl 4) or x
+        colors[index] = color
+        heights[index] = height
+    }
+
+    fun copy() = MinimapTile().also { copy ->
+        colors.copyInto(copy.colors)
+        heights.copyInto(copy.heights)
+    }
+
+    companion object {
+        const val SIZE = 16 * 16
+        const val UNKNOWN_HEIGHT = 255
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.render
+
+import com.mojang.blaze3d.systems.RenderSystem
+import net.ccbluex.liquidbounce.render.engine.type.Color4b
+import net.ccbluex.liquidbounce.render.shader.currentModelViewMatrix
+import net.ccbluex.liquidbounce.render.shader.shaders.InstancedBoxShader
+import net.minecraft.client.gl.VertexBuffer
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.Vec3d
+import org.joml.Matrix4f
+import org.lwjgl.opengl.GL11C
+import org.lwjgl.opengl.GL15C
+import org.lwjgl.opengl.GL20C
+import org.lwjgl.opengl.GL30C
+import org.lwjgl.opengl.GL31C
+import org.lwjgl.opengl.GL33C
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Collects boxes which only differ by their position, size and colors, so all of them can be drawn
+ * with one instanced draw call for their faces and one for their outlines.
+ *
+ * Each box takes [STRIDE] bytes instead of the 48 vertices of [drawBox]. Must be used on the render thread.
+ *
+ * @see RenderEnvironment.drawBoxInstances
+ */
+class BoxInstanceBuffer @JvmOverloads constructor(initialCapacity: Int = 256) {
+
+    init {
+        require(initialCapacity > 0) { "initialCapacity should be positive" }
+    }
+
+    private var data = allocate(initialCapacity)
+
+    var size = 0
+        private set
+
+    private var hasFaces = false
+    private var hasOutlines = false
+
+    val isEmpty: Boolean
+        get() = size == 0
+
+    /**
+     * Adds [box] moved by [offset], both relative to the matrix stack the buffer is drawn with.
+     * Boxes without any visible color are skipped.
+     */
+    fun add(offset: Vec3d, box: Box, faceColor: Color4b?, outlineColor: Color4b?) {
+        val face = faceColor?.takeUnless { it.isTransparent }
+        val outline = outlineColor?.takeUnless { it.isTransparent }
+        if (face == null && outline == null) {
+            return
+        }
+
+        if (data.remaining() < STRIDE) {
+            data = allocate(data.capacity() / STRIDE * 2).put(data.flip())
+        }
+
+        data.putFloat((offset.x + box.minX).toFloat())
+        data.putFloat((offset.y + box.minY).toFloat())
+        data.putFloat((offset.z + box.minZ).toFloat())
+        data.putFloat(box.lengthX.toFloat())
+        data.putFloat(box.lengthY.toFloat())
+        data.putFloat(box.lengthZ.toFloat())
+        data.putColor(face)
+        data.putColor(outline)
+
+        hasFaces = hasFaces || face != null
+        hasOutlines = hasOutlines || outline != null
+        size++
+    }
+
+    /**
+     * Adds [box], which is relative to the matrix stack the buffer is drawn with.
+     */
+    fun add(box: Box, faceColor: Color4b?, outlineColor: Color4b?) =
+        add(Vec3d.ZERO, box, faceColor, outlineColor)
+
+    fun clear() {
+        data.clear()
+        size = 0
+        hasFaces = false
+        hasOutlines = false
+    }
+
+    /**
+     * Uploads the boxes and draws them transformed by [positionMatrix].
+     */
+    internal fun draw(positionMatrix: Matrix4f) {
+        if (isEmpty) {
+            return
+        }
+
+        val mesh = CubeMesh.get()
+        GL30C.glBindVertexArray(mesh.vertexArray)
+
+        // Orphans the storage of the previous draw instead of waiting for it
+        GL15C.glBindBuffer(GL15C.GL_ARRAY_BUFFER, mesh.instanceBuffer)
+        GL15C.glBufferData(GL15C.GL_ARRAY_BUFFER, data.flip(), GL15C.GL_STREAM_DRAW)
+        data.limit(data.capacity()).position(size * STRIDE)
+
+        val modelViewMatrix = Matrix4f(RenderSystem.getModelViewMatrix()).mul(positionMatrix)
+
+        if (hasFaces) {
+            drawInstances(modelViewMatrix, outline = false)
+        }
+        if (hasOutlines) {
+            drawInstances(modelViewMatrix, outline = true)
+        }
+
+        InstancedBoxShader.stop()
+        GL15C.glBindBuffer(GL15C.GL_ARRAY_BUFFER, 0)
+        // Also forgets the vertex array bound by Minecraft's buffers
+        VertexBuffer.unbind()
+    }
+
+    private fun drawInstances(modelViewMatrix: Matrix4f, outline: Boolean) {
+        currentModelViewMatrix = modelViewMatrix
+        InstancedBoxShader.outline = outline
+        InstancedBoxShader.use()
+
+        if (outline) {
+            GL31C.glDrawArraysInstanced(
+                GL11C.GL_LINES, CubeMesh.OUTLINE_VERTICES, CubeMesh.OUTLINE_VERTEX_COUNT, size
+            )
+        } else {
+            GL31C.glDrawArraysInstanced(
+                GL11C.GL_TRIANGLES, CubeMesh.FACE_VERTICES, CubeMesh.FACE_VERTEX_COUNT, size
+            )
+        }
+    }
+
+    /**
+     * The vertices of the unit cube which is shared by all instances, the triangles of its faces followed by
+     * the lines of its outline, and the buffer the instances are uploaded to.
+     */
+    private class CubeMesh private constructor() {
+        val vertexArray = GL30C.glGenVertexArrays()
+        val vertexBuffer = GL15C.glGenBuffers()
+        val instanceBuffer = GL15C.glGenBuffers()
+
+        init {
+            val vertices = ByteBuffer.allocateDirect((FACE_VERTEX_COUNT + OUTLINE_VERTEX_COUNT) * 12)
+                .order(ByteOrder.nativeOrder())
+            val quad = DoubleArray(12)
+
+            FULL_BOX.forEachFaceVertex { i, x, y, z ->
+                val corner = i % 4 * 3
+                quad[corner] = x
+                quad[corner + 1] = y
+                quad[corner + 2] = z
+
+                if (i % 4 == 3) {
+                    // Two triangles with the winding of the quad
+                    for (index in QUAD_TRIANGLES) {
+                        vertices.putFloat(quad[index * 3].toFloat())
+                        vertices.putFloat(quad[index * 3 + 1].toFloat())
+                        vertices.putFloat(quad[index * 3 + 2].toFloat())
+                    }
+                }
+            }
+            FULL_BOX.forEachOutlineVertex { _, x, y, z ->
+                vertices.putFloat(x.toFloat())
+                vertices.putFloat(y.toFloat())
+                vertices.putFloat(z.toFloat())
+            }
+
+            GL30C.glBindVertexArray(vertexArray)
+
+            GL15C.glBindBuffer(GL15C.GL_ARRAY_BUFFER, vertexBuffer)
+            GL15C.glBufferData(GL15C.GL_ARRAY_BUFFER, vertices.flip(), GL15C.GL_STATIC_DRAW)
+            GL20C.glEnableVertexAttribArray(InstancedBoxShader.POSITION_ATTRIBUTE)
+            GL20C.glVertexAttribPointer(InstancedBoxShader.POSITION_ATTRIBUTE, 3, GL11C.GL_FLOAT, false, 12, 0L)
+
+            GL15C.glBindBuffer(GL15C.GL_ARRAY_BUFFER, instanceBuffer)
+            floatAttribute(InstancedBoxShader.OFFSET_ATTRIBUTE, offset = 0L)
+            floatAttribute(InstancedBoxShader.SIZE_ATTRIBUTE, offset = 12L)
+            colorAttribute(InstancedBoxShader.FACE_COLOR_ATTRIBUTE, offset = 24L)
+            colorAttribute(InstancedBoxShader.OUTLINE_COLOR_ATTRIBUTE, offset = 28L)
+
+            GL15C.glBindBuffer(GL15C.GL_ARRAY_BUFFER, 0)
+            GL30C.glBindVertexArray(0)
+        }
+
+        private fun floatAttribute(index: Int, offset: Long) {
+            GL20C.glEnableVertexAttribArray(index)
+            GL20C.glVertexAttribPointer(index, 3, GL11C.GL_FLOAT, false, STRIDE, offset)
+            GL33C.glVertexAttribDivisor(index, 1)
+        }
+
+        private fun colorAttribute(index: Int, offset: Long) {
+            GL20C.glEnableVertexAttribArray(index)
+            GL20C.glVertexAttribPointer(index, 4, GL11C.GL_UNSIGNED_BYTE, true, STRIDE, offset)
+            GL33C.glVertexAttribDivisor(index, 1)
+        }
+
+        companion object {
+            const val FACE_VERTICES = 0
+            const val FACE_VERTEX_COUNT = 36
+            const val OUTLINE_VERTICES = FACE_VERTEX_COUNT
+            const val OUTLINE_VERTEX_COUNT = 24
+
+            private val QUAD_TRIANGLES = intArrayOf(0, 1, 2, 0, 2, 3)
+
+            private var instance: CubeMesh? = null
+
+            fun get() = instance ?: CubeMesh().also { instance = it }
+        }
+    }
+
+    companion object {
+        /**
+         * Offset and size as floats, followed by the face and the outline color as RGBA bytes.
+         */
+        const val STRIDE = 32
+
+        private fun allocate(capacity: Int) = ByteBuffer.allocateDirect(capacity * STRIDE).order(ByteOrder.nativeOrder())
+
+        private fun ByteBuffer.putColor(color: Color4b?) {
+            if (color == null) {
+                putInt(0)
+                return
+            }
+
+            put(color.r.toByte())
+            put(color.g.toByte())
+            put(color.b.toByte())
+            put(color.a.toByte())
+        }
+    }
+
+}
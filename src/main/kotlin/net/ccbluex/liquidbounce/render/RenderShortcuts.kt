@@ -551,6 +551,33 @@ fun RenderEnvironment.drawBox(
     }
 }
 
+/**
+ * Draws the boxes of [instances] relative to the current [RenderEnvironment.matrixStack],
+ * with one instanced draw call for all faces and one for all outlines.
+ *
+ * The boxes are drawn immediately, even in batch mode.
+ */
+fun RenderEnvironment.drawBoxInstances(instances: BoxInstanceBuffer) {
+    instances.draw(matrixStack.peek().positionMatrix)
+}
+
+/**
+ * Collects boxes with [collector] and draws them with [drawBoxInstances].
+ */
+inline fun RenderEnvironment.drawBoxInstances(collector: BoxInstanceBuffer.() -> Unit) {
+    val instances = sharedBoxInstances
+    instances.clear()
+    try {
+        collector(instances)
+        drawBoxInstances(instances)
+    } finally {
+        instances.clear()
+    }
+}
+
+@PublishedApi
+internal val sharedBoxInstances = BoxInstanceBuffer()
+
 /**
  * Function to draw a colored [box] with specified [side].
  */
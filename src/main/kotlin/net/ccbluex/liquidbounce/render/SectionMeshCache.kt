@@ -0,0 +1,349 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.render
+
+import com.mojang.blaze3d.systems.RenderSystem
+import it.unimi.dsi.fastutil.floats.FloatArrayList
+import it.unimi.dsi.fastutil.ints.IntArrayList
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import net.ccbluex.liquidbounce.render.engine.type.Color4b
+import net.ccbluex.liquidbounce.utils.block.AbstractBlockLocationTracker
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen
+import net.minecraft.client.gl.GlUsage
+import net.minecraft.client.gl.VertexBuffer
+import net.minecraft.client.render.VertexFormat.DrawMode
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.util.math.ChunkSectionPos
+import org.joml.Matrix4f
+
+/**
+ * Keeps the boxes drawn at block positions in uploaded [VertexBuffer]s, one per chunk section,
+ * so they don't have to be built again every frame.
+ *
+ * Sections are only rebuilt after they have been marked dirty, which can be done from any thread.
+ * Updating, drawing and clearing must happen on the render thread.
+ */
+class SectionMeshCache {
+
+    private val meshes = Long2ObjectOpenHashMap<SectionMesh>()
+
+    /**
+     * Origins of the meshes as [BlockPos.asLong], reused for culling them in a batch.
+     */
+    private var visibleOrigins = LongArray(0)
+
+    /**
+     * Guarded by itself, also guards [dirtyChunks] and [allDirty].
+     */
+    private val dirtySections = LongOpenHashSet()
+    private val dirtyChunks = LongOpenHashSet()
+    private var allDirty = true
+
+    val isEmpty: Boolean
+        get() = meshes.isEmpty()
+
+    /**
+     * Marks the section of [pos] to be rebuilt.
+     */
+    fun markDirty(pos: BlockPos) {
+        synchronized(dirtySections) {
+            dirtySections.add(ChunkSectionPos.toLong(pos))
+        }
+    }
+
+    /**
+     * Marks all sections of the chunk at [pos] to be rebuilt.
+     */
+    fun markDirty(pos: ChunkPos) {
+        synchronized(dirtySections) {
+            dirtyChunks.add(pos.toLong())
+        }
+    }
+
+    /**
+     * Marks all sections to be rebuilt, e.g. after the colors have changed.
+     */
+    fun markAllDirty() {
+        synchronized(dirtySections) {
+            allDirty = true
+        }
+    }
+
+    /**
+     * Rebuilds the dirty sections from the positions of [tracker], which is only read if any section is dirty.
+     * Only the positions in the dirty sections are visited, unless all of them are dirty.
+     *
+     * A chunk is only marked dirty after its positions have been untracked, so its meshes are dropped.
+     * Positions tracked again afterward have marked their sections dirty.
+     *
+     * @param emitter adds the boxes of a tracked position in a dirty section
+     */
+    fun <T> update(tracker: AbstractBlockLocationTracker<T>, emitter: Emitter<T>) {
+        val rebuildAll: Boolean
+        val sections: LongOpenHashSet
+        val chunks: LongOpenHashSet
+
+        synchronized(dirtySections) {
+            if (!allDirty && dirtySections.isEmpty() && dirtyChunks.isEmpty()) {
+                return
+            }
+
+            rebuildAll = allDirty
+            sections = LongOpenHashSet(dirtySections)
+            chunks = LongOpenHashSet(dirtyChunks)
+
+            allDirty = false
+            dirtySections.clear()
+            dirtyChunks.clear()
+        }
+
+        fun isDirty(sectionPos: Long) = rebuildAll || sectionPos in sections ||
+            ChunkPos.toLong(ChunkSectionPos.unpackX(sectionPos), ChunkSectionPos.unpackZ(sectionPos)) in chunks
+
+        val iterator = meshes.long2ObjectEntrySet().fastIterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (isDirty(entry.longKey)) {
+                entry.value.close()
+                iterator.remove()
+            }
+        }
+
+        if (rebuildAll) {
+            val boxesBySection = Long2ObjectOpenHashMap<Boxes>()
+            for ((pos, state) in tracker.iterate()) {
+                val sectionPos = ChunkSectionPos.toLong(pos)
+                emitter.emit(pos, state, boxesBySection.computeIfAbsent(sectionPos) { Boxes(sectionPos) })
+            }
+
+            for (boxes in boxesBySection.values) {
+                boxes.upload()?.let { meshes.put(boxes.sectionPos, it) }
+            }
+            return
+        }
+
+        val sectionIterator = sections.iterator()
+        while (sectionIterator.hasNext()) {
+            val boxes = Boxes(sectionIterator.nextLong())
+            tracker.forEachInSection(boxes.sectionPos) { pos, state -> emitter.emit(pos, state, boxes) }
+            boxes.upload()?.let { meshes.put(boxes.sectionPos, it) }
+        }
+    }
+
+    /**
+     * Draws all sections in the view frustum, each with a single draw call per draw mode.
+     *
+     * @param tint multiplied with the colors of the vertices, e.g. to animate a color without rebuilding
+     * @return if anything has been drawn
+     */
+    fun draw(environment: WorldRenderEnvironment, tint: Color4b? = null): Boolean {
+        if (meshes.isEmpty()) {
+            return false
+        }
+
+        val program = RenderSystem.setShader(VertexInputType.PosColor.shaderProgram) ?: return false
+        if (tint != null) {
+            RenderSystem.setShaderColor(tint.r / 255f, tint.g / 255f, tint.b / 255f, tint.a / 255f)
+        }
+
+        val cameraPos = environment.camera.pos
+        // Same transformation as immediate drawing, which applies the matrix stack to the global model view
+        val viewMatrix = Matrix4f(RenderSystem.getModelViewMatrix()).mul(environment.matrixStack.peek().positionMatrix)
+        val projectionMatrix = RenderSystem.getProjectionMatrix()
+        val sectionMatrix = Matrix4f()
+
+        if (visibleOrigins.size < meshes.size) {
+            visibleOrigins = LongArray(meshes.size)
+        }
+
+        var count = 0
+        for (mesh in meshes.values) {
+            visibleOrigins[count++] = BlockPos.asLong(mesh.originX, mesh.originY, mesh.originZ)
+        }
+
+        val visible = WorldToScreen.filterVisible(
+            positions = visibleOrigins,
+            size = count,
+            sizeX = 16.0,
+            sizeY = 16.0,
+            sizeZ = 16.0
+        )
+
+        // The visible origins keep the iteration order of the meshes
+        var next = 0
+        for (mesh in meshes.values) {
+            if (next == visible) {
+                break
+            }
+            if (visibleOrigins[next] != BlockPos.asLong(mesh.originX, mesh.originY, mesh.originZ)) {
+                continue
+            }
+            next++
+
+            // Translation relative to the camera, so the vertices can stay small
+            sectionMatrix.set(viewMatrix).translate(
+                (mesh.originX - cameraPos.x).toFloat(),
+                (mesh.originY - cameraPos.y).toFloat(),
+                (mesh.originZ - cameraPos.z).toFloat()
+            )
+
+            mesh.faces?.let {
+                it.bind()
+                it.draw(sectionMatrix, projectionMatrix, program)
+            }
+            mesh.outlines?.let {
+                it.bind()
+                it.draw(sectionMatrix, projectionMatrix, program)
+            }
+        }
+
+        VertexBuffer.unbind()
+        if (tint != null) {
+            RenderSystem.setShaderColor(1f, 1f, 1f, 1f)
+        }
+
+        return true
+    }
+
+    /**
+     * Releases all buffers. Sections are built again on the next [update].
+     */
+    fun clear() {
+        meshes.values.forEach(SectionMesh::close)
+        meshes.clear()
+        markAllDirty()
+    }
+
+    fun interface Emitter<in T> {
+        fun emit(pos: BlockPos, state: T, boxes: Boxes)
+    }
+
+    /**
+     * Collects the boxes of a section before they are uploaded.
+     */
+    class Boxes internal constructor(internal val sectionPos: Long) {
+        private val originX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionPos))
+        private val originY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionPos))
+        private val originZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionPos))
+
+        /**
+         * Min and max corners relative to the section origin, six per box.
+         */
+        private val corners = FloatArrayList()
+
+        /**
+         * Face and outline ARGB, two per box. 0 if not drawn.
+         */
+        private val colors = IntArrayList()
+
+        /**
+         * Adds [box] at [pos], which is in the section of this collection.
+         */
+        fun add(pos: BlockPos, box: Box, faceColor: Color4b?, outlineColor: Color4b?) {
+            val x = pos.x - originX
+            val y = pos.y - originY
+            val z = pos.z - originZ
+
+            corners.add((x + box.minX).toFloat())
+            corners.add((y + box.minY).toFloat())
+            corners.add((z + box.minZ).toFloat())
+            corners.add((x + box.maxX).toFloat())
+            corners.add((y + box.maxY).toFloat())
+            corners.add((z + box.maxZ).toFloat())
+
+            colors.add(faceColor?.takeUnless { it.isTransparent }?.toARGB() ?: 0)
+            colors.add(outlineColor?.takeUnless { it.isTransparent }?.toARGB() ?: 0)
+        }
+
+        internal fun upload(): SectionMesh? {
+            val faces = uploadVertices(DrawMode.QUADS, colorOffset = 0)
+            val outlines = uploadVertices(DrawMode.DEBUG_LINES, colorOffset = 1)
+
+            if (faces == null && outlines == null) {
+                return null
+            }
+
+            return SectionMesh(
+                originX = originX,
+                originY = originY,
+                originZ = originZ,
+                faces = faces,
+                outlines = outlines
+            )
+        }
+
+        private fun uploadVertices(drawMode: DrawMode, colorOffset: Int): VertexBuffer? {
+            val builder = ClientTessellator.begin(drawMode, VertexInputType.PosColor)
+
+            for (i in 0 until colors.size / 2) {
+                val argb = colors.getInt(i * 2 + colorOffset)
+                if (argb == 0) {
+                    continue
+                }
+
+                val c = i * 6
+                val corner = Box(
+                    corners.getFloat(c).toDouble(),
+                    corners.getFloat(c + 1).toDouble(),
+                    corners.getFloat(c + 2).toDouble(),
+                    corners.getFloat(c + 3).toDouble(),
+                    corners.getFloat(c + 4).toDouble(),
+                    corners.getFloat(c + 5).toDouble()
+                )
+
+                if (drawMode == DrawMode.QUADS) {
+                    corner.forEachFaceVertex { _, x, y, z ->
+                        builder.vertex(x.toFloat(), y.toFloat(), z.toFloat()).color(argb)
+                    }
+                } else {
+                    corner.forEachOutlineVertex { _, x, y, z ->
+                        builder.vertex(x.toFloat(), y.toFloat(), z.toFloat()).color(argb)
+                    }
+                }
+            }
+
+            val builtBuffer = builder.endNullable() ?: return null
+            val vertexBuffer = VertexBuffer(GlUsage.STATIC_WRITE)
+
+            vertexBuffer.bind()
+            vertexBuffer.upload(builtBuffer)
+            VertexBuffer.unbind()
+            ClientTessellator.allocator(drawMode, VertexInputType.PosColor).clear()
+
+            return vertexBuffer
+        }
+    }
+
+    internal class SectionMesh(
+        val originX: Int,
+        val originY: Int,
+        val originZ: Int,
+        val faces: VertexBuffer?,
+        val outlines: VertexBuffer?
+    ) : AutoCloseable {
+        override fun close() {
+            faces?.close()
+            outlines?.close()
+        }
+    }
+
+}
@@ -38,9 +38,12 @@ class FontGlyphPageManager(
     additionalFonts: Collection<FontManager.FontFace> = emptySet()
 ): EventListener {
 
-    private val staticPage: List<StaticGlyphPage> = StaticGlyphPage.createGlyphPages(baseFonts.flatMap { loadedFont ->
-        loadedFont.styles.filterNotNull().flatMap { font -> BASIC_CHARS.map { ch -> FontGlyph(ch, font) } }
-    })
+    private val staticPageResult = GlyphAtlasCache.loadOrCreate(baseFonts, BASIC_CHARS) {
+        StaticGlyphPage.createGlyphPages(baseFonts.flatMap { loadedFont ->
+            loadedFont.styles.filterNotNull().flatMap { font -> BASIC_CHARS.map { ch -> FontGlyph(ch, font) } }
+        })
+    }
+    private val staticPage: List<StaticGlyphPage> = staticPageResult.pages
     private val dynamicPage: DynamicGlyphPage = DynamicGlyphPage(
         Dimension(1024, 1024),
         ceil(baseFonts.first().styles[0]!!.height * 2.0F).toInt()
@@ -53,6 +56,18 @@ class FontGlyphPageManager(
         }
     )
 
+    /**
+     * If the static pages have been loaded from the [GlyphAtlasCache] instead of being rendered.
+     */
+    val isStaticPageCached: Boolean
+        get() = staticPageResult.cached
+
+    /**
+     * How long rendering the static pages took, also when they have been rendered on an earlier launch.
+     */
+    val staticPageRenderMillis: Long
+        get() = staticPageResult.renderMillis
+
     private val availableFonts: Map<FontManager.FontFace, FontGlyphRegistry>
     private val dynamicallyLoadedGlyphs = Long2ObjectOpenHashMap<GlyphDescriptor>()
 
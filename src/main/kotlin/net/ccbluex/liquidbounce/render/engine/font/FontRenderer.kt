@@ -19,46 +19,91 @@
 package net.ccbluex.liquidbounce.render.engine.font
 
 import com.mojang.blaze3d.systems.RenderSystem
+import it.unimi.dsi.fastutil.floats.FloatArrayList
+import it.unimi.dsi.fastutil.ints.IntArrayList
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap
 import net.ccbluex.fastutil.Pool
 import net.ccbluex.fastutil.fastIterator
+import net.ccbluex.liquidbounce.features.module.modules.misc.nameprotect.ModuleNameProtect
 import net.ccbluex.liquidbounce.features.module.modules.misc.nameprotect.sanitizeForeignInput
 import net.ccbluex.liquidbounce.render.*
 import net.ccbluex.liquidbounce.render.FontManager.DEFAULT_FONT_SIZE
+import net.ccbluex.liquidbounce.render.engine.font.TextLayout.Companion.LINE_STRIDE
+import net.ccbluex.liquidbounce.render.engine.font.TextLayout.Companion.QUAD_STRIDE
 import net.ccbluex.liquidbounce.render.engine.font.processor.MinecraftTextProcessor
 import net.ccbluex.liquidbounce.render.engine.font.processor.ProcessedText
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.ccbluex.liquidbounce.utils.client.asPlainText
-import net.ccbluex.liquidbounce.utils.collection.Pools
+import net.ccbluex.liquidbounce.utils.client.mc
+import net.ccbluex.liquidbounce.utils.kotlin.LruCache
 import net.minecraft.client.render.VertexFormat
+import net.minecraft.text.Style
 import net.minecraft.text.Text
-import org.joml.Vector3f
 import java.awt.Font
+import java.util.Optional
 import kotlin.math.max
 
-@JvmRecord
-private data class RenderedGlyph(
-    val style: Int,
-    val glyph: GlyphDescriptor,
-    val x1: Float,
-    val y1: Float,
-    val x2: Float,
-    val y2: Float,
-    val z: Float,
-    val color: Color4b
-)
-
-@JvmRecord
-private data class RenderedLine(val p1: Vector3f, val p2: Vector3f, val color: Color4b)
+private const val LAYOUT_CACHE_SIZE = 512
+
+/**
+ * The quads of one glyph page which are drawn on the next commit,
+ * x1, y1, x2, y2, z, u1, v1, u2, v2 per quad.
+ */
+private class PendingGlyphs {
+    val vertices = FloatArrayList(9 * 64)
+    val colors = IntArrayList(64)
+
+    fun clear() {
+        vertices.clear()
+        colors.clear()
+    }
+}
 
 private class FontRendererCache {
-    val renderedGlyphs = ArrayList<RenderedGlyph>(100)
-    val commitGlyphs = Reference2ReferenceOpenHashMap<GlyphPage, ArrayList<RenderedGlyph>>()
-    val renderedGlyphListPool = Pool(
-        ::ArrayList,
-        ArrayList<RenderedGlyph>::clear,
-    )
-    val lines = ArrayList<RenderedLine>()
+    val commitGlyphs = Reference2ReferenceOpenHashMap<GlyphPage, PendingGlyphs>()
+    val pendingGlyphsPool = Pool(::PendingGlyphs, PendingGlyphs::clear)
+
+    /**
+     * x1, x2, y, z per line
+     */
+    val lines = FloatArrayList()
+    val lineColors = IntArrayList()
+
+    /**
+     * Used for texts whose layout is not cached.
+     */
+    val layout = TextLayout()
+}
+
+/**
+ * Key of the layout cache. The instance used for lookups is mutated, entries are stored with a copy.
+ */
+private class LayoutKey(var text: Any, var defaultColor: Color4b) {
+    fun copy() = LayoutKey(text, defaultColor)
+
+    override fun equals(other: Any?): Boolean {
+        return other is LayoutKey && text == other.text && defaultColor == other.defaultColor
+    }
+
+    override fun hashCode(): Int {
+        var result = text.hashCode()
+        result = 31 * result + defaultColor.hashCode()
+        return result
+    }
+}
+
+private class CachedText(
+    val chars: ArrayList<ProcessedText.ProcessedChar>,
+    val underlines: ArrayList<IntRange>,
+    val strikeThroughs: ArrayList<IntRange>,
+    val layout: TextLayout
+) {
+    fun copyTo(text: MinecraftTextProcessor.RecyclingProcessedText) = text.also {
+        it.chars.addAll(chars)
+        it.underlines.addAll(underlines)
+        it.strikeThroughs.addAll(strikeThroughs)
+        it.layout = layout
+    }
 }
 
 class FontRenderer(
@@ -79,18 +124,23 @@ class FontRenderer(
 ) : AbstractFontRenderer<MinecraftTextProcessor.RecyclingProcessedText>() {
 
     private val cache = FontRendererCache()
-    private val positionCache = Vector3f()
     private val underlinesCache = ArrayDeque<IntRange>()
     private val strikethroughCache = ArrayDeque<IntRange>()
 
+    /**
+     * Processed texts and their layouts by the text they have been processed from. Only used on the render thread.
+     */
+    private val layoutCache = LruCache<LayoutKey, CachedText>(LAYOUT_CACHE_SIZE)
+    private val lookupKey = LayoutKey(Unit, Color4b.WHITE)
+
     override val height: Float = font.styles.firstNotNullOf { it?.height }
 
     val ascent: Float = font.styles.firstNotNullOf { it?.ascent }
 
-    private val shadowColor = Color4b(0, 0, 0, 150)
+    private val shadowColor = Color4b(0, 0, 0, 150).toARGB()
 
     override fun begin() {
-        if (this.cache.renderedGlyphs.isNotEmpty() || this.cache.lines.isNotEmpty()) {
+        if (this.cache.commitGlyphs.isNotEmpty() || this.cache.lineColors.isNotEmpty()) {
 //            this.commit()
 
             error("Can't begin a build a new batch when there are pending operations.")
@@ -98,13 +148,70 @@ class FontRenderer(
     }
 
     override fun process(text: String, defaultColor: Color4b): MinecraftTextProcessor.RecyclingProcessedText {
-        return process(text.asPlainText(), defaultColor)
+        return processCached(text, defaultColor) { text.asPlainText() }
     }
 
     override fun process(text: Text, defaultColor: Color4b): MinecraftTextProcessor.RecyclingProcessedText {
-        return MinecraftTextProcessor.process(text.sanitizeForeignInput(), defaultColor)
+        return processCached(text, defaultColor) { text }
+    }
+
+    /**
+     * Returns the processed text of [key] from the layout cache, or processes the text and lays it out.
+     *
+     * Texts with obfuscated or not yet loaded glyphs are not cached and are only laid out when they are drawn.
+     * Nothing is cached while [ModuleNameProtect] is running, as its replacements and their colors, which might
+     * be animated, can change at any time.
+     */
+    private inline fun processCached(
+        key: Any,
+        defaultColor: Color4b,
+        text: () -> Text
+    ): MinecraftTextProcessor.RecyclingProcessedText {
+        // Obfuscated texts are known before their deep hash is computed for the lookup
+        if (!mc.isOnThread || ModuleNameProtect.running || (key is Text && key.hasObfuscatedStyle())) {
+            return MinecraftTextProcessor.process(text().sanitizeForeignInput(), defaultColor)
+        }
+
+        lookupKey.text = key
+        lookupKey.defaultColor = defaultColor
+
+        layoutCache[lookupKey]?.let { cached ->
+            return cached.copyTo(MinecraftTextProcessor.TEXT_POOL.borrow())
+        }
+
+        val processed = MinecraftTextProcessor.process(text().sanitizeForeignInput(), defaultColor)
+        if (!isCacheable(processed)) {
+            return processed
+        }
+
+        val layout = cache.layout
+        layout(processed, layout)
+
+        val cached = CachedText(
+            chars = ArrayList(processed.chars),
+            underlines = ArrayList(processed.underlines),
+            strikeThroughs = ArrayList(processed.strikeThroughs),
+            layout = layout.trimmedCopy()
+        )
+        layoutCache[lookupKey.copy()] = cached
+        processed.layout = cached.layout
+
+        return processed
     }
 
+    /**
+     * Dynamic glyphs can be unloaded and obfuscated characters change every time,
+     * so only texts with loaded static glyphs are cached.
+     */
+    private fun isCacheable(text: ProcessedText) = text.chars.all { processedChar ->
+        !processedChar.obfuscated &&
+            glyphManager.requestGlyph(font, processedChar.font, processedChar.char)?.page is StaticGlyphPage
+    }
+
+    private fun Text.hasObfuscatedStyle() = visit({ style, _ ->
+        if (style.isObfuscated) Optional.of(Unit) else Optional.empty()
+    }, Style.EMPTY).isPresent
+
     override fun draw(
         text: MinecraftTextProcessor.RecyclingProcessedText,
         x0: Float,
@@ -113,18 +220,14 @@ class FontRenderer(
         z: Float,
         scale: Float
     ): Float {
+        val layout = text.layout ?: cache.layout.also { layout(text, it) }
         var len = 0.0f
 
         if (shadow) {
-            len = drawInternal(
-                text,
-                pos = positionCache.set(x0 + 2.0f * scale, y0 + 2.0f * scale, z),
-                scale,
-                overrideColor = shadowColor
-            )
+            len = emit(layout, x0 + 2.0f * scale, y0 + 2.0f * scale, z, scale, shadow = true)
         }
 
-        len = max(len, drawInternal(text, positionCache.set(x0, y0, z * 2.0F), scale))
+        len = max(len, emit(layout, x0, y0, z * 2.0F, scale, shadow = false))
 
         MinecraftTextProcessor.TEXT_POOL.recycle(text)
 
@@ -132,18 +235,13 @@ class FontRenderer(
     }
 
     /**
-     * Draws a string with minecraft font markup to this object.
-     *
-     * @return The resulting x value
+     * Lays out a string with minecraft font markup at the origin with a scale of 1.
      */
-    private fun drawInternal(
-        text: ProcessedText,
-        pos: Vector3f,
-        scale: Float,
-        overrideColor: Color4b? = null
-    ): Float {
+    private fun layout(text: ProcessedText, layout: TextLayout) {
+        layout.clear()
+
         if (text.chars.isEmpty()) {
-            return pos.x
+            return
         }
 
         // remove from last
@@ -156,18 +254,18 @@ class FontRenderer(
             addAll(text.strikeThroughs)
         }
 
-        var x = pos.x
-        var y = pos.y + this.ascent * scale
+        var x = 0.0f
+        var y = this.ascent
 
-        var strikeThroughStartX: Float? = null
-        var underlineStartX: Float? = null
+        var strikeThroughStartX = 0.0f
+        var underlineStartX = 0.0f
 
         val fallbackGlyph = this.glyphManager.getFallbackGlyph(this.font)
 
         text.chars.forEachIndexed { charIdx, processedChar ->
             val glyph = this.glyphManager.requestGlyph(this.font, processedChar.font, processedChar.char)
                 ?: fallbackGlyph
-            val color = overrideColor ?: processedChar.color
+            val color = processedChar.color.toARGB()
 
             if (underlineStack.firstOrNull()?.start == charIdx) {
                 underlineStartX = x
@@ -177,44 +275,82 @@ class FontRenderer(
             }
 
             // We don't need to render whitespaces.
-            val renderInfo = glyph.renderInfo
-            val atlasLocation = renderInfo.atlasLocation
-
-            // We don't need to render whitespaces.
-            if (atlasLocation != null) {
-                val renderedGlyph = RenderedGlyph(
-                    processedChar.font,
-                    glyph,
-                    x + renderInfo.glyphBounds.xMin * scale,
-                    y + renderInfo.glyphBounds.yMin * scale,
-                    x + (renderInfo.glyphBounds.xMin + atlasLocation.atlasWidth) * scale,
-                    y + (renderInfo.glyphBounds.yMin + atlasLocation.atlasHeight) * scale,
-                    pos.z,
-                    color
-                )
-
-                this.cache.renderedGlyphs.add(renderedGlyph)
-            }
+            layout.addGlyph(glyph, x, y, color)
 
             val layoutInfo =
-                if (!processedChar.obfuscated) renderInfo.layoutInfo else fallbackGlyph.renderInfo.layoutInfo
+                if (!processedChar.obfuscated) glyph.renderInfo.layoutInfo else fallbackGlyph.renderInfo.layoutInfo
 
-            x += layoutInfo.advanceX * scale
-            y += layoutInfo.advanceY * scale
+            x += layoutInfo.advanceX
+            y += layoutInfo.advanceY
 
             if (underlineStack.firstOrNull()?.endInclusive == charIdx) {
                 underlineStack.removeFirst()
 
-                drawLine(underlineStartX!!, x, y, pos.z, color, false)
+                layout.addLine(x1 = underlineStartX, x2 = x, y = y, unscaledOffset = 1.0f, argb = color)
             }
             if (strikethroughStack.firstOrNull()?.endInclusive == charIdx) {
                 strikethroughStack.removeFirst()
 
-                drawLine(strikeThroughStartX!!, x, y, pos.z, color, true)
+                layout.addLine(
+                    x1 = strikeThroughStartX,
+                    x2 = x,
+                    y = y,
+                    unscaledOffset = this.ascent - this.height,
+                    argb = color
+                )
             }
         }
 
-        return x
+        layout.width = x
+    }
+
+    /**
+     * Adds the quads and lines of [layout] at [x0], [y0] to the pending batch.
+     *
+     * @return The resulting x value
+     */
+    @Suppress("LongParameterList")
+    private fun emit(layout: TextLayout, x0: Float, y0: Float, z: Float, scale: Float, shadow: Boolean): Float {
+        val quads = layout.quads
+        var currentPage: GlyphPage? = null
+        var pending: PendingGlyphs? = null
+
+        for (i in 0 until layout.quadCount) {
+            val page = layout.quadPages[i]!!
+
+            // Consecutive glyphs are usually on the same page
+            if (page !== currentPage) {
+                currentPage = page
+                pending = cache.commitGlyphs.getOrPut(page) { cache.pendingGlyphsPool.borrow() }
+            }
+
+            val q = i * QUAD_STRIDE
+            val vertices = pending!!.vertices
+            vertices.add(x0 + quads[q] * scale)
+            vertices.add(y0 + quads[q + 1] * scale)
+            vertices.add(x0 + quads[q + 2] * scale)
+            vertices.add(y0 + quads[q + 3] * scale)
+            vertices.add(z)
+            vertices.add(quads[q + 4])
+            vertices.add(quads[q + 5])
+            vertices.add(quads[q + 6])
+            vertices.add(quads[q + 7])
+            pending.colors.add(if (shadow) shadowColor else layout.quadColors[i])
+        }
+
+        val lines = layout.lines
+        for (i in 0 until layout.lineCount) {
+            val l = i * LINE_STRIDE
+            val y = y0 + lines[l + 2] * scale + lines[l + 3]
+
+            cache.lines.add(x0 + lines[l] * scale)
+            cache.lines.add(x0 + lines[l + 1] * scale)
+            cache.lines.add(y)
+            cache.lines.add(z)
+            cache.lineColors.add(if (shadow) shadowColor else layout.lineColors[i])
+        }
+
+        return x0 + layout.width * scale
     }
 
     override fun getStringWidth(
@@ -225,6 +361,16 @@ class FontRenderer(
             return 0.0f
         }
 
+        val x = (text as? MinecraftTextProcessor.RecyclingProcessedText)?.layout?.width ?: uncachedStringWidth(text)
+
+        return if (shadow) {
+            x + 2.0f
+        } else {
+            x
+        }
+    }
+
+    private fun uncachedStringWidth(text: ProcessedText): Float {
         var x = 0.0f
 
         val fallbackGlyph = this.glyphManager.getFallbackGlyph(this.font)
@@ -239,94 +385,68 @@ class FontRenderer(
             x += layoutInfo.advanceX
         }
 
-        return if (shadow) {
-            x + 2.0f
-        } else {
-            x
-        }
-    }
-
-    @Suppress("LongParameterList")
-    private fun drawLine(
-        x0: Float,
-        x1: Float,
-        y: Float,
-        z: Float,
-        color: Color4b,
-        through: Boolean
-    ) {
-        if (through) {
-            this.cache.lines.add(
-                RenderedLine(
-                    Pools.Vec3f.borrow().set(x0, y - this.height + this.ascent, z),
-                    Pools.Vec3f.borrow().set(x1, y - this.height + this.ascent, z),
-                    color
-                )
-            )
-        } else {
-            this.cache.lines.add(
-                RenderedLine(
-                    Pools.Vec3f.borrow().set(x0, y + 1.0f, z),
-                    Pools.Vec3f.borrow().set(x1, y + 1.0f, z),
-                    color
-                )
-            )
-        }
-
+        return x
     }
 
     override fun commit(environment: RenderEnvironment) {
-        for (glyph in cache.renderedGlyphs) {
-            val glyphPage = glyph.glyph.page
-            cache.commitGlyphs.getOrPut(glyphPage) { cache.renderedGlyphListPool.borrow() }.add(glyph)
-        }
-        cache.renderedGlyphs.clear()
-
-        val vec3f1 = Pools.Vec3f.borrow()
-        val vec3f2 = Pools.Vec3f.borrow()
-        cache.commitGlyphs.fastIterator().forEach { (glyphPage, renderedGlyphs) ->
+        cache.commitGlyphs.fastIterator().forEach { (glyphPage, pending) ->
             RenderSystem.bindTexture(glyphPage.texture.glId)
             RenderSystem.setShaderTexture(0, glyphPage.texture.glId)
 
             environment.startBatch()
-            for (renderedGlyph in renderedGlyphs) {
-                val glyphDescriptor = renderedGlyph.glyph
-
-                val color = renderedGlyph.color
-                val atlasLocation = glyphDescriptor.renderInfo.atlasLocation!!
-
-                environment.drawTextureQuad(
-                    vec3f1.set(renderedGlyph.x1, renderedGlyph.y1, renderedGlyph.z),
-                    atlasLocation.uvCoordinatesOnTexture.min,
-                    vec3f2.set(renderedGlyph.x2, renderedGlyph.y2, renderedGlyph.z),
-                    atlasLocation.uvCoordinatesOnTexture.max,
-                    color.toARGB(),
-                )
+            environment.drawCustomMesh(
+                VertexFormat.DrawMode.QUADS,
+                VertexInputType.PosTexColor,
+            ) { matrix ->
+                val vertices = pending.vertices
+
+                for (i in 0 until pending.colors.size) {
+                    val v = i * 9
+                    val x1 = vertices.getFloat(v)
+                    val y1 = vertices.getFloat(v + 1)
+                    val x2 = vertices.getFloat(v + 2)
+                    val y2 = vertices.getFloat(v + 3)
+                    val z = vertices.getFloat(v + 4)
+                    val u1 = vertices.getFloat(v + 5)
+                    val v1 = vertices.getFloat(v + 6)
+                    val u2 = vertices.getFloat(v + 7)
+                    val v2 = vertices.getFloat(v + 8)
+                    val color = pending.colors.getInt(i)
+
+                    vertex(matrix, x1, y2, z).texture(u1, v2).color(color)
+                    vertex(matrix, x2, y2, z).texture(u2, v2).color(color)
+                    vertex(matrix, x2, y1, z).texture(u2, v1).color(color)
+                    vertex(matrix, x1, y1, z).texture(u1, v1).color(color)
+                }
             }
             environment.commitBatch()
-            cache.renderedGlyphListPool.recycle(renderedGlyphs)
+            cache.pendingGlyphsPool.recycle(pending)
         }
-        Pools.Vec3f.recycle(vec3f1)
-        Pools.Vec3f.recycle(vec3f2)
         cache.commitGlyphs.clear()
 
-        if (cache.lines.isNotEmpty()) {
+        if (cache.lineColors.isNotEmpty()) {
             environment.startBatch()
-            for (line in cache.lines) {
-                environment.drawCustomMesh(
-                    VertexFormat.DrawMode.DEBUG_LINES,
-                    VertexInputType.PosColor,
-                ) { matrix ->
-                    vertex(matrix, line.p1.x, line.p1.y, line.p1.z).color(line.color.toARGB())
-                    vertex(matrix, line.p2.x, line.p2.y, line.p2.z).color(line.color.toARGB())
+            environment.drawCustomMesh(
+                VertexFormat.DrawMode.DEBUG_LINES,
+                VertexInputType.PosColor,
+            ) { matrix ->
+                val lines = cache.lines
+
+                for (i in 0 until cache.lineColors.size) {
+                    val l = i * 4
+                    val y = lines.getFloat(l + 2)
+                    val z = lines.getFloat(l + 3)
+                    val color = cache.lineColors.getInt(i)
+
+                    vertex(matrix, lines.getFloat(l), y, z).color(color)
+                    vertex(matrix, lines.getFloat(l + 1), y, z).color(color)
                 }
-                Pools.Vec3f.recycle(line.p1)
-                Pools.Vec3f.recycle(line.p2)
             }
             environment.commitBatch()
         }
 
         cache.lines.clear()
+        cache.lineColors.clear()
     }
 
 }
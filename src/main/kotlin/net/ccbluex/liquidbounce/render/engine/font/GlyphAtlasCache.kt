@@ -0,0 +1,245 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.render.engine.font
+
+import net.ccbluex.liquidbounce.LiquidBounce
+import net.ccbluex.liquidbounce.config.ConfigSystem
+import net.ccbluex.liquidbounce.render.FontManager
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.minecraft.client.texture.NativeImage
+import org.apache.commons.codec.digest.DigestUtils
+import java.awt.Dimension
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+
+/**
+ * Keeps the packed [StaticGlyphPage]s and their glyph metrics on disk, so later launches with the same fonts
+ * load the atlases as PNG straight into [NativeImage]s, without rendering them with AWT.
+ *
+ * Entries are keyed by a hash of the fonts (the file contents, or the name for system and bundled fonts),
+ * their sizes, the glyph set and the client build, which ships the bundled fonts. Only the entry of the last key
+ * is kept.
+ */
+object GlyphAtlasCache {
+
+    private const val MAGIC = 0x4C42_4741 // LBGA
+    private const val FORMAT_VERSION = 1
+
+    private val folder = ConfigSystem.rootFolder.resolve("cache/glyph-atlas")
+
+    /**
+     * Returns the pages of [glyphs] in all styles of [fontFaces] from the cache,
+     * or creates them with [create] and stores them.
+     */
+    fun loadOrCreate(
+        fontFaces: Collection<FontManager.FontFace>,
+        glyphs: CharRange,
+        create: () -> List<StaticGlyphPage>
+    ): Result {
+        val fonts = fontFaces.flatMap { fontFace -> fontFace.styles.filterNotNull() }
+        val key = runCatching { key(fontFaces, glyphs) }.onFailure {
+            logger.warn("Failed to create the glyph atlas cache key", it)
+        }.getOrNull()
+        val file = key?.let { folder.resolve("$it.bin") }
+
+        if (file != null && file.isFile) {
+            try {
+                val (pages, renderMillis) = read(file, fonts)
+                pages.forEach(StaticGlyphPage::releaseImage)
+                return Result(pages, cached = true, renderMillis)
+            } catch (e: Exception) {
+                logger.warn("Invalid glyph atlas cache ${file.name}, rendering the atlas again", e)
+                file.delete()
+            }
+        }
+
+        val startTime = System.nanoTime()
+        val pages = create()
+        val renderMillis = (System.nanoTime() - startTime) / 1_000_000
+
+        if (file != null) {
+            try {
+                write(file, fonts, pages, renderMillis)
+            } catch (e: Exception) {
+                logger.warn("Failed to write the glyph atlas cache", e)
+            }
+        }
+        pages.forEach(StaticGlyphPage::releaseImage)
+
+        return Result(pages, cached = false, renderMillis)
+    }
+
+    private fun key(fontFaces: Collection<FontManager.FontFace>, glyphs: CharRange) = DigestUtils.sha256Hex(
+        buildString {
+            append(FORMAT_VERSION).append('|')
+            append(GlyphPage.maxTextureSize.value).append('|')
+            append(System.getProperty("java.version")).append('|')
+            // Bundled fonts are read from the jar and only known by name, they can change with every build
+            append(LiquidBounce.clientVersion).append(',').append(LiquidBounce.clientCommit).append('|')
+            append(glyphs.first.code).append('-').append(glyphs.last.code).append('|')
+
+            for (fontFace in fontFaces) {
+                // Bundled and system fonts have no file, their name and glyph count have to do
+                val fileHash = fontFace.file?.inputStream()?.use(DigestUtils::sha256Hex)
+                append(fileHash ?: fontFace.name).append('|')
+
+                for (font in fontFace.styles.filterNotNull()) {
+                    append(font.style).append(',')
+                    append(font.awtFont.fontName).append(',')
+                    append(font.awtFont.numGlyphs).append(',')
+                    append(font.awtFont.size2D).append('|')
+                }
+            }
+        }
+    )
+
+    private fun write(file: File, fonts: List<FontManager.FontId>, pages: List<StaticGlyphPage>, renderMillis: Long) {
+        folder.mkdirs()
+
+        val temp = File(folder, "${file.name}.tmp")
+        DataOutputStream(temp.outputStream().buffered()).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(FORMAT_VERSION)
+            out.writeLong(renderMillis)
+            out.writeInt(pages.size)
+
+            for (page in pages) {
+                val image = requireNotNull(page.texture.image) { "Glyph page without image" }
+
+                out.writeInt(page.glyphs.size)
+                for ((font, glyph) in page.glyphs) {
+                    out.writeInt(fonts.indexOf(font))
+                    writeGlyph(out, glyph)
+                }
+
+                val png = ByteArrayOutputStream()
+                check(image.write(Channels.newChannel(png))) { "Failed to encode glyph page" }
+                out.writeInt(png.size())
+                png.writeTo(out)
+            }
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+
+        // Entries of other fonts will not be used anymore
+        folder.listFiles { other -> other.extension == "bin" && other != file }?.forEach(File::delete)
+    }
+
+    private fun writeGlyph(out: DataOutputStream, glyph: GlyphRenderInfo) {
+        out.writeChar(glyph.char.code)
+
+        val location = glyph.atlasLocation
+        out.writeBoolean(location != null)
+        if (location != null) {
+            out.writeBox(location.pixelBoundingBox)
+        }
+
+        out.writeBox(glyph.glyphBounds)
+        out.writeBoolean(glyph.layoutInfo.useHorizontalBaseline)
+        out.writeFloat(glyph.layoutInfo.advanceX)
+        out.writeFloat(glyph.layoutInfo.advanceY)
+    }
+
+    private fun read(file: File, fonts: List<FontManager.FontId>): Pair<List<StaticGlyphPage>, Long> {
+        val buffer = FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+        }
+
+        check(buffer.getInt() == MAGIC) { "Not a glyph atlas cache" }
+        check(buffer.getInt() == FORMAT_VERSION) { "Unsupported version" }
+        val renderMillis = buffer.getLong()
+
+        val pages = ArrayList<StaticGlyphPage>()
+        try {
+            repeat(buffer.getInt()) {
+                pages += readPage(buffer, fonts)
+            }
+        } catch (e: Exception) {
+            pages.forEach { it.texture.close() }
+            throw e
+        }
+
+        return pages to renderMillis
+    }
+
+    private fun readPage(buffer: ByteBuffer, fonts: List<FontManager.FontId>): StaticGlyphPage {
+        val cachedGlyphs = List(buffer.getInt()) {
+            CachedGlyph(
+                font = fonts[buffer.getInt()],
+                char = buffer.getChar(),
+                pixelBoundingBox = if (buffer.get() != 0.toByte()) buffer.getBox() else null,
+                glyphBounds = buffer.getBox(),
+                layoutInfo = GlyphLayoutInfo(
+                    useHorizontalBaseline = buffer.get() != 0.toByte(),
+                    advanceX = buffer.getFloat(),
+                    advanceY = buffer.getFloat()
+                )
+            )
+        }
+
+        val pngLength = buffer.getInt()
+        // The mapped buffer is direct, so the image is decoded without copying it to the heap
+        val image = NativeImage.read(buffer.slice(buffer.position(), pngLength))
+        buffer.position(buffer.position() + pngLength)
+
+        val atlasDimensions = Dimension(image.width, image.height)
+        val glyphs = cachedGlyphs.mapTo(HashSet(cachedGlyphs.size)) { glyph ->
+            glyph.font to GlyphRenderInfo(
+                char = glyph.char,
+                atlasLocation = glyph.pixelBoundingBox?.let { GlyphAtlasLocation(it, atlasDimensions) },
+                glyphBounds = glyph.glyphBounds,
+                layoutInfo = glyph.layoutInfo
+            )
+        }
+
+        return StaticGlyphPage.fromImage(image, glyphs)
+    }
+
+    private fun DataOutputStream.writeBox(box: BoundingBox2f) {
+        writeFloat(box.xMin)
+        writeFloat(box.yMin)
+        writeFloat(box.xMax)
+        writeFloat(box.yMax)
+    }
+
+    private fun ByteBuffer.getBox() = BoundingBox2f(getFloat(), getFloat(), getFloat(), getFloat())
+
+    private class CachedGlyph(
+        val font: FontManager.FontId,
+        val char: Char,
+        val pixelBoundingBox: BoundingBox2f?,
+        val glyphBounds: BoundingBox2f,
+        val layoutInfo: GlyphLayoutInfo
+    )
+
+    /**
+     * @param cached if the pages have been loaded from the cache
+     * @param renderMillis how long rendering the pages took, when they have been rendered for the cache
+     */
+    class Result(val pages: List<StaticGlyphPage>, val cached: Boolean, val renderMillis: Long)
+
+}
@@ -113,7 +113,7 @@ abstract class GlyphPage {
          * *Only* request this field's value from a thread with an OpenGL context
          */
         @JvmStatic
-        protected val maxTextureSize = lazy(LazyThreadSafetyMode.SYNCHRONIZED) {
+        internal val maxTextureSize = lazy(LazyThreadSafetyMode.SYNCHRONIZED) {
             // As specified in the OpenGL reference, GL_MAX_TEXTURE_SIZE must be at least 1024.
             // If it is less than that, an error occurred, the 1024 is just a failsafe.
             max(GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE), 1024)
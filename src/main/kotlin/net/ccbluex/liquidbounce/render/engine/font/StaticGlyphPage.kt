@@ -24,6 +24,7 @@ import net.ccbluex.liquidbounce.render.FontManager
 import net.ccbluex.liquidbounce.render.engine.font.GlyphPage.Companion.CharacterGenerationInfo
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.render.toNativeImage
+import net.minecraft.client.texture.NativeImage
 import net.minecraft.client.texture.NativeImageBackedTexture
 import java.awt.Dimension
 import java.awt.Point
@@ -38,6 +39,14 @@ class StaticGlyphPage(
     override val texture: NativeImageBackedTexture,
     val glyphs: Set<Pair<FontManager.FontId, GlyphRenderInfo>>
 ): GlyphPage() {
+
+    /**
+     * Frees the copy of the atlas in memory, which is not needed anymore once it has been uploaded and cached.
+     */
+    internal fun releaseImage() {
+        texture.image?.close()
+    }
+
     companion object {
         @JvmStatic
         fun createGlyphPages(chars: List<FontGlyph>): List<StaticGlyphPage> {
@@ -106,11 +115,22 @@ class StaticGlyphPage(
                 .map { it.fontGlyph.font to createGlyphFromGenerationInfo(it, placementPlan.atlasDimension) }
                 .toSet()
 
-            val nativeImage = atlas.toNativeImage()
-            val texture = NativeImageBackedTexture(nativeImage)
+            return fromImage(atlas.toNativeImage(), glyphs)
+        }
+
+        /**
+         * Uploads an already rendered [image] of [glyphs], e.g. from the [GlyphAtlasCache].
+         */
+        @JvmStatic
+        internal fun fromImage(
+            image: NativeImage,
+            glyphs: Set<Pair<FontManager.FontId, GlyphRenderInfo>>
+        ): StaticGlyphPage {
+            val texture = NativeImageBackedTexture(image)
 
             texture.bindTexture()
-            texture.image!!.upload(0, 0, 0, 0, 0, nativeImage.width, nativeImage.height, true)
+            // Kept until [releaseImage], so the page can still be written to the cache
+            texture.image!!.upload(0, 0, 0, 0, 0, image.width, image.height, false)
 
             return StaticGlyphPage(
                 texture,
@@ -0,0 +1,132 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.render.engine.font
+
+/**
+ * The glyph quads and lines of a processed text, laid out at the origin with a scale of 1.
+ * Drawing it at a position and scale only has to move and scale the stored coordinates.
+ */
+internal class TextLayout(initialQuads: Int = 16) {
+
+    var quadCount = 0
+        private set
+
+    /**
+     * x1, y1, x2, y2, u1, v1, u2, v2 per quad
+     */
+    var quads = FloatArray(initialQuads * QUAD_STRIDE)
+        private set
+    var quadColors = IntArray(initialQuads)
+        private set
+    var quadPages = arrayOfNulls<GlyphPage>(initialQuads)
+        private set
+
+    var lineCount = 0
+        private set
+
+    /**
+     * x1, x2, y and an offset of y which is not scaled, per line
+     */
+    var lines = FloatArray(0)
+        private set
+    var lineColors = IntArray(0)
+        private set
+
+    /**
+     * The x coordinate after the last glyph.
+     */
+    var width = 0f
+
+    fun clear() {
+        quadCount = 0
+        lineCount = 0
+        width = 0f
+    }
+
+    /**
+     * Adds the quad of [glyph] with its origin at [x], [y].
+     */
+    fun addGlyph(glyph: GlyphDescriptor, x: Float, y: Float, argb: Int) {
+        val renderInfo = glyph.renderInfo
+        val atlasLocation = renderInfo.atlasLocation ?: return
+
+        if (quadCount == quadColors.size) {
+            val capacity = maxOf(16, quadCount * 2)
+            quads = quads.copyOf(capacity * QUAD_STRIDE)
+            quadColors = quadColors.copyOf(capacity)
+            quadPages = quadPages.copyOf(capacity)
+        }
+
+        val uv = atlasLocation.uvCoordinatesOnTexture
+        val i = quadCount * QUAD_STRIDE
+        quads[i] = x + renderInfo.glyphBounds.xMin
+        quads[i + 1] = y + renderInfo.glyphBounds.yMin
+        quads[i + 2] = x + renderInfo.glyphBounds.xMin + atlasLocation.atlasWidth
+        quads[i + 3] = y + renderInfo.glyphBounds.yMin + atlasLocation.atlasHeight
+        quads[i + 4] = uv.min.u
+        quads[i + 5] = uv.min.v
+        quads[i + 6] = uv.max.u
+        quads[i + 7] = uv.max.v
+
+        quadColors[quadCount] = argb
+        quadPages[quadCount] = glyph.page
+        quadCount++
+    }
+
+    /**
+     * Adds a horizontal line from [x1] to [x2] at [y] + [unscaledOffset].
+     */
+    fun addLine(x1: Float, x2: Float, y: Float, unscaledOffset: Float, argb: Int) {
+        if (lineCount == lineColors.size) {
+            val capacity = maxOf(2, lineCount * 2)
+            lines = lines.copyOf(capacity * LINE_STRIDE)
+            lineColors = lineColors.copyOf(capacity)
+        }
+
+        val i = lineCount * LINE_STRIDE
+        lines[i] = x1
+        lines[i + 1] = x2
+        lines[i + 2] = y
+        lines[i + 3] = unscaledOffset
+
+        lineColors[lineCount] = argb
+        lineCount++
+    }
+
+    /**
+     * Returns a copy which does not take more memory than needed.
+     */
+    fun trimmedCopy() = TextLayout(0).also { copy ->
+        copy.quadCount = quadCount
+        copy.quads = quads.copyOf(quadCount * QUAD_STRIDE)
+        copy.quadColors = quadColors.copyOf(quadCount)
+        copy.quadPages = quadPages.copyOf(quadCount)
+        copy.lineCount = lineCount
+        copy.lines = lines.copyOf(lineCount * LINE_STRIDE)
+        copy.lineColors = lineColors.copyOf(lineCount)
+        copy.width = width
+    }
+
+    companion object {
+        const val QUAD_STRIDE = 8
+        const val LINE_STRIDE = 4
+    }
+
+}
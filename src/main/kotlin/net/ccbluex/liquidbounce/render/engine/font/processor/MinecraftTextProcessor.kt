@@ -21,6 +21,7 @@
 package net.ccbluex.liquidbounce.render.engine.font.processor
 
 import net.ccbluex.fastutil.Pool
+import net.ccbluex.liquidbounce.render.engine.font.TextLayout
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.minecraft.text.Style
 import net.minecraft.text.Text
@@ -38,13 +39,19 @@ object MinecraftTextProcessor : TextProcessor<MinecraftTextProcessor.RecyclingPr
         it.chars.clear()
         it.underlines.clear()
         it.strikeThroughs.clear()
+        it.layout = null
     }
 
     class RecyclingProcessedText(
         override var chars: ArrayList<ProcessedText.ProcessedChar>,
         override var underlines: ArrayList<IntRange>,
         override var strikeThroughs: ArrayList<IntRange>,
-    ) : ProcessedText
+    ) : ProcessedText {
+        /**
+         * The cached layout of this text, if the font renderer has one.
+         */
+        internal var layout: TextLayout? = null
+    }
 
     override fun process(
         text: Text,
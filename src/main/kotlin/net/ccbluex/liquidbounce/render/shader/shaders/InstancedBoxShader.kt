@@ -0,0 +1,69 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.render.shader.shaders
+
+import com.mojang.blaze3d.systems.RenderSystem
+import net.ccbluex.liquidbounce.render.shader.ModelViewMatUniform
+import net.ccbluex.liquidbounce.render.shader.ProjMatUniform
+import net.ccbluex.liquidbounce.render.shader.Shader
+import net.ccbluex.liquidbounce.render.shader.UniformProvider
+import net.ccbluex.liquidbounce.utils.io.resourceToString
+import org.lwjgl.opengl.GL20
+
+/**
+ * Draws a unit cube once per box instance, moved by its offset and scaled by its size.
+ *
+ * @see net.ccbluex.liquidbounce.render.BoxInstanceBuffer
+ */
+object InstancedBoxShader : Shader(
+    resourceToString("/resources/liquidbounce/shaders/instanced_box.vert"),
+    resourceToString("/resources/liquidbounce/shaders/instanced_box.frag"),
+    arrayOf(
+        ProjMatUniform,
+        ModelViewMatUniform,
+        UniformProvider("ColorModulator") { pointer ->
+            GL20.glUniform4fv(pointer, RenderSystem.getShaderColor())
+        },
+        UniformProvider("Outline") { pointer ->
+            GL20.glUniform1i(pointer, if (InstancedBoxShader.outline) 1 else 0)
+        }
+    )
+) {
+
+    const val POSITION_ATTRIBUTE = 0
+    const val OFFSET_ATTRIBUTE = 1
+    const val SIZE_ATTRIBUTE = 2
+    const val FACE_COLOR_ATTRIBUTE = 3
+    const val OUTLINE_COLOR_ATTRIBUTE = 4
+
+    /**
+     * If the outline color is used instead of the face color by the next [use].
+     */
+    var outline = false
+
+    override fun bindAttributes(program: Int) {
+        GL20.glBindAttribLocation(program, POSITION_ATTRIBUTE, "Position")
+        GL20.glBindAttribLocation(program, OFFSET_ATTRIBUTE, "Offset")
+        GL20.glBindAttribLocation(program, SIZE_ATTRIBUTE, "Size")
+        GL20.glBindAttribLocation(program, FACE_COLOR_ATTRIBUTE, "FaceColor")
+        GL20.glBindAttribLocation(program, OUTLINE_COLOR_ATTRIBUTE, "OutlineColor")
+        super.bindAttributes(program)
+    }
+
+}
@@ -114,6 +114,18 @@ object ItemImageAtlas : EventListener {
         return atlas!!.aliasMap[name] ?: return name
     }
 
+    /**
+     * Calls [action] with the whole atlas, the area of each item on it and the aliases.
+     *
+     * @return null if the atlas is not available yet
+     */
+    fun <T> withAtlas(
+        action: (image: BufferedImage, items: Map<Item, Rect2i>, aliases: Map<Identifier, Identifier>) -> T
+    ): T? {
+        val atlas = this.atlas ?: return null
+        return action(atlas.image, atlas.map, atlas.aliasMap)
+    }
+
     fun getItemImage(item: Item): BufferedImage? {
         val atlas = requireNotNull(this.atlas) { "Atlas is not available yet" }
         val rect = atlas.map[item] ?: return null
@@ -35,7 +35,6 @@ import net.ccbluex.liquidbounce.utils.client.*
 import net.minecraft.text.HoverEvent
 import org.graalvm.polyglot.Context
 import org.graalvm.polyglot.HostAccess
-import org.graalvm.polyglot.Source
 import org.graalvm.polyglot.Value
 import org.graalvm.polyglot.io.IOAccess
 import java.io.File
@@ -43,6 +42,8 @@ import java.net.BindException
 import java.net.ServerSocket
 import java.util.function.Consumer
 import java.util.function.Function
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.nanoseconds
 
 class PolyglotScript(
     val language: String, val file: File,
@@ -58,6 +59,12 @@ class PolyglotScript(
         .allowCreateThread(true) // Enable thread creation
         .allowNativeAccess(false) // Disable native access
         .allowExperimentalOptions(true) // Allow experimental options
+        .apply {
+            // Debugging requires engine options, which a shared engine does not accept
+            if (!debugOptions.enabled) {
+                engine(ScriptManager.engine)
+            }
+        }
         .apply {
             if (language == "js") {
                 option("js.nashorn-compat", "true") // Enable Nashorn compatibility
@@ -132,6 +139,19 @@ class PolyglotScript(
     lateinit var scriptVersion: String
     lateinit var scriptAuthors: Array<String>
 
+    /**
+     * How long evaluating the script including its load event took
+     */
+    var loadTime: Duration? = null
+        private set
+
+    /**
+     * How long the first event handled by one of its modules took, which includes warming up the handler
+     */
+    @Volatile
+    var firstEventTime: Duration? = null
+        private set
+
     /**
      * Whether the script is enabled
      */
@@ -151,8 +171,10 @@ class PolyglotScript(
      */
     fun initScript() {
         try {
+            val start = System.nanoTime()
+
             // Evaluate script
-            context.eval(Source.newBuilder(language, file).build())
+            context.eval(ScriptManager.sourceOf(language, file))
 
             // Call load event
             callGlobalEvent("load")
@@ -162,7 +184,9 @@ class PolyglotScript(
                 error("Script '${file.name}' is missing required information!")
             }
 
-            logger.info("[ScriptAPI] Successfully loaded script '${file.name}'.")
+            val loadTime = (System.nanoTime() - start).nanoseconds
+            this.loadTime = loadTime
+            logger.info("[ScriptAPI] Successfully loaded script '${file.name}' in $loadTime.")
         } catch (e: Exception) {
             logger.error("[ScriptAPI] Failed to load script '${file.name}'.", e)
             context.close()
@@ -299,6 +323,25 @@ class PolyglotScript(
         context.close(true)
     }
 
+    /**
+     * Calls [handler] with [payload] and reports how long it took if it is the first event of the script.
+     */
+    internal fun callEventHandler(eventName: String, handler: Value, payload: Any?) {
+        if (firstEventTime != null) {
+            handler.executeVoid(payload)
+            return
+        }
+
+        val start = System.nanoTime()
+        try {
+            handler.executeVoid(payload)
+        } finally {
+            val firstEventTime = (System.nanoTime() - start).nanoseconds
+            this.firstEventTime = firstEventTime
+            logger.info("[ScriptAPI] First event '$eventName' of script '${file.name}' took $firstEventTime.")
+        }
+    }
+
     /**
      * Calls the handler of a registered event.
      * @param eventName Name of the event to be called.
@@ -26,9 +26,11 @@ import net.ccbluex.liquidbounce.script.bindings.api.ScriptAsyncUtil
 import net.ccbluex.liquidbounce.script.bindings.api.ScriptContextProvider
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.client.mc
+import org.apache.commons.codec.digest.DigestUtils
 import org.graalvm.polyglot.Engine
 import org.graalvm.polyglot.Source
 import java.io.File
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * The ScriptManager allows to extend the client by loading supported scripts at runtime.
@@ -55,11 +57,25 @@ object ScriptManager {
         }
     }
 
+    /**
+     * The engine shared by the contexts of all scripts, so the code it has parsed and compiled for a [Source]
+     * is reused by the other scripts and after reloading.
+     */
+    lateinit var engine: Engine
+        private set
+
+    /**
+     * The last [Source] built for each script file together with the hash of its content.
+     */
+    private val sources = ConcurrentHashMap<File, Pair<String, Source>>()
+
     fun initializeEngine() {
         ScriptAsyncUtil.TickScheduler
 
         // Initialize the script engine and log its version and supported languages.
-        val engine = Engine.create()
+        engine = Engine.newBuilder()
+            .allowExperimentalOptions(true)
+            .build()
         logger.info(
             "[ScriptAPI] Engine Version: ${engine.version}, " +
                 "Supported languages: [ ${engine.languages.keys.joinToString(", ")} ]"
@@ -146,6 +162,24 @@ object ScriptManager {
         return script
     }
 
+    /**
+     * Returns the source of a script file, which is the same instance as long as the content of the file
+     * does not change, so the engine does not parse it again.
+     */
+    internal fun sourceOf(language: String, file: File): Source {
+        val content = file.readText()
+        val hash = "$language:${DigestUtils.sha256Hex(content)}"
+
+        val cached = sources[file.absoluteFile]
+        if (cached != null && cached.first == hash) {
+            return cached.second
+        }
+
+        val source = Source.newBuilder(language, file).content(content).build()
+        sources[file.absoluteFile] = hash to source
+        return source
+    }
+
     /**
      * Unloads a specific script. This method disables the script and removes it from the list of loaded scripts.
      *
@@ -95,7 +95,7 @@ class ScriptModule(val script: PolyglotScript, moduleObject: Map<String, Any>) :
      */
     private fun callEvent(event: String, payload: Event? = null) {
         try {
-            events[event]?.executeVoid(payload)
+            events[event]?.let { handler -> script.callEventHandler(event, handler, payload) }
         } catch (throwable: Throwable) {
             if (inGame) {
                 chat(
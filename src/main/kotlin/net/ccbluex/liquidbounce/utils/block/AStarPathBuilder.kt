@@ -19,34 +19,115 @@
 
 package net.ccbluex.liquidbounce.utils.block
 
-import net.ccbluex.fastutil.Pool.Companion.use
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap
 import net.ccbluex.liquidbounce.utils.client.player
 import net.ccbluex.liquidbounce.utils.client.world
-import net.ccbluex.liquidbounce.utils.collection.Pools
+import net.ccbluex.liquidbounce.utils.collection.IndexedIntMinHeap
 import net.ccbluex.liquidbounce.utils.math.sq
+import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3i
-import java.util.Comparator
-import java.util.TreeSet
-
-private class Node(val position: Vec3i, var parent: Node? = null) {
-    var g = 0
-    var h = 0
-    var f = 0
-
-    override fun hashCode(): Int = position.hashCode()
-    override fun equals(other: Any?): Boolean = other is Node && other.position == this.position
-
-    fun buildPath(): List<Vec3i> {
-        val path = mutableListOf<Vec3i>()
-        var currentNode = this
-        while (currentNode.parent != null) {
-            path.add(currentNode.position)
-            currentNode = currentNode.parent!!
+import net.minecraft.world.CollisionView
+
+private const val PASSABILITY_UNKNOWN: Byte = 0
+private const val PASSABLE: Byte = 1
+private const val NOT_PASSABLE: Byte = 2
+
+/**
+ * The state of a single search, reused by all searches of a thread.
+ *
+ * Nodes are identified by their index in the arrays, positions are packed with [BlockPos.asLong].
+ */
+private class PathSearch {
+    val nodeIds = Long2IntOpenHashMap().apply { defaultReturnValue(-1) }
+    var positions = LongArray(INITIAL_CAPACITY)
+    var gScores = IntArray(INITIAL_CAPACITY)
+    var parents = IntArray(INITIAL_CAPACITY)
+    var closed = BooleanArray(INITIAL_CAPACITY)
+    var nodeCount = 0
+
+    var end: Vec3i = Vec3i.ZERO
+    var maxCost = 0
+    var view: CollisionView? = null
+    var listener: PathSearchListener? = null
+
+    /**
+     * The closed node closest to [end], reported as partial path.
+     */
+    var closestId = -1
+    var closestCost = Int.MAX_VALUE
+    var reportedId = -1
+
+    /**
+     * Node ids ordered by their f-score.
+     */
+    val openList = IndexedIntMinHeap(INITIAL_CAPACITY)
+
+    /**
+     * Packed position -> [PASSABLE] or [NOT_PASSABLE]
+     */
+    val passability = Long2ByteOpenHashMap().apply { defaultReturnValue(PASSABILITY_UNKNOWN) }
+
+    val currentPos = BlockPos.Mutable()
+    val adjacentPos = BlockPos.Mutable()
+    val checkedPos = BlockPos.Mutable()
+
+    fun addNode(position: Long, parent: Int, gScore: Int): Int {
+        val id = nodeCount++
+        if (id == positions.size) {
+            val newCapacity = id * 2
+            positions = positions.copyOf(newCapacity)
+            gScores = gScores.copyOf(newCapacity)
+            parents = parents.copyOf(newCapacity)
+            closed = closed.copyOf(newCapacity)
+        }
+
+        positions[id] = position
+        gScores[id] = gScore
+        parents[id] = parent
+        closed[id] = false
+        nodeIds.put(position, id)
+        return id
+    }
+
+    /**
+     * Returns the positions from the start (exclusive) to the node [id] (inclusive).
+     */
+    fun buildPath(id: Int): List<Vec3i> {
+        val path = ArrayList<Vec3i>()
+        var current = id
+        while (parents[current] != -1) {
+            path.add(BlockPos.fromLong(positions[current]))
+            current = parents[current]
         }
         path.reverse()
         return path
     }
+
+    fun reset() {
+        nodeIds.clear()
+        nodeCount = 0
+        openList.clear()
+        passability.clear()
+        view = null
+        listener = null
+        closestId = -1
+        closestCost = Int.MAX_VALUE
+        reportedId = -1
+    }
+
+    companion object {
+        const val INITIAL_CAPACITY = 256
+
+        /**
+         * Iterations between checking for cancellation and reporting partial paths.
+         */
+        const val LISTENER_INTERVAL = 64
+
+        @JvmField
+        val CURRENT: ThreadLocal<PathSearch> = ThreadLocal.withInitial(::PathSearch)
+    }
 }
 
 private val directions = buildList(22) {
@@ -56,7 +137,7 @@ private val directions = buildList(22) {
     (1..9).mapTo(this) { Vec3i(0, it, 0) } // up
     add(Vec3i(0, 0, -1)) // front
     add(Vec3i(0, 0, 1)) // back
-}
+}.toTypedArray()
 
 private val diagonalDirections = arrayOf(
     Vec3i(-1, 0, -1), // left front
@@ -65,8 +146,6 @@ private val diagonalDirections = arrayOf(
     Vec3i(1, 0, 1) // right back
 )
 
-private val NODE_COMPARATOR = Comparator.comparingInt<Node> { it.f }.thenComparing { it.position }
-
 interface AStarPathBuilder {
 
     val allowDiagonal: Boolean
@@ -75,27 +154,63 @@ interface AStarPathBuilder {
 
     val stopRange: Double get() = 2.0
 
-    val Vec3i.isPassable: Boolean
-        get() {
-            val box = Box(x.toDouble(), y.toDouble(), z.toDouble(), x + 1.0, y + 2.0, z + 1.0)
-
-            val collisions = world.getBlockCollisions(player, box)
+    fun Vec3i.isPassable(view: CollisionView): Boolean {
+        val box = Box(x.toDouble(), y.toDouble(), z.toDouble(), x + 1.0, y + 2.0, z + 1.0)
 
-            return collisions.none()
+        // Snapshots are searched off-thread, where the collision spliterator of the world must not be used
+        if (view is CollisionSnapshot) {
+            return !view.hasBlockCollision(box)
         }
 
+        val collisions = view.getBlockCollisions(player, box)
+
+        return collisions.none()
+    }
+
     infix fun Vec3i.costWith(that: Vec3i): Int =
         (this.x - that.x).sq() + (this.y - that.y).sq() + (this.z - that.z).sq()
 
-    fun findPath(start: Vec3i, end: Vec3i, maxCost: Int): List<Vec3i> {
+    /**
+     * Finds a path from [start] to any position within [stopRange] of [end].
+     *
+     * Open nodes are kept in an [IndexedIntMinHeap], so a cheaper way to a queued node only moves it up
+     * instead of queueing it again, and [isPassable] is evaluated at most once per position and search.
+     *
+     * @return the positions after [start], or an empty list if no path was found
+     */
+    fun findPath(start: Vec3i, end: Vec3i, maxCost: Int): List<Vec3i> =
+        findPath(start = start, end = end, maxCost = maxCost, view = world, listener = null)
+
+    /**
+     * Finds a path in [view], which allows searching off-thread in a [CollisionSnapshot].
+     *
+     * @param listener is informed about the progress on the searching thread and can cancel the search
+     */
+    fun findPath(
+        start: Vec3i,
+        end: Vec3i,
+        maxCost: Int,
+        view: CollisionView,
+        listener: PathSearchListener?
+    ): List<Vec3i> {
         if (end.isWithinDistance(start, stopRange)) return emptyList()
 
-        val startNode = Node(start)
-        val endNode = Node(end)
+        val search = PathSearch.CURRENT.get()
+        try {
+            search.end = end
+            search.maxCost = maxCost
+            search.view = view
+            search.listener = listener
+            return search.findPath(start)
+        } finally {
+            search.reset()
+        }
+    }
+
+    private fun PathSearch.findPath(start: Vec3i): List<Vec3i> {
 
-        // Node::f won't be modified after added
-        val openList = TreeSet(NODE_COMPARATOR).apply { add(startNode) }
-        val closedList = hashSetOf<Node>()
+        val startId = addNode(BlockPos.asLong(start.x, start.y, start.z), parent = -1, gScore = 0)
+        openList.insertOrUpdate(startId, start costWith end)
 
         var iterations = 0
         while (openList.isNotEmpty()) {
@@ -104,26 +219,35 @@ interface AStarPathBuilder {
                 break
             }
 
-            val currentNode = openList.removeFirst()
-            closedList.add(currentNode)
+            val current = openList.poll()
+            closed[current] = true
 
-            if (currentNode.position.isWithinDistance(endNode.position, stopRange)) {
-                return currentNode.buildPath()
+            val position = currentPos.set(positions[current])
+            if (position.isWithinDistance(end, stopRange)) {
+                return buildPath(current)
             }
 
-            for (node in getAdjacentNodes(currentNode)) {
-                if (node in closedList || !node.position.isPassable) continue
+            val cost = position costWith end
+            if (cost < closestCost) {
+                closestCost = cost
+                closestId = current
+            }
 
-                val tentativeG = currentNode.g + currentNode.position.costWith(node.position)
-                if (tentativeG < node.g || node !in openList) {
-                    if (tentativeG > maxCost) continue // Skip this node if the cost exceeds the maximum
+            if (iterations % PathSearch.LISTENER_INTERVAL == 0 && !notifyListener()) {
+                return emptyList()
+            }
 
-                    node.parent = currentNode
-                    node.g = tentativeG
-                    node.h = node.position costWith endNode.position
-                    node.f = node.g + node.h
+            for (direction in directions) {
+                visit(current, position.x + direction.x, position.y + direction.y, position.z + direction.z)
+            }
 
-                    openList.add(node)
+            if (allowDiagonal) {
+                for (direction in diagonalDirections) {
+                    if (isPassable(position.x + direction.x, position.y, position.z) &&
+                        isPassable(position.x, position.y, position.z + direction.z)
+                    ) {
+                        visit(current, position.x + direction.x, position.y, position.z + direction.z)
+                    }
                 }
             }
         }
@@ -131,35 +255,79 @@ interface AStarPathBuilder {
         return emptyList() // Return an empty list if no path was found
     }
 
-    private fun getAdjacentNodes(node: Node): List<Node> = buildList {
-        getAdjacentNodesDirect(node)
-        if (allowDiagonal) {
-            getAdjacentNodesDiagonal(node)
+    /**
+     * Opens the adjacent position of [current], or updates it if it is reached cheaper through [current].
+     */
+    private fun PathSearch.visit(current: Int, x: Int, y: Int, z: Int) {
+        val packedPos = BlockPos.asLong(x, y, z)
+        val id = nodeIds.get(packedPos)
+        if (id != -1 && closed[id] || !isPassable(x, y, z)) {
+            return
+        }
+
+        val adjacent = adjacentPos.set(x, y, z)
+        val tentativeG = gScores[current] + (currentPos costWith adjacent)
+        if (tentativeG > maxCost) {
+            return
+        }
+
+        val f = tentativeG + (adjacent costWith end)
+        if (id == -1) {
+            openList.insertOrUpdate(addNode(packedPos, current, tentativeG), f)
+        } else if (tentativeG < gScores[id]) {
+            parents[id] = current
+            gScores[id] = tentativeG
+            openList.insertOrUpdate(id, f)
         }
     }
 
-    private fun MutableList<Node>.getAdjacentNodesDirect(node: Node) {
-        Pools.MutableBlockPos.use { pos ->
-            for (direction in directions) {
-                val adjacentPosition = pos.set(node.position, direction)
-                if (adjacentPosition.isPassable) {
-                    add(Node(adjacentPosition.toImmutable(), node))
-                }
-            }
+    /**
+     * @return false if the search has been cancelled
+     */
+    private fun PathSearch.notifyListener(): Boolean {
+        val listener = listener ?: return true
+        if (listener.isCancelled) {
+            return false
+        }
+
+        if (closestId != reportedId) {
+            reportedId = closestId
+            listener.onPartialPath(buildPath(closestId))
         }
+
+        return true
     }
 
-    private fun MutableList<Node>.getAdjacentNodesDiagonal(node: Node) {
-        Pools.MutableBlockPos.use { pos ->
-            for (direction in diagonalDirections) {
-                val adjacentPosition = pos.set(node.position, direction)
-                if (adjacentPosition.isPassable &&
-                    node.position.add(direction.x, 0, 0).isPassable &&
-                    node.position.add(0, 0, direction.z).isPassable
-                ) {
-                    add(Node(adjacentPosition.toImmutable(), node))
-                }
+    private fun PathSearch.isPassable(x: Int, y: Int, z: Int): Boolean {
+        val packedPos = BlockPos.asLong(x, y, z)
+        return when (passability.get(packedPos)) {
+            PASSABLE -> true
+            NOT_PASSABLE -> false
+            else -> {
+                val passable = checkedPos.set(x, y, z).isPassable(view!!)
+                passability.put(packedPos, if (passable) PASSABLE else NOT_PASSABLE)
+                passable
             }
         }
     }
 }
+
+/**
+ * Observes a running [AStarPathBuilder.findPath] call, on the thread it is running on.
+ */
+interface PathSearchListener {
+
+    /**
+     * Checked regularly, the search gives up with an empty path once this is true.
+     */
+    val isCancelled: Boolean
+        get() = false
+
+    /**
+     * Receives the path to the position closest to the target found so far, whenever it changed.
+     */
+    fun onPartialPath(path: List<Vec3i>) {
+        // NOP
+    }
+
+}
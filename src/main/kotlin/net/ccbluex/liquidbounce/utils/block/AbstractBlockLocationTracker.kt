@@ -18,6 +18,7 @@
  */
 package net.ccbluex.liquidbounce.utils.block
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import it.unimi.dsi.fastutil.longs.LongSet
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap
@@ -25,6 +26,7 @@ import net.ccbluex.liquidbounce.utils.math.contains
 import net.minecraft.block.BlockState
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
+import net.minecraft.util.math.ChunkSectionPos
 import net.minecraft.world.chunk.WorldChunk
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.locks.ReentrantReadWriteLock
@@ -73,6 +75,15 @@ sealed class AbstractBlockLocationTracker<T> : ChunkScanner.BlockChangeSubscribe
      */
     abstract fun iterate(): Sequence<Map.Entry<BlockPos, T>>
 
+    /**
+     * Calls [action] with each tracked [BlockPos] in the chunk section [sectionPos] and its state [T].
+     *
+     * Note: The [BlockPos] is [BlockPos.Mutable]. Copy it if it will be maintained.
+     *
+     * @param sectionPos packed by [ChunkSectionPos.asLong]
+     */
+    abstract fun forEachInSection(sectionPos: Long, action: (BlockPos, T) -> Unit)
+
     /**
      * Returns if there iss nothing tracked.
      */
@@ -107,6 +118,11 @@ sealed class AbstractBlockLocationTracker<T> : ChunkScanner.BlockChangeSubscribe
     abstract class State2BlockPos<T> : AbstractBlockLocationTracker<T>() {
         private val stateAndPositions = Object2ObjectOpenHashMap<T, LongSet>()
 
+        /**
+         * The same positions by their chunk section, so a section is read without visiting all positions.
+         */
+        private val positionsBySection = Long2ObjectOpenHashMap<LongOpenHashSet>()
+
         private val lock = ReentrantReadWriteLock()
 
         final override fun allPositions() = sequence<BlockPos> {
@@ -141,27 +157,61 @@ sealed class AbstractBlockLocationTracker<T> : ChunkScanner.BlockChangeSubscribe
             }
         }
 
+        final override fun forEachInSection(sectionPos: Long, action: (BlockPos, T) -> Unit) {
+            val mutable = BlockPos.Mutable()
+            lock.read {
+                val positions = positionsBySection.get(sectionPos) ?: return
+                val iterator = positions.longIterator()
+                while (iterator.hasNext()) {
+                    val longValue = iterator.nextLong()
+                    // There are only a few states, so they are looked up instead of being stored twice
+                    for ((state, statePositions) in stateAndPositions) {
+                        if (longValue in statePositions) {
+                            action(mutable.set(longValue), state)
+                            break
+                        }
+                    }
+                }
+            }
+        }
+
         final override fun isEmpty() = lock.read {
             stateAndPositions.isEmpty() || stateAndPositions.values.all { it.isEmpty() }
         }
 
         final override fun track(pos: BlockPos, state: T) {
             lock.write {
-                stateAndPositions.computeIfAbsent(state) { LongOpenHashSet() }.add(pos.asLong())
+                val longValue = pos.asLong()
+                stateAndPositions.computeIfAbsent(state) { LongOpenHashSet() }.add(longValue)
+                positionsBySection.computeIfAbsent(ChunkSectionPos.toLong(pos)) { LongOpenHashSet() }.add(longValue)
             }
+            onUpdated(pos)
         }
 
         final override fun untrack(pos: BlockPos): Boolean {
-            lock.write {
+            val removed = lock.write {
                 val longValue = pos.asLong()
-                return stateAndPositions.values.any { it.remove(longValue) }
+                val sectionPos = ChunkSectionPos.toLong(pos)
+                positionsBySection.get(sectionPos)?.let { positions ->
+                    if (positions.remove(longValue) && positions.isEmpty()) {
+                        positionsBySection.remove(sectionPos)
+                    }
+                }
+                stateAndPositions.values.any { it.remove(longValue) }
+            }
+
+            if (removed) {
+                onUpdated(pos)
             }
+            return removed
         }
 
         final override fun clearAllChunks() {
             lock.write {
                 stateAndPositions.clear()
+                positionsBySection.clear()
             }
+            onCleared(null)
         }
 
         final override fun clearChunk(pos: ChunkPos) {
@@ -169,7 +219,25 @@ sealed class AbstractBlockLocationTracker<T> : ChunkScanner.BlockChangeSubscribe
                 stateAndPositions.values.forEach { set ->
                     set.removeIf(LongPredicate(pos::contains))
                 }
+                positionsBySection.keys.removeIf(LongPredicate { sectionPos ->
+                    ChunkSectionPos.unpackX(sectionPos) == pos.x && ChunkSectionPos.unpackZ(sectionPos) == pos.z
+                })
             }
+            onCleared(pos)
+        }
+
+        /**
+         * Called after [pos] has been tracked or untracked, outside the lock.
+         */
+        open fun onUpdated(pos: BlockPos) {
+            // NOP
+        }
+
+        /**
+         * Called after all positions in the chunk at [pos] have been untracked, or in all chunks if it is null.
+         */
+        open fun onCleared(pos: ChunkPos?) {
+            // NOP
         }
 
         private class FullMutableEntry<K, V>(override var key: K, override var value: V) : Map.Entry<K, V>
@@ -188,6 +256,17 @@ sealed class AbstractBlockLocationTracker<T> : ChunkScanner.BlockChangeSubscribe
 
         final override fun iterate() = positionAndState.entries.asSequence()
 
+        /**
+         * Visits all positions, this implementation has no index by section.
+         */
+        final override fun forEachInSection(sectionPos: Long, action: (BlockPos, T) -> Unit) {
+            for ((pos, state) in positionAndState) {
+                if (ChunkSectionPos.toLong(pos) == sectionPos) {
+                    action(pos, state)
+                }
+            }
+        }
+
         final override fun isEmpty() = positionAndState.isEmpty()
 
         final override fun track(pos: BlockPos, state: T) {
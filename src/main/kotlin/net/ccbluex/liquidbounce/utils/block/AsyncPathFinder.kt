@@ -0,0 +1,229 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.liquidbounce.utils.client.world
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Vec3i
+import net.minecraft.world.World
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.function.Consumer
+
+/**
+ * Runs the searches of an [AStarPathBuilder] on a dedicated thread, in a [CollisionSnapshot] of the world.
+ *
+ * Only one search runs per finder. Requesting a path from a start or to a target more than [retargetDistance]
+ * blocks away from the searched one cancels the running search, so callers can request the path to their
+ * moving target every tick and still get a path once the search is done. While the start is within that
+ * distance, known paths are continued from their node nearest to the new start.
+ * Results are kept while the start stays within that distance and the maximum cost stays the same.
+ *
+ * The snapshot is reused for new searches while it covers them and is at most [SNAPSHOT_LIFETIME_TICKS] old,
+ * so block changes in that time can be missed.
+ *
+ * Must be used from the game thread.
+ *
+ * @param margin blocks around the start and the target which are captured for the search
+ * @param retargetDistance how far the start and the target can move before the running search is restarted
+ */
+class AsyncPathFinder @JvmOverloads constructor(
+    private val builder: AStarPathBuilder,
+    private val margin: Int = DEFAULT_MARGIN,
+    private val retargetDistance: Int = DEFAULT_RETARGET_DISTANCE
+) {
+
+    private var current: Search? = null
+
+    /**
+     * Completed searches with [completedMaxCost], by packed target position.
+     * Their starts are within [retargetDistance] of [completedStart].
+     */
+    private val completed = Long2ObjectOpenHashMap<Search>()
+    private var completedStart = Long.MIN_VALUE
+    private var completedMaxCost = -1
+
+    private var snapshot: CollisionSnapshot? = null
+    private var snapshotWorld: World? = null
+    private var snapshotTime = 0L
+
+    /**
+     * Returns the path from [start] to [end], which is searched off-thread if it is not known yet.
+     *
+     * The returned future is never completed exceptionally, failed searches result in an empty path.
+     *
+     * @param onPartialPath receives the best path found so far on the searching thread
+     */
+    @JvmOverloads
+    fun request(
+        start: BlockPos,
+        end: BlockPos,
+        maxCost: Int,
+        onPartialPath: Consumer<List<Vec3i>>? = null
+    ): CompletableFuture<List<Vec3i>> {
+        val startKey = start.asLong()
+        val endKey = end.asLong()
+
+        if (maxCost != completedMaxCost || !isNear(completedStart, startKey)) {
+            completed.clear()
+            completedStart = startKey
+            completedMaxCost = maxCost
+        }
+
+        val search = current
+        if (search != null && search.maxCost == maxCost && isNear(search.start, startKey)) {
+            if (search.end == endKey || (!search.future.isDone && isNear(search.end, endKey))) {
+                return search.pathFrom(startKey)
+            }
+
+            if (search.future.isDone && isNear(completedStart, search.start)) {
+                completed.put(search.end, search)
+            }
+        }
+
+        completed.get(endKey)?.takeIf { isNear(it.start, startKey) }?.let {
+            return it.pathFrom(startKey)
+        }
+
+        // The start or the target has moved or another one is requested
+        search?.future?.cancel(false)
+
+        val newSearch = Search(startKey, endKey, maxCost, onPartialPath)
+        val snapshot = snapshotFor(start, end)
+        val from = start.toImmutable()
+        val to = end.toImmutable()
+
+        EXECUTOR.execute {
+            if (newSearch.future.isCancelled) {
+                return@execute
+            }
+
+            val path = try {
+                builder.findPath(start = from, end = to, maxCost = maxCost, view = snapshot, listener = newSearch)
+            } catch (e: Exception) {
+                logger.warn("Path search from $from to $to failed", e)
+                emptyList()
+            }
+
+            newSearch.future.complete(path)
+        }
+
+        current = newSearch
+        return newSearch.future
+    }
+
+    /**
+     * Reuses the last snapshot while it covers [start] and [end] with half of the [margin] and is recent enough.
+     */
+    private fun snapshotFor(start: BlockPos, end: BlockPos): CollisionSnapshot {
+        val world = world
+        val snapshot = snapshot
+        if (snapshot != null && snapshotWorld === world && world.time - snapshotTime <= SNAPSHOT_LIFETIME_TICKS &&
+            snapshot.covers(start, end, margin / 2)
+        ) {
+            return snapshot
+        }
+
+        return CollisionSnapshot.capture(world, start, end, margin).also {
+            this.snapshot = it
+            snapshotWorld = world
+            snapshotTime = world.time
+        }
+    }
+
+    /**
+     * The path of this search, continued from its node nearest to [start], which must be near the searched start.
+     */
+    private fun Search.pathFrom(start: Long): CompletableFuture<List<Vec3i>> {
+        if (start == this.start) {
+            return future
+        }
+
+        return future.thenApply { path ->
+            var nearest = -1
+            var nearestDistance = distanceSq(this.start, start)
+
+            for ((index, position) in path.withIndex()) {
+                val distance = distanceSq(BlockPos.asLong(position.x, position.y, position.z), start)
+                if (distance < nearestDistance) {
+                    nearest = index
+                    nearestDistance = distance
+                }
+            }
+
+            when {
+                nearest == -1 -> path
+                // The path does not contain its start, so neither does the continued one
+                nearestDistance == 0L -> path.subList(nearest + 1, path.size)
+                else -> path.subList(nearest, path.size)
+            }
+        }
+    }
+
+    private fun isNear(a: Long, b: Long) = distanceSq(a, b) <= retargetDistance.toLong() * retargetDistance
+
+    private fun distanceSq(a: Long, b: Long): Long {
+        val dx = BlockPos.unpackLongX(a).toLong() - BlockPos.unpackLongX(b)
+        val dy = BlockPos.unpackLongY(a).toLong() - BlockPos.unpackLongY(b)
+        val dz = BlockPos.unpackLongZ(a).toLong() - BlockPos.unpackLongZ(b)
+        return dx * dx + dy * dy + dz * dz
+    }
+
+    /**
+     * Cancels the running search and forgets all completed paths and the snapshot.
+     */
+    fun cancel() {
+        current?.future?.cancel(false)
+        current = null
+        completed.clear()
+        completedStart = Long.MIN_VALUE
+        completedMaxCost = -1
+        snapshot = null
+        snapshotWorld = null
+    }
+
+    private class Search(
+        val start: Long,
+        val end: Long,
+        val maxCost: Int,
+        val onPartialPathConsumer: Consumer<List<Vec3i>>?
+    ) : PathSearchListener {
+        val future = CompletableFuture<List<Vec3i>>()
+
+        override val isCancelled: Boolean
+            get() = future.isCancelled
+
+        override fun onPartialPath(path: List<Vec3i>) {
+            onPartialPathConsumer?.accept(path)
+        }
+    }
+
+    companion object {
+        const val DEFAULT_MARGIN = 16
+        const val DEFAULT_RETARGET_DISTANCE = 3
+        const val SNAPSHOT_LIFETIME_TICKS = 20L
+
+        private val EXECUTOR = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "lb-path-finder").apply { isDaemon = true }
+        }
+    }
+
+}
@@ -50,6 +50,7 @@ import net.minecraft.util.shape.VoxelShapes
 import net.minecraft.world.BlockView
 import net.minecraft.world.RaycastContext
 import java.util.function.Consumer
+import java.util.function.Predicate
 import kotlin.math.ceil
 import kotlin.math.floor
 
@@ -181,37 +182,41 @@ fun Vec3d.searchBlocksInCuboid(radius: Float): BlockBox =
 
 /**
  * Scan blocks around the position in a cuboid with filtering.
+ *
+ * The sections of the cuboid are only queried while the sequence is iterated, which has to happen
+ * within the tick. The blocks are not sorted by position or distance, see [BlockRegionView.query] for their order.
+ *
+ * @param stateFilter only depends on the state, which allows skipping sections without a matching state,
+ * so it should be used for the checks of [filter] which do not need the position
+ * @param filter receives a mutable position, and is called with air as well unless [stateFilter] rejects it
  */
-inline fun Vec3d.searchBlocksInCuboid(
+fun Vec3d.searchBlocksInCuboid(
     radius: Float,
-    crossinline filter: (BlockPos, BlockState) -> Boolean
-): Sequence<Pair<BlockPos, BlockState>> =
-    searchBlocksInCuboid(radius).iterator().asSequence().mapNotNull {
-        val state = it.getState() ?: return@mapNotNull null
+    stateFilter: Predicate<BlockState>? = null,
+    filter: ((BlockPos, BlockState) -> Boolean)? = null
+): Sequence<Pair<BlockPos, BlockState>> {
+    val world = mc.world ?: return emptySequence()
 
-        if (filter(it, state)) {
-            it.toImmutable() to state
-        } else {
-            null
-        }
-    }
+    return BlockRegionView.of(world, searchBlocksInCuboid(radius))
+        .querySequence(includeAir = true, stateFilter = stateFilter, filter = filter)
+}
 
 /**
  * Search blocks around the position in a specific [radius]
+ *
+ * @see searchBlocksInCuboid
  */
-inline fun Vec3d.searchBlocksInRadius(
+fun Vec3d.searchBlocksInRadius(
     radius: Float,
-    crossinline filter: (BlockPos, BlockState) -> Boolean,
-): Sequence<Pair<BlockPos, BlockState>> =
-    searchBlocksInCuboid(radius).iterator().asSequence().mapNotNull {
-        val state = it.getState() ?: return@mapNotNull null
+    stateFilter: Predicate<BlockState>? = null,
+    filter: ((BlockPos, BlockState) -> Boolean)? = null
+): Sequence<Pair<BlockPos, BlockState>> {
+    val radiusSquared = radius.sq()
 
-        if (it.getSquaredDistance(this@searchBlocksInRadius) <= radius.sq() && filter(it, state)) {
-            it.toImmutable() to state
-        } else {
-            null
-        }
+    return searchBlocksInCuboid(radius, stateFilter) { pos, state ->
+        pos.getSquaredDistance(this) <= radiusSquared && filter?.invoke(pos, state) != false
     }
+}
 
 /**
  * Scan blocks around the position in a cuboid.
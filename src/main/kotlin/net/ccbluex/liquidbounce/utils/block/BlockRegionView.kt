@@ -0,0 +1,315 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import it.unimi.dsi.fastutil.ints.IntArrayList
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import net.minecraft.block.Block
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.world.World
+import net.minecraft.world.chunk.ChunkSection
+import java.util.function.Predicate
+
+/**
+ * The chunk sections of a region of the world, resolved once, so looking up many blocks of the region
+ * does not resolve the chunk and section of every position again.
+ *
+ * The sections are not copied, so a view should only be used on the thread owning the world and within
+ * the tick it was created in. Use [CollisionSnapshot] to read blocks from other threads.
+ */
+class BlockRegionView private constructor(
+    val box: BlockBox,
+    private val grid: SectionGrid,
+    /**
+     * Indexed by [SectionGrid.indexOf], null for sections of unloaded chunks.
+     */
+    private val sections: Array<ChunkSection?>
+) {
+
+    private fun sectionAt(chunkX: Int, sectionY: Int, chunkZ: Int): ChunkSection? {
+        val index = grid.indexOf(chunkX, sectionY, chunkZ)
+        return if (index == -1) null else sections[index]
+    }
+
+    /**
+     * Positions outside the region, the world or loaded chunks are reported as [Blocks.VOID_AIR],
+     * like [World.getBlockState] does.
+     */
+    fun getBlockState(x: Int, y: Int, z: Int): BlockState {
+        val section = sectionAt(
+            ChunkSectionPos.getSectionCoord(x),
+            ChunkSectionPos.getSectionCoord(y),
+            ChunkSectionPos.getSectionCoord(z)
+        ) ?: return Blocks.VOID_AIR.defaultState
+
+        return section.getBlockState(x and 15, y and 15, z and 15)
+    }
+
+    fun getBlockState(pos: BlockPos) = getBlockState(pos.x, pos.y, pos.z)
+
+    /**
+     * Collects the blocks of [box] accepted by [stateFilter] and [filter].
+     *
+     * Sections are visited by y, then z, then x, and the blocks of each section in the order the palette
+     * stores them, which is by y, then z, then x as well. So the result is neither sorted by position across
+     * sections nor by distance, and has to be sorted by callers which depend on an order.
+     *
+     * @param box has to be within the region of the view
+     * @param includeAir whether air is passed to the filters, otherwise sections without blocks are skipped
+     * @param stateFilter only depends on the state, so sections whose palette has no matching state are skipped
+     * @param filter receives a mutable position, which has to be copied to be kept
+     */
+    fun query(
+        box: BlockBox = this.box,
+        includeAir: Boolean = false,
+        stateFilter: Predicate<BlockState>? = null,
+        filter: ((BlockPos, BlockState) -> Boolean)? = null
+    ): BlockQueryResult {
+        val query = Query(box, includeAir, stateFilter, filter)
+
+        for (sectionY in ChunkSectionPos.getSectionCoord(box.minY)..ChunkSectionPos.getSectionCoord(box.maxY)) {
+            for (chunkZ in ChunkSectionPos.getSectionCoord(box.minZ)..ChunkSectionPos.getSectionCoord(box.maxZ)) {
+                for (chunkX in ChunkSectionPos.getSectionCoord(box.minX)..ChunkSectionPos.getSectionCoord(box.maxX)) {
+                    querySection(query, chunkX, sectionY, chunkZ)
+                }
+            }
+        }
+
+        return query.takeResult()
+    }
+
+    /**
+     * Like [query], but only queries the next section once the blocks of the previous one are iterated,
+     * so searches stopping at the first match skip the remaining sections. The blocks are in the same order.
+     *
+     * The sequence has to be iterated within the tick, like the view itself.
+     */
+    fun querySequence(
+        box: BlockBox = this.box,
+        includeAir: Boolean = false,
+        stateFilter: Predicate<BlockState>? = null,
+        filter: ((BlockPos, BlockState) -> Boolean)? = null
+    ): Sequence<Pair<BlockPos, BlockState>> {
+        val query = Query(box, includeAir, stateFilter, filter)
+
+        return sectionsOf(box).flatMap { sectionPos ->
+            querySection(
+                query,
+                ChunkSectionPos.unpackX(sectionPos),
+                ChunkSectionPos.unpackY(sectionPos),
+                ChunkSectionPos.unpackZ(sectionPos)
+            )
+            query.takeResult().toPairs().asSequence()
+        }
+    }
+
+    private fun sectionsOf(box: BlockBox) = sequence {
+        for (sectionY in ChunkSectionPos.getSectionCoord(box.minY)..ChunkSectionPos.getSectionCoord(box.maxY)) {
+            for (chunkZ in ChunkSectionPos.getSectionCoord(box.minZ)..ChunkSectionPos.getSectionCoord(box.maxZ)) {
+                for (chunkX in ChunkSectionPos.getSectionCoord(box.minX)..ChunkSectionPos.getSectionCoord(box.maxX)) {
+                    yield(ChunkSectionPos.asLong(chunkX, sectionY, chunkZ))
+                }
+            }
+        }
+    }
+
+    private class Query(
+        val box: BlockBox,
+        val includeAir: Boolean,
+        val stateFilter: Predicate<BlockState>?,
+        val filter: ((BlockPos, BlockState) -> Boolean)?
+    ) {
+        val positions = LongArrayList()
+        val stateIds = IntArrayList()
+        val mutable = BlockPos.Mutable()
+
+        fun accepts(state: BlockState) = (includeAir || !state.isAir) && stateFilter?.test(state) != false
+
+        /**
+         * The blocks found since the last call.
+         */
+        fun takeResult() = BlockQueryResult(positions.toLongArray(), stateIds.toIntArray()).also {
+            positions.clear()
+            stateIds.clear()
+        }
+    }
+
+    @Suppress("detekt:CognitiveComplexMethod")
+    private fun querySection(query: Query, chunkX: Int, sectionY: Int, chunkZ: Int) {
+        val section = sectionAt(chunkX, sectionY, chunkZ)
+
+        // Sections of unloaded chunks or outside the world only contain void air
+        val uniformState = when {
+            section == null -> Blocks.VOID_AIR.defaultState
+            section.isEmpty && !query.includeAir -> return
+            else -> null
+        }
+
+        if ((uniformState != null && !query.accepts(uniformState)) ||
+            (section != null && query.stateFilter != null && !section.hasAny(query.stateFilter))) {
+            return
+        }
+
+        val box = query.box
+        val minX = maxOf(box.minX, ChunkSectionPos.getBlockCoord(chunkX))
+        val minY = maxOf(box.minY, ChunkSectionPos.getBlockCoord(sectionY))
+        val minZ = maxOf(box.minZ, ChunkSectionPos.getBlockCoord(chunkZ))
+        val maxX = minOf(box.maxX, ChunkSectionPos.getBlockCoord(chunkX) + 15)
+        val maxY = minOf(box.maxY, ChunkSectionPos.getBlockCoord(sectionY) + 15)
+        val maxZ = minOf(box.maxZ, ChunkSectionPos.getBlockCoord(chunkZ) + 15)
+
+        // Same order as the indices of the paletted container, y, then z, then x
+        for (y in minY..maxY) {
+            for (z in minZ..maxZ) {
+                for (x in minX..maxX) {
+                    val state = uniformState ?: section!!.getBlockState(x and 15, y and 15, z and 15)
+
+                    if (query.accepts(state) && query.filter?.invoke(query.mutable.set(x, y, z), state) != false) {
+                        query.positions.add(BlockPos.asLong(x, y, z))
+                        query.stateIds.add(Block.getRawIdFromState(state))
+                    }
+                }
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * Resolves the sections containing [box]. Must be called on the thread owning [world].
+         */
+        @JvmStatic
+        fun of(world: World, box: BlockBox): BlockRegionView {
+            val grid = SectionGrid.covering(box, world.bottomY, world.topYInclusive)
+            val sections = arrayOfNulls<ChunkSection>(grid.size)
+
+            for (chunkZ in grid.minChunkZ until grid.minChunkZ + grid.chunksZ) {
+                for (chunkX in grid.minChunkX until grid.minChunkX + grid.chunksX) {
+                    val chunk = world.getChunk(chunkX, chunkZ)
+                    if (chunk.isEmpty) {
+                        continue
+                    }
+
+                    for (sectionY in grid.minSectionY until grid.minSectionY + grid.sectionsY) {
+                        sections[grid.indexOf(chunkX, sectionY, chunkZ)] =
+                            chunk.getSection(world.sectionCoordToIndex(sectionY))
+                    }
+                }
+            }
+
+            return BlockRegionView(box, grid, sections)
+        }
+
+    }
+
+}
+
+/**
+ * The chunk sections of a cuboid of sections, numbered by y, then z, then x, like the blocks of a section.
+ */
+internal class SectionGrid(
+    val minChunkX: Int,
+    val minSectionY: Int,
+    val minChunkZ: Int,
+    val chunksX: Int,
+    val sectionsY: Int,
+    val chunksZ: Int
+) {
+
+    val size: Int
+        get() = chunksX * sectionsY * chunksZ
+
+    /**
+     * @return the index of the section, or -1 if it is not part of the grid
+     */
+    fun indexOf(chunkX: Int, sectionY: Int, chunkZ: Int): Int {
+        val x = chunkX - minChunkX
+        val y = sectionY - minSectionY
+        val z = chunkZ - minChunkZ
+
+        if (x !in 0 until chunksX || y !in 0 until sectionsY || z !in 0 until chunksZ) {
+            return -1
+        }
+
+        return (y * chunksZ + z) * chunksX + x
+    }
+
+    companion object {
+
+        /**
+         * The sections containing [box], without those below [bottomY] or above [topYInclusive] of the world.
+         */
+        fun covering(box: BlockBox, bottomY: Int, topYInclusive: Int): SectionGrid {
+            val minChunkX = ChunkSectionPos.getSectionCoord(box.minX)
+            val minChunkZ = ChunkSectionPos.getSectionCoord(box.minZ)
+            val minSectionY = ChunkSectionPos.getSectionCoord(box.minY.coerceAtLeast(bottomY))
+            val maxSectionY = ChunkSectionPos.getSectionCoord(box.maxY.coerceAtMost(topYInclusive))
+
+            return SectionGrid(
+                minChunkX = minChunkX,
+                minSectionY = minSectionY,
+                minChunkZ = minChunkZ,
+                chunksX = ChunkSectionPos.getSectionCoord(box.maxX) - minChunkX + 1,
+                sectionsY = (maxSectionY - minSectionY + 1).coerceAtLeast(0),
+                chunksZ = ChunkSectionPos.getSectionCoord(box.maxZ) - minChunkZ + 1
+            )
+        }
+
+    }
+
+}
+
+/**
+ * The blocks found by [BlockRegionView.query], as positions packed by [BlockPos.asLong]
+ * and states as ids of [Block.getRawIdFromState], instead of a pair of objects per block.
+ */
+class BlockQueryResult(
+    val positions: LongArray,
+    val stateIds: IntArray
+) {
+
+    init {
+        require(positions.size == stateIds.size) { "Every position needs a state" }
+    }
+
+    val size: Int
+        get() = positions.size
+
+    fun isEmpty() = positions.isEmpty()
+
+    fun getState(index: Int): BlockState = Block.getStateFromRawId(stateIds[index])
+
+    /**
+     * Calls [action] with each block, the position is mutable and has to be copied to be kept.
+     */
+    inline fun forEach(action: (pos: BlockPos, state: BlockState) -> Unit) {
+        val mutable = BlockPos.Mutable()
+        for (i in positions.indices) {
+            action(mutable.set(positions[i]), getState(i))
+        }
+    }
+
+    fun toPairs(): List<Pair<BlockPos, BlockState>> =
+        List(size) { i -> BlockPos.fromLong(positions[i]) to getState(i) }
+
+}
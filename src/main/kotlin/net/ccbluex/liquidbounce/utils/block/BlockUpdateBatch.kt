@@ -0,0 +1,88 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+import net.minecraft.block.BlockState
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.util.math.ChunkSectionPos
+import java.util.function.BiConsumer
+
+/**
+ * Coalesced block updates of a single chunk, delivered at once by [ChunkScanner].
+ *
+ * Every position is contained only once, with the latest state received for it.
+ */
+class BlockUpdateBatch internal constructor(
+    val chunkPos: ChunkPos,
+    private val positions: LongArray,
+    private val states: Array<BlockState>
+) {
+
+    val size: Int
+        get() = positions.size
+
+    fun getPos(index: Int, mutable: BlockPos.Mutable = BlockPos.Mutable()): BlockPos =
+        mutable.set(positions[index])
+
+    fun getState(index: Int): BlockState = states[index]
+
+    /**
+     * Passes every update to [action].
+     *
+     * Note: The [BlockPos] is a [BlockPos.Mutable]. Copy it if it will be maintained.
+     */
+    fun forEach(action: BiConsumer<BlockPos, BlockState>) {
+        val mutable = BlockPos.Mutable()
+        for (i in positions.indices) {
+            action.accept(mutable.set(positions[i]), states[i])
+        }
+    }
+
+    /**
+     * Returns the smallest [BlockBox] containing the updated positions of each chunk section,
+     * so two updates far apart in the chunk don't cover all blocks between them.
+     */
+    fun toSectionBoxes(): Collection<BlockBox> {
+        // minX, minY, minZ, maxX, maxY, maxZ per section
+        val bounds = Int2ObjectOpenHashMap<IntArray>()
+
+        for (longValue in positions) {
+            val x = BlockPos.unpackLongX(longValue)
+            val y = BlockPos.unpackLongY(longValue)
+            val z = BlockPos.unpackLongZ(longValue)
+
+            val section = bounds.computeIfAbsent(ChunkSectionPos.getSectionCoord(y)) {
+                intArrayOf(x, y, z, x, y, z)
+            }
+
+            section[0] = minOf(section[0], x)
+            section[1] = minOf(section[1], y)
+            section[2] = minOf(section[2], z)
+            section[3] = maxOf(section[3], x)
+            section[4] = maxOf(section[4], y)
+            section[5] = maxOf(section[5], z)
+        }
+
+        return bounds.values.map { BlockBox(it[0], it[1], it[2], it[3], it[4], it[5]) }
+    }
+
+}
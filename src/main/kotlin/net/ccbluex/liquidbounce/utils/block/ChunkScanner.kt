@@ -26,6 +26,8 @@ import net.ccbluex.liquidbounce.event.EventListener
 import net.ccbluex.liquidbounce.event.events.*
 import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.features.module.MinecraftShortcuts
+import net.ccbluex.liquidbounce.features.module.modules.render.ModuleDebug
+import net.ccbluex.liquidbounce.features.module.modules.render.ModuleDebug.debugParameter
 import net.ccbluex.liquidbounce.utils.client.logger
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.FIRST_PRIORITY
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.READ_FINAL_STATE
@@ -44,6 +46,14 @@ import kotlin.time.measureTime
 
 object ChunkScanner : EventListener, MinecraftShortcuts {
 
+    private const val SECTION_VOLUME = 16 * 16 * 16
+
+    /**
+     * Palettes with more entries than this are the global palette, whose entries are not worth
+     * pre-filtering because nearly all of them are unused.
+     */
+    private const val MAX_INDEXED_PALETTE_SIZE = 256
+
     private val loadedChunks = LongOpenHashSet()
 
     private val threadLocalBlockPos = ThreadLocal.withInitial(BlockPos::Mutable)
@@ -85,7 +95,7 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
 
         if (subscribers.isEmpty()) return@handler
 
-        UpdateRequest.ChunkLoad(chunk).runAsync()
+        updateQueue.enqueueChunkLoad(chunk.pos.toLong())
     }
 
     @Suppress("unused")
@@ -94,15 +104,15 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
 
         when (val packet = event.packet) {
             is BlockUpdateS2CPacket ->
-                UpdateRequest.BlockUpdate(packet.pos, packet.state).runAsync()
+                updateQueue.enqueueBlockUpdate(packet.pos, packet.state)
 
             // All updates are in one section
             is ChunkDeltaUpdateS2CPacket ->
-                UpdateRequest.ChunkSectionUpdate(packet).runAsync()
+                updateQueue.enqueueBlockUpdates(packet.sectionPos.toChunkPos().toLong(), packet::visitUpdates)
 
             is UnloadChunkS2CPacket -> mc.execute {
                 loadedChunks.remove(packet.pos.toLong())
-                UpdateRequest.ChunkUnload(packet.pos).runAsync()
+                updateQueue.enqueueChunkUnload(packet.pos.toLong())
             }
         }
     }
@@ -118,8 +128,9 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
      * When the first request comes in, the dispatcher and the scope will be initialized,
      * and its parallelism cannot be modified
      */
-    private val dispatcher = Dispatchers.Default
-        .limitedParallelism((Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(2))
+    private val parallelism = (Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(2)
+
+    private val dispatcher = Dispatchers.Default.limitedParallelism(parallelism)
 
     /**
      * The parent job for the current client world.
@@ -133,11 +144,59 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
         }
     })
 
+    /**
+     * Coalesces block updates and chunk (un)loads per chunk before they are passed to the subscribers.
+     */
+    private val updateQueue = ChunkUpdateQueue(scope, parallelism, ::processChunk)
+
+    internal val queueMetrics: ChunkUpdateQueue.Metrics
+        get() = updateQueue.metrics()
+
+    @Suppress("unused")
+    private val queueDebugHandler = handler<GameTickEvent> {
+        if (!ModuleDebug.running) {
+            return@handler
+        }
+
+        val metrics = queueMetrics
+        debugParameter("Queued Chunks") { metrics.queuedChunks }
+        debugParameter("Queued Blocks") { metrics.queuedBlocks }
+        debugParameter("Coalesced Updates") { metrics.coalescedUpdates }
+        debugParameter("Dropped Updates") { metrics.droppedUpdates }
+        debugParameter("Rescanned Chunks") { metrics.rescannedChunks }
+        debugParameter("Average Latency") { "%.3fms".format(metrics.averageLatencyNanos / 1e6) }
+        debugParameter("Max Latency") { "%.3fms".format(metrics.maxLatencyNanos / 1e6) }
+    }
+
     /**
      * Cancel all existing enqueue(emit) jobs and scanner jobs
      */
     fun cancelCurrentJobs() {
         worldJob.cancelChildren()
+        updateQueue.clear()
+    }
+
+    private suspend fun processChunk(pending: ChunkUpdateQueue.PendingChunk) {
+        val chunkPos = ChunkPos(pending.chunkPos)
+
+        if (pending.clear) {
+            subscribers.forEach {
+                it.clearChunk(chunkPos)
+            }
+        }
+
+        if (pending.scan) {
+            // The chunk might have been unloaded meanwhile
+            val chunk = mc.world?.getChunk(chunkPos.x, chunkPos.z)?.takeUnless { it.isEmpty }
+            chunk?.let { UpdateRequest.ChunkLoad(it).run() }
+        }
+
+        if (pending.hasBlocks()) {
+            val batch = pending.toBatch()
+            subscribers.forEach {
+                it.recordBlocks(batch)
+            }
+        }
     }
 
     fun stopThread() {
@@ -146,33 +205,81 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
     }
 
     /**
+     * Scans all sections of [chunk] and passes every block matching [filter] to [action].
+     *
+     * Sections whose palette contains no state matching [filter] are skipped without reading any block.
+     *
+     * @param filter the states to scan for, or null to scan all of them
      * @see WorldChunk.getBlockState
      */
     private suspend fun scanChunkSections(
         chunk: WorldChunk,
+        filter: Predicate<BlockState>?,
         action: BiConsumer<BlockPos, BlockState>
     ) {
+        val jobs = ArrayList<Job>(chunk.highestNonEmptySection + 1)
+
         // 0 rangeTo chunk.highestNonEmptySection
-        Array(chunk.highestNonEmptySection + 1) { sectionIndex ->
-            scope.launch {
-                val startX = chunk.pos.startX
-                val startZ = chunk.pos.startZ
-                val blockPos = threadLocalBlockPos.get()
-                val section = chunk.getSection(sectionIndex)
-
-                for (sectionY in 0..15) {
-                    // index == (y >> 4) - (bottomY >> 4)
-                    val y = (sectionIndex + (chunk.bottomY shr 4)) shl 4 or sectionY
-                    for (x in 0..15) {
-                        for (z in 0..15) {
-                            val blockState = section.getBlockState(x, sectionY, z)
-                            val pos = blockPos.set(startX or x, y, startZ or z)
-                            action.accept(pos, blockState)
-                        }
-                    }
-                }
+        for (sectionIndex in 0..chunk.highestNonEmptySection) {
+            val section = chunk.getSection(sectionIndex)
+
+            if (filter != null && !section.hasAny(filter)) {
+                continue
+            }
+
+            jobs += scope.launch {
+                scanSection(chunk, sectionIndex, filter, action)
+            }
+        }
+
+        jobs.joinAll()
+    }
+
+    /**
+     * Reads the packed palette indices of the section directly, testing [filter] once per palette entry
+     * instead of once per block.
+     */
+    private fun scanSection(
+        chunk: WorldChunk,
+        sectionIndex: Int,
+        filter: Predicate<BlockState>?,
+        action: BiConsumer<BlockPos, BlockState>
+    ) {
+        val startX = chunk.pos.startX
+        val startZ = chunk.pos.startZ
+        // index == (y >> 4) - (bottomY >> 4)
+        val startY = (sectionIndex + (chunk.bottomY shr 4)) shl 4
+        val blockPos = threadLocalBlockPos.get()
+
+        val data = chunk.getSection(sectionIndex).blockStateContainer.data
+        val palette = data.palette()
+        val storage = data.storage()
+
+        // Entries might be added concurrently, these are tested on demand
+        val relevantEntries = if (filter == null || palette.size > MAX_INDEXED_PALETTE_SIZE) {
+            null
+        } else {
+            BooleanArray(palette.size) { filter.test(palette.get(it)) }
+        }
+
+        // index == (y << 8) | (z << 4) | x
+        for (index in 0 until SECTION_VOLUME) {
+            val id = storage.get(index)
+            val blockState = palette.get(id)
+
+            val relevant = when {
+                filter == null -> true
+                relevantEntries != null && id < relevantEntries.size -> relevantEntries[id]
+                else -> filter.test(blockState)
+            }
+
+            if (!relevant) {
+                continue
             }
-        }.joinAll()
+
+            val pos = blockPos.set(startX or (index and 15), startY or (index shr 8), startZ or (index shr 4 and 15))
+            action.accept(pos, blockState)
+        }
     }
 
     sealed interface UpdateRequest {
@@ -194,8 +301,9 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
                         subscriber.chunkUpdate(it)
                     }
                     if (subscriber.shouldCallRecordBlockOnChunkUpdate) {
+                        val filter = subscriber.blockStateFilter
                         chunks.forEach {
-                            scanChunkSections(it) { pos, state ->
+                            scanChunkSections(it, filter) { pos, state ->
                                 subscriber.recordBlock(pos, state, cleared = true)
                             }
                         }
@@ -229,8 +337,22 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
                         return@measureTime
                     }
 
-                    scanChunkSections(chunk) { pos, state ->
-                        subscribersForRecordBlock.forEach { it.recordBlock(pos, state, cleared = true) }
+                    val filters = subscribersForRecordBlock.mapToArray { it.blockStateFilter }
+
+                    // Sections only have to be scanned for states at least one subscriber is interested in
+                    val sectionFilter = if (filters.any { it == null }) {
+                        null
+                    } else {
+                        Predicate<BlockState> { state -> filters.any { it!!.test(state) } }
+                    }
+
+                    scanChunkSections(chunk, sectionFilter) { pos, state ->
+                        subscribersForRecordBlock.forEachIndexed { i, subscriber ->
+                            val filter = filters[i]
+                            if (filter == null || filter.test(state)) {
+                                subscriber.recordBlock(pos, state, cleared = true)
+                            }
+                        }
                     }
                 }
 
@@ -239,32 +361,6 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
                 )
             }
         }
-
-        class ChunkSectionUpdate(val packet: ChunkDeltaUpdateS2CPacket) : UpdateRequest {
-            override suspend fun run() {
-                packet.visitUpdates { blockPos, state ->
-                    subscribers.forEach {
-                        it.recordBlock(blockPos, state, cleared = false)
-                    }
-                }
-            }
-        }
-
-        class ChunkUnload(val pos: ChunkPos) : UpdateRequest {
-            override suspend fun run() {
-                subscribers.forEach {
-                    it.clearChunk(pos)
-                }
-            }
-        }
-
-        class BlockUpdate(val blockPos: BlockPos, val newState: BlockState) : UpdateRequest {
-            override suspend fun run() {
-                subscribers.forEach {
-                    it.recordBlock(blockPos, newState, cleared = false)
-                }
-            }
-        }
     }
 
     interface BlockChangeSubscriber {
@@ -277,6 +373,17 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
         val shouldCallRecordBlockOnChunkUpdate: Boolean
             get() = true
 
+        /**
+         * The block states this subscriber is interested in when a chunk is scanned, or null for all states.
+         *
+         * Chunk sections without any matching state in their palette are skipped, and [recordBlock] is
+         * only called with `cleared = true` for matching states. Single block updates are always passed on,
+         * so positions can still be untracked when their state becomes irrelevant.
+         * This predicate must be **thread-safe**.
+         */
+        val blockStateFilter: Predicate<BlockState>?
+            get() = null
+
         /**
          * Registers a block update and asks the subscriber to make a decision about what should be done.
          * This method must be **thread-safe**.
@@ -287,6 +394,17 @@ object ChunkScanner : EventListener, MinecraftShortcuts {
          */
         fun recordBlock(pos: BlockPos, state: BlockState, cleared: Boolean)
 
+        /**
+         * Registers the coalesced block updates of a chunk, as [recordBlock] does with `cleared = false`.
+         * Subscribers can override this to handle all updates at once.
+         * This method must be **thread-safe**.
+         */
+        fun recordBlocks(batch: BlockUpdateBatch) {
+            batch.forEach { pos, state ->
+                recordBlock(pos, state, cleared = false)
+            }
+        }
+
         /**
          * Is called when a chunk is initially loaded or entirely updated.
          *
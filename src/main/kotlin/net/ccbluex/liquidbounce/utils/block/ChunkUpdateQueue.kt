@@ -0,0 +1,271 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.launch
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.minecraft.block.BlockState
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.BiConsumer
+
+/**
+ * Collects the updates of [ChunkScanner] per chunk until they are processed by up to [parallelism] drain coroutines.
+ * A chunk is only processed by one of them at a time, updates arriving meanwhile are processed afterward.
+ *
+ * Updates for a chunk which is already queued are merged into its entry: repeated updates of a position
+ * only keep the latest state, and unloading a chunk drops all of its queued work. A chunk with more than
+ * [MAX_BLOCKS_PER_CHUNK] queued block updates is rescanned entirely instead, which bounds the queue
+ * to the loaded chunks.
+ */
+internal class ChunkUpdateQueue(
+    private val scope: CoroutineScope,
+    private val parallelism: Int,
+    private val processor: suspend (PendingChunk) -> Unit
+) {
+
+    /**
+     * Guarded by itself, ordered by the time a chunk was first queued.
+     */
+    private val pendingChunks = Long2ObjectLinkedOpenHashMap<PendingChunk>()
+    private var queuedBlocks = 0
+
+    /**
+     * The running drain coroutines, guarded by [pendingChunks].
+     */
+    private var workers = 0
+
+    /**
+     * The chunks being processed right now, guarded by [pendingChunks].
+     */
+    private val processingChunks = LongOpenHashSet()
+
+    private val coalescedUpdates = AtomicLong()
+    private val droppedUpdates = AtomicLong()
+    private val rescannedChunks = AtomicLong()
+
+    @Volatile
+    private var averageLatencyNanos = 0.0
+
+    @Volatile
+    private var maxLatencyNanos = 0L
+
+    class PendingChunk(val chunkPos: Long) {
+        val queuedAt = System.nanoTime()
+
+        /**
+         * Subscribers have to forget the chunk before anything else is done.
+         */
+        var clear = false
+
+        /**
+         * The chunk has to be scanned entirely.
+         */
+        var scan = false
+
+        val blocks = Long2ObjectLinkedOpenHashMap<BlockState>()
+
+        fun hasBlocks() = blocks.isNotEmpty()
+
+        fun toBatch() = BlockUpdateBatch(
+            ChunkPos(chunkPos),
+            blocks.keys.toLongArray(),
+            blocks.values.toTypedArray()
+        )
+    }
+
+    fun enqueueChunkLoad(chunkPos: Long) = enqueue(chunkPos) {
+        scan = true
+    }
+
+    fun enqueueChunkUnload(chunkPos: Long) = enqueue(chunkPos) {
+        val dropped = blocks.size + if (scan) 1 else 0
+        droppedUpdates.addAndGet(dropped.toLong())
+        removeBlocks()
+
+        scan = false
+        clear = true
+    }
+
+    fun enqueueBlockUpdate(pos: BlockPos, state: BlockState) = enqueue(ChunkPos.toLong(pos)) {
+        addBlock(pos, state)
+    }
+
+    /**
+     * @param updates all in the same chunk
+     */
+    fun enqueueBlockUpdates(chunkPos: Long, updates: (BiConsumer<BlockPos, BlockState>) -> Unit) =
+        enqueue(chunkPos) {
+            updates(BiConsumer { pos, state -> addBlock(pos, state) })
+        }
+
+    private fun PendingChunk.addBlock(pos: BlockPos, state: BlockState) {
+        if (blocks.put(pos.asLong(), state) == null) {
+            queuedBlocks++
+        } else {
+            coalescedUpdates.incrementAndGet()
+        }
+
+        if (blocks.size > MAX_BLOCKS_PER_CHUNK) {
+            removeBlocks()
+            rescannedChunks.incrementAndGet()
+
+            clear = true
+            scan = true
+        }
+    }
+
+    private fun PendingChunk.removeBlocks() {
+        queuedBlocks -= blocks.size
+        blocks.clear()
+    }
+
+    private inline fun enqueue(chunkPos: Long, merge: PendingChunk.() -> Unit) {
+        synchronized(pendingChunks) {
+            val pending = pendingChunks.get(chunkPos)
+                ?: PendingChunk(chunkPos).also { pendingChunks.put(chunkPos, it) }
+            pending.merge()
+
+            if (workers < parallelism && workers < pendingChunks.size) {
+                workers++
+                // Atomic, so a worker cancelled before it runs still leaves through its finally block
+                scope.launch(start = CoroutineStart.ATOMIC) { drain() }
+            }
+        }
+    }
+
+    private suspend fun drain() {
+        var pending: PendingChunk? = null
+        var hasLeft = false
+
+        try {
+            while (true) {
+                // The scanner clears the queue and cancels the workers when it stops
+                currentCoroutineContext().ensureActive()
+
+                pending = synchronized(pendingChunks) {
+                    pending?.let { processingChunks.remove(it.chunkPos) }
+
+                    // Chunks being processed are left to their worker, which takes them next
+                    val next = pendingChunks.values.firstOrNull { it.chunkPos !in processingChunks }
+                    if (next == null) {
+                        // Within the lock, so an update queued right after starts a new worker
+                        workers--
+                        hasLeft = true
+                        return
+                    }
+
+                    pendingChunks.remove(next.chunkPos)
+                    queuedBlocks -= next.blocks.size
+                    processingChunks.add(next.chunkPos)
+                    next
+                }
+
+                recordLatency(System.nanoTime() - pending.queuedAt)
+
+                try {
+                    processor(pending)
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    logger.warn("Chunk update error", e)
+                }
+            }
+        } finally {
+            if (!hasLeft) {
+                synchronized(pendingChunks) {
+                    pending?.let { processingChunks.remove(it.chunkPos) }
+                    workers--
+                }
+            }
+        }
+    }
+
+    @Synchronized
+    private fun recordLatency(nanos: Long) {
+        val average = averageLatencyNanos
+        averageLatencyNanos = if (average == 0.0) nanos.toDouble() else average * 0.9 + nanos * 0.1
+        if (nanos > maxLatencyNanos) {
+            maxLatencyNanos = nanos
+        }
+    }
+
+    /**
+     * Drops all queued work, the drain coroutines have to be cancelled by the caller.
+     */
+    fun clear() {
+        synchronized(pendingChunks) {
+            pendingChunks.clear()
+            queuedBlocks = 0
+        }
+
+        averageLatencyNanos = 0.0
+        maxLatencyNanos = 0L
+    }
+
+    fun metrics(): Metrics {
+        val (chunks, blocks) = synchronized(pendingChunks) { pendingChunks.size to queuedBlocks }
+
+        return Metrics(
+            queuedChunks = chunks,
+            queuedBlocks = blocks,
+            coalescedUpdates = coalescedUpdates.get(),
+            droppedUpdates = droppedUpdates.get(),
+            rescannedChunks = rescannedChunks.get(),
+            averageLatencyNanos = averageLatencyNanos.toLong(),
+            maxLatencyNanos = maxLatencyNanos
+        )
+    }
+
+    /**
+     * @param queuedChunks chunks waiting to be processed
+     * @param queuedBlocks block updates waiting to be processed
+     * @param coalescedUpdates block updates merged into an already queued update of the same position
+     * @param droppedUpdates queued updates dropped because their chunk was unloaded
+     * @param rescannedChunks chunks scanned entirely because of too many queued block updates
+     * @param averageLatencyNanos moving average of the time from queueing to processing a chunk
+     * @param maxLatencyNanos longest time from queueing to processing a chunk in the current world
+     */
+    @JvmRecord
+    data class Metrics(
+        val queuedChunks: Int,
+        val queuedBlocks: Int,
+        val coalescedUpdates: Long,
+        val droppedUpdates: Long,
+        val rescannedChunks: Long,
+        val averageLatencyNanos: Long,
+        val maxLatencyNanos: Long
+    )
+
+    companion object {
+        /**
+         * One chunk section. More updates in a chunk are cheaper to handle by scanning it again.
+         */
+        const val MAX_BLOCKS_PER_CHUNK = 16 * 16 * 16
+    }
+
+}
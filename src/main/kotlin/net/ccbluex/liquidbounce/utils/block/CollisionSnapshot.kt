@@ -0,0 +1,231 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block
+
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.block.ShapeContext
+import net.minecraft.block.entity.BlockEntity
+import net.minecraft.entity.Entity
+import net.minecraft.fluid.FluidState
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.function.BooleanBiFunction
+import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3i
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.util.shape.VoxelShapes
+import net.minecraft.world.BlockView
+import net.minecraft.world.CollisionView
+import net.minecraft.world.World
+import net.minecraft.world.border.WorldBorder
+import net.minecraft.world.chunk.PalettedContainer
+
+/**
+ * An immutable copy of the block states in a region of the world, which can be read from any thread.
+ *
+ * Positions outside the region are reported as [Blocks.BARRIER], so collision checks never pass through
+ * them. Block entities and entities are not captured.
+ */
+class CollisionSnapshot private constructor(
+    private val minChunkX: Int,
+    private val minChunkZ: Int,
+    private val chunksX: Int,
+    private val chunksZ: Int,
+    private val minSectionY: Int,
+    private val sectionsY: Int,
+    /**
+     * Indexed by [sectionIndex], null for sections without blocks.
+     */
+    private val sections: Array<PalettedContainer<BlockState>?>,
+    private val bottomY: Int,
+    private val height: Int,
+    private val worldBorder: WorldBorder
+) : CollisionView {
+
+    private fun sectionIndex(chunkX: Int, sectionY: Int, chunkZ: Int): Int {
+        val x = chunkX - minChunkX
+        val y = sectionY - minSectionY
+        val z = chunkZ - minChunkZ
+
+        if (x !in 0 until chunksX || y !in 0 until sectionsY || z !in 0 until chunksZ) {
+            return -1
+        }
+
+        return (y * chunksZ + z) * chunksX + x
+    }
+
+    override fun getBlockState(pos: BlockPos): BlockState {
+        if (isOutOfHeightLimit(pos.y)) {
+            return Blocks.VOID_AIR.defaultState
+        }
+
+        val index = sectionIndex(
+            ChunkSectionPos.getSectionCoord(pos.x),
+            ChunkSectionPos.getSectionCoord(pos.y),
+            ChunkSectionPos.getSectionCoord(pos.z)
+        )
+
+        if (index == -1) {
+            return Blocks.BARRIER.defaultState
+        }
+
+        val section = sections[index] ?: return Blocks.AIR.defaultState
+        return section.get(pos.x and 15, pos.y and 15, pos.z and 15)
+    }
+
+    /**
+     * Whether the collision shape of any block intersects [box].
+     *
+     * Unlike [getBlockCollisions], this does not go through the collision spliterator, which fires
+     * [net.ccbluex.liquidbounce.event.events.BlockShapeEvent] and must only be used on the game thread.
+     * Shapes are resolved without an entity context.
+     */
+    @Suppress("detekt:CognitiveComplexMethod")
+    fun hasBlockCollision(box: Box): Boolean {
+        // Like the vanilla spliterator, blocks around the box are checked for shapes exceeding their cube
+        val minX = MathHelper.floor(box.minX - 1.0E-7) - 1
+        val minY = MathHelper.floor(box.minY - 1.0E-7) - 1
+        val minZ = MathHelper.floor(box.minZ - 1.0E-7) - 1
+        val maxX = MathHelper.floor(box.maxX + 1.0E-7) + 1
+        val maxY = MathHelper.floor(box.maxY + 1.0E-7) + 1
+        val maxZ = MathHelper.floor(box.maxZ + 1.0E-7) + 1
+
+        val boxShape = VoxelShapes.cuboid(box)
+        val pos = BlockPos.Mutable()
+
+        for (y in minY..maxY) {
+            for (z in minZ..maxZ) {
+                for (x in minX..maxX) {
+                    val state = getBlockState(pos.set(x, y, z))
+                    val onEdge = x == minX || x == maxX || y == minY || y == maxY || z == minZ || z == maxZ
+                    if (onEdge && !state.exceedsCube()) {
+                        continue
+                    }
+
+                    val shape = state.getCollisionShape(this, pos, ShapeContext.absent())
+                    if (!shape.isEmpty && VoxelShapes.matchesAnywhere(
+                            shape.offset(x.toDouble(), y.toDouble(), z.toDouble()),
+                            boxShape,
+                            BooleanBiFunction.AND
+                        )) {
+                        return true
+                    }
+                }
+            }
+        }
+
+        return false
+    }
+
+    /**
+     * Whether the snapshot contains all blocks between [from] and [to] (both inclusive), extended by [margin]
+     * blocks, as far as they are inside the world height.
+     */
+    fun covers(from: Vec3i, to: Vec3i, margin: Int): Boolean {
+        val minSectionY = ChunkSectionPos.getSectionCoord((minOf(from.y, to.y) - margin).coerceAtLeast(bottomY))
+        val maxSectionY = ChunkSectionPos.getSectionCoord(
+            (maxOf(from.y, to.y) + margin).coerceAtMost(bottomY + height - 1)
+        )
+
+        return ChunkSectionPos.getSectionCoord(minOf(from.x, to.x) - margin) >= minChunkX &&
+            ChunkSectionPos.getSectionCoord(minOf(from.z, to.z) - margin) >= minChunkZ &&
+            ChunkSectionPos.getSectionCoord(maxOf(from.x, to.x) + margin) < minChunkX + chunksX &&
+            ChunkSectionPos.getSectionCoord(maxOf(from.z, to.z) + margin) < minChunkZ + chunksZ &&
+            minSectionY >= this.minSectionY && maxSectionY < this.minSectionY + sectionsY
+    }
+
+    override fun getFluidState(pos: BlockPos): FluidState = getBlockState(pos).fluidState
+
+    override fun getBlockEntity(pos: BlockPos): BlockEntity? = null
+
+    override fun getHeight() = height
+
+    override fun getBottomY() = bottomY
+
+    override fun getWorldBorder() = worldBorder
+
+    override fun getChunkAsView(chunkX: Int, chunkZ: Int): BlockView = this
+
+    override fun getEntityCollisions(entity: Entity?, box: Box): List<VoxelShape> = emptyList()
+
+    companion object {
+
+        /**
+         * Copies all block states between [from] and [to] (both inclusive), extended by [margin] blocks.
+         * Must be called on the thread owning [world].
+         */
+        @JvmStatic
+        fun capture(world: World, from: Vec3i, to: Vec3i, margin: Int): CollisionSnapshot {
+            val minChunkX = ChunkSectionPos.getSectionCoord(minOf(from.x, to.x) - margin)
+            val minChunkZ = ChunkSectionPos.getSectionCoord(minOf(from.z, to.z) - margin)
+            val maxChunkX = ChunkSectionPos.getSectionCoord(maxOf(from.x, to.x) + margin)
+            val maxChunkZ = ChunkSectionPos.getSectionCoord(maxOf(from.z, to.z) + margin)
+
+            val minSectionY = ChunkSectionPos.getSectionCoord(
+                (minOf(from.y, to.y) - margin).coerceAtLeast(world.bottomY)
+            )
+            val maxSectionY = ChunkSectionPos.getSectionCoord(
+                (maxOf(from.y, to.y) + margin).coerceAtMost(world.topYInclusive)
+            )
+
+            val chunksX = maxChunkX - minChunkX + 1
+            val chunksZ = maxChunkZ - minChunkZ + 1
+            val sectionsY = (maxSectionY - minSectionY + 1).coerceAtLeast(0)
+
+            val sections = arrayOfNulls<PalettedContainer<BlockState>>(chunksX * chunksZ * sectionsY)
+
+            for (chunkZ in minChunkZ..maxChunkZ) {
+                for (chunkX in minChunkX..maxChunkX) {
+                    val chunk = world.getChunk(chunkX, chunkZ)
+                    if (chunk.isEmpty) {
+                        continue
+                    }
+
+                    for (sectionY in minSectionY..maxSectionY) {
+                        val section = chunk.getSection(world.sectionCoordToIndex(sectionY))
+                        if (section.isEmpty) {
+                            continue
+                        }
+
+                        val index = ((sectionY - minSectionY) * chunksZ + (chunkZ - minChunkZ)) * chunksX +
+                            (chunkX - minChunkX)
+                        sections[index] = section.blockStateContainer.copy()
+                    }
+                }
+            }
+
+            return CollisionSnapshot(
+                minChunkX = minChunkX,
+                minChunkZ = minChunkZ,
+                chunksX = chunksX,
+                chunksZ = chunksZ,
+                minSectionY = minSectionY,
+                sectionsY = sectionsY,
+                sections = sections,
+                bottomY = world.bottomY,
+                height = world.height,
+                worldBorder = world.worldBorder
+            )
+        }
+
+    }
+
+}
@@ -127,7 +127,7 @@ sealed class IsSelfBedChoice(name: String, final override val parent: ChoiceConf
             when (event.key) {
                 trackKey -> {
                     val center = player.eyePos
-                    val (bedPos, _) = center.searchBlocksInCuboid(16.0F) { _, state -> state.isBed }
+                    val (bedPos, _) = center.searchBlocksInCuboid(16.0F, stateFilter = { state -> state.isBed })
                         .minByOrNull { it.first.getSquaredDistance(center) } ?: run {
                         notification(
                             title = "SelfBed-$name",
@@ -0,0 +1,141 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.block.hole
+
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.ChunkSectionPos
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Holes bucketed by the chunk section of their minimum corner, so updates and queries of a region
+ * only look at the holes of the sections around it instead of all holes.
+ *
+ * Safe to use from multiple threads, iteration is weakly consistent.
+ */
+class HoleIndex : Iterable<Hole> {
+
+    private val sections = ConcurrentHashMap<Long, MutableSet<Hole>>()
+    private val count = AtomicInteger()
+
+    val size: Int
+        get() = count.get()
+
+    fun isEmpty() = size == 0
+
+    /**
+     * @return false if an equal hole is already indexed
+     */
+    fun add(hole: Hole): Boolean {
+        var added = false
+
+        sections.compute(sectionOf(hole)) { _, holes ->
+            (holes ?: ConcurrentHashMap.newKeySet()).also { added = it.add(hole) }
+        }
+
+        if (added) {
+            count.incrementAndGet()
+        }
+
+        return added
+    }
+
+    operator fun plusAssign(hole: Hole) {
+        add(hole)
+    }
+
+    /**
+     * Removes the holes matching [predicate] among those which can reach [region],
+     * i.e. whose blocks or invalidating blocks could be in it.
+     */
+    fun removeIf(region: BlockBox, predicate: (Hole) -> Boolean) {
+        forEachSection(region) { section ->
+            sections.computeIfPresent(section) { _, holes ->
+                holes.removeIf { hole -> predicate(hole).also { if (it) count.decrementAndGet() } }
+                holes.ifEmpty { null }
+            }
+        }
+    }
+
+    /**
+     * Removes the matching holes of all sections, prefer the variant with a region.
+     */
+    fun removeIf(predicate: (Hole) -> Boolean) {
+        for (section in sections.keys) {
+            sections.computeIfPresent(section) { _, holes ->
+                holes.removeIf { hole -> predicate(hole).also { if (it) count.decrementAndGet() } }
+                holes.ifEmpty { null }
+            }
+        }
+    }
+
+    /**
+     * Returns the holes whose blocks intersect [region].
+     */
+    fun query(region: BlockBox): MutableList<Hole> {
+        val result = ArrayList<Hole>()
+
+        forEachSection(region) { section ->
+            sections[section]?.filterTo(result) { hole -> hole.positions.intersects(region) }
+        }
+
+        return result
+    }
+
+    fun clear() {
+        sections.clear()
+        count.set(0)
+    }
+
+    override fun iterator(): Iterator<Hole> = sections.values.asSequence().flatten().iterator()
+
+    /**
+     * Calls [action] with the sections which can contain the minimum corner of a hole reaching [region].
+     */
+    private inline fun forEachSection(region: BlockBox, action: (Long) -> Unit) {
+        val minX = ChunkSectionPos.getSectionCoord(region.minX - MAX_REACH)
+        val minY = ChunkSectionPos.getSectionCoord(region.minY - MAX_REACH)
+        val minZ = ChunkSectionPos.getSectionCoord(region.minZ - MAX_REACH)
+        val maxX = ChunkSectionPos.getSectionCoord(region.maxX)
+        val maxY = ChunkSectionPos.getSectionCoord(region.maxY)
+        val maxZ = ChunkSectionPos.getSectionCoord(region.maxZ)
+
+        for (x in minX..maxX) {
+            for (z in minZ..maxZ) {
+                for (y in minY..maxY) {
+                    action(ChunkSectionPos.asLong(x, y, z))
+                }
+            }
+        }
+    }
+
+    private companion object {
+        /**
+         * How far the blocks of a hole and the blocks above it, which invalidate it, reach from its minimum corner.
+         */
+        const val MAX_REACH = 3
+
+        fun sectionOf(hole: Hole) = ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(hole.positions.minX),
+            ChunkSectionPos.getSectionCoord(hole.positions.minY),
+            ChunkSectionPos.getSectionCoord(hole.positions.minZ)
+        )
+    }
+
+}
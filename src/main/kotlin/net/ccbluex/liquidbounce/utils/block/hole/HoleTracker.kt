@@ -20,6 +20,7 @@ package net.ccbluex.liquidbounce.utils.block.hole
 
 import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap
 import net.ccbluex.liquidbounce.features.module.MinecraftShortcuts
+import net.ccbluex.liquidbounce.utils.block.BlockUpdateBatch
 import net.ccbluex.liquidbounce.utils.block.ChunkScanner
 import net.ccbluex.liquidbounce.utils.block.DIRECTIONS_EXCLUDING_UP
 import net.ccbluex.liquidbounce.utils.block.getState
@@ -37,7 +38,6 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import net.minecraft.util.math.Direction
 import net.minecraft.world.chunk.WorldChunk
-import java.util.concurrent.ConcurrentSkipListSet
 
 private const val INDESTRUCTIBLE = (-2).toByte()
 private const val BLAST_RESISTANT = (-1).toByte()
@@ -50,7 +50,7 @@ private typealias BlockStateBuffer = Long2ByteOpenHashMap
 
 object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
 
-    val holes = ConcurrentSkipListSet<Hole>()
+    val holes = HoleIndex()
     private val mutable by ThreadLocal.withInitial(BlockPos::Mutable)
     private val BLAST_RESISTANT_BLOCKS: Set<Block> by lazy {
         Registries.BLOCK.filterTo(hashSetOf()) { it.blastResistance >= 600 && it.blastResistance < 3_600_000 }
@@ -64,13 +64,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
         get() = false
 
     override fun recordBlock(pos: BlockPos, state: BlockState, cleared: Boolean) {
-        // Invalidate old ones
-        if (state.isAir) {
-            // if one of the neighbor blocks becomes air, invalidate the hole
-            holes.removeIf { it.positions.iterate().any { p -> p.getManhattanDistance(pos) == 1 } }
-        } else {
-            holes.removeIf { pos in it.blockInvalidators }
-        }
+        invalidateAround(pos, state)
 
         // Check new ones
         val region = pos.expendToBlockBox(2, 3, 2)
@@ -78,8 +72,32 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
         region.cachedUpdate()
     }
 
+    /**
+     * Checks the region around the updated blocks of each section once, instead of once per block.
+     */
+    override fun recordBlocks(batch: BlockUpdateBatch) {
+        batch.forEach(::invalidateAround)
+
+        for (box in batch.toSectionBoxes()) {
+            val region = BlockBox(box.minX - 2, box.minY - 3, box.minZ - 2, box.maxX + 2, box.maxY + 3, box.maxZ + 2)
+            invalidate(region)
+            region.cachedUpdate()
+        }
+    }
+
+    private fun invalidateAround(pos: BlockPos, state: BlockState) {
+        if (state.isAir) {
+            // if one of the neighbor blocks becomes air, invalidate the hole
+            holes.removeIf(pos.expendToBlockBox(1, 1, 1)) {
+                it.positions.iterate().any { p -> p.getManhattanDistance(pos) == 1 }
+            }
+        } else {
+            holes.removeIf(BlockBox(pos)) { pos in it.blockInvalidators }
+        }
+    }
+
     private fun invalidate(region: BlockBox) {
-        holes.removeIf { it.positions.intersects(region) }
+        holes.removeIf(region) { it.positions.intersects(region) }
     }
 
     @Suppress("CognitiveComplexMethod", "LongMethod", "LoopWithTooManyJumpStatements")
@@ -90,13 +108,12 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
 
         val topY = world.topYInclusive - 2
 
-        val holesInRegion = if (holes.size >= 32) {
-            holes.subSet(
-                Hole(Hole.Type.ONE_ONE, BlockBox(mutableLocal.set(minX - 2, minY - 2, minZ - 2))), true,
-                Hole(Hole.Type.ONE_ONE, BlockBox(mutableLocal.set(maxX + 2, maxY + 2, maxZ + 2))), true
-            )
-        } else {
-            holes
+        // Holes found by this update are added as well, so their other positions are skipped
+        val holesInRegion = holes.query(this)
+        fun addHole(hole: Hole) {
+            if (holes.add(hole)) {
+                holesInRegion += hole
+            }
         }
 
         // Only check positions in this chunk (pos is BlockPos.Mutable)
@@ -118,7 +135,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
                         cached == INDESTRUCTIBLE
                     }
 
-                    holes += Hole(Hole.Type.ONE_ONE, BlockBox(pos), bedrockOnly)
+                    addHole(Hole(Hole.Type.ONE_ONE, BlockBox(pos), bedrockOnly))
                 }
                 // 1*2
                 3 -> {
@@ -137,7 +154,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
                     }
 
                     if (buffer.checkSurroundings(another, checkDirections)) {
-                        holes += Hole(Hole.Type.ONE_TWO, BlockBox.create(pos, another))
+                        addHole(Hole(Hole.Type.ONE_TWO, BlockBox.create(pos, another)))
                     }
                 }
                 // 2*2
@@ -156,7 +173,7 @@ object HoleTracker : ChunkScanner.BlockChangeSubscriber, MinecraftShortcuts {
                         continue
                     }
 
-                    holes += Hole(Hole.Type.TWO_TWO, BlockBox.create(pos, mutableLocal))
+                    addHole(Hole(Hole.Type.TWO_TWO, BlockBox.create(pos, mutableLocal)))
                 }
             }
         }
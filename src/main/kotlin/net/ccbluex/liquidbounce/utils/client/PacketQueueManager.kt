@@ -19,18 +19,18 @@
 package net.ccbluex.liquidbounce.utils.client
 
 import com.google.common.collect.Queues
-import net.ccbluex.fastutil.mapToArray
 import net.ccbluex.liquidbounce.event.EventListener
 import net.ccbluex.liquidbounce.event.EventManager
 import net.ccbluex.liquidbounce.event.events.*
 import net.ccbluex.liquidbounce.event.handler
-import net.ccbluex.liquidbounce.render.drawLineStrip
+import net.ccbluex.liquidbounce.render.drawLines
 import net.ccbluex.liquidbounce.render.engine.type.Color4b
 import net.ccbluex.liquidbounce.render.engine.type.Vec3
 import net.ccbluex.liquidbounce.render.renderEnvironmentForWorld
 import net.ccbluex.liquidbounce.utils.aiming.RotationManager
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.FINAL_DECISION
 import net.ccbluex.liquidbounce.utils.render.WireframePlayer
+import net.ccbluex.liquidbounce.utils.render.WorldToScreen
 import net.minecraft.client.option.Perspective
 import net.minecraft.network.packet.Packet
 import net.minecraft.network.packet.c2s.handshake.HandshakeC2SPacket
@@ -45,6 +45,7 @@ import net.minecraft.network.packet.s2c.play.HealthUpdateS2CPacket
 import net.minecraft.network.packet.s2c.play.PlaySoundS2CPacket
 import net.minecraft.network.packet.s2c.play.PlayerPositionLookS2CPacket
 import net.minecraft.sound.SoundEvents
+import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3d
 import java.util.concurrent.ConcurrentLinkedQueue
 
@@ -163,18 +164,35 @@ object PacketQueueManager : EventListener {
     @Suppress("unused")
     private val renderHandler = handler<WorldRenderEvent> { event ->
         val matrixStack = event.matrixStack
+        val positions = positions
+        if (positions.isEmpty()) {
+            return@handler
+        }
 
         renderEnvironmentForWorld(matrixStack) {
+            // Only the segments of the breadcrumbs which can be seen are drawn, as separate lines
+            val lines = ArrayList<Vec3>()
+            for (i in 1 until positions.size) {
+                val from = positions[i - 1]
+                val to = positions[i]
+
+                if (isSegmentVisible(from, to)) {
+                    lines.add(Vec3(relativeToCamera(from)))
+                    lines.add(Vec3(relativeToCamera(to)))
+                }
+            }
+
             // Use LiquidBounce accent color
-            drawLineStrip(
-                argb = Color4b.LIQUID_BOUNCE.toARGB(),
-                positions = positions.mapToArray { vec3d -> Vec3(relativeToCamera(vec3d)) },
-            )
+            drawLines(Color4b.LIQUID_BOUNCE.toARGB(), *lines.toTypedArray())
         }
 
         val perspectiveEvent = EventManager.callEvent(PerspectiveEvent(mc.options.perspective))
         if (perspectiveEvent.perspective != Perspective.FIRST_PERSON) {
-            val pos = positions.firstOrNull() ?: return@handler
+            val pos = positions.first()
+            if (!WorldToScreen.isVisible(pos, WIREFRAME_BOX)) {
+                return@handler
+            }
+
             val rotation = RotationManager.actualServerRotation
 
             val wireframePlayer = WireframePlayer(pos, rotation.yaw, rotation.pitch)
@@ -182,6 +200,20 @@ object PacketQueueManager : EventListener {
         }
     }
 
+    /**
+     * Bounds of the [WireframePlayer], a bit larger than the player to include its rotated head.
+     */
+    private val WIREFRAME_BOX = Box(-0.5, 0.0, -0.5, 0.5, 2.0, 0.5)
+
+    private fun isSegmentVisible(from: Vec3d, to: Vec3d) = WorldToScreen.isVisible(
+        minX = minOf(from.x, to.x),
+        minY = minOf(from.y, to.y),
+        minZ = minOf(from.z, to.z),
+        maxX = maxOf(from.x, to.x),
+        maxY = maxOf(from.y, to.y),
+        maxZ = maxOf(from.z, to.z)
+    )
+
     fun flush(flushWhen: (PacketSnapshot) -> Boolean) {
         packetQueue.removeIf { snapshot ->
             if (flushWhen(snapshot)) {
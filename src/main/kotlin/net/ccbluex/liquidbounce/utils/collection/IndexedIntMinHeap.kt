@@ -0,0 +1,195 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.collection
+
+/**
+ * A binary min-heap of int ids with int keys, whose keys can be changed while queued. Non-thread-safe.
+ *
+ * The ids should be dense and start from 0, because the heap slot of each id is stored in an array indexed by it.
+ */
+class IndexedIntMinHeap @JvmOverloads constructor(initialCapacity: Int = 16) {
+
+    init {
+        require(initialCapacity > 0) { "initialCapacity should be positive" }
+    }
+
+    /**
+     * Heap slot -> id
+     */
+    private var heap = IntArray(initialCapacity)
+
+    /**
+     * Id -> key
+     */
+    private var keys = IntArray(initialCapacity)
+
+    /**
+     * Id -> heap slot, or -1 if the id is not queued
+     */
+    private var slots = IntArray(initialCapacity).apply { fill(-1) }
+
+    @get:JvmName("size")
+    var size = 0
+        private set
+
+    fun isEmpty() = size == 0
+
+    fun isNotEmpty() = size != 0
+
+    operator fun contains(id: Int) = id < slots.size && slots[id] != -1
+
+    /**
+     * @throws NoSuchElementException if [id] is not queued
+     */
+    fun keyOf(id: Int): Int {
+        if (id !in this) {
+            throw NoSuchElementException("$id is not queued")
+        }
+
+        return keys[id]
+    }
+
+    /**
+     * Queues [id] with [key], or changes its key if it is already queued.
+     */
+    fun insertOrUpdate(id: Int, key: Int) {
+        require(id >= 0) { "id should not be negative" }
+
+        if (id in this) {
+            val oldKey = keys[id]
+            keys[id] = key
+            if (key < oldKey) {
+                siftUp(slots[id])
+            } else if (key > oldKey) {
+                siftDown(slots[id])
+            }
+            return
+        }
+
+        ensureIdCapacity(id)
+        if (size == heap.size) {
+            heap = heap.copyOf(size * 2)
+        }
+
+        keys[id] = key
+        place(size, id)
+        siftUp(size++)
+    }
+
+    /**
+     * Returns the id with the smallest key without removing it.
+     *
+     * @throws NoSuchElementException if the heap is empty
+     */
+    fun peek(): Int {
+        if (size == 0) {
+            throw NoSuchElementException("Heap is empty")
+        }
+
+        return heap[0]
+    }
+
+    /**
+     * Removes and returns the id with the smallest key.
+     *
+     * @throws NoSuchElementException if the heap is empty
+     */
+    fun poll(): Int {
+        val id = peek()
+        slots[id] = -1
+
+        size--
+        if (size > 0) {
+            place(0, heap[size])
+            siftDown(0)
+        }
+
+        return id
+    }
+
+    fun clear() {
+        for (i in 0 until size) {
+            slots[heap[i]] = -1
+        }
+        size = 0
+    }
+
+    private fun ensureIdCapacity(id: Int) {
+        if (id < slots.size) {
+            return
+        }
+
+        val newCapacity = maxOf(id + 1, slots.size * 2)
+        val oldCapacity = slots.size
+        keys = keys.copyOf(newCapacity)
+        slots = slots.copyOf(newCapacity).apply { fill(-1, oldCapacity, newCapacity) }
+    }
+
+    private fun place(slot: Int, id: Int) {
+        heap[slot] = id
+        slots[id] = slot
+    }
+
+    private fun siftUp(slot: Int) {
+        val id = heap[slot]
+        val key = keys[id]
+
+        var current = slot
+        while (current > 0) {
+            val parent = (current - 1) ushr 1
+            val parentId = heap[parent]
+            if (keys[parentId] <= key) {
+                break
+            }
+
+            place(current, parentId)
+            current = parent
+        }
+
+        place(current, id)
+    }
+
+    private fun siftDown(slot: Int) {
+        val id = heap[slot]
+        val key = keys[id]
+
+        var current = slot
+        while (true) {
+            var child = (current shl 1) + 1
+            if (child >= size) {
+                break
+            }
+
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+                child++
+            }
+
+            val childId = heap[child]
+            if (keys[childId] >= key) {
+                break
+            }
+
+            place(current, childId)
+            current = child
+        }
+
+        place(current, id)
+    }
+
+}
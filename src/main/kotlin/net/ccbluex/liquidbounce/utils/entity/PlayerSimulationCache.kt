@@ -20,10 +20,15 @@
 
 package net.ccbluex.liquidbounce.utils.entity
 
+import net.ccbluex.liquidbounce.config.ConfigSystem
+import net.ccbluex.liquidbounce.config.types.nesting.Configurable
 import net.ccbluex.liquidbounce.event.EventListener
+import net.ccbluex.liquidbounce.event.EventSilentThread
 import net.ccbluex.liquidbounce.event.events.GameTickEvent
 import net.ccbluex.liquidbounce.event.events.MovementInputEvent
 import net.ccbluex.liquidbounce.event.handler
+import net.ccbluex.liquidbounce.utils.client.logger
+import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.client.player
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.CRITICAL_MODIFICATION
 import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.FIRST_PRIORITY
@@ -31,18 +36,102 @@ import net.ccbluex.liquidbounce.utils.kotlin.EventPriorityConvention.MODEL_STATE
 import net.ccbluex.liquidbounce.utils.movement.DirectionalInput
 import net.minecraft.entity.player.PlayerEntity
 import net.minecraft.util.math.Vec3d
+import java.util.concurrent.Callable
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
 import java.util.concurrent.locks.ReentrantReadWriteLock
 import kotlin.concurrent.read
 import kotlin.concurrent.write
 
-object PlayerSimulationCache: EventListener {
+/**
+ * Caches the simulations of the local player and other players for the current tick.
+ *
+ * Other players which have been requested in the previous tick are simulated ahead in a batch
+ * at the start of the tick, in parallel on a bounded pool. Reading a batched simulation within
+ * the horizon does not lock, later ticks are simulated on demand.
+ */
+object PlayerSimulationCache : Configurable("PlayerSimulation"), EventListener {
+
+    init {
+        ConfigSystem.root(this)
+    }
+
+    private val batch by boolean("Batch", true)
+    private val horizon by int("Horizon", 20, 1..100, "ticks")
+
     private val otherPlayerCache = ConcurrentHashMap<PlayerEntity, SimulatedPlayerCache>()
     private var localPlayerCache: SimulatedPlayerCache? = null
 
+    /**
+     * Players whose simulation has been requested since the last batch.
+     */
+    private val requestedPlayers = ConcurrentHashMap.newKeySet<PlayerEntity>()
+
+    /**
+     * Simulations of other players do not dispatch events on any thread, see [SimulatedPlayer.tick], so batched
+     * and on-demand ticks behave the same. The workers are [EventSilentThread]s in addition, since no listener
+     * must run off the game thread.
+     */
+    private val batchPool by lazy {
+        ForkJoinPool(
+            (Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(1),
+            { pool -> SimulationWorkerThread(pool) },
+            null,
+            false
+        )
+    }
+
+    private class SimulationWorkerThread(pool: ForkJoinPool) : ForkJoinWorkerThread(pool), EventSilentThread {
+        init {
+            name = "lb-player-simulation"
+            isDaemon = true
+        }
+    }
+
     @Suppress("unused")
     private val gameTickHandler = handler<GameTickEvent>(priority = FIRST_PRIORITY) {
         this.otherPlayerCache.clear()
+
+        val world = mc.world
+        val players = requestedPlayers.filter { !it.isRemoved && it.world === world }
+        requestedPlayers.clear()
+
+        if (batch && players.isNotEmpty()) {
+            simulateBatch(players)
+        }
+    }
+
+    /**
+     * Simulates [players] for [horizon] ticks and puts the results into [otherPlayerCache].
+     *
+     * Events are not dispatched while ticking the batch, like for simulations ticked on demand.
+     * The simulations are created on the game thread and ticked on [batchPool], which is joined before
+     * returning, so the world is not modified while they are running.
+     */
+    private fun simulateBatch(players: List<PlayerEntity>) {
+        val ticks = horizon
+        val simulations = players.map { player ->
+            SimulatedPlayer.fromOtherPlayer(player, SimulatedPlayer.SimulatedPlayerInput.guessInput(player))
+        }
+
+        val tasks = simulations.map { simulatedPlayer ->
+            Callable { SimulatedPlayerCache.simulateAhead(simulatedPlayer, ticks) }
+        }
+
+        val results = batchPool.invokeAll(tasks)
+
+        for (i in players.indices) {
+            val snapshots = try {
+                results[i].get()
+            } catch (e: ExecutionException) {
+                logger.warn("Failed to simulate ${players[i].nameForScoreboard}", e.cause)
+                continue
+            }
+
+            otherPlayerCache[players[i]] = SimulatedPlayerCache(simulations[i], snapshots)
+        }
     }
 
     @Suppress("unused")
@@ -86,6 +175,8 @@ object PlayerSimulationCache: EventListener {
     }
 
     fun getSimulationForOtherPlayers(player: PlayerEntity): SimulatedPlayerCache {
+        requestedPlayers.add(player)
+
         return otherPlayerCache.computeIfAbsent(player) {
             val simulatedPlayer = SimulatedPlayer.fromOtherPlayer(
                 player,
@@ -115,10 +206,22 @@ object PlayerSimulationCache: EventListener {
     }
 }
 
-class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
-    private var currentSimulationStep = 0
-    private val simulationSteps = ArrayList<SimulatedPlayerSnapshot>().apply {
-        add(SimulatedPlayerSnapshot(simulatedPlayer))
+class SimulatedPlayerCache internal constructor(
+    internal val simulatedPlayer: SimulatedPlayer,
+    /**
+     * Snapshots which have been simulated ahead, never modified and read without locking.
+     * [simulatedPlayer] is in the state of the last one.
+     */
+    private val precomputed: SimulatedPlayerSnapshotBuffer
+) {
+    constructor(simulatedPlayer: SimulatedPlayer) : this(
+        simulatedPlayer,
+        SimulatedPlayerSnapshotBuffer(1).apply { add(simulatedPlayer) }
+    )
+
+    private var currentSimulationStep = precomputed.size - 1
+    private val simulationSteps = SimulatedPlayerSnapshotBuffer(precomputed.size * 2).apply {
+        addAll(precomputed)
     }
     private val lock = ReentrantReadWriteLock()
 
@@ -132,21 +235,42 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
         lock.write {
             while (currentSimulationStep < ticks) {
                 simulatedPlayer.tick()
-                simulationSteps.add(SimulatedPlayerSnapshot(simulatedPlayer))
+                simulationSteps.add(simulatedPlayer)
 
                 this.currentSimulationStep++
             }
         }
     }
 
-    fun getSnapshotAt(ticks: Int): SimulatedPlayerSnapshot {
+    /**
+     * Passes the buffer holding [ticks] to [reader], simulating until [ticks] first if needed.
+     */
+    private inline fun <T> readAt(ticks: Int, reader: (SimulatedPlayerSnapshotBuffer) -> T): T {
+        if (ticks in precomputed.indices) {
+            return reader(precomputed)
+        }
+
         simulateUntil(ticks)
 
         lock.read {
-            return simulationSteps[ticks]
+            return reader(simulationSteps)
         }
     }
 
+    /**
+     * Allocates a snapshot and two vectors, prefer the accessors of single components below
+     * when only some of them are needed.
+     */
+    fun getSnapshotAt(ticks: Int): SimulatedPlayerSnapshot = readAt(ticks) { it[ticks] }
+
+    fun getPosAt(ticks: Int): Vec3d = readAt(ticks) { it.getPos(ticks) }
+
+    fun getFallDistanceAt(ticks: Int): Float = readAt(ticks) { it.getFallDistance(ticks) }
+
+    fun isOnGroundAt(ticks: Int): Boolean = readAt(ticks) { it.isOnGround(ticks) }
+
+    fun isClipLedgedAt(ticks: Int): Boolean = readAt(ticks) { it.isClipLedged(ticks) }
+
     fun simulate() = sequence<SimulatedPlayerSnapshot> {
         var idx = 0
 
@@ -160,10 +284,14 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
     fun getSnapshotsBetween(tickRange: IntRange): List<SimulatedPlayerSnapshot> {
         check(tickRange.last < 60 * 20) { "tried to simulate a player for more than a minute!" }
 
+        if (tickRange.first >= 0 && tickRange.last < precomputed.size) {
+            return precomputed.slice(tickRange)
+        }
+
         simulateUntil(tickRange.last + 1)
 
         return lock.read {
-            ArrayList(simulationSteps.subList(tickRange.first, tickRange.last + 1))
+            simulationSteps.slice(tickRange)
         }
     }
 
@@ -179,6 +307,23 @@ class SimulatedPlayerCache(internal val simulatedPlayer: SimulatedPlayer) {
         }
     }
 
+    companion object {
+
+        /**
+         * Ticks [simulatedPlayer] [ticks] times and returns its snapshots, starting with the current state.
+         */
+        internal fun simulateAhead(simulatedPlayer: SimulatedPlayer, ticks: Int) =
+            SimulatedPlayerSnapshotBuffer(ticks + 1).apply {
+                add(simulatedPlayer)
+
+                repeat(ticks) {
+                    simulatedPlayer.tick()
+                    add(simulatedPlayer)
+                }
+            }
+
+    }
+
 }
 
 data class SimulatedPlayerSnapshot(
@@ -202,7 +347,7 @@ data class SimulatedPlayerSnapshot(
  */
 class CachedPlayerSimulation(val simulatedPlayer: SimulatedPlayerCache): PlayerSimulation {
     override val pos: Vec3d
-        get() = this.simulatedPlayer.getSnapshotAt(this.ticks).pos
+        get() = this.simulatedPlayer.getPosAt(this.ticks)
 
     private var ticks = 0
 
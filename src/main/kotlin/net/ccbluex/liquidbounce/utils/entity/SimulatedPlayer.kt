@@ -20,22 +20,18 @@
 
 package net.ccbluex.liquidbounce.utils.entity
 
-import it.unimi.dsi.fastutil.objects.Object2DoubleArrayMap
-import it.unimi.dsi.fastutil.objects.Object2DoubleMap
+import net.ccbluex.liquidbounce.event.EventManager
 import net.ccbluex.liquidbounce.event.EventManager.callEvent
 import net.ccbluex.liquidbounce.event.events.PlayerMoveEvent
 import net.ccbluex.liquidbounce.event.events.PlayerSafeWalkEvent
-import net.ccbluex.liquidbounce.utils.block.getBlock
-import net.ccbluex.liquidbounce.utils.block.getState
 import net.ccbluex.liquidbounce.utils.client.player
 import net.ccbluex.liquidbounce.utils.client.toRadians
-import net.ccbluex.liquidbounce.utils.math.plus
-import net.ccbluex.liquidbounce.utils.math.toBlockPos
 import net.ccbluex.liquidbounce.utils.movement.DirectionalInput
 import net.ccbluex.liquidbounce.utils.movement.getDegreesRelativeToView
 import net.ccbluex.liquidbounce.utils.movement.getDirectionalInputForDegrees
 import net.minecraft.block.*
 import net.minecraft.client.input.Input
+import net.minecraft.client.network.ClientPlayerEntity
 import net.minecraft.entity.Entity
 import net.minecraft.entity.MovementType
 import net.minecraft.entity.attribute.EntityAttribute
@@ -66,9 +62,8 @@ private const val STEP_HEIGHT = 0.5
 class SimulatedPlayer(
     private val player: PlayerEntity,
     var input: SimulatedPlayerInput,
-    override var pos: Vec3d,
-    var velocity: Vec3d,
-    var boundingBox: Box,
+    pos: Vec3d,
+    velocity: Vec3d,
     var yaw: Float,
     var pitch: Float,
     private var sprinting: Boolean,
@@ -84,12 +79,62 @@ class SimulatedPlayer(
     private var touchingWater: Boolean,
     private var isSwimming: Boolean,
     private var submergedInWater: Boolean,
-    private var fluidHeight: Object2DoubleMap<TagKey<Fluid>>,
-    private var submergedFluidTag: HashSet<TagKey<Fluid>>
+    /**
+     * Primitive replacements of [Entity.fluidHeight], only water and lava are tracked.
+     */
+    private var waterHeight: Double,
+    private var lavaHeight: Double,
+    /**
+     * Replacement of [Entity.submergedFluidTag], which is only checked for water.
+     */
+    private var eyeInWater: Boolean
 ) : PlayerSimulation {
     private val world: World
         get() = player.world!!
 
+    // The position and the velocity are kept in primitives, so ticking only allocates where vanilla code
+    // takes vectors and boxes, like the collision checks.
+    internal var x = pos.x
+        private set
+    internal var y = pos.y
+        private set
+    internal var z = pos.z
+        private set
+    internal var velocityX = velocity.x
+        private set
+    internal var velocityY = velocity.y
+        private set
+    internal var velocityZ = velocity.z
+        private set
+
+    override var pos: Vec3d
+        get() = Vec3d(x, y, z)
+        set(value) {
+            x = value.x
+            y = value.y
+            z = value.z
+        }
+
+    var velocity: Vec3d
+        get() = Vec3d(velocityX, velocityY, velocityZ)
+        set(value) {
+            velocityX = value.x
+            velocityY = value.y
+            velocityZ = value.z
+        }
+
+    /**
+     * The box of the player dimensions at [pos].
+     */
+    val boundingBox: Box
+        get() = offsetBox(0.0, 0.0, 0.0)
+
+    /**
+     * Reused for block lookups within a single step, never passed on.
+     */
+    private val blockPos = BlockPos.Mutable()
+    private val velocityAffectingPos = BlockPos.Mutable()
+
     companion object {
         fun fromClientPlayer(input: SimulatedPlayerInput): SimulatedPlayer {
             return SimulatedPlayer(
@@ -97,7 +142,6 @@ class SimulatedPlayer(
                 input,
                 player.pos,
                 player.velocity,
-                player.boundingBox,
                 player.yaw,
                 player.pitch,
 
@@ -114,8 +158,10 @@ class SimulatedPlayer(
                 player.isTouchingWater,
                 player.isSwimming,
                 player.isSubmergedInWater,
-                Object2DoubleArrayMap(player.fluidHeight),
-                HashSet(player.submergedFluidTag)
+                player.getFluidHeight(FluidTags.WATER),
+                player.getFluidHeight(FluidTags.LAVA),
+                // Unlike isSubmergedIn, this does not fire PlayerFluidCollisionCheckEvent
+                player.isSubmergedInWater
             )
         }
 
@@ -125,7 +171,6 @@ class SimulatedPlayer(
                 input,
                 player.pos,
                 velocity = player.pos.subtract(player.prevPos),
-                player.boundingBox,
                 player.yaw,
                 player.pitch,
 
@@ -142,8 +187,10 @@ class SimulatedPlayer(
                 player.isTouchingWater,
                 player.isSwimming,
                 player.isSubmergedInWater,
-                Object2DoubleArrayMap(player.fluidHeight),
-                HashSet(player.submergedFluidTag)
+                player.getFluidHeight(FluidTags.WATER),
+                player.getFluidHeight(FluidTags.LAVA),
+                // Unlike isSubmergedIn, this does not fire PlayerFluidCollisionCheckEvent
+                player.isSubmergedInWater
             )
         }
     }
@@ -152,11 +199,28 @@ class SimulatedPlayer(
     var clipLedged = false
         private set
 
+    /**
+     * Simulations of other players never dispatch events, e.g. [PlayerMoveEvent] or the
+     * [net.ccbluex.liquidbounce.event.events.BlockShapeEvent] of the collision checks, regardless of the thread
+     * they are ticked on. Module listeners only expect them for the local player.
+     */
+    private val firesEvents = player is ClientPlayerEntity
+
     override fun tick() {
+        if (firesEvents) {
+            simulateTick()
+        } else {
+            EventManager.withoutEvents {
+                simulateTick()
+            }
+        }
+    }
+
+    private fun simulateTick() {
         clipLedged = false
 
         // ignore because world limit it -65
-        if (pos.y <= -70) {
+        if (y <= -70) {
             return
         }
 
@@ -173,27 +237,19 @@ class SimulatedPlayer(
 
         this.isJumping = this.input.playerInput.jump
 
-        val d: Vec3d = this.velocity
-
-        var h = d.x
-        var i = d.y
-        var j = d.z
-
-        if (abs(d.x) < 0.003) {
-            h = 0.0
+        if (abs(velocityX) < 0.003) {
+            velocityX = 0.0
         }
-        if (abs(d.y) < 0.003) {
-            i = 0.0
+        if (abs(velocityY) < 0.003) {
+            velocityY = 0.0
         }
-        if (abs(d.z) < 0.003) {
-            j = 0.0
+        if (abs(velocityZ) < 0.003) {
+            velocityZ = 0.0
         }
         if (onGround) {
             this.isFallFlying = false
         }
 
-        this.velocity = Vec3d(h, i, j)
-
         if (this.isJumping) {
             val k = if (this.isInLava()) this.getFluidHeight(FluidTags.LAVA) else this.getFluidHeight(FluidTags.WATER)
             val bl = this.isTouchingWater() && k > 0.0
@@ -212,30 +268,31 @@ class SimulatedPlayer(
 
         val sidewaysSpeed = input.movementSideways * 0.98
         val forwardSpeed = input.movementForward * 0.98
-        val upwardsSpeed = 0.0
 
         if (this.hasStatusEffect(StatusEffects.SLOW_FALLING) || this.hasStatusEffect(StatusEffects.LEVITATION)) {
             this.onLanding()
         }
 
-        this.travel(Vec3d(sidewaysSpeed, upwardsSpeed, forwardSpeed))
+        // The upwards movement input is always zero
+        this.travel(sidewaysSpeed, forwardSpeed)
     }
 
-    private fun travel(movementInput: Vec3d) {
+    @Suppress("detekt:CognitiveComplexMethod", "detekt:LongMethod")
+    private fun travel(sidewaysInput: Double, forwardInput: Double) {
         // PlayerEntity
         if (this.isSwimming && !this.player.hasVehicle()) {
-            val g = this.getRotationVector().y
+            val g = -MathHelper.sin(this.pitch * (Math.PI.toFloat() / 180)).toDouble()
             val h = if (g < -0.2) 0.085 else 0.06
             if (g <= 0.0 || this.input.playerInput.jump || !this.player.world
-                .getBlockState(BlockPos.ofFloored(this.pos.x, this.pos.y + 1.0 - 0.1, this.pos.z))
+                .getBlockState(blockPos.set(x, y + 1.0 - 0.1, z))
                 .fluidState.isEmpty
             ) {
-                velocity = velocity.add(0.0, (g - velocity.y) * h, 0.0)
+                velocityY += (g - velocityY) * h
             }
         }
 
 //        if (this.abilities.flying && !this.hasVehicle()) {
-        val beforeTravelVelocityY = this.velocity.y
+        val beforeTravelVelocityY = this.velocityY
 //            super.travel(movementInput)
 //            val vec3d2: Vec3d = this.getVelocity()
 //            this.setVelocity(vec3d2.x, g * 0.6, vec3d2.z)
@@ -244,8 +301,8 @@ class SimulatedPlayer(
 //        }
 
         var d = 0.08
-        val bl: Boolean = velocity.y <= 0.0
-        if (velocity.y <= 0.0 && hasStatusEffect(StatusEffects.SLOW_FALLING)) {
+        val bl: Boolean = velocityY <= 0.0
+        if (velocityY <= 0.0 && hasStatusEffect(StatusEffects.SLOW_FALLING)) {
             d = 0.01
             this.onLanding()
         }
@@ -253,7 +310,7 @@ class SimulatedPlayer(
 //        val fluidState: FluidState = this.player.world.getFluidState(pos.toBlockPos())
 
         if (isTouchingWater() && this.player.shouldSwimInFluids() /*&& !this.player.canWalkOnFluid(fluidState.fluid)*/) {
-            val e: Double = this.pos.y
+            val e: Double = this.y
             var f = if (isSprinting()) 0.9f else 0.8f // this.player.getBaseMovementSpeedMultiplier()
             var g = 0.02f
             var h = this.getAttributeValue(EntityAttributes.WATER_MOVEMENT_EFFICIENCY).toFloat()
@@ -268,38 +325,37 @@ class SimulatedPlayer(
             if (hasStatusEffect(StatusEffects.DOLPHINS_GRACE)) {
                 f = 0.96f
             }
-            this.updateVelocity(g, movementInput)
-            this.move(velocity)
-            var vec3d: Vec3d = velocity
+            this.updateVelocity(g, sidewaysInput, forwardInput)
+            this.move()
             if (this.horizontalCollision && this.isClimbing()) {
-                vec3d = Vec3d(vec3d.x, 0.2, vec3d.z)
+                velocityY = 0.2
             }
-            velocity = vec3d.multiply(f.toDouble(), 0.8, f.toDouble())
-            val vec3d2: Vec3d = this.player.applyFluidMovingSpeed(d, bl, velocity)
-            velocity = vec3d2
-            if (this.horizontalCollision && this.doesNotCollide(vec3d2.x, vec3d2.y + 0.6 - this.pos.y + e, vec3d2.z)) {
-                this.velocity = Vec3d(vec3d2.x, 0.3, vec3d2.z)
+            velocityX *= f.toDouble()
+            velocityY *= 0.8
+            velocityZ *= f.toDouble()
+            applyFluidMovingSpeed(d, bl)
+            if (this.horizontalCollision && this.doesNotCollide(velocityX, velocityY + 0.6 - this.y + e, velocityZ)) {
+                velocityY = 0.3
             }
         } else if (isInLava() && this.player.shouldSwimInFluids() /*&& !this.canWalkOnFluid(fluidState.fluid)*/) {
-            val e: Double = this.pos.y
-            this.updateVelocity(0.02f, movementInput)
-            this.move(velocity)
+            val e: Double = this.y
+            this.updateVelocity(0.02f, sidewaysInput, forwardInput)
+            this.move()
             if (getFluidHeight(FluidTags.LAVA) <= getSwimHeight()) {
-                velocity = velocity.multiply(0.5, 0.8, 0.5)
-                velocity = this.player.applyFluidMovingSpeed(d, bl, velocity)
+                velocityX *= 0.5
+                velocityY *= 0.8
+                velocityZ *= 0.5
+                applyFluidMovingSpeed(d, bl)
             } else {
-                velocity = velocity.multiply(0.5)
+                velocityX *= 0.5
+                velocityY *= 0.5
+                velocityZ *= 0.5
             }
             if (!this.player.hasNoGravity()) {
-                velocity = this.velocity.add(0.0, -d / 4.0, 0.0)
+                velocityY += -d / 4.0
             }
-            if (this.horizontalCollision && this.doesNotCollide(
-                    velocity.x,
-                    velocity.y + 0.6 - this.pos.y + e,
-                    velocity.z
-                )
-            ) {
-                velocity = Vec3d(velocity.x, 0.3, velocity.z)
+            if (this.horizontalCollision && this.doesNotCollide(velocityX, velocityY + 0.6 - this.y + e, velocityZ)) {
+                velocityY = 0.3
             }
         } else if (this.isFallFlying) {
             var k: Double
@@ -328,17 +384,17 @@ class SimulatedPlayer(
             }
             this.velocity = e.multiply(0.99, 0.98, 0.99)
 
-            move(this.velocity)
+            move()
         } else {
-            val blockPos = this.getVelocityAffectingPos()
-            val p: Float = this.player.world.getBlockState(blockPos).block.slipperiness
+            val velocityAffectingPos = this.getVelocityAffectingPos()
+            val p: Float = this.player.world.getBlockState(velocityAffectingPos).block.slipperiness
             val f = if (onGround) p * 0.91f else 0.91f
-            val vec3d6 = this.applyMovementInput(movementInput, p)
-            var q = vec3d6.y
+            this.applyMovementInput(sidewaysInput, forwardInput, p)
+            var q = velocityY
             if (hasStatusEffect(StatusEffects.LEVITATION)) {
-                q += (0.05 * (getStatusEffect(StatusEffects.LEVITATION)!!.amplifier + 1).toDouble() - vec3d6.y) * 0.2
-            } else if (this.player.world.isClient && !this.player.world.isChunkLoaded(blockPos)) {
-                q = if (this.pos.y > this.player.world.bottomY.toDouble()) {
+                q += (0.05 * (getStatusEffect(StatusEffects.LEVITATION)!!.amplifier + 1).toDouble() - velocityY) * 0.2
+            } else if (this.player.world.isClient && !this.player.world.isChunkLoaded(velocityAffectingPos)) {
+                q = if (this.y > this.player.world.bottomY.toDouble()) {
                     -0.1
                 } else {
                     0.0
@@ -347,43 +403,71 @@ class SimulatedPlayer(
                 q -= d
             }
 
-            velocity = if (this.player.hasNoDrag()) {
-                Vec3d(vec3d6.x, q, vec3d6.z)
-            } else {
-                Vec3d(vec3d6.x * f.toDouble(), q * 0.9800000190734863, vec3d6.z * f.toDouble())
+            velocityY = q
+            if (!this.player.hasNoDrag()) {
+                velocityX *= f.toDouble()
+                velocityY *= 0.9800000190734863
+                velocityZ *= f.toDouble()
             }
         }
 
         // PlayerEntity
         if (player.abilities.flying && !this.player.hasVehicle()) {
-            velocity = Vec3d(velocity.x, beforeTravelVelocityY * 0.6, velocity.z)
+            velocityY = beforeTravelVelocityY * 0.6
             this.onLanding()
         }
     }
 
-    private fun applyMovementInput(movementInput: Vec3d?, slipperiness: Float): Vec3d {
-        this.updateVelocity(this.getMovementSpeed(slipperiness), movementInput)
-        this.velocity = applyClimbingSpeed(this.velocity)
-        this.velocity = applyWebSpeed(this.velocity)
-        this.move(this.velocity)
+    /**
+     * Like [net.minecraft.entity.LivingEntity.applyFluidMovingSpeed] on the velocity.
+     */
+    private fun applyFluidMovingSpeed(gravity: Double, falling: Boolean) {
+        if (gravity == 0.0 || player.isSprinting) {
+            return
+        }
 
+        velocityY = if (falling && abs(velocityY - 0.005) >= 0.003 && abs(velocityY - gravity / 16.0) < 0.003) {
+            -0.003
+        } else {
+            velocityY - gravity / 16.0
+        }
+    }
+
+    /**
+     * Applies the movement input and moves, the vertical velocity is replaced if the player is climbing.
+     */
+    private fun applyMovementInput(sidewaysInput: Double, forwardInput: Double, slipperiness: Float) {
+        this.updateVelocity(this.getMovementSpeed(slipperiness), sidewaysInput, forwardInput)
+        applyClimbingSpeed()
+        applyWebSpeed()
+        this.move()
 
-        var vec3d = this.velocity
         if ((horizontalCollision || this.isJumping) && (
-            this.isClimbing() || pos.toBlockPos().getState()
-                ?.isOf(Blocks.POWDER_SNOW) == true && PowderSnowBlock.canWalkOnPowderSnow(player)
+            this.isClimbing() || world.getBlockState(blockPos.set(x, y, z))
+                .isOf(Blocks.POWDER_SNOW) && PowderSnowBlock.canWalkOnPowderSnow(player)
             )
         ) {
-            vec3d = Vec3d(vec3d.x, 0.2, vec3d.z)
+            velocityY = 0.2
         }
-
-        return vec3d
     }
 
-    private fun updateVelocity(speed: Float, movementInput: Vec3d?) {
-        val vec3d = Entity.movementInputToVelocity(movementInput, speed, this.yaw)
+    /**
+     * Like [Entity.movementInputToVelocity] for an input without upwards movement.
+     */
+    private fun updateVelocity(speed: Float, sidewaysInput: Double, forwardInput: Double) {
+        val lengthSquared = sidewaysInput * sidewaysInput + forwardInput * forwardInput
+        if (lengthSquared < 1.0E-7) {
+            return
+        }
+
+        val length = if (lengthSquared > 1.0) sqrt(lengthSquared) else 1.0
+        val inputX = sidewaysInput / length * speed.toDouble()
+        val inputZ = forwardInput / length * speed.toDouble()
+        val sin = MathHelper.sin(this.yaw * (Math.PI / 180.0).toFloat())
+        val cos = MathHelper.cos(this.yaw * (Math.PI / 180.0).toFloat())
 
-        this.velocity += vec3d
+        velocityX += inputX * cos - inputZ * sin
+        velocityZ += inputZ * cos + inputX * sin
     }
 
     private fun getMovementSpeed(slipperiness: Float): Float {
@@ -406,16 +490,26 @@ class SimulatedPlayer(
 
     private fun getMovementSpeed(): Float = 0.10000000149011612.toFloat()
 
-    private fun move(input: Vec3d) {
-        val event = callEvent(PlayerMoveEvent(MovementType.SELF, input))
-        val vec3d = event.movement
+    /**
+     * Moves by the velocity.
+     */
+    private fun move() {
+        val movementByVelocity = Vec3d(velocityX, velocityY, velocityZ)
+        val vec3d = if (EventManager.hasActiveListeners(PlayerMoveEvent::class.java)) {
+            PlayerMoveEvent.POOL.use { event ->
+                callEvent(event.reset(MovementType.SELF, movementByVelocity)).movement
+            }
+        } else {
+            movementByVelocity
+        }
 
         val movement = this.adjustMovementForSneaking(vec3d)
         val adjustedMovement = this.adjustMovementForCollisions(movement)
 
         if (adjustedMovement.lengthSquared() > 1.0E-7) {
-            this.pos += adjustedMovement
-            this.boundingBox = player.dimensions.getBoxAt(this.pos)
+            x += adjustedMovement.x
+            y += adjustedMovement.y
+            z += adjustedMovement.z
         }
 
         val xCollision = !MathHelper.approximatelyEquals(movement.x, adjustedMovement.x)
@@ -436,19 +530,20 @@ class SimulatedPlayer(
             fallDistance -= movement.y.toFloat()
         }
 
-        val vec3d2: Vec3d = this.velocity
-        if (horizontalCollision || verticalCollision) {
-            this.velocity = Vec3d(
-                if (xCollision) 0.0 else vec3d2.x,
-                if (onGround) 0.0 else vec3d2.y,
-                if (zCollision) 0.0 else vec3d2.z
-            )
+        if (xCollision) {
+            velocityX = 0.0
+        }
+        if (onGround) {
+            velocityY = 0.0
+        }
+        if (zCollision) {
+            velocityZ = 0.0
         }
     }
 
     private fun adjustMovementForCollisions(movement: Vec3d): Vec3d {
         val bl4: Boolean
-        val box: Box = Box(-0.3, 0.0, -0.3, 0.3, 1.8, 0.3).offset(this.pos)
+        val box = Box(x - 0.3, y, z - 0.3, x + 0.3, y + 1.8, z + 0.3)
 
         val entityCollisionList = emptyList<VoxelShape>()
 
@@ -516,51 +611,52 @@ class SimulatedPlayer(
     }
 
     fun jump() {
-        this.velocity += Vec3d(
-            0.0,
-            this.getJumpVelocity().toDouble() - this.velocity.y,
-            0.0
-        )
+        this.velocityY += this.getJumpVelocity().toDouble() - this.velocityY
 
         if (this.isSprinting()) {
             val f: Float = this.yaw.toRadians()
 
-            this.velocity += Vec3d((-MathHelper.sin(f) * 0.2f).toDouble(), 0.0, (MathHelper.cos(f) * 0.2f).toDouble())
+            this.velocityX += (-MathHelper.sin(f) * 0.2f).toDouble()
+            this.velocityZ += (MathHelper.cos(f) * 0.2f).toDouble()
         }
 
     }
 
-    private fun applyClimbingSpeed(motion: Vec3d): Vec3d {
+    private fun applyClimbingSpeed() {
         if (!isClimbing()) {
-            return motion
+            return
         }
 
         onLanding()
-        val d = MathHelper.clamp(motion.x, -0.15000000596046448, 0.15000000596046448)
-        val e = MathHelper.clamp(motion.z, -0.15000000596046448, 0.15000000596046448)
-        var g = max(motion.y, -0.15000000596046448)
-        if (g < 0.0 && !pos.toBlockPos().getState()!!.isOf(Blocks.SCAFFOLDING) && player.isHoldingOntoLadder) {
-            g = 0.0
+        velocityX = MathHelper.clamp(velocityX, -0.15000000596046448, 0.15000000596046448)
+        velocityZ = MathHelper.clamp(velocityZ, -0.15000000596046448, 0.15000000596046448)
+        velocityY = max(velocityY, -0.15000000596046448)
+        if (velocityY < 0.0 && !world.getBlockState(blockPos.set(x, y, z)).isOf(Blocks.SCAFFOLDING) &&
+            player.isHoldingOntoLadder
+        ) {
+            velocityY = 0.0
         }
-
-        return Vec3d(d, g, e)
     }
-    private fun applyWebSpeed(motion: Vec3d): Vec3d {
-        val blockState = world.getBlockState(pos.toBlockPos())
+
+    private fun applyWebSpeed() {
+        val blockState = world.getBlockState(blockPos.set(x, y, z))
         if (blockState.block != Blocks.COBWEB) {
-            return motion
+            return
         }
-        val multiplier = if (hasStatusEffect(StatusEffects.WEAVING)) {
-            Vec3d(0.5, 0.25, 0.5)
+
+        if (hasStatusEffect(StatusEffects.WEAVING)) {
+            velocityX *= 0.5
+            velocityY *= 0.25
+            velocityZ *= 0.5
         } else {
-            Vec3d(0.25, 0.05, 0.25)
+            velocityX *= 0.25
+            velocityY *= 0.05
+            velocityZ *= 0.25
         }
-        return motion.multiply(multiplier.x, multiplier.y, multiplier.z)
     }
 
     private fun isClimbing(): Boolean {
-        val blockPos = pos.toBlockPos()
-        val blockState = blockPos.getState()!!
+        val blockState = world.getBlockState(blockPos.set(x, y, z))
         return if (blockState.isIn(BlockTags.CLIMBABLE)) {
             true
         } else if (blockState.block is TrapdoorBlock && this.canEnterTrapdoor(blockPos, blockState)) {
@@ -589,7 +685,7 @@ class SimulatedPlayer(
             val f = 0.05
             while (d != 0.0 && world.isSpaceEmpty(
                     player,
-                    boundingBox.offset(d, -STEP_HEIGHT, 0.0)
+                    offsetBox(d, -STEP_HEIGHT, 0.0)
                 )
             ) {
                 if (d < 0.05 && d >= -0.05) {
@@ -604,7 +700,7 @@ class SimulatedPlayer(
             }
             while (e != 0.0 && world.isSpaceEmpty(
                     player,
-                    boundingBox.offset(0.0, -STEP_HEIGHT, e)
+                    offsetBox(0.0, -STEP_HEIGHT, e)
                 )
             ) {
                 if (e < 0.05 && e >= -0.05) {
@@ -619,7 +715,7 @@ class SimulatedPlayer(
             }
             while (d != 0.0 && e != 0.0 && world.isSpaceEmpty(
                     player,
-                    boundingBox.offset(d, -STEP_HEIGHT, e)
+                    offsetBox(d, -STEP_HEIGHT, e)
                 )
             ) {
                 d =
@@ -653,7 +749,7 @@ class SimulatedPlayer(
     private fun method_30263(): Boolean {
         return onGround || this.fallDistance < STEP_HEIGHT && !world.isSpaceEmpty(
             player,
-            boundingBox.offset(0.0, this.fallDistance - STEP_HEIGHT, 0.0)
+            offsetBox(0.0, this.fallDistance - STEP_HEIGHT, 0.0)
         )
     }
 
@@ -671,14 +767,32 @@ class SimulatedPlayer(
         }
 
     private fun getJumpVelocityMultiplier(): Float {
-        val f = pos.toBlockPos().getBlock()?.jumpVelocityMultiplier ?: 0f
-        val g = getVelocityAffectingPos().getBlock()?.jumpVelocityMultiplier ?: 0f
+        val f = world.getBlockState(blockPos.set(x, y, z)).block.jumpVelocityMultiplier
+        val g = world.getBlockState(getVelocityAffectingPos()).block.jumpVelocityMultiplier
 
         return if (f.toDouble() == 1.0) g else f
     }
 
     private fun doesNotCollide(offsetX: Double, offsetY: Double, offsetZ: Double): Boolean {
-        return this.doesNotCollide(this.boundingBox.offset(offsetX, offsetY, offsetZ))
+        return this.doesNotCollide(offsetBox(offsetX, offsetY, offsetZ))
+    }
+
+    /**
+     * The [boundingBox] offset by the given distances, in a single allocation.
+     */
+    private fun offsetBox(offsetX: Double, offsetY: Double, offsetZ: Double): Box {
+        val dimensions = player.dimensions
+        val halfWidth = dimensions.width / 2f
+        val height = dimensions.height
+
+        return Box(
+            x - halfWidth + offsetX,
+            y + offsetY,
+            z - halfWidth + offsetZ,
+            x + halfWidth + offsetX,
+            y + height + offsetY,
+            z + halfWidth + offsetZ
+        )
     }
 
     private fun doesNotCollide(box: Box): Boolean {
@@ -686,15 +800,14 @@ class SimulatedPlayer(
     }
 
     private fun swimUpward(fluid: TagKey<Fluid>) {
-        velocity += Vec3d(
-            0.0,
-            if (fluid === FluidTags.WATER) 0.03999999910593033 else 0.005999999865889549,
-            0.0
-        )
+        velocityY += if (fluid === FluidTags.WATER) 0.03999999910593033 else 0.005999999865889549
     }
 
-    private fun getVelocityAffectingPos() =
-        BlockPos.ofFloored(this.pos.x, this.boundingBox.minY - 0.5000001, this.pos.z)
+    /**
+     * The bottom of the [boundingBox] is at [y].
+     */
+    private fun getVelocityAffectingPos(): BlockPos =
+        velocityAffectingPos.set(this.x, this.y - 0.5000001, this.z)
 
     private fun getSwimHeight(): Double {
         return if (player.standingEyeHeight.toDouble() < 0.4) 0.0 else 0.4
@@ -702,7 +815,7 @@ class SimulatedPlayer(
 
     private fun isTouchingWater(): Boolean = touchingWater
     private fun isInLava(): Boolean {
-        return this.fluidHeight.getDouble(FluidTags.LAVA) > 0.0
+        return this.lavaHeight > 0.0
     }
 
     private fun checkWaterState() {
@@ -728,14 +841,14 @@ class SimulatedPlayer(
             isSprinting() && this.isSubmergedInWater() &&
                 !this.player.hasVehicle() &&
                 this.player.world
-                    .getFluidState(this.pos.toBlockPos())
+                    .getFluidState(blockPos.set(x, y, z))
                     .isIn(FluidTags.WATER)
         }
     }
 
     private fun updateSubmergedInWaterState() {
-        submergedInWater = this.submergedFluidTag.contains(FluidTags.WATER)
-        submergedFluidTag.clear()
+        submergedInWater = this.eyeInWater
+        eyeInWater = false
         val d: Double = this.getEyeY() - 0.1111111119389534
         val entity = this.player.vehicle
         if (entity is BoatEntity) {
@@ -743,43 +856,47 @@ class SimulatedPlayer(
                 return
             }
         }
-        val blockPos = BlockPos.ofFloored(this.pos.x, d, this.pos.z)
-        val fluidState: FluidState = this.player.world.getFluidState(blockPos)
-        val e = (blockPos.y.toFloat() + fluidState.getHeight(this.player.world, blockPos)).toDouble()
+        val eyePos = blockPos.set(this.x, d, this.z)
+        val fluidState: FluidState = this.player.world.getFluidState(eyePos)
+        val e = (eyePos.y.toFloat() + fluidState.getHeight(this.player.world, eyePos)).toDouble()
         if (e > d) {
-            fluidState.streamTags().forEach {
-                submergedFluidTag.add(it)
-            }
+            eyeInWater = fluidState.isIn(FluidTags.WATER)
         }
     }
 
     private fun getEyeY(): Double {
-        return this.pos.y + this.player.standingEyeHeight.toDouble()
+        return this.y + this.player.standingEyeHeight.toDouble()
     }
 
     private fun isSubmergedInWater(): Boolean {
         return this.submergedInWater && isTouchingWater()
     }
 
-    private fun getFluidHeight(tags: TagKey<Fluid>): Double = this.fluidHeight.getDouble(tags)
+    private fun getFluidHeight(tags: TagKey<Fluid>): Double = when (tags) {
+        FluidTags.WATER -> waterHeight
+        FluidTags.LAVA -> lavaHeight
+        else -> 0.0
+    }
 
     private fun updateMovementInFluid(tag: TagKey<Fluid>, speed: Double): Boolean {
         if (this.isRegionUnloaded()) {
             return false
         }
-        val box = this.boundingBox.contract(0.001)
-        val i = MathHelper.floor(box.minX)
-        val j = MathHelper.ceil(box.maxX)
-        val k = MathHelper.floor(box.minY)
-        val l = MathHelper.ceil(box.maxY)
-        val m = MathHelper.floor(box.minZ)
-        val n = MathHelper.ceil(box.maxZ)
+        // The bounding box contracted by 0.001
+        val halfWidth = player.dimensions.width / 2f
+        val minY = y + 0.001
+        val i = MathHelper.floor(x - halfWidth + 0.001)
+        val j = MathHelper.ceil(x + halfWidth - 0.001)
+        val k = MathHelper.floor(minY)
+        val l = MathHelper.ceil(y + player.dimensions.height - 0.001)
+        val m = MathHelper.floor(z - halfWidth + 0.001)
+        val n = MathHelper.ceil(z + halfWidth - 0.001)
         var d = 0.0
         val bl = true // this.isPushedByFluids()
         var bl2 = false
         var vec3d = Vec3d.ZERO
         var o = 0
-        val mutable = BlockPos.Mutable()
+        val mutable = blockPos
 
         for (p in i until j) {
             for (q in k until l) {
@@ -788,9 +905,9 @@ class SimulatedPlayer(
                     val fluidState: FluidState = this.player.world.getFluidState(mutable)
                     if (fluidState.isIn(tag)) {
                         val e = (q.toFloat() + fluidState.getHeight(this.player.world, mutable)).toDouble()
-                        if (e >= box.minY) {
+                        if (e >= minY) {
                             bl2 = true
-                            d = max(e - box.minY, d)
+                            d = max(e - minY, d)
                             if (bl) {
                                 var vec3d2 = fluidState.getVelocity(this.player.world, mutable)
                                 if (d < 0.4) {
@@ -812,25 +929,29 @@ class SimulatedPlayer(
 //            if (this !is PlayerEntity) {
 //                vec3d = vec3d.normalize()
 //            }
-            val vec3d3: Vec3d = velocity
             vec3d = vec3d.multiply(speed * 1.0)
-            val f = 0.003
-            if (abs(vec3d3.x) < 0.003 && abs(vec3d3.z) < 0.003 && vec3d.length() < 0.0045000000000000005) {
+            if (abs(velocityX) < 0.003 && abs(velocityZ) < 0.003 && vec3d.length() < 0.0045000000000000005) {
                 vec3d = vec3d.normalize().multiply(0.0045000000000000005)
             }
-            velocity += vec3d
+            velocityX += vec3d.x
+            velocityY += vec3d.y
+            velocityZ += vec3d.z
         }
 
-        this.fluidHeight.put(tag, d)
+        when (tag) {
+            FluidTags.WATER -> waterHeight = d
+            FluidTags.LAVA -> lavaHeight = d
+        }
         return bl2
     }
 
     private fun isRegionUnloaded(): Boolean {
-        val box = this.boundingBox.expand(1.0)
-        val i = MathHelper.floor(box.minX)
-        val j = MathHelper.ceil(box.maxX)
-        val k = MathHelper.floor(box.minZ)
-        val l = MathHelper.ceil(box.maxZ)
+        // The bounding box expanded by 1
+        val halfWidth = player.dimensions.width / 2f
+        val i = MathHelper.floor(x - halfWidth - 1.0)
+        val j = MathHelper.ceil(x + halfWidth + 1.0)
+        val k = MathHelper.floor(z - halfWidth - 1.0)
+        val l = MathHelper.ceil(z + halfWidth + 1.0)
         return !this.player.world.isRegionLoaded(i, k, j, l)
     }
 
@@ -874,7 +995,6 @@ class SimulatedPlayer(
             input,
             pos,
             velocity,
-            boundingBox,
             yaw,
             pitch,
             sprinting,
@@ -888,8 +1008,9 @@ class SimulatedPlayer(
             touchingWater,
             isSwimming,
             submergedInWater,
-            Object2DoubleArrayMap(fluidHeight),
-            HashSet(submergedFluidTag)
+            waterHeight,
+            lavaHeight,
+            eyeInWater
         )
     }
 
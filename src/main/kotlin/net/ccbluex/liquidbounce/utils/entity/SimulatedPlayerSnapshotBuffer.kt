@@ -0,0 +1,219 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.entity
+
+import net.minecraft.util.math.Vec3d
+
+/**
+ * Stores the [SimulatedPlayerSnapshot]s of consecutive ticks in primitive arrays, one per component,
+ * instead of keeping three objects per tick. The index-based accessors read a component without allocating,
+ * [get] and [slice] create snapshots and are meant for callers which keep them.
+ *
+ * Append-only and non-thread-safe. A buffer which is not appended to anymore can be read from any thread.
+ */
+class SimulatedPlayerSnapshotBuffer @JvmOverloads constructor(initialCapacity: Int = 16) {
+
+    init {
+        require(initialCapacity > 0) { "initialCapacity should be positive" }
+    }
+
+    private var posX = DoubleArray(initialCapacity)
+    private var posY = DoubleArray(initialCapacity)
+    private var posZ = DoubleArray(initialCapacity)
+    private var velocityX = DoubleArray(initialCapacity)
+    private var velocityY = DoubleArray(initialCapacity)
+    private var velocityZ = DoubleArray(initialCapacity)
+    private var fallDistance = FloatArray(initialCapacity)
+
+    /**
+     * [FLAG_ON_GROUND] and [FLAG_CLIP_LEDGED]
+     */
+    private var flags = ByteArray(initialCapacity)
+
+    @get:JvmName("size")
+    var size = 0
+        private set
+
+    val indices: IntRange
+        get() = 0 until size
+
+    fun add(player: SimulatedPlayer) {
+        val i = append(player.fallDistance, player.onGround, player.clipLedged)
+        posX[i] = player.x
+        posY[i] = player.y
+        posZ[i] = player.z
+        velocityX[i] = player.velocityX
+        velocityY[i] = player.velocityY
+        velocityZ[i] = player.velocityZ
+    }
+
+    fun add(snapshot: SimulatedPlayerSnapshot) {
+        val i = append(snapshot.fallDistance, snapshot.onGround, snapshot.clipLedged)
+        posX[i] = snapshot.pos.x
+        posY[i] = snapshot.pos.y
+        posZ[i] = snapshot.pos.z
+        velocityX[i] = snapshot.velocity.x
+        velocityY[i] = snapshot.velocity.y
+        velocityZ[i] = snapshot.velocity.z
+    }
+
+    /**
+     * Appends a snapshot with the given components, its position and velocity are set by the caller.
+     *
+     * @return the index of the snapshot
+     */
+    private fun append(fallDistance: Float, onGround: Boolean, clipLedged: Boolean): Int {
+        if (size == posX.size) {
+            grow(size * 2)
+        }
+
+        val i = size++
+        this.fallDistance[i] = fallDistance
+
+        var flag = 0
+        if (onGround) {
+            flag = flag or FLAG_ON_GROUND
+        }
+        if (clipLedged) {
+            flag = flag or FLAG_CLIP_LEDGED
+        }
+        flags[i] = flag.toByte()
+
+        return i
+    }
+
+    /**
+     * Appends all snapshots of [other].
+     */
+    fun addAll(other: SimulatedPlayerSnapshotBuffer) {
+        val newSize = size + other.size
+        if (newSize > posX.size) {
+            grow(maxOf(newSize, posX.size * 2))
+        }
+
+        System.arraycopy(other.posX, 0, posX, size, other.size)
+        System.arraycopy(other.posY, 0, posY, size, other.size)
+        System.arraycopy(other.posZ, 0, posZ, size, other.size)
+        System.arraycopy(other.velocityX, 0, velocityX, size, other.size)
+        System.arraycopy(other.velocityY, 0, velocityY, size, other.size)
+        System.arraycopy(other.velocityZ, 0, velocityZ, size, other.size)
+        System.arraycopy(other.fallDistance, 0, fallDistance, size, other.size)
+        System.arraycopy(other.flags, 0, flags, size, other.size)
+        size = newSize
+    }
+
+    private fun grow(capacity: Int) {
+        posX = posX.copyOf(capacity)
+        posY = posY.copyOf(capacity)
+        posZ = posZ.copyOf(capacity)
+        velocityX = velocityX.copyOf(capacity)
+        velocityY = velocityY.copyOf(capacity)
+        velocityZ = velocityZ.copyOf(capacity)
+        fallDistance = fallDistance.copyOf(capacity)
+        flags = flags.copyOf(capacity)
+    }
+
+    private fun checkIndex(tick: Int) {
+        if (tick !in indices) {
+            throw IndexOutOfBoundsException("Tick $tick is out of bounds for size $size")
+        }
+    }
+
+    fun getX(tick: Int): Double {
+        checkIndex(tick)
+        return posX[tick]
+    }
+
+    fun getY(tick: Int): Double {
+        checkIndex(tick)
+        return posY[tick]
+    }
+
+    fun getZ(tick: Int): Double {
+        checkIndex(tick)
+        return posZ[tick]
+    }
+
+    fun getVelocityX(tick: Int): Double {
+        checkIndex(tick)
+        return velocityX[tick]
+    }
+
+    fun getVelocityY(tick: Int): Double {
+        checkIndex(tick)
+        return velocityY[tick]
+    }
+
+    fun getVelocityZ(tick: Int): Double {
+        checkIndex(tick)
+        return velocityZ[tick]
+    }
+
+    fun getFallDistance(tick: Int): Float {
+        checkIndex(tick)
+        return fallDistance[tick]
+    }
+
+    fun isOnGround(tick: Int): Boolean {
+        checkIndex(tick)
+        return (flags[tick].toInt() and FLAG_ON_GROUND) != 0
+    }
+
+    fun isClipLedged(tick: Int): Boolean {
+        checkIndex(tick)
+        return (flags[tick].toInt() and FLAG_CLIP_LEDGED) != 0
+    }
+
+    fun getPos(tick: Int): Vec3d {
+        checkIndex(tick)
+        return Vec3d(posX[tick], posY[tick], posZ[tick])
+    }
+
+    operator fun get(tick: Int): SimulatedPlayerSnapshot {
+        checkIndex(tick)
+
+        val flag = flags[tick].toInt()
+        return SimulatedPlayerSnapshot(
+            pos = Vec3d(posX[tick], posY[tick], posZ[tick]),
+            fallDistance = fallDistance[tick],
+            velocity = Vec3d(velocityX[tick], velocityY[tick], velocityZ[tick]),
+            onGround = (flag and FLAG_ON_GROUND) != 0,
+            clipLedged = (flag and FLAG_CLIP_LEDGED) != 0
+        )
+    }
+
+    /**
+     * Returns the snapshots of [ticks] as a new list.
+     */
+    fun slice(ticks: IntRange): List<SimulatedPlayerSnapshot> {
+        if (ticks.isEmpty()) {
+            return emptyList()
+        }
+
+        checkIndex(ticks.first)
+        checkIndex(ticks.last)
+        return ticks.map(::get)
+    }
+
+    private companion object {
+        const val FLAG_ON_GROUND = 1
+        const val FLAG_CLIP_LEDGED = 2
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.kotlin
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import net.ccbluex.liquidbounce.utils.client.logger
+import kotlin.time.Duration
+
+/**
+ * Collects the keys requested within [window] and fetches them together, at most [parallelism] at once.
+ * A key which is already pending is not fetched again, its callbacks are called with the same result.
+ *
+ * The window is only awaited once per drain, keys which are requested while a batch is fetched
+ * are fetched right after it. A failing callback does not affect the others.
+ *
+ * @param fetch loads the value of a key, failures are passed to the callbacks as a failed [Result]
+ */
+class CoalescingFetcher<K : Any, V>(
+    private val scope: CoroutineScope,
+    private val window: Duration,
+    private val parallelism: Int,
+    private val fetch: suspend (K) -> V
+) {
+
+    init {
+        require(parallelism > 0) { "parallelism should be positive" }
+    }
+
+    /**
+     * Guarded by itself, also guards [drainJob].
+     */
+    private val pending = LinkedHashMap<K, MutableList<(Result<V>) -> Unit>>()
+    private var drainJob: Job? = null
+
+    val pendingCount: Int
+        get() = synchronized(pending) { pending.size }
+
+    /**
+     * Queues [key] to be fetched with the next batch.
+     *
+     * @return false if the key was already pending
+     */
+    fun request(key: K, callback: (Result<V>) -> Unit): Boolean {
+        synchronized(pending) {
+            val callbacks = pending[key]
+            if (callbacks != null) {
+                callbacks += callback
+                return false
+            }
+
+            pending[key] = mutableListOf(callback)
+
+            if (drainJob == null) {
+                drainJob = scope.launch { drain() }
+            }
+
+            return true
+        }
+    }
+
+    private suspend fun drain() {
+        val job = currentCoroutineContext()[Job]
+
+        try {
+            // Gives the keys requested around the same time, e.g. a whole lobby, the chance to join the batch
+            delay(window)
+
+            while (true) {
+                val batch = synchronized(pending) {
+                    if (pending.isEmpty()) {
+                        drainJob = null
+                        return
+                    }
+
+                    pending.keys.take(parallelism).map { key -> key to pending.remove(key)!! }
+                }
+
+                coroutineScope {
+                    batch.map { (key, callbacks) ->
+                        async {
+                            val result = runCatching { fetch(key) }
+                            for (callback in callbacks) {
+                                runCatching { callback(result) }.onFailure {
+                                    logger.error("Failed to handle the fetched value of $key", it)
+                                }
+                            }
+                        }
+                    }.awaitAll()
+                }
+            }
+        } finally {
+            // After a cancellation the next request starts a new drain, unless one has been started already
+            synchronized(pending) {
+                if (drainJob === job) {
+                    drainJob = null
+                }
+            }
+        }
+    }
+
+}
@@ -23,14 +23,19 @@ import net.ccbluex.liquidbounce.event.EventListener
 import net.ccbluex.liquidbounce.event.events.WorldRenderEvent
 import net.ccbluex.liquidbounce.event.handler
 import net.ccbluex.liquidbounce.features.module.modules.combat.aimbot.ModuleProjectileAimbot
+import net.ccbluex.liquidbounce.features.module.modules.render.ModuleDebug
 import net.ccbluex.liquidbounce.features.module.modules.render.ModuleDebug.debugParameter
 import net.ccbluex.liquidbounce.render.engine.type.Vec3
 import net.ccbluex.liquidbounce.utils.aiming.utils.toVec3d
 import net.ccbluex.liquidbounce.utils.client.mc
 import net.ccbluex.liquidbounce.utils.math.geometry.Line
 import net.ccbluex.liquidbounce.utils.math.minus
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec2f
 import net.minecraft.util.math.Vec3d
+import net.minecraft.util.math.Vec3i
+import org.joml.FrustumIntersection
 import org.joml.Matrix4f
 import org.joml.Vector3f
 import java.text.NumberFormat
@@ -46,6 +51,37 @@ object WorldToScreen : EventListener {
     private val cacheMatrix = Matrix4f()
     private val cacheVec3f = Vector3f()
 
+    /**
+     * The view frustum of the current frame, relative to [frustumOrigin].
+     */
+    private val frustum = FrustumIntersection()
+    private var frustumOrigin: Vec3d? = null
+
+    /**
+     * Boxes are only counted while [ModuleDebug] is running.
+     */
+    private var countBoxes = false
+    private var culledBoxes = 0
+    private var visibleBoxes = 0
+
+    /**
+     * Captures the frustum at the start of the world rendering, before the outline pass and [WorldRenderEvent],
+     * from the same matrices as the frustum of Minecraft.
+     */
+    @JvmStatic
+    fun captureFrustum(positionMatrix: Matrix4f, projectionMatrix: Matrix4f, cameraPos: Vec3d) {
+        if (countBoxes) {
+            debugParameter("Culled") { culledBoxes }
+            debugParameter("Visible") { visibleBoxes }
+        }
+        countBoxes = ModuleDebug.running
+        culledBoxes = 0
+        visibleBoxes = 0
+
+        frustum.set(cacheMatrix.set(projectionMatrix).mul(positionMatrix))
+        frustumOrigin = cameraPos
+    }
+
     @Suppress("unused")
     private val renderHandler = handler<WorldRenderEvent>(priority = -100) { event ->
         val matrixStack = event.matrixStack
@@ -98,6 +134,132 @@ object WorldToScreen : EventListener {
         return Line(cameraPos, relativePos.toVec3d())
     }
 
+    /**
+     * Returns if any part of the box between the given world coordinates is in the view frustum
+     * of the current frame. Everything is visible before the first frame.
+     */
+    @JvmStatic
+    fun isVisible(minX: Double, minY: Double, minZ: Double, maxX: Double, maxY: Double, maxZ: Double): Boolean {
+        val origin = frustumOrigin ?: return true
+
+        val visible = frustum.testAab(
+            (minX - origin.x).toFloat(),
+            (minY - origin.y).toFloat(),
+            (minZ - origin.z).toFloat(),
+            (maxX - origin.x).toFloat(),
+            (maxY - origin.y).toFloat(),
+            (maxZ - origin.z).toFloat()
+        )
+
+        if (countBoxes) {
+            if (visible) {
+                visibleBoxes++
+            } else {
+                culledBoxes++
+            }
+        }
+        return visible
+    }
+
+    /**
+     * @param box in world coordinates
+     */
+    @JvmStatic
+    fun isVisible(box: Box) = isVisible(
+        minX = box.minX,
+        minY = box.minY,
+        minZ = box.minZ,
+        maxX = box.maxX,
+        maxY = box.maxY,
+        maxZ = box.maxZ
+    )
+
+    /**
+     * @param box relative to [pos]
+     */
+    @JvmStatic
+    fun isVisible(pos: Vec3d, box: Box) = isVisible(
+        minX = pos.x + box.minX,
+        minY = pos.y + box.minY,
+        minZ = pos.z + box.minZ,
+        maxX = pos.x + box.maxX,
+        maxY = pos.y + box.maxY,
+        maxZ = pos.z + box.maxZ
+    )
+
+    /**
+     * @param box relative to [pos]
+     */
+    @JvmStatic
+    fun isVisible(pos: Vec3i, box: Box) = isVisible(
+        minX = pos.x + box.minX,
+        minY = pos.y + box.minY,
+        minZ = pos.z + box.minZ,
+        maxX = pos.x + box.maxX,
+        maxY = pos.y + box.maxY,
+        maxZ = pos.z + box.maxZ
+    )
+
+    /**
+     * Returns if the block space at [pos] is visible.
+     */
+    @JvmStatic
+    fun isVisible(pos: BlockPos) = isVisible(
+        minX = pos.x.toDouble(),
+        minY = pos.y.toDouble(),
+        minZ = pos.z.toDouble(),
+        maxX = pos.x + 1.0,
+        maxY = pos.y + 1.0,
+        maxZ = pos.z + 1.0
+    )
+
+    /**
+     * Moves the positions among the first [size] [BlockPos.asLong] values of [positions] whose box is visible
+     * to its front, keeping their order. The box of a position has its minimum corner at the position
+     * and the given size in blocks.
+     *
+     * Tests the whole batch against the frustum of the current frame without allocating, prefer it over
+     * [isVisible] when many boxes of the same size are culled at once.
+     *
+     * @return the count of visible positions
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun filterVisible(
+        positions: LongArray,
+        size: Int = positions.size,
+        sizeX: Double = 1.0,
+        sizeY: Double = 1.0,
+        sizeZ: Double = 1.0
+    ): Int {
+        val origin = frustumOrigin ?: return size
+        var visible = 0
+
+        for (i in 0 until size) {
+            val pos = positions[i]
+            val minX = (BlockPos.unpackLongX(pos) - origin.x).toFloat()
+            val minY = (BlockPos.unpackLongY(pos) - origin.y).toFloat()
+            val minZ = (BlockPos.unpackLongZ(pos) - origin.z).toFloat()
+
+            if (frustum.testAab(
+                    minX,
+                    minY,
+                    minZ,
+                    (minX + sizeX).toFloat(),
+                    (minY + sizeY).toFloat(),
+                    (minZ + sizeZ).toFloat()
+                )) {
+                positions[visible++] = pos
+            }
+        }
+
+        if (countBoxes) {
+            visibleBoxes += visible
+            culledBoxes += size - visible
+        }
+        return visible
+    }
+
 }
 
 private fun Vector3f.set(vec3d: Vec3d) = set(vec3d.x, vec3d.y, vec3d.z)
@@ -0,0 +1,11 @@
+#version 410 core
+
+uniform vec4 ColorModulator;
+
+in vec4 fragColor;
+
+out vec4 finalColor;
+
+void main() {
+    finalColor = fragColor * ColorModulator;
+}
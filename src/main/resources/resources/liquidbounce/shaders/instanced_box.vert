@@ -0,0 +1,25 @@
+#version 410 core
+
+in vec3 Position;
+in vec3 Offset;
+in vec3 Size;
+in vec4 FaceColor;
+in vec4 OutlineColor;
+
+uniform mat4 ModelViewMat;
+uniform mat4 ProjMat;
+uniform int Outline;
+
+out vec4 fragColor;
+
+void main() {
+    fragColor = Outline != 0 ? OutlineColor : FaceColor;
+
+    // Boxes without this color are moved out of the clip space, so their primitives are discarded
+    if (fragColor.a == 0.0) {
+        gl_Position = vec4(2.0, 2.0, 2.0, 1.0);
+        return;
+    }
+
+    gl_Position = ProjMat * ModelViewMat * vec4(Offset + Position * Size, 1.0);
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.config.gson.util
+
+import com.google.gson.JsonArray
+import com.google.gson.JsonElement
+import com.google.gson.JsonParser
+import com.google.gson.JsonPrimitive
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import java.io.StringReader
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+
+class GsonExtensionsTest {
+
+    /**
+     * Shaped like a config file, with values failing before, while and after being read.
+     */
+    private val config = """
+        {
+          "name": "root",
+          "value": [
+            { "name": "first", "value": 1 },
+            { "name": "broken", "value": { "deep": [1, 2, { "x": 3 }] }, "extra": true },
+            { "name": "nested", "value": [
+              { "name": "inner", "value": "a" },
+              { "name": "object", "value": { "not": "primitive" }, "after": [1, 2] },
+              { "name": "last", "value": false }
+            ] },
+            "not an object",
+            { "name": "second", "value": 2.5 }
+          ]
+        }
+    """.trimIndent()
+
+    private val expected = mapOf(
+        "first" to JsonPrimitive(1),
+        "nested.inner" to JsonPrimitive("a"),
+        "nested.last" to JsonPrimitive(false),
+        "second" to JsonPrimitive(2.5)
+    )
+
+    @Test
+    fun `reader and tree skip the same failing values`() {
+        val fromTree = readTree()
+        val fromReader = readStreaming()
+
+        assertEquals(expected, fromTree)
+        assertEquals(fromTree, fromReader)
+    }
+
+    @Test
+    fun `failure after reading a property does not skip the next one`() {
+        val reader = JsonReader(StringReader("""{ "a": { "b": [1] }, "c": 2 }"""))
+        var failures = 0
+
+        reader.beginObject()
+        reader.nextName()
+        reader.readIsolated({ failures++ }) {
+            reader.parseTree()
+            error("Fails after the value")
+        }
+
+        assertEquals(1, failures)
+        assertEquals("c", reader.nextName())
+        assertEquals(2, reader.nextInt())
+        reader.endObject()
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek())
+    }
+
+    @Test
+    fun `failure before reading a property skips its value`() {
+        val reader = JsonReader(StringReader("""{ "a": [1, { "b": 2 }], "c": 3 }"""))
+
+        reader.beginObject()
+        reader.nextName()
+        reader.readIsolated({}) {
+            reader.beginObject()
+        }
+
+        assertEquals("c", reader.nextName())
+        assertEquals(3, reader.nextInt())
+        reader.endObject()
+        assertFalse(reader.hasNext())
+    }
+
+    private fun readTree(): Map<String, JsonElement> {
+        val result = LinkedHashMap<String, JsonElement>()
+
+        fun readValues(prefix: String, values: JsonArray) {
+            for (element in values) {
+                runCatching {
+                    val valueObject = element.asJsonObject
+                    val name = prefix + valueObject["name"].asString
+                    check(!name.endsWith("broken"))
+
+                    val value = valueObject["value"]
+                    if (value.isJsonArray) {
+                        readValues("$name.", value.asJsonArray)
+                    } else {
+                        check(value.isJsonPrimitive)
+                        result[name] = value
+                    }
+                }
+            }
+        }
+
+        readValues("", JsonParser.parseString(config).asJsonObject["value"].asJsonArray)
+        return result
+    }
+
+    private fun readStreaming(): Map<String, JsonElement> {
+        val result = LinkedHashMap<String, JsonElement>()
+
+        JsonReader(StringReader(config)).use { reader ->
+            reader.beginObject()
+            while (reader.hasNext()) {
+                if (reader.nextName() == "value") {
+                    reader.readValues("", result)
+                } else {
+                    reader.skipValue()
+                }
+            }
+            reader.endObject()
+        }
+
+        return result
+    }
+
+    private fun JsonReader.readValues(prefix: String, result: MutableMap<String, JsonElement>) {
+        beginArray()
+        while (hasNext()) {
+            readIsolated({}) {
+                readValue(prefix, result)
+            }
+        }
+        endArray()
+    }
+
+    private fun JsonReader.readValue(prefix: String, result: MutableMap<String, JsonElement>) {
+        beginObject()
+        check(nextName() == "name")
+        val name = prefix + nextString()
+        check(!name.endsWith("broken"))
+
+        while (hasNext()) {
+            if (nextName() != "value") {
+                skipValue()
+            } else if (peek() == JsonToken.BEGIN_ARRAY) {
+                readValues("$name.", result)
+            } else {
+                val element = parseTree()
+                check(element.isJsonPrimitive)
+                result[name] = element
+            }
+        }
+
+        endObject()
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.features.cosmetic
+
+import net.ccbluex.liquidbounce.utils.kotlin.toMD5
+import java.util.*
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class CarrierDigestSetTest {
+
+    @Test
+    fun `contains the same UUIDs as the hex digests`() {
+        val carriers = List(1_000) { UUID.randomUUID() }
+        val others = List(1_000) { UUID.randomUUID() }
+
+        val set = CarrierDigestSet.of(carriers.map(UUID::toMD5))
+
+        assertEquals(carriers.size, set.size)
+        carriers.forEach { assertTrue(it in set) }
+        others.forEach { assertFalse(it in set) }
+    }
+
+    @Test
+    fun `skips invalid and duplicate digests`() {
+        val carrier = UUID.randomUUID()
+
+        val set = CarrierDigestSet.of(listOf(carrier.toMD5(), carrier.toMD5().uppercase(), "not a digest"))
+
+        assertEquals(1, set.size)
+        assertTrue(carrier in set)
+    }
+
+    @Test
+    fun `empty set contains nothing`() {
+        assertFalse(UUID.randomUUID() in CarrierDigestSet.EMPTY)
+        assertFalse(CarrierDigestSet.EMPTY.contains(high = 0L, low = 0L))
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.block
+
+import net.minecraft.util.math.BlockBox
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+
+class SectionGridTest {
+
+    @Test
+    fun `covers the sections of a box across negative coordinates`() {
+        val grid = SectionGrid.covering(BlockBox(-17, 10, -1, 16, 40, 15), bottomY = -64, topYInclusive = 319)
+
+        assertEquals(-2, grid.minChunkX)
+        assertEquals(0, grid.minSectionY)
+        assertEquals(-1, grid.minChunkZ)
+        assertEquals(4, grid.chunksX)
+        assertEquals(3, grid.sectionsY)
+        assertEquals(2, grid.chunksZ)
+        assertEquals(24, grid.size)
+    }
+
+    @Test
+    fun `leaves out the sections outside the world height`() {
+        val grid = SectionGrid.covering(BlockBox(0, -100, 0, 15, 400, 15), bottomY = -64, topYInclusive = 319)
+
+        assertEquals(-4, grid.minSectionY)
+        assertEquals(24, grid.sectionsY)
+    }
+
+    @Test
+    fun `box entirely outside the world height has no sections`() {
+        val grid = SectionGrid.covering(BlockBox(0, 400, 0, 15, 420, 15), bottomY = -64, topYInclusive = 319)
+
+        assertEquals(0, grid.size)
+        assertEquals(-1, grid.indexOf(0, 25, 0))
+    }
+
+    @Test
+    fun `every section has its own index, ordered by y, then z, then x`() {
+        val grid = SectionGrid(
+            minChunkX = -2,
+            minSectionY = -4,
+            minChunkZ = 3,
+            chunksX = 3,
+            sectionsY = 2,
+            chunksZ = 4
+        )
+        var expected = 0
+
+        for (sectionY in -4..-3) {
+            for (chunkZ in 3..6) {
+                for (chunkX in -2..0) {
+                    assertEquals(expected++, grid.indexOf(chunkX, sectionY, chunkZ))
+                }
+            }
+        }
+
+        assertEquals(grid.size, expected)
+    }
+
+    @Test
+    fun `sections outside the grid have no index`() {
+        val grid = SectionGrid(
+            minChunkX = 0,
+            minSectionY = 0,
+            minChunkZ = 0,
+            chunksX = 2,
+            sectionsY = 2,
+            chunksZ = 2
+        )
+
+        assertEquals(-1, grid.indexOf(-1, 0, 0))
+        assertEquals(-1, grid.indexOf(2, 0, 0))
+        assertEquals(-1, grid.indexOf(0, 2, 0))
+        assertEquals(-1, grid.indexOf(0, 0, -1))
+        assertEquals(-1, grid.indexOf(0, 0, 2))
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.block.hole
+
+import net.ccbluex.liquidbounce.utils.math.expendToBlockBox
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import kotlin.random.Random
+
+class HoleIndexTest {
+
+    private fun hole(x: Int, y: Int, z: Int) = Hole(Hole.Type.ONE_ONE, BlockBox(BlockPos(x, y, z)))
+
+    @Test
+    fun `equal holes are only added once`() {
+        val index = HoleIndex()
+
+        assertTrue(index.add(hole(1, 2, 3)))
+        assertFalse(index.add(hole(1, 2, 3)))
+        assertEquals(1, index.size)
+    }
+
+    @Test
+    fun `query finds holes across section borders`() {
+        val index = HoleIndex()
+        val twoByTwo = Hole(Hole.Type.TWO_TWO, BlockBox(15, 64, 15, 16, 64, 16))
+        index += twoByTwo
+        index += hole(40, 64, 40)
+
+        assertEquals(listOf(twoByTwo), index.query(BlockBox(BlockPos(16, 64, 16))))
+    }
+
+    @Test
+    fun `invalidating blocks above a hole are found`() {
+        val index = HoleIndex()
+        // The block two above the hole is in the next section
+        index += hole(0, 14, 0)
+
+        val pos = BlockPos(0, 16, 0)
+        index.removeIf(BlockBox(pos)) { pos in it.blockInvalidators }
+
+        assertTrue(index.isEmpty())
+    }
+
+    /**
+     * Replays a stream of block updates in an arena full of holes against the index and a linear scan
+     * over all holes, which is how holes were invalidated before.
+     */
+    @Test
+    fun `replayed block updates match linear scan`() {
+        val random = Random(42)
+        val holes = List(2_000) { hole(random.nextInt(-64, 64), random.nextInt(60, 68), random.nextInt(-64, 64)) }
+        val updates = List(20_000) {
+            BlockPos(random.nextInt(-64, 64), random.nextInt(58, 72), random.nextInt(-64, 64))
+        }
+
+        val index = HoleIndex()
+        val linear = HashSet<Hole>()
+        holes.forEach { index += it; linear += it }
+
+        var indexNanos = 0L
+        var linearNanos = 0L
+
+        for ((i, pos) in updates.withIndex()) {
+            val region = pos.expendToBlockBox(2, 3, 2)
+
+            var start = System.nanoTime()
+            index.removeIf(region) { it.positions.intersects(region) }
+            indexNanos += System.nanoTime() - start
+
+            start = System.nanoTime()
+            linear.removeIf { it.positions.intersects(region) }
+            linearNanos += System.nanoTime() - start
+
+            // Holes reappear, e.g. once the crystal is gone
+            val refilled = holes[i % holes.size]
+            index += refilled
+            linear += refilled
+        }
+
+        assertEquals(linear, index.toHashSet())
+        assertEquals(linear.size, index.size)
+
+        println(
+            "Replayed ${updates.size} updates: index ${indexNanos / 1_000_000} ms, " +
+                "linear scan ${linearNanos / 1_000_000} ms"
+        )
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.collection
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import kotlin.random.Random
+
+class IndexedIntMinHeapTest {
+    private lateinit var heap: IndexedIntMinHeap
+
+    @BeforeEach
+    fun setUp() {
+        // Small capacity to exercise growing
+        heap = IndexedIntMinHeap(2)
+    }
+
+    @Test
+    fun `poll returns ids ordered by key`() {
+        heap.insertOrUpdate(0, 30)
+        heap.insertOrUpdate(1, 10)
+        heap.insertOrUpdate(2, 20)
+
+        assertEquals(1, heap.poll())
+        assertEquals(2, heap.poll())
+        assertEquals(0, heap.poll())
+        assertTrue(heap.isEmpty())
+    }
+
+    @Test
+    fun `decreasing a key moves the id to the front`() {
+        heap.insertOrUpdate(0, 10)
+        heap.insertOrUpdate(1, 20)
+        heap.insertOrUpdate(2, 30)
+
+        heap.insertOrUpdate(2, 5)
+
+        assertEquals(3, heap.size)
+        assertEquals(5, heap.keyOf(2))
+        assertEquals(2, heap.poll())
+    }
+
+    @Test
+    fun `increasing a key moves the id back`() {
+        heap.insertOrUpdate(0, 10)
+        heap.insertOrUpdate(1, 20)
+
+        heap.insertOrUpdate(0, 40)
+
+        assertEquals(1, heap.poll())
+        assertEquals(0, heap.poll())
+    }
+
+    @Test
+    fun `contains only queued ids`() {
+        heap.insertOrUpdate(5, 1)
+
+        assertTrue(5 in heap)
+        assertFalse(4 in heap)
+        assertFalse(100 in heap)
+
+        heap.poll()
+        assertFalse(5 in heap)
+    }
+
+    @Test
+    fun `clear removes all ids`() {
+        heap.insertOrUpdate(0, 1)
+        heap.insertOrUpdate(1, 2)
+
+        heap.clear()
+
+        assertTrue(heap.isEmpty())
+        assertFalse(0 in heap)
+        assertThrows<NoSuchElementException> { heap.poll() }
+    }
+
+    @Test
+    fun `random updates keep heap order`() {
+        val random = Random(42)
+        val expectedKeys = HashMap<Int, Int>()
+
+        repeat(2000) {
+            val id = random.nextInt(500)
+            val key = random.nextInt(-1000, 1000)
+            heap.insertOrUpdate(id, key)
+            expectedKeys[id] = key
+        }
+
+        assertEquals(expectedKeys.size, heap.size)
+
+        var previous = Int.MIN_VALUE
+        while (heap.isNotEmpty()) {
+            val id = heap.peek()
+            val key = heap.keyOf(id)
+            assertEquals(id, heap.poll())
+
+            assertTrue(key >= previous)
+            assertEquals(expectedKeys.remove(id), key)
+            previous = key
+        }
+
+        assertTrue(expectedKeys.isEmpty())
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.ccbluex.liquidbounce.utils.entity
+
+import net.minecraft.util.math.Vec3d
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+
+class SimulatedPlayerSnapshotBufferTest {
+
+    /**
+     * A falling trajectory which changes every component of the snapshot.
+     */
+    private fun trajectory(ticks: Int) = List(ticks) { tick ->
+        SimulatedPlayerSnapshot(
+            pos = Vec3d(tick * 0.2, 64.0 - tick * tick * 0.08, -tick * 0.1),
+            fallDistance = tick * 0.5f,
+            velocity = Vec3d(0.2, -tick * 0.16, -0.1),
+            onGround = tick % 3 == 0,
+            clipLedged = tick % 5 == 0
+        )
+    }
+
+    @Test
+    fun `snapshots are read back unchanged`() {
+        val expected = trajectory(50)
+        // Small capacity to exercise growing
+        val buffer = SimulatedPlayerSnapshotBuffer(1)
+        expected.forEach(buffer::add)
+
+        assertEquals(expected.size, buffer.size)
+        for (tick in expected.indices) {
+            assertEquals(expected[tick], buffer[tick])
+            assertEquals(expected[tick].pos, buffer.getPos(tick))
+        }
+    }
+
+    @Test
+    fun `index accessors read the components of a tick`() {
+        val expected = trajectory(12)
+        val buffer = SimulatedPlayerSnapshotBuffer(4)
+        expected.forEach(buffer::add)
+
+        for (tick in expected.indices) {
+            val snapshot = expected[tick]
+            assertEquals(snapshot.pos.x, buffer.getX(tick))
+            assertEquals(snapshot.pos.y, buffer.getY(tick))
+            assertEquals(snapshot.pos.z, buffer.getZ(tick))
+            assertEquals(snapshot.velocity.x, buffer.getVelocityX(tick))
+            assertEquals(snapshot.velocity.y, buffer.getVelocityY(tick))
+            assertEquals(snapshot.velocity.z, buffer.getVelocityZ(tick))
+            assertEquals(snapshot.fallDistance, buffer.getFallDistance(tick))
+            assertEquals(snapshot.onGround, buffer.isOnGround(tick))
+            assertEquals(snapshot.clipLedged, buffer.isClipLedged(tick))
+        }
+
+        assertThrows<IndexOutOfBoundsException> { buffer.getX(expected.size) }
+    }
+
+    @Test
+    fun `slice returns the snapshots of the range`() {
+        val expected = trajectory(20)
+        val buffer = SimulatedPlayerSnapshotBuffer()
+        expected.forEach(buffer::add)
+
+        assertEquals(expected.subList(4, 11), buffer.slice(4..10))
+        assertTrue(buffer.slice(IntRange.EMPTY).isEmpty())
+        assertThrows<IndexOutOfBoundsException> { buffer.slice(15..20) }
+    }
+
+    @Test
+    fun `addAll appends after the existing snapshots`() {
+        val expected = trajectory(30)
+        val first = SimulatedPlayerSnapshotBuffer(2)
+        val second = SimulatedPlayerSnapshotBuffer(2)
+        expected.subList(0, 10).forEach(first::add)
+        expected.subList(10, 30).forEach(second::add)
+
+        first.addAll(second)
+
+        assertEquals(expected, first.slice(first.indices))
+    }
+
+    @Test
+    fun `reading outside of the buffer fails`() {
+        val buffer = SimulatedPlayerSnapshotBuffer()
+        trajectory(3).forEach(buffer::add)
+
+        assertThrows<IndexOutOfBoundsException> { buffer[3] }
+        assertThrows<IndexOutOfBoundsException> { buffer[-1] }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of LiquidBounce (https://github.com/CCBlueX/LiquidBounce)
+ *
+ * Copyright (c) 2015 - 2025 CCBlueX
+ *
+ * LiquidBounce is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * LiquidBounce is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with LiquidBounce. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.ccbluex.liquidbounce.utils.kotlin
+
+import com.sun.net.httpserver.HttpServer
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import java.net.InetSocketAddress
+import java.net.URI
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.AfterTest
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * Fetches from a local HTTP server which counts the requests per path.
+ */
+class CoalescingFetcherTest {
+
+    private lateinit var server: HttpServer
+    private val requests = ConcurrentHashMap<String, AtomicInteger>()
+    private val concurrentRequests = AtomicInteger()
+    private val maxConcurrentRequests = AtomicInteger()
+
+    private val executor = Executors.newCachedThreadPool()
+    private val scope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+
+    @BeforeTest
+    fun startServer() {
+        server = HttpServer.create(InetSocketAddress("127.0.0.1", 0), 0)
+        server.executor = executor
+        server.createContext("/cosmetics/carrier/") { exchange ->
+            val current = concurrentRequests.incrementAndGet()
+            maxConcurrentRequests.accumulateAndGet(current, Math::max)
+
+            val key = exchange.requestURI.path.substringAfterLast('/')
+            requests.computeIfAbsent(key) { AtomicInteger() }.incrementAndGet()
+
+            Thread.sleep(20)
+            concurrentRequests.decrementAndGet()
+
+            val body = "cosmetics of $key".toByteArray()
+            exchange.sendResponseHeaders(200, body.size.toLong())
+            exchange.responseBody.use { it.write(body) }
+        }
+        server.start()
+    }
+
+    @AfterTest
+    fun stopServer() {
+        scope.cancel()
+        server.stop(0)
+        executor.shutdownNow()
+    }
+
+    private fun fetcher(parallelism: Int) = CoalescingFetcher<String, String>(
+        scope = scope,
+        window = 50.milliseconds,
+        parallelism = parallelism
+    ) { key ->
+        URI("http://127.0.0.1:${server.address.port}/cosmetics/carrier/$key").toURL().readText()
+    }
+
+    @Test
+    fun `pending keys are fetched once`() {
+        val fetcher = fetcher(parallelism = 4)
+        val results = ConcurrentHashMap.newKeySet<String>()
+        val latch = CountDownLatch(3)
+
+        assertTrue(fetcher.request("a") { results += it.getOrThrow(); latch.countDown() })
+        assertFalse(fetcher.request("a") { results += it.getOrThrow(); latch.countDown() })
+        assertFalse(fetcher.request("a") { results += it.getOrThrow(); latch.countDown() })
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS))
+        assertEquals(setOf("cosmetics of a"), results)
+        assertEquals(1, requests["a"]?.get())
+    }
+
+    @Test
+    fun `a lobby is fetched with limited parallelism`() {
+        val fetcher = fetcher(parallelism = 4)
+        val keys = List(20) { "player$it" }
+        val latch = CountDownLatch(keys.size)
+
+        keys.forEach { key -> fetcher.request(key) { latch.countDown() } }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS))
+        assertEquals(keys.toSet(), requests.keys)
+        assertTrue(maxConcurrentRequests.get() <= 4)
+        assertEquals(0, fetcher.pendingCount)
+    }
+
+    @Test
+    fun `a failing callback does not stop the others`() {
+        val fetcher = fetcher(parallelism = 1)
+        val latch = CountDownLatch(2)
+
+        fetcher.request("a") { error("callback failed") }
+        fetcher.request("a") { latch.countDown() }
+        fetcher.request("b") { latch.countDown() }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS))
+        assertEquals(0, fetcher.pendingCount)
+
+        // The drain finished normally, so the next request is fetched as well
+        val next = CountDownLatch(1)
+        assertTrue(fetcher.request("c") { next.countDown() })
+        assertTrue(next.await(5, TimeUnit.SECONDS))
+    }
+
+}